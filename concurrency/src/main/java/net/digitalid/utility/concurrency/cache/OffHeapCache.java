@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.concurrency.cache;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCapturable;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.concurrency.map.ConcurrentMap;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.buffer.ByteBufferDecoder;
+import net.digitalid.utility.conversion.buffer.ByteBufferEncoder;
+import net.digitalid.utility.conversion.buffer.SizingEncoder;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This cache keeps its keys on the heap but stores its values encoded with their converter in direct buffers outside of the heap.
+ * The values are decoded whenever they are retrieved, which means that each retrieval returns a new object.
+ * <p>
+ * The memory of the cache is divided into chunks of equal size, which are filled one after the other.
+ * When all chunks are full, the oldest chunk is reused and all the entries whose values it contains are evicted.
+ * The memory of removed or replaced values is therefore only reclaimed when their chunk is reused.
+ * <p>
+ * As in {@link java.util.concurrent.ConcurrentHashMap}, neither keys nor values may be null.
+ * Reads can proceed in parallel, while modifications are serialized.
+ * 
+ * @param <K> the type of the keys of this cache.
+ * @param <V> the type of the values of this cache.
+ * @param <PROVIDED> the type of the object that is provided to recover the values.
+ */
+@Mutable
+public class OffHeapCache<K, V, @Specifiable PROVIDED> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+    
+    /* -------------------------------------------------- Chunks -------------------------------------------------- */
+    
+    /**
+     * The default size of the chunks in bytes.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024 * 1024;
+    
+    /**
+     * A chunk is a direct buffer together with the keys whose values were stored in it.
+     */
+    @Mutable
+    private static class Chunk<K> {
+        
+        private final @Nonnull ByteBuffer buffer;
+        
+        private final @Nonnull List<K> keys = new ArrayList<>();
+        
+        private int position = 0;
+        
+        private Chunk(@Positive int size) {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+        
+    }
+    
+    /**
+     * A slot describes the location of an encoded value in a chunk.
+     */
+    @Mutable
+    private static class Slot {
+        
+        private final @Nonnull Chunk<?> chunk;
+        
+        private final @NonNegative int offset;
+        
+        private final @NonNegative int length;
+        
+        private Slot(@Nonnull Chunk<?> chunk, @NonNegative int offset, @NonNegative int length) {
+            this.chunk = chunk;
+            this.offset = offset;
+            this.length = length;
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull Converter<V, PROVIDED> converter;
+    
+    private final PROVIDED provided;
+    
+    private final @Positive int chunkSize;
+    
+    private final @Nonnull Chunk<?>[] chunks;
+    
+    private int current = 0;
+    
+    private final @Nonnull Map<K, Slot> slots = new HashMap<>();
+    
+    private final @Nonnull ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected OffHeapCache(@Nonnull Converter<V, PROVIDED> converter, @Shared PROVIDED provided, @Positive int chunkSize, @Positive int numberOfChunks) {
+        Require.that(chunkSize > 0).orThrow("The chunk size has to be positive but was $.", chunkSize);
+        Require.that(numberOfChunks > 0).orThrow("The number of chunks has to be positive but was $.", numberOfChunks);
+        
+        this.converter = converter;
+        this.provided = provided;
+        this.chunkSize = chunkSize;
+        this.chunks = new Chunk<?>[numberOfChunks];
+    }
+    
+    /**
+     * Returns a new cache which stores its values with the given converter in at most the given number of bytes outside of the heap.
+     * The values are recovered with the given provided object.
+     */
+    @Pure
+    public static <K, V, @Specifiable PROVIDED> @Capturable @Nonnull OffHeapCache<K, V, PROVIDED> with(@Nonnull Converter<V, PROVIDED> converter, @Shared PROVIDED provided, @Positive long capacity) {
+        Require.that(capacity > 0).orThrow("The capacity has to be positive but was $.", capacity);
+        
+        final int chunkSize = (int) Math.min(capacity, DEFAULT_CHUNK_SIZE);
+        return new OffHeapCache<>(converter, provided, chunkSize, Math.toIntExact((capacity + chunkSize - 1) / chunkSize));
+    }
+    
+    /* -------------------------------------------------- Encoding -------------------------------------------------- */
+    
+    /**
+     * Returns a view of the encoded value in the given slot.
+     */
+    @Pure
+    private static @Nonnull ByteBuffer view(@Nonnull Slot slot) {
+        final @Nonnull ByteBuffer view = slot.chunk.buffer.duplicate();
+        view.limit(slot.offset + slot.length).position(slot.offset);
+        return view;
+    }
+    
+    /**
+     * Decodes the value in the given slot.
+     */
+    @Pure
+    private @Capturable @Nonnull V decode(@Nonnull Slot slot) {
+        try {
+            return ByteBufferDecoder.from(view(slot), Representation.INTERNAL).decodeObject(converter, provided);
+        } catch (@Nonnull StreamException | RecoveryException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /**
+     * Returns a slot with the given length in the current chunk and evicts the entries of the next chunk if the current chunk is full.
+     * This method may only be called while holding the write lock.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private @Nonnull Slot allocate(@Nonnull K key, @NonNegative int length) {
+        Require.that(length <= chunkSize).orThrow("The encoded value of $ bytes does not fit into a chunk of $ bytes.", length, chunkSize);
+        
+        @Nullable Chunk<K> chunk = (Chunk<K>) chunks[current];
+        if (chunk != null && chunkSize - chunk.position < length) {
+            current = (current + 1) % chunks.length;
+            chunk = (Chunk<K>) chunks[current];
+            if (chunk != null) {
+                for (@Nonnull K evictedKey : chunk.keys) {
+                    final @Nullable Slot slot = slots.get(evictedKey);
+                    if (slot != null && slot.chunk == chunk) { slots.remove(evictedKey); }
+                }
+                chunk.keys.clear();
+                chunk.position = 0;
+            }
+        }
+        if (chunk == null) {
+            chunk = new Chunk<>(chunkSize);
+            chunks[current] = chunk;
+        }
+        final @Nonnull Slot slot = new Slot(chunk, chunk.position, length);
+        chunk.position += length;
+        chunk.keys.add(key);
+        return slot;
+    }
+    
+    /**
+     * Encodes the given value into a new slot and associates it with the given key.
+     * This method may only be called while holding the write lock.
+     */
+    @Impure
+    private void store(@Captured @Nonnull K key, @NonCaptured @Unmodified @Nonnull V value, @NonNegative int length) {
+        final @Nonnull Slot slot = allocate(key, length);
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(view(slot), Representation.INTERNAL)) {
+            encoder.encodeObject(converter, value);
+        } catch (@Nonnull StreamException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        slots.put(key, slot);
+    }
+    
+    /* -------------------------------------------------- Locking -------------------------------------------------- */
+    
+    /**
+     * Returns the lock for reading the entries of this cache.
+     */
+    @Pure
+    private @Nonnull Lock readLock() {
+        return lock.readLock();
+    }
+    
+    /**
+     * Returns the lock for modifying the entries of this cache.
+     */
+    @Pure
+    private @Nonnull Lock writeLock() {
+        return lock.writeLock();
+    }
+    
+    /* -------------------------------------------------- Queries -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @NonNegative int size() {
+        readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            readLock().unlock();
+        }
+    }
+    
+    @Pure
+    @Override
+    public boolean containsKey(@NonCaptured @Unmodified @Nullable Object key) {
+        readLock().lock();
+        try {
+            return slots.containsKey(key);
+        } finally {
+            readLock().unlock();
+        }
+    }
+    
+    @Pure
+    @Override
+    public @Capturable @Nullable V get(@NonCaptured @Unmodified @Nullable Object key) {
+        readLock().lock();
+        try {
+            final @Nullable Slot slot = slots.get(key);
+            return slot == null ? null : decode(slot);
+        } finally {
+            readLock().unlock();
+        }
+    }
+    
+    /* -------------------------------------------------- Modifications -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public @Capturable @Nullable V put(@Captured @Nonnull K key, @NonCaptured @Unmodified @Nonnull V value) {
+        final int length = SizingEncoder.getEncodedSize(converter, value);
+        writeLock().lock();
+        try {
+            final @Nullable Slot previous = slots.get(key);
+            final @Nullable V result = previous == null ? null : decode(previous);
+            store(key, value, length);
+            return result;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    @Impure
+    @Override
+    public @Capturable @Nullable V putIfAbsent(@Captured @Nonnull K key, @NonCaptured @Unmodified @Nonnull V value) {
+        final int length = SizingEncoder.getEncodedSize(converter, value);
+        writeLock().lock();
+        try {
+            final @Nullable Slot present = slots.get(key);
+            if (present != null) { return decode(present); }
+            store(key, value, length);
+            return null;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    @Impure
+    @Override
+    public @NonCapturable @Nonnull V putIfAbsentElseReturnPresent(@Captured @Nonnull K key, @Captured @Nonnull V value) {
+        final @Nullable V present = putIfAbsent(key, value);
+        if (present == null) { return value; }
+        else { return present; }
+    }
+    
+    @Impure
+    @Override
+    public @Capturable @Nullable V replace(@Captured @Nonnull K key, @NonCaptured @Unmodified @Nonnull V value) {
+        final int length = SizingEncoder.getEncodedSize(converter, value);
+        writeLock().lock();
+        try {
+            final @Nullable Slot previous = slots.get(key);
+            if (previous == null) { return null; }
+            final @Nonnull V result = decode(previous);
+            store(key, value, length);
+            return result;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    @Impure
+    @Override
+    public boolean replace(@Captured @Nonnull K key, @NonCaptured @Unmodified @Nonnull V oldValue, @NonCaptured @Unmodified @Nonnull V newValue) {
+        final int length = SizingEncoder.getEncodedSize(converter, newValue);
+        writeLock().lock();
+        try {
+            final @Nullable Slot previous = slots.get(key);
+            if (previous == null || !decode(previous).equals(oldValue)) { return false; }
+            store(key, newValue, length);
+            return true;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    @Impure
+    @Override
+    public @Capturable @Nullable V remove(@NonCaptured @Unmodified @Nullable Object key) {
+        writeLock().lock();
+        try {
+            final @Nullable Slot previous = slots.remove(key);
+            return previous == null ? null : decode(previous);
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    @Impure
+    @Override
+    public boolean remove(@NonCaptured @Unmodified @Nullable Object key, @NonCaptured @Unmodified @Nullable Object value) {
+        writeLock().lock();
+        try {
+            final @Nullable Slot previous = slots.get(key);
+            if (previous == null || !decode(previous).equals(value)) { return false; }
+            slots.remove(key);
+            return true;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Removes all entries and releases the chunks so that their memory can be reclaimed by the garbage collector.
+     */
+    @Impure
+    @Override
+    public void clear() {
+        writeLock().lock();
+        try {
+            slots.clear();
+            for (int i = 0; i < chunks.length; i++) { chunks[i] = null; }
+            current = 0;
+        } finally {
+            writeLock().unlock();
+        }
+    }
+    
+    /* -------------------------------------------------- Views -------------------------------------------------- */
+    
+    /**
+     * Returns the keys of this cache at the time of the call.
+     */
+    @Pure
+    private @Capturable @Nonnull List<K> getKeys() {
+        readLock().lock();
+        try {
+            return new ArrayList<>(slots.keySet());
+        } finally {
+            readLock().unlock();
+        }
+    }
+    
+    /**
+     * Returns a view of the entries of this cache.
+     * The iterator of the view iterates over the keys at the time of its creation and decodes their values as it goes, skipping the entries which have been removed in the meantime.
+     */
+    @Pure
+    @Override
+    public @Nonnull Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            
+            @Pure
+            @Override
+            public @NonNegative int size() {
+                return OffHeapCache.this.size();
+            }
+            
+            @Pure
+            @Override
+            public @Capturable @Nonnull Iterator<Map.Entry<K, V>> iterator() {
+                final @Nonnull Iterator<K> keys = getKeys().iterator();
+                return new Iterator<Map.Entry<K, V>>() {
+                    
+                    private @Nullable Map.Entry<K, V> next = null;
+                    
+                    private @Nullable K last = null;
+                    
+                    @Impure
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && keys.hasNext()) {
+                            final @Nonnull K key = keys.next();
+                            final @Nullable V value = get(key);
+                            if (value != null) {
+                                next = new AbstractMap.SimpleEntry<K, V>(key, value) {
+                                    
+                                    @Impure
+                                    @Override
+                                    public @Capturable @Nonnull V setValue(@Captured @Nonnull V newValue) {
+                                        put(key, newValue);
+                                        return super.setValue(newValue);
+                                    }
+                                    
+                                };
+                            }
+                        }
+                        return next != null;
+                    }
+                    
+                    @Impure
+                    @Override
+                    public @Nonnull Map.Entry<K, V> next() {
+                        if (!hasNext()) { throw new NoSuchElementException(); }
+                        final @Nonnull Map.Entry<K, V> entry = next;
+                        last = entry.getKey();
+                        next = null;
+                        return entry;
+                    }
+                    
+                    @Impure
+                    @Override
+                    public void remove() {
+                        Require.that(last != null).orThrow("The method next() has to be called before remove().");
+                        
+                        OffHeapCache.this.remove(last);
+                        last = null;
+                    }
+                    
+                };
+            }
+            
+        };
+    }
+    
+    /* -------------------------------------------------- Cloneable -------------------------------------------------- */
+    
+    /**
+     * Returns a copy of this cache with the same configuration whose encoded values are copied into new chunks.
+     */
+    @Pure
+    @Override
+    public @Capturable @Nonnull OffHeapCache<K, V, PROVIDED> clone() {
+        final @Nonnull OffHeapCache<K, V, PROVIDED> clone = new OffHeapCache<>(converter, provided, chunkSize, chunks.length);
+        readLock().lock();
+        try {
+            for (@Nonnull Map.Entry<K, Slot> entry : slots.entrySet()) {
+                final @Nonnull Slot slot = clone.allocate(entry.getKey(), entry.getValue().length);
+                final @Nonnull ByteBuffer target = view(slot);
+                target.put(view(entry.getValue()));
+                clone.slots.put(entry.getKey(), slot);
+            }
+        } finally {
+            readLock().unlock();
+        }
+        return clone;
+    }
+    
+}
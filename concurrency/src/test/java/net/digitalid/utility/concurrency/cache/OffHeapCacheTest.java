@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.concurrency.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.buffer.SizingEncoder;
+import net.digitalid.utility.conversion.converters.StringConverter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OffHeapCacheTest {
+    
+    private static @Nonnull OffHeapCache<Integer, String, Void> cache(int chunkSize, int numberOfChunks) {
+        return new OffHeapCache<>(StringConverter.INSTANCE, null, chunkSize, numberOfChunks);
+    }
+    
+    private static @Nonnull String value(int number) {
+        return "value" + number;
+    }
+    
+    @Test
+    public void testPutAndGet() {
+        final @Nonnull OffHeapCache<Integer, String, Void> cache = OffHeapCache.with(StringConverter.INSTANCE, null, 1024);
+        assertNull(cache.put(1, "one"));
+        assertNull(cache.putIfAbsent(2, "two"));
+        assertEquals("one", cache.putIfAbsent(1, "uno"));
+        assertEquals(2, cache.size());
+        assertEquals("one", cache.get(1));
+        assertEquals("two", cache.get(2));
+        assertNotSame(cache.get(1), cache.get(1));
+        assertNull(cache.get(3));
+        assertTrue(cache.containsKey(2));
+        assertFalse(cache.containsKey(3));
+    }
+    
+    @Test
+    public void testOverwrite() {
+        final @Nonnull OffHeapCache<Integer, String, Void> cache = OffHeapCache.with(StringConverter.INSTANCE, null, 1024);
+        cache.put(1, "one");
+        assertEquals("one", cache.put(1, "eins"));
+        assertEquals("eins", cache.replace(1, "un"));
+        assertFalse(cache.replace(1, "one", "uno"));
+        assertTrue(cache.replace(1, "un", "uno"));
+        assertNull(cache.replace(2, "two"));
+        assertEquals(1, cache.size());
+        assertEquals("uno", cache.get(1));
+        
+        assertFalse(cache.remove(1, "one"));
+        assertTrue(cache.remove(1, "uno"));
+        assertNull(cache.remove(1));
+        assertTrue(cache.isEmpty());
+    }
+    
+    @Test
+    public void testEviction() {
+        final int length = SizingEncoder.getEncodedSize(StringConverter.INSTANCE, value(0));
+        final @Nonnull OffHeapCache<Integer, String, Void> cache = cache(4 * length, 2);
+        for (int i = 0; i < 8; i++) { cache.put(i, value(i)); }
+        assertEquals(8, cache.size());
+        
+        cache.put(8, value(8));
+        assertEquals(5, cache.size());
+        for (int i = 0; i < 4; i++) { assertFalse(cache.containsKey(i)); }
+        for (int i = 4; i < 9; i++) { assertEquals(value(i), cache.get(i)); }
+        
+        cache.clear();
+        assertTrue(cache.isEmpty());
+        cache.put(0, value(0));
+        assertEquals(value(0), cache.get(0));
+    }
+    
+    @Test(expected = RuntimeException.class)
+    public void testValueLargerThanChunk() {
+        cache(4, 1).put(0, value(0));
+    }
+    
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final int threads = 8;
+        final int entries = 500;
+        final @Nonnull OffHeapCache<Integer, String, Void> cache = cache(64 * 1024, 4);
+        final @Nonnull ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final @Nonnull List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = thread * entries; i < (thread + 1) * entries; i++) {
+                        cache.put(i, value(i));
+                        assertEquals(value(i), cache.get(i));
+                        cache.put(-1, value(thread));
+                        assertNotNull(cache.get(-1));
+                    }
+                    return null;
+                }));
+            }
+            for (@Nonnull Future<?> future : futures) { future.get(); }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(threads * entries + 1, cache.size());
+        for (int i = 0; i < threads * entries; i++) { assertEquals(value(i), cache.get(i)); }
+        assertTrue(cache.get(-1).startsWith("value"));
+    }
+    
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+/**
+ * This utility class describes the binary format of the {@link ByteBufferEncoder} and the {@link ByteBufferDecoder}.
+ * Integers of 32 and 64 bits are zig-zag encoded as variable-length integers with seven bits per byte,
+ * lengths and sizes are encoded as unsigned variable-length integers and strings as length-prefixed UTF-8.
+ * The size methods of this class are used by {@link SizingEncoder#getEncodedSize(Converter, java.lang.Object)} in order to allocate exactly-sized buffers
+ * and by the built-in converters in order to implement {@link Converter#getEncodedSize(java.lang.Object)} for this format.
+ */
+@Utility
+public abstract class BinaryFormat {
+    
+    /* -------------------------------------------------- Zig-Zag -------------------------------------------------- */
+    
+    /**
+     * Maps the given signed value to an unsigned value so that values with a small magnitude remain small.
+     */
+    @Pure
+    public static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+    
+    /**
+     * Maps the given signed value to an unsigned value so that values with a small magnitude remain small.
+     */
+    @Pure
+    public static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+    
+    /**
+     * Reverts the {@link #zigZag(int) zig-zag mapping} of the given value.
+     */
+    @Pure
+    public static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /**
+     * Reverts the {@link #zigZag(long) zig-zag mapping} of the given value.
+     */
+    @Pure
+    public static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    /* -------------------------------------------------- Variable-Length Integers -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of the given unsigned value as a variable-length integer.
+     */
+    @Pure
+    public static @Positive int sizeOfVarint(int value) {
+        return value == 0 ? 1 : (31 - Integer.numberOfLeadingZeros(value)) / 7 + 1;
+    }
+    
+    /**
+     * Returns the number of bytes of the given unsigned value as a variable-length integer.
+     */
+    @Pure
+    public static @Positive int sizeOfVarint(long value) {
+        return value == 0 ? 1 : (63 - Long.numberOfLeadingZeros(value)) / 7 + 1;
+    }
+    
+    /**
+     * Returns the number of bytes of the given length or size.
+     */
+    @Pure
+    public static @Positive int sizeOfLength(@NonNegative int length) {
+        return sizeOfVarint(length);
+    }
+    
+    /**
+     * Returns the number of bytes of the given int value.
+     */
+    @Pure
+    public static @Positive int sizeOfInteger32(int value) {
+        return sizeOfVarint(zigZag(value));
+    }
+    
+    /**
+     * Returns the number of bytes of the given long value.
+     */
+    @Pure
+    public static @Positive int sizeOfInteger64(long value) {
+        return sizeOfVarint(zigZag(value));
+    }
+    
+    /**
+     * Returns the number of bytes of the given big integer value.
+     */
+    @Pure
+    public static @Positive long sizeOfInteger(@Nonnull BigInteger value) {
+        return sizeOfBinary(value.bitLength() / 8 + 1);
+    }
+    
+    /* -------------------------------------------------- Binaries -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of a byte array with the given length including its length.
+     */
+    @Pure
+    public static @Positive long sizeOfBinary(@NonNegative int length) {
+        return sizeOfLength(length) + (long) length;
+    }
+    
+    /**
+     * Returns the number of bytes of the given byte array including its length.
+     */
+    @Pure
+    public static @Positive long sizeOfBinary(@Nonnull byte[] bytes) {
+        return sizeOfBinary(bytes.length);
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of the given array of 32-bit integers including its length.
+     */
+    @Pure
+    public static @Positive long sizeOfInteger32Array(@Nonnull int[] values) {
+        return sizeOfLength(values.length) + 4L * values.length;
+    }
+    
+    /**
+     * Returns the number of bytes of the given array of 64-bit integers including its length.
+     */
+    @Pure
+    public static @Positive long sizeOfInteger64Array(@Nonnull long[] values) {
+        return sizeOfLength(values.length) + 8L * values.length;
+    }
+    
+    /**
+     * Returns the number of bytes of the given array of 64-bit decimals including its length.
+     */
+    @Pure
+    public static @Positive long sizeOfDecimal64Array(@Nonnull double[] values) {
+        return sizeOfLength(values.length) + 8L * values.length;
+    }
+    
+    /* -------------------------------------------------- Strings -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of the given string in UTF-8.
+     * Unpaired surrogates are counted as a single byte since they are encoded as a question mark.
+     */
+    @Pure
+    public static @NonNegative int lengthInUTF8(@Nonnull CharSequence string) {
+        final int length = string.length();
+        int result = length;
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    result += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                    result += 2;
+                    i += 1;
+                } else if (!Character.isSurrogate(c)) {
+                    result += 2;
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of bytes of the given string including its length.
+     */
+    @Pure
+    public static @Positive long sizeOfString(@Nonnull CharSequence string) {
+        return sizeOfBinary(lengthInUTF8(string));
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of the given nullable object when it is encoded with the given converter.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @Positive long sizeOfNullableObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nullable TYPE object) {
+        return object == null ? 1 : 1 + (long) SizingEncoder.getEncodedSize(converter, object);
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of the given iterable when its elements are encoded with the given converter.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @Positive long sizeOfIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        long result = 0;
+        int count = 0;
+        for (@Nonnull TYPE element : iterable) {
+            result += SizingEncoder.getEncodedSize(converter, element);
+            count += 1;
+        }
+        return sizeOfLength(count) + result;
+    }
+    
+    /**
+     * Returns the number of bytes of the given iterable when its nullable elements are encoded with the given converter.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @Positive long sizeOfIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        long result = 0;
+        int count = 0;
+        for (@Nullable TYPE element : iterable) {
+            result += sizeOfNullableObject(converter, element);
+            count += 1;
+        }
+        return sizeOfLength(count) + result;
+    }
+    
+    /**
+     * Returns the number of bytes of the given map when its entries are encoded with the given converters.
+     */
+    @Pure
+    public static <@Unspecifiable KEY, @Unspecifiable VALUE> @Positive long sizeOfMap(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> map) {
+        long result = sizeOfLength(map.size());
+        for (Map.@Nonnull Entry<@Nonnull KEY, @Nonnull VALUE> entry : map.entrySet()) {
+            result += SizingEncoder.getEncodedSize(keyConverter, entry.getKey()) + (long) SizingEncoder.getEncodedSize(valueConverter, entry.getValue());
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of bytes of the given map when its nullable keys and values are encoded with the given converters.
+     */
+    @Pure
+    public static <@Unspecifiable KEY, @Unspecifiable VALUE> @Positive long sizeOfMapWithNullableValues(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nullable KEY, @Nullable VALUE> map) {
+        long result = sizeOfLength(map.size());
+        for (Map.@Nonnull Entry<@Nullable KEY, @Nullable VALUE> entry : map.entrySet()) {
+            result += sizeOfNullableObject(keyConverter, entry.getKey()) + sizeOfNullableObject(valueConverter, entry.getValue());
+        }
+        return result;
+    }
+    
+}
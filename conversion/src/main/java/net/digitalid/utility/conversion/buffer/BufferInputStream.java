@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A buffer input stream reads the remaining bytes of a source buffer without copying them first.
+ */
+@Mutable
+class BufferInputStream extends InputStream {
+    
+    /* -------------------------------------------------- Source -------------------------------------------------- */
+    
+    private final @Nonnull ByteBuffer source;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    BufferInputStream(@Captured @Nonnull ByteBuffer source) {
+        this.source = source;
+    }
+    
+    /* -------------------------------------------------- InputStream -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public int read() {
+        return source.hasRemaining() ? source.get() & 0xFF : -1;
+    }
+    
+    @Impure
+    @Override
+    public int read(@Nonnull byte[] bytes, @NonNegative int offset, @NonNegative int length) {
+        if (length == 0) { return 0; }
+        if (!source.hasRemaining()) { return -1; }
+        final int count = Math.min(length, source.remaining());
+        source.get(bytes, offset, count);
+        return count;
+    }
+    
+    @Impure
+    @Override
+    public long skip(long count) {
+        final int skipped = (int) Math.max(0, Math.min(count, source.remaining()));
+        source.position(source.position() + skipped);
+        return skipped;
+    }
+    
+    @Pure
+    @Override
+    public @NonNegative int available() {
+        return source.remaining();
+    }
+    
+}
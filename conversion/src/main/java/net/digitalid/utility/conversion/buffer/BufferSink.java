@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A buffer sink puts the bytes into a target buffer with a fixed capacity.
+ */
+@Mutable
+class BufferSink extends ByteSink {
+    
+    /* -------------------------------------------------- Target -------------------------------------------------- */
+    
+    private final @Nonnull ByteBuffer target;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    BufferSink(@Nonnull ByteBuffer target) {
+        this.target = target;
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() > target.remaining()) { throw new IOException("The target buffer has not enough space for the encoding."); }
+        target.put(buffer);
+    }
+    
+    @Impure
+    @Override
+    void finish() {}
+    
+}
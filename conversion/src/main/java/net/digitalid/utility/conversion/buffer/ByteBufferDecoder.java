@@ -0,0 +1,1685 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.conversion.model.SubtypeRegistry;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.failable.FailableCollector;
+import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.size.Empty;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This decoder reads the values in the {@link BinaryFormat binary format} from a channel or a buffer.
+ * The bytes are read from the channel into a direct buffer from the {@link ByteBufferPool}, whereas a given buffer is decoded without copying it.
+ * 
+ * @see ByteBufferEncoder
+ */
+@Mutable
+public class ByteBufferDecoder implements Decoder<StreamException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return representation;
+    }
+    
+    /* -------------------------------------------------- Buffer -------------------------------------------------- */
+    
+    /**
+     * Stores the buffer from which the values are decoded.
+     * The buffer is always ready to be read.
+     */
+    private @Nonnull ByteBuffer buffer;
+    
+    /**
+     * Stores whether the buffer was acquired from the pool.
+     */
+    private boolean pooled;
+    
+    /**
+     * Stores the source from which the buffer is refilled or null if the values are decoded directly from the buffer of the caller.
+     */
+    private @Nullable ByteSource source;
+    
+    /**
+     * Stores the channel which is closed when this decoder is closed.
+     */
+    private final @Nullable Closeable closeable;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ByteBufferDecoder(@Nonnull Representation representation, @Nonnull ByteBuffer buffer, boolean pooled, @Nullable ByteSource source, @Nullable Closeable closeable) {
+        this.representation = representation;
+        this.buffer = buffer;
+        this.pooled = pooled;
+        this.source = source;
+        this.closeable = closeable;
+    }
+    
+    /**
+     * Returns a new decoder with the given representation which reads from the given channel.
+     * The channel is closed when the returned decoder is closed.
+     */
+    @Pure
+    public static @Nonnull ByteBufferDecoder from(@Captured @Nonnull ReadableByteChannel channel, @Nonnull Representation representation) {
+        final @Nonnull ByteBuffer buffer = ByteBufferPool.acquire();
+        buffer.flip();
+        return new ByteBufferDecoder(representation, buffer, true, new ChannelSource(channel), channel);
+    }
+    
+    /**
+     * Returns a new decoder with the given representation which reads from the given input stream.
+     * The input stream is closed when the returned decoder is closed.
+     */
+    @Pure
+    public static @Nonnull ByteBufferDecoder from(@Captured @Nonnull InputStream inputStream, @Nonnull Representation representation) {
+        return from(Channels.newChannel(inputStream), representation);
+    }
+    
+    /**
+     * Returns a new decoder with the given representation which reads the remaining bytes of the given buffer.
+     * The content of the buffer is not copied and its position is not changed.
+     */
+    @Pure
+    public static @Nonnull ByteBufferDecoder from(@NonCaptured @Nonnull ByteBuffer buffer, @Nonnull Representation representation) {
+        return new ByteBufferDecoder(representation, buffer.duplicate(), false, null, null);
+    }
+    
+    /* -------------------------------------------------- Exceptions -------------------------------------------------- */
+    
+    /**
+     * Returns a stream exception which indicates that the encoding ended prematurely.
+     */
+    @Pure
+    private static @Nonnull StreamException endOfEncoding() {
+        return ByteBufferEncoder.wrap(new EOFException("The encoding ended prematurely."));
+    }
+    
+    /* -------------------------------------------------- Filling -------------------------------------------------- */
+    
+    /**
+     * Reads from the source until the buffer contains at least the given number of bytes.
+     */
+    @Impure
+    private void fill(@NonNegative int count) throws StreamException {
+        if (source == null) { throw endOfEncoding(); }
+        digest();
+        buffer.compact();
+        try {
+            while (buffer.position() < count) {
+                if (source.read(buffer) < 0) { throw endOfEncoding(); }
+            }
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        } finally {
+            buffer.flip();
+            hashMark = 0;
+        }
+    }
+    
+    /**
+     * Ensures that the buffer contains at least the given number of bytes.
+     */
+    @Impure
+    private void require(@NonNegative int count) throws StreamException {
+        if (stream != null) { finishStream(); }
+        if (buffer.remaining() < count) { fill(count); }
+    }
+    
+    /* -------------------------------------------------- Schema -------------------------------------------------- */
+    
+    /**
+     * Decodes the fingerprint written by {@link ByteBufferEncoder#encodeFingerprint(Converter)} and checks that it matches the
+     * {@link FieldLayout#getFingerprint() fingerprint} of the given converter in the representation of this decoder.
+     * 
+     * @throws RecoveryException if the objects were encoded with an incompatible converter.
+     */
+    @Impure
+    public void decodeFingerprint(@Nonnull Converter<?, ?> converter) throws StreamException, RecoveryException {
+        require(8);
+        final long encodedFingerprint = buffer.getLong();
+        final long expectedFingerprint = FieldLayout.of(converter, representation).getFingerprint();
+        if (encodedFingerprint != expectedFingerprint) {
+            throw RecoveryExceptionBuilder.withMessage(Strings.format("The fingerprint $ of the encoding does not match the fingerprint $ of the converter for $.", Long.toHexString(encodedFingerprint), Long.toHexString(expectedFingerprint), converter.getTypeName())).build();
+        }
+    }
+    
+    /* -------------------------------------------------- Frames -------------------------------------------------- */
+    
+    /**
+     * Decodes the size of a frame and returns a decoder for the bytes of the frame, which are skipped in this decoder.
+     * The returned decoder is only valid until the next value is decoded with this decoder.
+     */
+    @Impure
+    private @Nonnull ByteBufferDecoder decodeFrame() throws StreamException {
+        final int length = decodeLength();
+        final @Nonnull ByteBuffer frame;
+        if (length <= buffer.capacity()) {
+            frame = slice(length);
+        } else {
+            final @Nonnull byte[] bytes = new byte[length];
+            decodeBytes(bytes, 0, length);
+            frame = ByteBuffer.wrap(bytes);
+        }
+        final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, frame, false, null, null);
+        decoder.stringTable = stringTable;
+        return decoder;
+    }
+    
+    /**
+     * Checks that all the bytes of this decoder for a frame have been decoded.
+     */
+    @Pure
+    void checkFrame(@Nonnull Converter<?, ?> converter) throws RecoveryException {
+        if (buffer.hasRemaining()) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The value of type $ did not consume its entire frame.", converter.getTypeName())).build(); }
+    }
+    
+    /**
+     * Skips the given number of bytes.
+     */
+    @Impure
+    private void skip(@NonNegative int length) throws StreamException {
+        if (stream != null) { finishStream(); }
+        skipBytes(length);
+    }
+    
+    /**
+     * Skips the given number of bytes without finishing the open binary stream.
+     */
+    @Impure
+    private void skipBytes(@NonNegative int length) throws StreamException {
+        int remaining = length;
+        while (remaining > 0) {
+            if (!buffer.hasRemaining()) { fill(1); }
+            final int count = Math.min(remaining, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            remaining -= count;
+        }
+    }
+    
+    /* -------------------------------------------------- Records -------------------------------------------------- */
+    
+    /**
+     * Stores whether this decoder is decoding the fields of a record, in which case composite fields are prefixed with their size.
+     */
+    private boolean framing = false;
+    
+    /**
+     * Decodes an object with the given converter that was encoded as a record with {@link ByteBufferEncoder#encodeRecord(Converter, Object)}.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeRecord(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        Require.that(!framing).orThrow("A record cannot be decoded within a record.");
+        Require.that(!isReferencing()).orThrow("A record cannot be decoded while referencing.");
+        
+        framing = true;
+        try {
+            return converter.recover(this, provided);
+        } finally {
+            framing = false;
+        }
+    }
+    
+    /* -------------------------------------------------- Projection -------------------------------------------------- */
+    
+    /**
+     * Decodes or skips the next value of the given primitive type.
+     */
+    @Impure
+    private @Nullable Object decodePrimitive(@Nonnull CustomType type, boolean skip) throws StreamException, RecoveryException {
+        switch (type.getTypeName()) {
+            case "BOOLEAN": return decodeBoolean();
+            case "INTEGER08": return decodeInteger08();
+            case "INTEGER16": return decodeInteger16();
+            case "INTEGER32": return decodeInteger32();
+            case "INTEGER64": return decodeInteger64();
+            case "DECIMAL32": return decodeDecimal32();
+            case "DECIMAL64": return decodeDecimal64();
+            case "STRING01": return decodeString01();
+            case "BINARY128": if (skip) { skip(16); return null; } else { return decodeBinary128(); }
+            case "BINARY256": if (skip) { skip(32); return null; } else { return decodeBinary256(); }
+            case "INTEGER": if (skip) { skip(decodeLength()); return null; } else { return decodeInteger(); }
+            case "BINARY": if (skip) { skip(decodeLength()); return null; } else { return decodeBinary(); }
+            case "INTEGER32ARRAY": if (skip) { skip(Math.multiplyExact(decodeArrayLength(4), 4)); return null; } else { return decodeInteger32Array(); }
+            case "INTEGER64ARRAY": if (skip) { skip(Math.multiplyExact(decodeArrayLength(8), 8)); return null; } else { return decodeInteger64Array(); }
+            case "DECIMAL64ARRAY": if (skip) { skip(Math.multiplyExact(decodeArrayLength(8), 8)); return null; } else { return decodeDecimal64Array(); }
+            case "STRING64": case "STRING128": case "STRING": if (skip) { skip(decodeLength()); return null; } else { return decodeString(); }
+            default: throw RecoveryExceptionBuilder.withMessage(Strings.format("Values of the type $ cannot be projected.", type.getTypeName())).build();
+        }
+    }
+    
+    /**
+     * Decodes the next value of the given type, which is preceded by a flag if the value is nullable.
+     * The elements of collections and the keys and values of maps are preceded by a flag if the elements are nullable.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private @Nullable Object decodeValue(@Nonnull CustomType type, boolean nullable, boolean nullableElements) throws StreamException, RecoveryException {
+        if (nullable && !decodeBoolean()) { return null; }
+        if (type instanceof CustomType.CustomConverterType) {
+            return decodeObject((Converter<?, Object>) ((CustomType.CustomConverterType) type).getConverter(), null);
+        } else if (type instanceof CustomType.CompositeType) {
+            final @Nonnull CustomType elementType = ((CustomType.CompositeType) type).getCompositeType();
+            final int size = decodeLength();
+            final @Nonnull List<@Nullable Object> list = new ArrayList<>(Math.min(size, 1024));
+            for (int i = 0; i < size; i++) { list.add(decodeValue(elementType, nullableElements, false)); }
+            return list;
+        } else if (type instanceof CustomType.KeyValueType) {
+            final @Nonnull CustomType keyType = ((CustomType.KeyValueType) type).getKeyType();
+            final @Nonnull CustomType valueType = ((CustomType.KeyValueType) type).getValueType();
+            final int size = decodeLength();
+            final @Nonnull Map<@Nullable Object, @Nullable Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < size; i++) { map.put(decodeValue(keyType, nullableElements, false), decodeValue(valueType, nullableElements, false)); }
+            return map;
+        } else {
+            return decodePrimitive(type, false);
+        }
+    }
+    
+    /**
+     * Decodes only the given fields of an object of the given converter that was encoded as a record with {@link ByteBufferEncoder#encodeRecord(Converter, Object)}.
+     * The composite fields which are not requested are skipped without being decoded.
+     * Objects are recovered without a provided value and collections are returned as lists and maps of their elements.
+     * 
+     * @return the values of the requested fields in the order in which they are encoded.
+     */
+    @Impure
+    public @Nonnull Map<@Nonnull CustomField, @Nullable Object> decodeProjection(@Nonnull Converter<?, ?> converter, @Nonnull @NonNullableElements FiniteIterable<CustomField> fields) throws StreamException, RecoveryException {
+        Require.that(!framing).orThrow("A projection cannot be decoded within a record.");
+        
+        final @Nonnull Set<CustomField> requested = fields.toSet();
+        final @Nonnull Map<@Nonnull CustomField, @Nullable Object> values = new LinkedHashMap<>();
+        for (@Nonnull CustomField field : converter.getFields(representation)) {
+            if (requested.contains(field)) { values.put(field, decodeField(converter, field)); }
+            else { skipField(field); }
+        }
+        return Collections.unmodifiableMap(values);
+    }
+    
+    /**
+     * Decodes the value of the given field of a record of the given converter.
+     */
+    @Impure
+    private @Nullable Object decodeField(@Nonnull Converter<?, ?> converter, @Nonnull CustomField field) throws StreamException, RecoveryException {
+        final @Nonnull CustomType type = field.getCustomType();
+        final boolean nullable = field.isAnnotatedWith(Nullable.class);
+        if (isFramed(type)) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final boolean object = type instanceof CustomType.CustomConverterType;
+            final @Nullable Object value = frame.decodeValue(type, object && nullable, !object && !field.isAnnotatedWith(NonNullableElements.class));
+            frame.checkFrame(converter);
+            return value;
+        } else if (type instanceof CustomType.CustomConverterType) {
+            return decodeValue(type, nullable, false);
+        } else {
+            return nullable && !decodeBoolean() ? null : decodePrimitive(type, false);
+        }
+    }
+    
+    /**
+     * Returns whether a field of the given type is prefixed with its size in a record.
+     */
+    @Pure
+    private static boolean isFramed(@Nonnull CustomType type) {
+        if (type instanceof CustomType.CustomConverterType) { return !((CustomType.CustomConverterType) type).getConverter().isPrimitiveConverter(); }
+        else { return type instanceof CustomType.CompositeType || type instanceof CustomType.KeyValueType; }
+    }
+    
+    /**
+     * Skips the given field of a record without decoding its composite values.
+     */
+    @Impure
+    private void skipField(@Nonnull CustomField field) throws StreamException, RecoveryException {
+        final @Nonnull CustomType type = field.getCustomType();
+        final boolean nullable = field.isAnnotatedWith(Nullable.class);
+        if (isFramed(type)) { skip(decodeLength()); }
+        else if (type instanceof CustomType.CustomConverterType) { decodeValue(type, nullable, false); }
+        else if (!nullable || decodeBoolean()) { decodePrimitive(type, true); }
+    }
+    
+    /* -------------------------------------------------- Deltas -------------------------------------------------- */
+    
+    /**
+     * Returns the offsets at which the fields of the given record start followed by the offset at which the record ends.
+     * The offsets refer to the given buffer, whose position is not changed.
+     */
+    @Impure
+    static @Nonnull int[] getFieldOffsets(@Nonnull Converter<?, ?> converter, @Nonnull Representation representation, @NonCaptured @Nonnull ByteBuffer record) throws StreamException, RecoveryException {
+        final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, record.duplicate(), false, null, null);
+        final @Nonnull ImmutableList<CustomField> fields = converter.getFields(representation);
+        final @Nonnull int[] offsets = new int[fields.size() + 1];
+        for (int i = 0; i < fields.size(); i++) {
+            offsets[i] = decoder.buffer.position();
+            decoder.skipField(fields.get(i));
+        }
+        offsets[fields.size()] = decoder.buffer.position();
+        decoder.checkFrame(converter);
+        return offsets;
+    }
+    
+    /**
+     * Decodes a delta that was encoded with {@link ByteBufferEncoder#encodeDelta(Converter, Object, Object)} and applies it to the given base object.
+     * The fields which did not change are taken from the encoding of the base object, which has to be equal to the old object of the delta.
+     * 
+     * @return a new object with the fields of the base object and the changed fields of the delta, which is recovered with the given provided object.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeDelta(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @NonCaptured @Unmodified @Nonnull TYPE base) throws StreamException, RecoveryException {
+        final @Nonnull byte[] baseRecord = ByteBufferEncoder.toRecord(converter, base, representation);
+        final @Nonnull int[] offsets = getFieldOffsets(converter, representation, ByteBuffer.wrap(baseRecord));
+        final int numberOfFields = decodeLength();
+        if (numberOfFields != offsets.length - 1) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The delta has $ fields but the type $ has $ fields.", numberOfFields, converter.getTypeName(), offsets.length - 1)).build(); }
+        
+        final int numberOfChanges = decodeLength();
+        final @Nonnull int[] changedFields = new int[Math.min(numberOfChanges, numberOfFields)];
+        final @Nonnull byte[][] changedValues = new byte[changedFields.length][];
+        int length = baseRecord.length;
+        int field = -1;
+        for (int i = 0; i < numberOfChanges; i++) {
+            field += decodeLength() + 1;
+            if (field >= numberOfFields || i >= changedFields.length) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The delta refers to a field which the type $ does not have.", converter.getTypeName())).build(); }
+            changedFields[i] = field;
+            changedValues[i] = decodeBinary();
+            length += changedValues[i].length - (offsets[field + 1] - offsets[field]);
+        }
+        
+        final @Nonnull ByteBuffer record = ByteBuffer.allocate(length);
+        int copied = 0;
+        for (int i = 0; i < numberOfChanges; i++) {
+            record.put(baseRecord, offsets[copied], offsets[changedFields[i]] - offsets[copied]).put(changedValues[i]);
+            copied = changedFields[i] + 1;
+        }
+        record.put(baseRecord, offsets[copied], offsets[numberOfFields] - offsets[copied]).flip();
+        
+        final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, record, false, null, null);
+        final @Nonnull TYPE object = decoder.decodeRecord(converter, provided);
+        decoder.checkFrame(converter);
+        return object;
+    }
+    
+    /* -------------------------------------------------- References -------------------------------------------------- */
+    
+    /**
+     * Stores the objects which have been decoded since referencing started or null if this decoder is not referencing.
+     */
+    private @Nullable List<@Nonnull Object> references = null;
+    
+    /**
+     * Stores the converters of the objects which have been decoded since referencing started.
+     */
+    private final @Nonnull List<@Nonnull Converter<?, ?>> referencedConverters = new ArrayList<>();
+    
+    /**
+     * Returns whether this decoder decodes repeated objects from references.
+     */
+    @Pure
+    public boolean isReferencing() {
+        return references != null;
+    }
+    
+    /**
+     * Starts decoding the objects of non-primitive converters that were encoded after {@link ByteBufferEncoder#startReferencing(boolean)}.
+     * All references to the same object return the instance that was recovered first, regardless of the provided object with which they are decoded.
+     */
+    @Impure
+    public void startReferencing() {
+        Require.that(!isReferencing()).orThrow("The decoder may not already be referencing.");
+        Require.that(!framing).orThrow("The decoder cannot start referencing within a record.");
+        
+        this.references = new ArrayList<>();
+    }
+    
+    /**
+     * Stops decoding repeated objects from references and forgets the decoded objects.
+     */
+    @Impure
+    public void stopReferencing() {
+        Require.that(isReferencing()).orThrow("The decoder has to be referencing.");
+        
+        this.references = null;
+        referencedConverters.clear();
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    @SuppressWarnings("unchecked")
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        final @Nullable List<@Nonnull Object> references = this.references;
+        if (references != null && !converter.isPrimitiveConverter()) {
+            final int reference = decodeLength();
+            if (reference == 0) {
+                final @Nonnull TYPE object = converter.recover(this, provided);
+                references.add(object);
+                referencedConverters.add(converter);
+                return object;
+            }
+            if (reference > references.size() || !referencedConverters.get(reference - 1).equals(converter)) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The reference $ does not refer to a previous object of the type $.", reference, converter.getTypeName())).build(); }
+            return (TYPE) references.get(reference - 1);
+        }
+        if (framing && !converter.isPrimitiveConverter()) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final @Nonnull TYPE object = frame.decodeObject(converter, provided);
+            frame.checkFrame(converter);
+            return object;
+        }
+        return converter.recover(this, provided);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nullable TYPE decodeNullableObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        if (framing && !converter.isPrimitiveConverter()) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final @Nullable TYPE object = frame.decodeNullableObject(converter, provided);
+            frame.checkFrame(converter);
+            return object;
+        }
+        return decodeBoolean() ? decodeObject(converter, provided) : null;
+    }
+    
+    /* -------------------------------------------------- Polymorphism -------------------------------------------------- */
+    
+    /**
+     * Decodes an object that was encoded with {@link ByteBufferEncoder#encodePolymorphicObject(Converter, Object)} in the subtype hierarchy of the given converter.
+     * 
+     * @throws RecoveryException if the decoded tag does not belong to a converter in the subtype hierarchy.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodePolymorphicObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        final @Nonnull SubtypeRegistry<TYPE, PROVIDED> registry = SubtypeRegistry.of(converter);
+        final int tag = decodeLength();
+        if (tag >= registry.getConverters().size()) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The tag $ does not belong to a converter in the hierarchy of $.", tag, converter.getTypeName())).build(); }
+        return decodeObject(registry.getConverter(tag), provided);
+    }
+    
+    /* -------------------------------------------------- Variable-Length Integers -------------------------------------------------- */
+    
+    /**
+     * Decodes an unsigned variable-length integer.
+     */
+    @Impure
+    private int decodeVarint32() throws StreamException {
+        if (stream != null) { finishStream(); }
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!buffer.hasRemaining()) { fill(1); }
+            final byte value = buffer.get();
+            result |= (value & 0x7F) << shift;
+            if (value >= 0) { return result; }
+        }
+        throw ByteBufferEncoder.wrap(new IOException("A variable-length integer is longer than 5 bytes."));
+    }
+    
+    /**
+     * Decodes an unsigned variable-length integer.
+     */
+    @Impure
+    private long decodeVarint64() throws StreamException {
+        if (stream != null) { finishStream(); }
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) { fill(1); }
+            final byte value = buffer.get();
+            result |= (long) (value & 0x7F) << shift;
+            if (value >= 0) { return result; }
+        }
+        throw ByteBufferEncoder.wrap(new IOException("A variable-length integer is longer than 10 bytes."));
+    }
+    
+    /**
+     * Decodes a length or size.
+     */
+    @Impure
+    @NonNegative int decodeLength() throws StreamException {
+        final int length = decodeVarint32();
+        if (length < 0) { throw ByteBufferEncoder.wrap(new IOException("A length may not be negative.")); }
+        return length;
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public boolean decodeBoolean() throws StreamException {
+        require(1);
+        return buffer.get() != 0;
+    }
+    
+    @Impure
+    @Override
+    public byte decodeInteger08() throws StreamException {
+        require(1);
+        return buffer.get();
+    }
+    
+    @Impure
+    @Override
+    public short decodeInteger16() throws StreamException {
+        require(2);
+        return buffer.getShort();
+    }
+    
+    @Impure
+    @Override
+    public int decodeInteger32() throws StreamException {
+        return BinaryFormat.unZigZag(decodeVarint32());
+    }
+    
+    @Impure
+    @Override
+    public long decodeInteger64() throws StreamException {
+        return BinaryFormat.unZigZag(decodeVarint64());
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull BigInteger decodeInteger() throws StreamException {
+        final @Nonnull byte[] bytes = decodeBinary();
+        return bytes.length == 0 ? BigInteger.ZERO : new BigInteger(bytes);
+    }
+    
+    @Impure
+    @Override
+    public float decodeDecimal32() throws StreamException {
+        require(4);
+        return buffer.getFloat();
+    }
+    
+    @Impure
+    @Override
+    public double decodeDecimal64() throws StreamException {
+        require(8);
+        return buffer.getDouble();
+    }
+    
+    @Impure
+    @Override
+    public char decodeString01() throws StreamException {
+        require(2);
+        return buffer.getChar();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @MaxSize(64) String decodeString64() throws StreamException {
+        return decodeString();
+    }
+    
+    /**
+     * Stores the characters of the most recently decoded string.
+     */
+    private @Nonnull char[] characters = new char[64];
+    
+    /**
+     * Returns the next byte of the current string or a negative value if it is not a continuation byte.
+     * The byte is only consumed if it is a continuation byte.
+     */
+    @Impure
+    private int continuation(int end) {
+        if (buffer.position() >= end) { return -1; }
+        final int value = buffer.get(buffer.position());
+        if ((value & 0xC0) != 0x80) { return -1; }
+        buffer.position(buffer.position() + 1);
+        return value & 0x3F;
+    }
+    
+    /**
+     * Decodes the given number of bytes from the buffer as UTF-8 without copying them first.
+     * Malformed sequences are replaced with the replacement character.
+     */
+    @Impure
+    private @Nonnull String decodeUTF8(@NonNegative int length) {
+        if (characters.length < length) { characters = new char[Math.max(length, 2 * characters.length)]; }
+        final @Nonnull char[] characters = this.characters;
+        final int end = buffer.position() + length;
+        int count = 0;
+        while (buffer.position() < end) {
+            final int lead = buffer.get() & 0xFF;
+            if (lead < 0x80) {
+                characters[count++] = (char) lead;
+            } else if (lead >= 0xC2 && lead < 0xE0) {
+                final int b1 = continuation(end);
+                characters[count++] = b1 < 0 ? '\uFFFD' : (char) (((lead & 0x1F) << 6) | b1);
+            } else if (lead >= 0xE0 && lead < 0xF0) {
+                final int b1 = continuation(end);
+                final int b2 = b1 < 0 ? -1 : continuation(end);
+                final int value = ((lead & 0x0F) << 12) | (b1 << 6) | b2;
+                characters[count++] = b2 < 0 || value < 0x800 || Character.isSurrogate((char) value) ? '\uFFFD' : (char) value;
+            } else if (lead >= 0xF0 && lead < 0xF5) {
+                final int b1 = continuation(end);
+                final int b2 = b1 < 0 ? -1 : continuation(end);
+                final int b3 = b2 < 0 ? -1 : continuation(end);
+                final int value = ((lead & 0x07) << 18) | (b1 << 12) | (b2 << 6) | b3;
+                if (b3 < 0 || value < 0x10000 || value > Character.MAX_CODE_POINT) {
+                    characters[count++] = '\uFFFD';
+                } else {
+                    characters[count++] = Character.highSurrogate(value);
+                    characters[count++] = Character.lowSurrogate(value);
+                }
+            } else {
+                characters[count++] = '\uFFFD';
+            }
+        }
+        return new String(characters, 0, count);
+    }
+    
+    /**
+     * Stores the table with which short strings are deduplicated or null if strings are not deduplicated.
+     */
+    private @Nullable StringTable stringTable;
+    
+    /**
+     * Sets the table with which this decoder deduplicates short strings or disables the deduplication if the given table is null.
+     */
+    @Impure
+    public void setStringTable(@Nullable StringTable stringTable) {
+        this.stringTable = stringTable;
+    }
+    
+    /**
+     * Returns the string encoded in the given number of bytes from the given string table or decodes it and stores it in the table.
+     */
+    @Impure
+    private @Nonnull String decodeUTF8(@NonNegative int length, @Nonnull StringTable stringTable) {
+        final int position = buffer.position();
+        final int hash = StringTable.hash(buffer, position, length);
+        final @Nullable String string = stringTable.get(buffer, position, length, hash);
+        if (string != null) {
+            buffer.position(position + length);
+            return string;
+        } else {
+            final @Nonnull String decodedString = decodeUTF8(length);
+            stringTable.put(buffer, position, length, hash, decodedString);
+            return decodedString;
+        }
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull String decodeString() throws StreamException {
+        final int length = decodeLength();
+        if (length <= buffer.capacity()) {
+            require(length);
+            final @Nullable StringTable stringTable = this.stringTable;
+            if (stringTable != null && length <= stringTable.getMaximumLength()) { return decodeUTF8(length, stringTable); }
+            return decodeUTF8(length);
+        } else {
+            final @Nonnull byte[] bytes = new byte[length];
+            decodeBytes(bytes, 0, length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+    
+    /**
+     * Decodes the given number of bytes into the given array.
+     */
+    @Impure
+    private void decodeBytes(@NonCaptured @Modified @Nonnull byte[] bytes, @NonNegative int offset, @NonNegative int length) throws StreamException {
+        if (stream != null) { finishStream(); }
+        readBytes(bytes, offset, length);
+    }
+    
+    /**
+     * Reads the given number of bytes into the given array without finishing the open binary stream.
+     * Large arrays are read directly from the source without going through the buffer.
+     */
+    @Impure
+    private void readBytes(@NonCaptured @Modified @Nonnull byte[] bytes, @NonNegative int offset, @NonNegative int length) throws StreamException {
+        int position = offset;
+        final int end = offset + length;
+        while (position < end) {
+            if (!buffer.hasRemaining()) {
+                if (source != null && end - position >= buffer.capacity() / 4) {
+                    digest();
+                    try {
+                        final int count = source.read(ByteBuffer.wrap(bytes, position, end - position));
+                        if (count < 0) { throw endOfEncoding(); }
+                        if (digest != null) { hash(ByteBuffer.wrap(bytes, position, count)); }
+                        position += count;
+                    } catch (@Nonnull IOException exception) {
+                        throw ByteBufferEncoder.wrap(exception);
+                    }
+                    continue;
+                }
+                fill(1);
+            }
+            final int count = Math.min(buffer.remaining(), end - position);
+            buffer.get(bytes, position, count);
+            position += count;
+        }
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(16) byte[] decodeBinary128() throws StreamException {
+        final @Nonnull byte[] bytes = new byte[16];
+        decodeBytes(bytes, 0, 16);
+        return bytes;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(32) byte[] decodeBinary256() throws StreamException {
+        final @Nonnull byte[] bytes = new byte[32];
+        decodeBytes(bytes, 0, 32);
+        return bytes;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] decodeBinary() throws StreamException {
+        final int length = decodeLength();
+        if (source == null && length > buffer.remaining()) { throw endOfEncoding(); }
+        final @Nonnull byte[] bytes = new byte[length];
+        decodeBytes(bytes, 0, length);
+        return bytes;
+    }
+    
+    /**
+     * Returns a read-only view of the given number of bytes in the buffer and skips them.
+     */
+    @Impure
+    private @Nonnull ByteBuffer slice(@NonNegative int length) throws StreamException {
+        require(length);
+        final @Nonnull ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice.asReadOnlyBuffer();
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this decoder reads from a given buffer, the returned buffer is a view into the given buffer, which remains valid.
+     * Otherwise, the returned buffer is a view into the pooled buffer of this decoder, which is only valid until the next value is decoded.
+     */
+    @Impure
+    @Override
+    public @Nonnull ByteBuffer decodeBinary128Slice() throws StreamException {
+        return slice(16);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this decoder reads from a given buffer, the returned buffer is a view into the given buffer, which remains valid.
+     * Otherwise, the returned buffer is a view into the pooled buffer of this decoder, which is only valid until the next value is decoded.
+     */
+    @Impure
+    @Override
+    public @Nonnull ByteBuffer decodeBinary256Slice() throws StreamException {
+        return slice(32);
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this decoder reads from a given buffer, the returned buffer is a view into the given buffer, which remains valid.
+     * Otherwise, the returned buffer is a view into the pooled buffer of this decoder, which is only valid until the next value is decoded,
+     * unless the byte array is larger than the pooled buffer, in which case it is decoded into a new heap buffer.
+     */
+    @Impure
+    @Override
+    public @Nonnull ByteBuffer decodeBinarySlice() throws StreamException {
+        final int length = decodeLength();
+        if (length <= buffer.capacity()) {
+            return slice(length);
+        } else {
+            final @Nonnull byte[] bytes = new byte[length];
+            decodeBytes(bytes, 0, length);
+            return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+    }
+    
+    /* -------------------------------------------------- Streams -------------------------------------------------- */
+    
+    /**
+     * A source input stream reads the bytes of a binary stream through the buffer of the decoder as they are requested.
+     */
+    @Mutable
+    private class SourceInputStream extends InputStream {
+        
+        private @NonNegative int remaining;
+        
+        private SourceInputStream(@NonNegative int length) {
+            this.remaining = length;
+        }
+        
+        /**
+         * Checks that no other value has been decoded since this input stream was returned.
+         */
+        @Pure
+        private void check() throws IOException {
+            if (stream != this) { throw new IOException("The binary stream is no longer valid because another value has been decoded."); }
+        }
+        
+        @Impure
+        @Override
+        public int read() throws IOException {
+            check();
+            if (remaining == 0) { return -1; }
+            try {
+                if (!buffer.hasRemaining()) { fill(1); }
+            } catch (@Nonnull StreamException exception) {
+                throw new IOException(exception);
+            }
+            remaining -= 1;
+            return buffer.get() & 0xFF;
+        }
+        
+        @Impure
+        @Override
+        public int read(@Nonnull byte[] bytes, @NonNegative int offset, @NonNegative int length) throws IOException {
+            check();
+            if (length == 0) { return 0; }
+            if (remaining == 0) { return -1; }
+            final int count = Math.min(length, remaining);
+            try {
+                readBytes(bytes, offset, count);
+            } catch (@Nonnull StreamException exception) {
+                throw new IOException(exception);
+            }
+            remaining -= count;
+            return count;
+        }
+        
+        @Impure
+        @Override
+        public long skip(long count) throws IOException {
+            check();
+            final int skipped = (int) Math.max(0, Math.min(count, remaining));
+            try {
+                skipBytes(skipped);
+            } catch (@Nonnull StreamException exception) {
+                throw new IOException(exception);
+            }
+            remaining -= skipped;
+            return skipped;
+        }
+        
+        @Pure
+        @Override
+        public @NonNegative int available() throws IOException {
+            check();
+            return Math.min(remaining, buffer.remaining());
+        }
+        
+    }
+    
+    /**
+     * Stores the binary stream which reads from the source of this decoder or null if no such stream is open.
+     */
+    private @Nullable SourceInputStream stream;
+    
+    /**
+     * Skips the bytes of the open binary stream which have not been read and invalidates the stream.
+     */
+    @Impure
+    private void finishStream() throws StreamException {
+        final int remaining = stream.remaining;
+        this.stream = null;
+        skipBytes(remaining);
+    }
+    
+    /**
+     * Finishes the open binary stream in methods which cannot throw a stream exception.
+     */
+    @Impure
+    private void finishStreamUnchecked() {
+        if (stream != null) {
+            try {
+                finishStream();
+            } catch (@Nonnull StreamException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this decoder reads from a given buffer, the returned input stream reads from a view into the given buffer, which remains valid.
+     * Otherwise, the returned input stream reads the bytes from the source through the pooled buffer of this decoder as they are requested,
+     * which means that the stream is never copied as a whole. Such an input stream is only valid until the next value is decoded,
+     * which skips the bytes of the stream that have not been read.
+     */
+    @Impure
+    @Override
+    public @Nonnull InputStream decodeBinaryStream() throws StreamException {
+        final int length = decodeLength();
+        if (source == null) { return new BufferInputStream(slice(length)); }
+        final @Nonnull SourceInputStream stream = new SourceInputStream(length);
+        this.stream = stream;
+        return stream;
+    }
+    
+    /**
+     * Decodes a binary stream and writes it to the given file starting at the given position.
+     * If this decoder reads from a channel without hashing, decompressing or decrypting, the bytes which are not yet buffered are transferred
+     * from the channel to the file with {@link FileChannel#transferFrom(java.nio.channels.ReadableByteChannel, long, long)}
+     * so that they are not copied into the memory of the virtual machine. The position of the given file is not changed.
+     * 
+     * @return the number of bytes which were written to the given file.
+     */
+    @Impure
+    public @NonNegative int decodeBinaryStream(@Nonnull FileChannel file, @NonNegative long position) throws StreamException {
+        final int length = decodeLength();
+        try {
+            int transferred = 0;
+            while (transferred < length) {
+                if (!buffer.hasRemaining()) {
+                    if (digest == null && source instanceof ChannelSource) {
+                        ((ChannelSource) source).transferTo(file, position + transferred, length - transferred);
+                        break;
+                    }
+                    fill(1);
+                }
+                final @Nonnull ByteBuffer slice = buffer.duplicate();
+                slice.limit(slice.position() + Math.min(slice.remaining(), length - transferred));
+                final int count = file.write(slice, position + transferred);
+                buffer.position(buffer.position() + count);
+                transferred += count;
+            }
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+        return length;
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    /**
+     * Decodes the length of an array with elements of the given width and checks that a given buffer contains all of its elements.
+     */
+    @Impure
+    private @NonNegative int decodeArrayLength(@NonNegative int width) throws StreamException {
+        final int length = decodeLength();
+        if (source == null && (long) length * width > buffer.remaining()) { throw endOfEncoding(); }
+        return length;
+    }
+    
+    /**
+     * Returns the number of elements of the given width that can be read from the buffer after filling it if not even one element is available.
+     */
+    @Impure
+    private @NonNegative int available(@NonNegative int remaining, @NonNegative int width) throws StreamException {
+        require(width);
+        return Math.min(remaining, buffer.remaining() / width);
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull int[] decodeInteger32Array() throws StreamException {
+        final @Nonnull int[] values = new int[decodeArrayLength(4)];
+        for (int offset = 0; offset < values.length;) {
+            final int count = available(values.length - offset, 4);
+            buffer.asIntBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + 4 * count);
+            offset += count;
+        }
+        return values;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull long[] decodeInteger64Array() throws StreamException {
+        final @Nonnull long[] values = new long[decodeArrayLength(8)];
+        for (int offset = 0; offset < values.length;) {
+            final int count = available(values.length - offset, 8);
+            buffer.asLongBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + 8 * count);
+            offset += count;
+        }
+        return values;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull double[] decodeDecimal64Array() throws StreamException {
+        final @Nonnull double[] values = new double[decodeArrayLength(8)];
+        for (int offset = 0; offset < values.length;) {
+            final int count = available(values.length - offset, 8);
+            buffer.asDoubleBuffer().get(values, offset, count);
+            buffer.position(buffer.position() + 8 * count);
+            offset += count;
+        }
+        return values;
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        if (framing) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final @Nonnull ITERABLE result = frame.decodeOrderedIterable(converter, provided, constructor);
+            frame.checkFrame(converter);
+            return result;
+        }
+        final int size = decodeLength();
+        final @Nonnull COLLECTOR collector = constructor.evaluate(size);
+        for (int i = 0; i < size; i++) {
+            collector.consume(decodeObject(converter, provided));
+        }
+        return collector.getResult();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        if (framing) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final @Nonnull ITERABLE result = frame.decodeOrderedIterableWithNullableElements(converter, provided, constructor);
+            frame.checkFrame(converter);
+            return result;
+        }
+        final int size = decodeLength();
+        final @Nonnull COLLECTOR collector = constructor.evaluate(size);
+        for (int i = 0; i < size; i++) {
+            collector.consume(decodeNullableObject(converter, provided));
+        }
+        return collector.getResult();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        return decodeOrderedIterable(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        return decodeOrderedIterableWithNullableElements(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> decodeMap(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nonnull KEY, @Nonnull VALUE> emptyMap) throws StreamException, RecoveryException {
+        if (framing) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> result = frame.decodeMap(keyConverter, providedForKey, valueConverter, providedForValue, emptyMap);
+            frame.checkFrame(keyConverter);
+            return result;
+        }
+        final int size = decodeLength();
+        for (int i = 0; i < size; i++) {
+            final @Nonnull KEY key = decodeObject(keyConverter, providedForKey);
+            emptyMap.put(key, decodeObject(valueConverter, providedForValue));
+        }
+        return emptyMap;
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nullable KEY, @Nullable VALUE> decodeMapWithNullableValues(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nullable KEY, @Nullable VALUE> emptyMap) throws StreamException, RecoveryException {
+        if (framing) {
+            final @Nonnull ByteBufferDecoder frame = decodeFrame();
+            final @Nonnull Map<@Nullable KEY, @Nullable VALUE> result = frame.decodeMapWithNullableValues(keyConverter, providedForKey, valueConverter, providedForValue, emptyMap);
+            frame.checkFrame(keyConverter);
+            return result;
+        }
+        final int size = decodeLength();
+        for (int i = 0; i < size; i++) {
+            final @Nullable KEY key = decodeNullableObject(keyConverter, providedForKey);
+            emptyMap.put(key, decodeNullableObject(valueConverter, providedForValue));
+        }
+        return emptyMap;
+    }
+    
+    /* -------------------------------------------------- Streams -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nonnull TYPE> streamOrderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException {
+        if (framing) { return decodeFrame().streamOrderedIterable(converter, provided); }
+        return new DecodingIterable<>(decodeLength(), () -> decodeObject(converter, provided));
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nullable TYPE> streamOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException {
+        if (framing) { return decodeFrame().streamOrderedIterableWithNullableElements(converter, provided); }
+        return new DecodingIterable<>(decodeLength(), () -> decodeNullableObject(converter, provided));
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nonnull TYPE> streamUnorderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException {
+        return streamOrderedIterable(converter, provided);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nullable TYPE> streamUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException {
+        return streamOrderedIterableWithNullableElements(converter, provided);
+    }
+    
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    /**
+     * Decodes a frame with an object of the given converter and checks that the object was recovered from all the bytes of the frame.
+     */
+    @Impure
+    private <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeFramedObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        final @Nonnull ByteBufferDecoder frame = decodeFrame();
+        final @Nonnull TYPE object = frame.decodeObject(converter, provided);
+        frame.checkFrame(converter);
+        return object;
+    }
+    
+    /**
+     * Decodes the header written by {@link ByteBufferEncoder#encodeBatch(Converter, FiniteIterable, java.util.concurrent.Executor)}
+     * and returns an iterable which recovers the objects of the batch one after the other while it is iterated.
+     * The returned iterable can only be iterated once and has to be iterated before anything else is decoded.
+     * 
+     * @throws RecoveryException if the batch was encoded with an incompatible converter.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nonnull TYPE> streamBatch(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        decodeFingerprint(converter);
+        return new DecodingIterable<>(decodeLength(), () -> decodeFramedObject(converter, provided));
+    }
+    
+    /* -------------------------------------------------- Columns -------------------------------------------------- */
+    
+    /**
+     * Decodes an integer of the given type.
+     */
+    @Impure
+    long decodeInteger(@Nonnull CustomType type) throws StreamException {
+        switch (type.getTypeName()) {
+            case "INTEGER08": return decodeInteger08();
+            case "INTEGER16": return decodeInteger16();
+            case "INTEGER32": return decodeInteger32();
+            default: return decodeInteger64();
+        }
+    }
+    
+    /**
+     * Returns the given value boxed as an integer of the given type.
+     */
+    @Pure
+    private static @Nonnull Object box(@Nonnull CustomType type, long value) {
+        switch (type.getTypeName()) {
+            case "INTEGER08": return (byte) value;
+            case "INTEGER16": return (short) value;
+            case "INTEGER32": return (int) value;
+            default: return value;
+        }
+    }
+    
+    /**
+     * Decodes the given number of values of an integer column, which are encoded as runs of equal differences.
+     */
+    @Impure
+    private @Nonnull long[] decodeRuns(@NonNegative int size) throws StreamException, RecoveryException {
+        final @Nonnull long[] values = new long[size];
+        long value = 0;
+        for (int i = 0; i < size;) {
+            final long difference = BinaryFormat.unZigZag(decodeVarint64());
+            final int run = decodeLength();
+            if (run == 0 || run > size - i) { throw RecoveryExceptionBuilder.withMessage("The runs of an integer column do not match the number of rows.").build(); }
+            for (int j = 0; j < run; j++) {
+                value += difference;
+                values[i++] = value;
+            }
+        }
+        return values;
+    }
+    
+    /**
+     * Decodes the number of rows and checks the number of columns of a columnar batch of the given converter.
+     */
+    @Impure
+    private @NonNegative int decodeColumnsHeader(@Nonnull Converter<?, ?> converter, @Nonnull ImmutableList<CustomField> fields) throws StreamException, RecoveryException {
+        final int size = decodeLength();
+        final int numberOfColumns = decodeLength();
+        if (numberOfColumns != fields.size()) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The batch has $ columns but the type $ has $ fields.", numberOfColumns, converter.getTypeName(), fields.size())).build(); }
+        return size;
+    }
+    
+    /**
+     * Decodes the kind of the column for the given field and checks that it matches the field.
+     */
+    @Impure
+    private boolean decodeColumnKind(@Nonnull CustomField field) throws StreamException, RecoveryException {
+        final boolean integer = decodeLength() == ByteBufferEncoder.INTEGER_COLUMN;
+        if (integer != ByteBufferEncoder.isIntegerColumn(field)) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The column of the field $ has the wrong kind.", field.getName())).build(); }
+        return integer;
+    }
+    
+    /**
+     * Decodes the objects of a batch that was encoded column by column with {@link ByteBufferEncoder#encodeColumns(Converter, FiniteIterable)}.
+     * The fields of each object are gathered from the columns into a record, from which the object is recovered with the given converter and provided object.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull List<@Nonnull TYPE> decodeColumns(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        final @Nonnull ImmutableList<CustomField> fields = converter.getFields(representation);
+        final int size = decodeColumnsHeader(converter, fields);
+        final @Nonnull ByteBufferDecoder[] columns = new ByteBufferDecoder[fields.size()];
+        final @Nonnull long[][] integers = new long[fields.size()][];
+        for (int column = 0; column < fields.size(); column++) {
+            final boolean integer = decodeColumnKind(fields.get(column));
+            final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, ByteBuffer.wrap(decodeBinary()), false, null, null);
+            decoder.stringTable = stringTable;
+            if (integer) {
+                integers[column] = decoder.decodeRuns(size);
+                decoder.checkFrame(converter);
+            } else {
+                columns[column] = decoder;
+            }
+        }
+        
+        final @Nonnull List<@Nonnull TYPE> objects = new ArrayList<>(size);
+        final @Nonnull int[] starts = new int[fields.size()];
+        for (int row = 0; row < size; row++) {
+            int length = 0;
+            for (int column = 0; column < fields.size(); column++) {
+                if (columns[column] != null) {
+                    starts[column] = columns[column].buffer.position();
+                    columns[column].skipField(fields.get(column));
+                    length += columns[column].buffer.position() - starts[column];
+                } else {
+                    length += 10;
+                }
+            }
+            final @Nonnull ByteBuffer record = ByteBuffer.allocate(length);
+            try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(record, representation)) {
+                for (int column = 0; column < fields.size(); column++) {
+                    if (columns[column] != null) {
+                        final @Nonnull ByteBuffer field = columns[column].buffer.duplicate();
+                        field.limit(field.position()).position(starts[column]);
+                        record.put(field);
+                    } else {
+                        encoder.encodeInteger(fields.get(column).getCustomType(), integers[column][row]);
+                    }
+                }
+            }
+            record.flip();
+            final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, record, false, null, null);
+            decoder.stringTable = stringTable;
+            objects.add(decoder.decodeRecord(converter, provided));
+            decoder.checkFrame(converter);
+        }
+        for (@Nullable ByteBufferDecoder column : columns) {
+            if (column != null) { column.checkFrame(converter); }
+        }
+        return objects;
+    }
+    
+    /**
+     * Decodes only the values of the given field from a batch that was encoded column by column with {@link ByteBufferEncoder#encodeColumns(Converter, FiniteIterable)}.
+     * The other columns are skipped without being decoded.
+     * As with {@link #decodeProjection(Converter, FiniteIterable) projections}, objects are recovered without a provided value and collections are returned as lists and maps of their elements.
+     */
+    @Impure
+    public @Nonnull List<@Nullable Object> decodeColumn(@Nonnull Converter<?, ?> converter, @Nonnull CustomField field) throws StreamException, RecoveryException {
+        final @Nonnull ImmutableList<CustomField> fields = converter.getFields(representation);
+        final int index = fields.indexOf(field);
+        Require.that(index >= 0).orThrow("The type $ has no field $.", converter.getTypeName(), field.getName());
+        
+        final int size = decodeColumnsHeader(converter, fields);
+        final @Nonnull List<@Nullable Object> values = new ArrayList<>(size);
+        for (int column = 0; column < fields.size(); column++) {
+            final boolean integer = decodeColumnKind(fields.get(column));
+            if (column != index) {
+                skip(decodeLength());
+            } else {
+                final @Nonnull ByteBufferDecoder decoder = decodeFrame();
+                if (integer) {
+                    for (long value : decoder.decodeRuns(size)) { values.add(box(field.getCustomType(), value)); }
+                } else {
+                    for (int row = 0; row < size; row++) { values.add(decoder.decodeField(converter, field)); }
+                }
+                decoder.checkFrame(converter);
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+    
+    /* -------------------------------------------------- Pipelining -------------------------------------------------- */
+    
+    /**
+     * Stores the number of buffers that each pipeline can hold or zero if this decoder is not pipelining.
+     */
+    private int pipelining = 0;
+    
+    /**
+     * Stores the pipeline sources behind the current layers and the underlying source with the most recently started one first.
+     */
+    private final @Nonnull ArrayDeque<@Nonnull PipelineSource> pipelines = new ArrayDeque<>();
+    
+    /**
+     * Returns whether this decoder reads, decrypts, decompresses and hashes the decoded bytes on separate threads.
+     */
+    @Pure
+    public boolean isPipelining() {
+        return pipelining > 0;
+    }
+    
+    /**
+     * Starts reading, decrypting, decompressing and hashing the decoded bytes on separate threads so that these transforms overlap on several cores.
+     * The underlying channel as well as each layer that is started afterwards is read ahead on its own thread into a pipeline of at most the given number of buffers.
+     * Layers are never read beyond their end, and the pipelining lasts until this decoder is closed.
+     */
+    @Impure
+    public void startPipelining(@Positive int capacity) {
+        Require.that(capacity > 0).orThrow("The capacity has to be positive but was $.", capacity);
+        Require.that(!isPipelining()).orThrow("The decoder may not already be pipelining.");
+        Require.that(source != null).orThrow("Only a decoder which reads from a channel can pipeline.");
+        Require.that(layers.isEmpty() && !isHashing()).orThrow("The decoder may not be hashing, decompressing or decrypting when the pipelining is started.");
+        
+        this.pipelining = capacity;
+        pipelines.push(new PipelineSource(source, capacity));
+        this.source = pipelines.peek();
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    /**
+     * Stores the digest with which the decoded bytes are hashed or null if this decoder is not hashing.
+     */
+    private @Nullable MessageDigest digest;
+    
+    /**
+     * Stores the position in the buffer up to which the decoded bytes have already been hashed.
+     */
+    private int hashMark = 0;
+    
+    /**
+     * Stores the pipeline sink which hashes the decoded bytes on a separate thread or null if this decoder is not hashing or not pipelining.
+     */
+    private @Nullable PipelineSink hashing;
+    
+    /**
+     * Hashes the remaining bytes of the given buffer, which happens on a separate thread if this decoder is pipelining.
+     */
+    @Impure
+    private void hash(@NonCaptured @Modified @Nonnull ByteBuffer bytes) {
+        if (hashing == null) {
+            digest.update(bytes);
+        } else {
+            try {
+                hashing.write(bytes);
+            } catch (@Nonnull IOException exception) {
+                // The digest sink does not fail, which means that the pipeline was interrupted.
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            }
+        }
+    }
+    
+    /**
+     * Hashes the decoded bytes in the buffer which have not yet been hashed.
+     */
+    @Impure
+    private void digest() {
+        if (digest != null && buffer.position() > hashMark) {
+            final @Nonnull ByteBuffer region = buffer.duplicate();
+            region.limit(buffer.position());
+            region.position(hashMark);
+            hash(region);
+        }
+        hashMark = buffer.position();
+    }
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        Require.that(!isHashing()).orThrow("The decoder may not already be hashing.");
+        
+        finishStreamUnchecked();
+        this.digest = digest;
+        this.hashMark = buffer.position();
+        if (isPipelining()) { this.hashing = new PipelineSink(new DigestSink(digest), pipelining); }
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The decoder has to be hashing.");
+        
+        finishStreamUnchecked();
+        digest();
+        if (hashing != null) {
+            try {
+                hashing.finish();
+            } catch (@Nonnull IOException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            } finally {
+                this.hashing = null;
+            }
+        }
+        final @Nonnull MessageDigest digest = this.digest;
+        this.digest = null;
+        return digest.digest();
+    }
+    
+    /* -------------------------------------------------- Layers -------------------------------------------------- */
+    
+    /**
+     * Stores the layers which currently decompress or decrypt the decoded bytes with the most recently started layer first.
+     */
+    private final @Nonnull ArrayDeque<@Nonnull ChunkedSource> layers = new ArrayDeque<>();
+    
+    /**
+     * Returns whether one of the current layers is an instance of the given class.
+     */
+    @Pure
+    private boolean hasLayer(@Nonnull Class<? extends ChunkedSource> type) {
+        for (@Nonnull ChunkedSource layer : layers) {
+            if (type.isInstance(layer)) { return true; }
+        }
+        return false;
+    }
+    
+    /**
+     * Hands the buffered bytes over to the source of the next layer and returns it.
+     * This method does not read from the source so that layers can be started without an I/O exception.
+     */
+    @Impure
+    private @Nonnull ByteSource takeSource() {
+        finishStreamUnchecked();
+        digest();
+        final @Nonnull ByteBuffer prefix;
+        if (pooled) {
+            prefix = ByteBuffer.allocate(buffer.remaining());
+            prefix.put(buffer);
+            prefix.flip();
+        } else {
+            prefix = buffer.slice();
+            this.buffer = ByteBufferPool.acquire();
+            this.pooled = true;
+        }
+        buffer.clear();
+        buffer.flip();
+        this.hashMark = 0;
+        return prefix.hasRemaining() || source == null ? new PrefixedSource(prefix, source) : source;
+    }
+    
+    /**
+     * Starts the given layer, which has to be constructed with the {@link #takeSource() source}.
+     * If this decoder is pipelining, the layer transforms the bytes on its own thread.
+     */
+    @Impure
+    private void pushLayer(@Nonnull ChunkedSource layer) {
+        layers.push(layer);
+        if (isPipelining()) {
+            pipelines.push(new PipelineSource(layer, pipelining));
+            this.source = pipelines.peek();
+        } else {
+            this.source = layer;
+        }
+    }
+    
+    /**
+     * Finishes the most recently started layer, which has to be an instance of the given class.
+     */
+    @Impure
+    private void popLayer(@Nonnull Class<? extends ChunkedSource> type, @Nonnull String message) throws StreamException {
+        Require.that(type.isInstance(layers.peek())).orThrow(message);
+        
+        if (stream != null) { finishStream(); }
+        final @Nonnull ChunkedSource layer = layers.pop();
+        try {
+            if (buffer.hasRemaining() || source.read(ByteBuffer.allocate(1)) >= 0) { throw new IOException("The bytes of the layer were not decoded completely."); }
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+        if (isPipelining()) { pipelines.pop(); }
+        this.source = layer.getSource();
+    }
+    
+    /* -------------------------------------------------- Decompressing -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isDecompressing() {
+        return hasLayer(InflaterSource.class);
+    }
+    
+    @Impure
+    @Override
+    public void startDecompressing(@Nonnull Inflater inflater) {
+        pushLayer(new InflaterSource(inflater, takeSource()));
+    }
+    
+    @Impure
+    @Override
+    public void stopDecompressing() throws StreamException {
+        popLayer(InflaterSource.class, "The most recently started layer has to be a decompression.");
+    }
+    
+    /* -------------------------------------------------- Decrypting -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isDecrypting() {
+        return hasLayer(CipherSource.class) || hasLayer(SegmentedCipherSource.class);
+    }
+    
+    @Impure
+    @Override
+    public void startDecrypting(@Nonnull Cipher cipher) {
+        pushLayer(new CipherSource(cipher, takeSource()));
+    }
+    
+    /**
+     * Starts decrypting the bytes that were encrypted with {@link ByteBufferEncoder#startEncrypting(SegmentedCipher)} until the decryption is {@link #stopDecrypting() stopped}.
+     * Each segment is authenticated before any of its bytes are decoded, so at most one segment has to be kept in memory.
+     */
+    @Impure
+    public void startDecrypting(@Nonnull SegmentedCipher cipher) {
+        pushLayer(new SegmentedCipherSource(cipher, takeSource()));
+    }
+    
+    @Impure
+    @Override
+    public void stopDecrypting() throws StreamException {
+        popLayer(layers.peek() instanceof SegmentedCipherSource ? SegmentedCipherSource.class : CipherSource.class, "The most recently started layer has to be a decryption.");
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    private boolean closed = false;
+    
+    /**
+     * Stops the threads of the pipelines, releases the buffer and closes the underlying channel.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        if (closed) { return; }
+        closed = true;
+        this.stream = null;
+        for (@Nonnull PipelineSource pipeline : pipelines) { pipeline.abort(); }
+        if (hashing != null) { hashing.abort(); }
+        if (pooled) { ByteBufferPool.release(buffer); }
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (@Nonnull IOException exception) {
+                throw ByteBufferEncoder.wrap(exception);
+            }
+        }
+    }
+    
+}
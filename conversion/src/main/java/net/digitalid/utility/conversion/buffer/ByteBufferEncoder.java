@@ -0,0 +1,1300 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.exceptions.StreamExceptionBuilder;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.conversion.model.SubtypeRegistry;
+import net.digitalid.utility.exceptions.UncheckedException;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder writes the values in the {@link BinaryFormat binary format} to a channel or a buffer.
+ * The values are encoded into a direct buffer from the {@link ByteBufferPool}, which is flushed to the channel whenever it is full.
+ * 
+ * @see ByteBufferDecoder
+ */
+@Mutable
+public class ByteBufferEncoder implements Encoder<StreamException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return representation;
+    }
+    
+    /* -------------------------------------------------- Buffer -------------------------------------------------- */
+    
+    /**
+     * Stores the buffer into which the values are encoded.
+     */
+    private @Nonnull ByteBuffer buffer;
+    
+    /**
+     * Stores whether the buffer was acquired from the pool.
+     */
+    private boolean pooled;
+    
+    /**
+     * Stores the sink to which the buffer is flushed or null if the values are encoded directly into the buffer of the caller.
+     */
+    private @Nullable ByteSink sink;
+    
+    /**
+     * Stores the channel which is closed when this encoder is closed.
+     */
+    private final @Nullable Closeable closeable;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ByteBufferEncoder(@Nonnull Representation representation, @Nonnull ByteBuffer buffer, boolean pooled, @Nullable ByteSink sink, @Nullable Closeable closeable) {
+        this.representation = representation;
+        this.buffer = buffer;
+        this.pooled = pooled;
+        this.sink = sink;
+        this.closeable = closeable;
+    }
+    
+    /**
+     * Returns a new encoder with the given representation which writes to the given channel.
+     * The channel is closed when the returned encoder is closed.
+     */
+    @Pure
+    public static @Nonnull ByteBufferEncoder to(@Captured @Nonnull WritableByteChannel channel, @Nonnull Representation representation) {
+        return new ByteBufferEncoder(representation, ByteBufferPool.acquire(), true, new ChannelSink(channel), channel);
+    }
+    
+    /**
+     * Returns a new encoder with the given representation which writes to the given output stream.
+     * The output stream is closed when the returned encoder is closed.
+     */
+    @Pure
+    public static @Nonnull ByteBufferEncoder to(@Captured @Nonnull OutputStream outputStream, @Nonnull Representation representation) {
+        return to(Channels.newChannel(outputStream), representation);
+    }
+    
+    /**
+     * Returns a new encoder with the given representation which writes into the given buffer starting at its current position.
+     * If the encoding does not fit into the remaining space of the buffer, a {@link StreamException} is thrown.
+     */
+    @Pure
+    public static @Nonnull ByteBufferEncoder into(@Captured @Nonnull ByteBuffer buffer, @Nonnull Representation representation) {
+        Require.that(!buffer.isReadOnly()).orThrow("The buffer may not be read-only.");
+        
+        return new ByteBufferEncoder(representation, buffer, false, null, null);
+    }
+    
+    /* -------------------------------------------------- Encoding -------------------------------------------------- */
+    
+    /**
+     * Encodes the given object with the given converter into a heap buffer whose capacity is the {@link SizingEncoder#getEncodedSize(Converter, java.lang.Object) exact size} of the encoding.
+     * The returned buffer is flipped so that it can be read from immediately.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @Capturable @Nonnull ByteBuffer encode(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        final @Nonnull ByteBuffer buffer = ByteBuffer.allocate(SizingEncoder.getEncodedSize(converter, object));
+        try (@Nonnull ByteBufferEncoder encoder = into(buffer, Representation.EXTERNAL)) {
+            encoder.encodeObject(converter, object);
+        }
+        buffer.flip();
+        return buffer;
+    }
+    
+    /* -------------------------------------------------- Exceptions -------------------------------------------------- */
+    
+    /**
+     * Returns a stream exception with the given cause.
+     */
+    @Pure
+    static @Nonnull StreamException wrap(@Nonnull IOException exception) {
+        return StreamExceptionBuilder.withCause(exception).build();
+    }
+    
+    /* -------------------------------------------------- Flushing -------------------------------------------------- */
+    
+    /**
+     * Writes the content of the buffer to the current sink and clears the buffer.
+     */
+    @Impure
+    void flush() throws StreamException {
+        if (sink == null) { throw wrap(new IOException("The given buffer has not enough space for the encoding.")); }
+        digest();
+        buffer.flip();
+        try {
+            sink.write(buffer);
+        } catch (@Nonnull IOException exception) {
+            throw wrap(exception);
+        } finally {
+            buffer.clear();
+            hashMark = 0;
+        }
+    }
+    
+    /**
+     * Ensures that the buffer has space for the given number of bytes.
+     */
+    @Impure
+    private void ensure(@NonNegative int count) throws StreamException {
+        if (buffer.remaining() < count) { flush(); }
+    }
+    
+    /* -------------------------------------------------- Schema -------------------------------------------------- */
+    
+    /**
+     * Encodes the {@link FieldLayout#getFingerprint() fingerprint} of the given converter in the representation of this encoder as a header
+     * so that the decoder can check with a single comparison whether it recovers the objects with a compatible converter.
+     */
+    @Impure
+    public void encodeFingerprint(@Nonnull Converter<?, ?> converter) throws StreamException {
+        ensure(8);
+        buffer.putLong(FieldLayout.of(converter, representation).getFingerprint());
+    }
+    
+    /* -------------------------------------------------- Records -------------------------------------------------- */
+    
+    /**
+     * Stores whether this encoder is encoding the fields of a record, in which case composite fields are prefixed with their size.
+     */
+    private boolean framing = false;
+    
+    /**
+     * Encodes the given object with the given converter as a record, whose composite fields are prefixed with their encoded size.
+     * Objects of non-primitive converters, iterables and maps are composite, and only the fields of the record itself are prefixed, not the values nested in them.
+     * This allows the {@link ByteBufferDecoder#decodeProjection(Converter, FiniteIterable) decoder} to skip the fields that it is not interested in.
+     */
+    @Impure
+    public <@Unspecifiable TYPE> void encodeRecord(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        Require.that(!framing).orThrow("A record cannot be encoded within a record.");
+        Require.that(!isReferencing()).orThrow("A record cannot be encoded while referencing.");
+        
+        framing = true;
+        try {
+            converter.convert(object, this);
+        } finally {
+            framing = false;
+        }
+    }
+    
+    /**
+     * Encodes the given object with the given converter and representation as a record into a new byte array.
+     */
+    @Pure
+    static <@Unspecifiable TYPE> @Capturable @Nonnull byte[] toRecord(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object, @Nonnull Representation representation) throws StreamException {
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull ByteBufferEncoder encoder = to(outputStream, representation)) {
+            encoder.encodeRecord(converter, object);
+        }
+        return outputStream.toByteArray();
+    }
+    
+    /**
+     * Encodes the given size of a composite field and stops framing until the field has been encoded.
+     */
+    @Impure
+    private void startFrame(long size) throws StreamException {
+        framing = false;
+        encodeLength(Math.toIntExact(size));
+    }
+    
+    /* -------------------------------------------------- Deltas -------------------------------------------------- */
+    
+    /**
+     * Encodes only the fields of the given new object whose encoding differs from the corresponding field of the given old object.
+     * The fields are determined by {@link Converter#getFields(Representation)} and compared by their encoding as a {@link #encodeRecord(Converter, Object) record}.
+     * The delta consists of the number of fields, the number of changed fields and, for each changed field, the distance to the previous changed field followed by the encoding of the field as binary.
+     * It can be applied to an object that is equal to the old object with {@link ByteBufferDecoder#decodeDelta(Converter, Object, Object)}.
+     */
+    @Impure
+    public <@Unspecifiable TYPE> void encodeDelta(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE oldObject, @NonCaptured @Unmodified @Nonnull TYPE newObject) throws StreamException {
+        final @Nonnull byte[] oldRecord = toRecord(converter, oldObject, representation);
+        final @Nonnull byte[] newRecord = toRecord(converter, newObject, representation);
+        final @Nonnull int[] oldOffsets;
+        final @Nonnull int[] newOffsets;
+        try {
+            oldOffsets = ByteBufferDecoder.getFieldOffsets(converter, representation, ByteBuffer.wrap(oldRecord));
+            newOffsets = ByteBufferDecoder.getFieldOffsets(converter, representation, ByteBuffer.wrap(newRecord));
+        } catch (@Nonnull RecoveryException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        
+        final int numberOfFields = newOffsets.length - 1;
+        final @Nonnull boolean[] changed = new boolean[numberOfFields];
+        int numberOfChanges = 0;
+        for (int i = 0; i < numberOfFields; i++) {
+            changed[i] = !ByteBuffer.wrap(oldRecord, oldOffsets[i], oldOffsets[i + 1] - oldOffsets[i]).equals(ByteBuffer.wrap(newRecord, newOffsets[i], newOffsets[i + 1] - newOffsets[i]));
+            if (changed[i]) { numberOfChanges++; }
+        }
+        
+        encodeLength(numberOfFields);
+        encodeLength(numberOfChanges);
+        int previous = -1;
+        for (int i = 0; i < numberOfFields; i++) {
+            if (changed[i]) {
+                encodeLength(i - previous - 1);
+                encodeBinary(ByteBuffer.wrap(newRecord, newOffsets[i], newOffsets[i + 1] - newOffsets[i]));
+                previous = i;
+            }
+        }
+    }
+    
+    /* -------------------------------------------------- References -------------------------------------------------- */
+    
+    /**
+     * Stores the indexes of the objects which have been encoded since referencing started or null if this encoder is not referencing.
+     */
+    private @Nullable Map<@Nonnull Object, @Nonnull Integer> references = null;
+    
+    /**
+     * Stores the converters of the objects which have been encoded since referencing started.
+     */
+    private final @Nonnull List<@Nonnull Converter<?, ?>> referencedConverters = new ArrayList<>();
+    
+    /**
+     * Returns whether this encoder encodes repeated objects as references.
+     */
+    @Pure
+    public boolean isReferencing() {
+        return references != null;
+    }
+    
+    /**
+     * Starts encoding the objects of non-primitive converters which have already been encoded with the same converter as a reference to their first encoding.
+     * Objects are the same if they are identical or, if the given flag is true, if they are equal.
+     * Each such object is preceded by its reference, which is zero if the object follows and the index of the first encoding plus one otherwise.
+     * The {@link ByteBufferDecoder#startReferencing() decoder} has to start referencing at the same position and then returns a single instance for all references to an object.
+     * While referencing, the encoding can be shorter than the {@link SizingEncoder#getEncodedSize(Converter, Object) encoded size} of the objects and records cannot be encoded.
+     */
+    @Impure
+    public void startReferencing(boolean byEquality) {
+        Require.that(!isReferencing()).orThrow("The encoder may not already be referencing.");
+        Require.that(!framing).orThrow("The encoder cannot start referencing within a record.");
+        
+        this.references = byEquality ? new HashMap<>() : new IdentityHashMap<>();
+    }
+    
+    /**
+     * Stops encoding repeated objects as references and forgets the encoded objects.
+     */
+    @Impure
+    public void stopReferencing() {
+        Require.that(isReferencing()).orThrow("The encoder has to be referencing.");
+        
+        this.references = null;
+        referencedConverters.clear();
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        final @Nullable Map<@Nonnull Object, @Nonnull Integer> references = this.references;
+        if (references != null && !converter.isPrimitiveConverter()) {
+            final @Nullable Integer index = references.get(object);
+            if (index != null && referencedConverters.get(index).equals(converter)) {
+                encodeLength(index + 1);
+            } else {
+                encodeLength(0);
+                converter.convert(object, this);
+                references.put(object, referencedConverters.size());
+                referencedConverters.add(converter);
+            }
+            return;
+        }
+        final boolean framed = framing && !converter.isPrimitiveConverter();
+        if (framed) { startFrame(SizingEncoder.getEncodedSize(converter, object)); }
+        try {
+            converter.convert(object, this);
+        } finally {
+            if (framed) { framing = true; }
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeNullableObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nullable TYPE object) throws StreamException {
+        final boolean framed = framing && !converter.isPrimitiveConverter();
+        if (framed) { startFrame(BinaryFormat.sizeOfNullableObject(converter, object)); }
+        try {
+            encodeBoolean(object != null);
+            if (object != null) { encodeObject(converter, object); }
+        } finally {
+            if (framed) { framing = true; }
+        }
+    }
+    
+    /* -------------------------------------------------- Polymorphism -------------------------------------------------- */
+    
+    /**
+     * Encodes the given object with the most specific converter in the subtype hierarchy of the given converter.
+     * The converter is identified by its tag in the {@link SubtypeRegistry} of the given converter, which is encoded as a variable-length integer before the object.
+     * 
+     * @throws IllegalArgumentException if no converter in the subtype hierarchy applies to the class of the given object.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> void encodePolymorphicObject(@Nonnull Converter<TYPE, PROVIDED> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        final @Nonnull SubtypeRegistry<TYPE, PROVIDED> registry = SubtypeRegistry.of(converter);
+        final int tag = registry.getTag(object.getClass());
+        encodeLength(tag);
+        encodeObject(registry.getConverter(object), object);
+    }
+    
+    /* -------------------------------------------------- Variable-Length Integers -------------------------------------------------- */
+    
+    /**
+     * Encodes the given unsigned value as a variable-length integer.
+     */
+    @Impure
+    private void encodeVarint(int value) throws StreamException {
+        ensure(BinaryFormat.sizeOfVarint(value));
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    /**
+     * Encodes the given unsigned value as a variable-length integer.
+     */
+    @Impure
+    private void encodeVarint(long value) throws StreamException {
+        ensure(BinaryFormat.sizeOfVarint(value));
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    /**
+     * Encodes the given length or size.
+     */
+    @Impure
+    void encodeLength(@NonNegative int length) throws StreamException {
+        Require.that(length >= 0).orThrow("The length has to be non-negative but was $.", length);
+        
+        encodeVarint(length);
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeBoolean(boolean value) throws StreamException {
+        ensure(1);
+        buffer.put(value ? (byte) 1 : (byte) 0);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger08(byte value) throws StreamException {
+        ensure(1);
+        buffer.put(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger16(short value) throws StreamException {
+        ensure(2);
+        buffer.putShort(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger32(int value) throws StreamException {
+        encodeVarint(BinaryFormat.zigZag(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64(long value) throws StreamException {
+        encodeVarint(BinaryFormat.zigZag(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger(@Nonnull BigInteger value) throws StreamException {
+        encodeBinary(value.toByteArray());
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal32(float value) throws StreamException {
+        ensure(4);
+        buffer.putFloat(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64(double value) throws StreamException {
+        ensure(8);
+        buffer.putDouble(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString01(char value) throws StreamException {
+        ensure(2);
+        buffer.putChar(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString64(@Nonnull @MaxSize(64) String string) throws StreamException {
+        encodeString(string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString(@Nonnull String string) throws StreamException {
+        final int length = BinaryFormat.lengthInUTF8(string);
+        encodeLength(length);
+        final boolean fits = buffer.remaining() >= length;
+        final int size = string.length();
+        for (int i = 0; i < size; i++) {
+            if (!fits && buffer.remaining() < 4) { flush(); }
+            final char c = string.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(string.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, string.charAt(i + 1));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                i += 1;
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+    
+    /**
+     * Encodes the remaining bytes of the given buffer without a length.
+     * Large buffers are written directly to the sink without copying them into the buffer of this encoder.
+     */
+    @Impure
+    private void encodeBytes(@NonCaptured @Modified @Nonnull ByteBuffer bytes) throws StreamException {
+        if (buffer.remaining() >= bytes.remaining()) {
+            buffer.put(bytes);
+        } else if (bytes.remaining() >= buffer.capacity() && sink != null) {
+            flush();
+            if (digest != null) { hash(bytes.duplicate()); }
+            try {
+                sink.write(bytes);
+            } catch (@Nonnull IOException exception) {
+                throw wrap(exception);
+            }
+        } else {
+            while (bytes.hasRemaining()) {
+                if (!buffer.hasRemaining()) { flush(); }
+                ByteSource.transfer(bytes, buffer);
+            }
+        }
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@Nonnull @Size(16) byte[] bytes) throws StreamException {
+        Require.that(bytes.length == 16).orThrow("The byte array has to have a size of 16 but had a size of $.", bytes.length);
+        
+        encodeBytes(ByteBuffer.wrap(bytes));
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) throws StreamException {
+        Require.that(bytes.remaining() == 16).orThrow("The buffer has to have 16 remaining bytes but had $.", bytes.remaining());
+        
+        encodeBytes(bytes.duplicate());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@Nonnull @Size(32) byte[] bytes) throws StreamException {
+        Require.that(bytes.length == 32).orThrow("The byte array has to have a size of 32 but had a size of $.", bytes.length);
+        
+        encodeBytes(ByteBuffer.wrap(bytes));
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) throws StreamException {
+        Require.that(bytes.remaining() == 32).orThrow("The buffer has to have 32 remaining bytes but had $.", bytes.remaining());
+        
+        encodeBytes(bytes.duplicate());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@Nonnull byte[] bytes) throws StreamException {
+        encodeLength(bytes.length);
+        encodeBytes(ByteBuffer.wrap(bytes));
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) throws StreamException {
+        encodeLength(bytes.remaining());
+        encodeBytes(bytes.duplicate());
+    }
+    
+    /**
+     * Encodes the bytes from the given input stream for the given length.
+     * If the input stream reads from a file, the bytes are {@link #encodeBinaryStream(java.nio.channels.FileChannel, long, int) transferred from its channel}.
+     */
+    @Impure
+    @Override
+    public void encodeBinaryStream(@Nonnull InputStream inputStream, @NonNegative int length) throws StreamException {
+        if (inputStream instanceof FileInputStream) {
+            final @Nonnull FileChannel channel = ((FileInputStream) inputStream).getChannel();
+            try {
+                final long position = channel.position();
+                encodeBinaryStream(channel, position, length);
+                channel.position(position + length);
+            } catch (@Nonnull IOException exception) {
+                throw wrap(exception);
+            }
+        } else {
+            encodeLength(length);
+            final @Nonnull ReadableByteChannel channel = Channels.newChannel(inputStream);
+            int remaining = length;
+            try {
+                while (remaining > 0) {
+                    if (!buffer.hasRemaining()) { flush(); }
+                    final int limit = buffer.limit();
+                    buffer.limit(buffer.position() + Math.min(buffer.remaining(), remaining));
+                    final int count = channel.read(buffer);
+                    buffer.limit(limit);
+                    if (count < 0) { throw new EOFException("The input stream ended " + remaining + " bytes before the given length."); }
+                    remaining -= count;
+                }
+            } catch (@Nonnull IOException exception) {
+                throw wrap(exception);
+            }
+        }
+    }
+    
+    /**
+     * Encodes the given number of bytes from the given file starting at the given position like {@link #encodeBinaryStream(java.io.InputStream, int)}.
+     * If this encoder writes to a channel without hashing, compressing or encrypting, the bytes are transferred from the file to the channel with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} so that they are not copied into the memory of the virtual machine.
+     * Otherwise, the bytes are read directly into the buffer of this encoder. The position of the given file is not changed.
+     */
+    @Impure
+    public void encodeBinaryStream(@Nonnull FileChannel file, @NonNegative long position, @NonNegative int length) throws StreamException {
+        encodeLength(length);
+        try {
+            if (digest == null && sink instanceof ChannelSink) {
+                flush();
+                ((ChannelSink) sink).transferFrom(file, position, length);
+            } else {
+                long offset = position;
+                int remaining = length;
+                while (remaining > 0) {
+                    if (!buffer.hasRemaining()) { flush(); }
+                    final int limit = buffer.limit();
+                    buffer.limit(buffer.position() + Math.min(buffer.remaining(), remaining));
+                    final int count = file.read(buffer, offset);
+                    buffer.limit(limit);
+                    if (count < 0) { throw new EOFException("The file ended " + remaining + " bytes before the given length."); }
+                    offset += count;
+                    remaining -= count;
+                }
+            }
+        } catch (@Nonnull IOException exception) {
+            throw wrap(exception);
+        }
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    /**
+     * Returns the number of elements of the given width that can be put into the buffer after flushing it if not even one element fits.
+     */
+    @Impure
+    private @NonNegative int available(@NonNegative int remaining, @NonNegative int width) throws StreamException {
+        if (buffer.remaining() < width) { flush(); }
+        return Math.min(remaining, buffer.remaining() / width);
+    }
+    
+    /**
+     * Encodes the given array of 32-bit integers in big-endian order with four bytes per element.
+     * The elements are copied in bulk through a view of the buffer.
+     */
+    @Impure
+    @Override
+    public void encodeInteger32Array(@Nonnull int[] values) throws StreamException {
+        encodeLength(values.length);
+        for (int offset = 0; offset < values.length;) {
+            final int count = available(values.length - offset, 4);
+            buffer.asIntBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + 4 * count);
+            offset += count;
+        }
+    }
+    
+    /**
+     * Encodes the given array of 64-bit integers in big-endian order with eight bytes per element.
+     * The elements are copied in bulk through a view of the buffer.
+     */
+    @Impure
+    @Override
+    public void encodeInteger64Array(@Nonnull long[] values) throws StreamException {
+        encodeLength(values.length);
+        for (int offset = 0; offset < values.length;) {
+            final int count = available(values.length - offset, 8);
+            buffer.asLongBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + 8 * count);
+            offset += count;
+        }
+    }
+    
+    /**
+     * Encodes the given array of 64-bit decimals in big-endian order with eight bytes per element.
+     * The elements are copied in bulk through a view of the buffer.
+     */
+    @Impure
+    @Override
+    public void encodeDecimal64Array(@Nonnull double[] values) throws StreamException {
+        encodeLength(values.length);
+        for (int offset = 0; offset < values.length;) {
+            final int count = available(values.length - offset, 8);
+            buffer.asDoubleBuffer().put(values, offset, count);
+            buffer.position(buffer.position() + 8 * count);
+            offset += count;
+        }
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) throws StreamException {
+        final boolean framed = framing;
+        if (framed) { startFrame(BinaryFormat.sizeOfIterable(converter, iterable)); }
+        try {
+            encodeLength(iterable.size());
+            for (@Nonnull TYPE element : iterable) {
+                encodeObject(converter, element);
+            }
+        } finally {
+            if (framed) { framing = true; }
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) throws StreamException {
+        final boolean framed = framing;
+        if (framed) { startFrame(BinaryFormat.sizeOfIterableWithNullableElements(converter, iterable)); }
+        try {
+            encodeLength(iterable.size());
+            for (@Nullable TYPE element : iterable) {
+                encodeNullableObject(converter, element);
+            }
+        } finally {
+            if (framed) { framing = true; }
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) throws StreamException {
+        encodeOrderedIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) throws StreamException {
+        encodeOrderedIterableWithNullableElements(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMap(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> map) throws StreamException {
+        final boolean framed = framing;
+        if (framed) { startFrame(BinaryFormat.sizeOfMap(keyConverter, valueConverter, map)); }
+        try {
+            encodeLength(map.size());
+            for (Map.@Nonnull Entry<@Nonnull KEY, @Nonnull VALUE> entry : map.entrySet()) {
+                encodeObject(keyConverter, entry.getKey());
+                encodeObject(valueConverter, entry.getValue());
+            }
+        } finally {
+            if (framed) { framing = true; }
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMapWithNullableValues(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nullable KEY, @Nullable VALUE> map) throws StreamException {
+        final boolean framed = framing;
+        if (framed) { startFrame(BinaryFormat.sizeOfMapWithNullableValues(keyConverter, valueConverter, map)); }
+        try {
+            encodeLength(map.size());
+            for (Map.@Nonnull Entry<@Nullable KEY, @Nullable VALUE> entry : map.entrySet()) {
+                encodeNullableObject(keyConverter, entry.getKey());
+                encodeNullableObject(valueConverter, entry.getValue());
+            }
+        } finally {
+            if (framed) { framing = true; }
+        }
+    }
+    
+    /* -------------------------------------------------- Batches -------------------------------------------------- */
+    
+    /**
+     * Stores the number of objects that are encoded together by a single task.
+     */
+    private static final int BATCH_SIZE = 256;
+    
+    /**
+     * Returns a buffer with the frames of the given objects, each of which consists of the encoded size and the encoding of the object.
+     */
+    @Pure
+    private static <@Unspecifiable TYPE> @Nonnull ByteBuffer encodeFrames(@Nonnull Converter<TYPE, ?> converter, @Nonnull List<@Nonnull TYPE> objects, @Nonnull Representation representation) {
+        final @Nonnull int[] sizes = new int[objects.size()];
+        long total = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = SizingEncoder.getEncodedSize(converter, objects.get(i));
+            total += BinaryFormat.sizeOfLength(sizes[i]) + (long) sizes[i];
+        }
+        final @Nonnull ByteBuffer frames = ByteBuffer.allocate(Math.toIntExact(total));
+        try (@Nonnull ByteBufferEncoder encoder = into(frames, representation)) {
+            for (int i = 0; i < sizes.length; i++) {
+                encoder.encodeLength(sizes[i]);
+                encoder.encodeObject(converter, objects.get(i));
+            }
+        } catch (@Nonnull StreamException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        frames.flip();
+        return frames;
+    }
+    
+    /**
+     * Waits for the given future and returns its buffer.
+     * 
+     * @throws StreamException if the encoding of the group failed, with the exception of the stream or of the converter as its cause.
+     */
+    @Impure
+    private static @Nonnull ByteBuffer await(@Nonnull CompletableFuture<ByteBuffer> future) throws StreamException {
+        try {
+            return future.join();
+        } catch (@Nonnull CompletionException exception) {
+            @Nullable Throwable cause = exception.getCause();
+            if (cause instanceof UncheckedException) { cause = cause.getCause(); }
+            if (cause instanceof StreamException) { throw (StreamException) cause; }
+            if (cause instanceof Error) { throw (Error) cause; }
+            throw wrap(new IOException(cause));
+        }
+    }
+    
+    /**
+     * Encodes the given objects with the given converter in parallel on the given executor and writes them in their original order.
+     * The output starts with a header consisting of the {@link #encodeFingerprint(Converter) fingerprint} of the converter and the number of objects,
+     * followed by a frame for each object with its encoded size, so that the {@link ByteBufferDecoder#streamBatch(Converter, Object) decoder} can recover the objects one after the other.
+     * The objects are encoded in groups into separate buffers and at most a few groups per processor are kept in memory at any time.
+     */
+    @Impure
+    public <@Unspecifiable TYPE> void encodeBatch(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> objects, @Nonnull Executor executor) throws StreamException {
+        final int size = objects.size();
+        encodeFingerprint(converter);
+        encodeLength(size);
+        
+        final int maximumPending = 2 * Runtime.getRuntime().availableProcessors();
+        final @Nonnull ArrayDeque<@Nonnull CompletableFuture<ByteBuffer>> pending = new ArrayDeque<>();
+        @Nonnull List<@Nonnull TYPE> batch = new ArrayList<>(BATCH_SIZE);
+        int count = 0;
+        for (@Nonnull TYPE object : objects) {
+            batch.add(object);
+            count += 1;
+            if (batch.size() == BATCH_SIZE) {
+                final @Nonnull List<@Nonnull TYPE> group = batch;
+                pending.addLast(CompletableFuture.supplyAsync(() -> encodeFrames(converter, group, representation), executor));
+                batch = new ArrayList<>(BATCH_SIZE);
+                while (pending.size() > maximumPending) { encodeBytes(await(pending.removeFirst())); }
+            }
+        }
+        if (!batch.isEmpty()) {
+            final @Nonnull List<@Nonnull TYPE> group = batch;
+            pending.addLast(CompletableFuture.supplyAsync(() -> encodeFrames(converter, group, representation), executor));
+        }
+        while (!pending.isEmpty()) { encodeBytes(await(pending.removeFirst())); }
+        
+        Require.that(count == size).orThrow("The iterable returned $ objects instead of its size $.", count, size);
+    }
+    
+    /**
+     * Encodes the given objects with the given converter in parallel on the common fork-join pool.
+     * 
+     * @see #encodeBatch(Converter, FiniteIterable, Executor)
+     */
+    @Impure
+    public <@Unspecifiable TYPE> void encodeBatch(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> objects) throws StreamException {
+        encodeBatch(converter, objects, ForkJoinPool.commonPool());
+    }
+    
+    /* -------------------------------------------------- Columns -------------------------------------------------- */
+    
+    /**
+     * The kind of a column whose values are stored with their encoding in a record.
+     */
+    static final int RECORD_COLUMN = 0;
+    
+    /**
+     * The kind of a column whose integer values are stored as runs of equal differences.
+     */
+    static final int INTEGER_COLUMN = 1;
+    
+    /**
+     * Returns whether the values of the given field are stored as runs of equal differences in a columnar batch.
+     */
+    @Pure
+    static boolean isIntegerColumn(@Nonnull CustomField field) {
+        if (field.isAnnotatedWith(Nullable.class) || field.getCustomType() instanceof CustomType.CustomConverterType) { return false; }
+        switch (field.getCustomType().getTypeName()) {
+            case "INTEGER08": case "INTEGER16": case "INTEGER32": case "INTEGER64": return true;
+            default: return false;
+        }
+    }
+    
+    /**
+     * Encodes the given value as an integer of the given type.
+     */
+    @Impure
+    void encodeInteger(@Nonnull CustomType type, long value) throws StreamException {
+        switch (type.getTypeName()) {
+            case "INTEGER08": encodeInteger08((byte) value); break;
+            case "INTEGER16": encodeInteger16((short) value); break;
+            case "INTEGER32": encodeInteger32((int) value); break;
+            default: encodeInteger64(value);
+        }
+    }
+    
+    /**
+     * Encodes the given objects with the given converter column by column instead of object by object.
+     * The output starts with the number of objects and the number of fields, followed by a column for each field of the {@link Converter#getFields(Representation) converter}.
+     * Each column consists of its kind and its encoded size, so that the {@link ByteBufferDecoder#decodeColumn(Converter, CustomField) decoder} can skip the columns that it is not interested in.
+     * Non-nullable integer fields are stored as runs of equal differences between consecutive values, so that constant and sequential values take only a few bytes.
+     * The values of all other fields are stored as they are encoded in a {@link #encodeRecord(Converter, Object) record}.
+     */
+    @Impure
+    public <@Unspecifiable TYPE> void encodeColumns(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> objects) throws StreamException {
+        final @Nonnull ImmutableList<CustomField> fields = converter.getFields(representation);
+        final int size = objects.size();
+        final @Nonnull byte[][] records = new byte[size][];
+        final @Nonnull int[][] offsets = new int[size][];
+        int row = 0;
+        for (@Nonnull TYPE object : objects) {
+            records[row] = toRecord(converter, object, representation);
+            try {
+                offsets[row] = ByteBufferDecoder.getFieldOffsets(converter, representation, ByteBuffer.wrap(records[row]));
+            } catch (@Nonnull RecoveryException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            }
+            row++;
+        }
+        
+        encodeLength(size);
+        encodeLength(fields.size());
+        for (int column = 0; column < fields.size(); column++) {
+            final @Nonnull CustomField field = fields.get(column);
+            final boolean integer = isIntegerColumn(field);
+            final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (@Nonnull ByteBufferEncoder encoder = to(outputStream, representation)) {
+                if (integer) {
+                    long previous = 0;
+                    long difference = 0;
+                    int run = 0;
+                    for (int i = 0; i < size; i++) {
+                        final long value;
+                        try {
+                            value = new ByteBufferDecoder(representation, ByteBuffer.wrap(records[i], offsets[i][column], offsets[i][column + 1] - offsets[i][column]), false, null, null).decodeInteger(field.getCustomType());
+                        } catch (@Nonnull StreamException exception) {
+                            throw UncheckedExceptionBuilder.withCause(exception).build();
+                        }
+                        if (run > 0 && value - previous == difference) {
+                            run++;
+                        } else {
+                            if (run > 0) { encoder.encodeVarint(BinaryFormat.zigZag(difference)); encoder.encodeLength(run); }
+                            difference = value - previous;
+                            run = 1;
+                        }
+                        previous = value;
+                    }
+                    if (run > 0) { encoder.encodeVarint(BinaryFormat.zigZag(difference)); encoder.encodeLength(run); }
+                } else {
+                    for (int i = 0; i < size; i++) { encoder.encodeBytes(ByteBuffer.wrap(records[i], offsets[i][column], offsets[i][column + 1] - offsets[i][column])); }
+                }
+            }
+            encodeLength(integer ? INTEGER_COLUMN : RECORD_COLUMN);
+            encodeBinary(outputStream.toByteArray());
+        }
+    }
+    
+    /* -------------------------------------------------- Pipelining -------------------------------------------------- */
+    
+    /**
+     * Stores the number of buffers that each pipeline can hold or zero if this encoder is not pipelining.
+     */
+    private int pipelining = 0;
+    
+    /**
+     * Stores the pipeline sinks in front of the current layers and the underlying sink with the most recently started one first.
+     */
+    private final @Nonnull ArrayDeque<@Nonnull PipelineSink> pipelines = new ArrayDeque<>();
+    
+    /**
+     * Returns whether this encoder hashes, compresses, encrypts and writes the encoded bytes on separate threads.
+     */
+    @Pure
+    public boolean isPipelining() {
+        return pipelining > 0;
+    }
+    
+    /**
+     * Starts hashing, compressing, encrypting and writing the encoded bytes on separate threads so that these transforms overlap on several cores.
+     * Each layer that is started afterwards as well as the underlying channel gets its own thread, which receives the bytes through a pipeline of at most the given number of buffers.
+     * The pipelining can split the compressed or encrypted bytes differently into chunks, which does not affect the decoding, and lasts until this encoder is closed.
+     * Since each flushed buffer is copied once more per thread, the pipelining pays off only for large encodings with expensive layers.
+     */
+    @Impure
+    public void startPipelining(@Positive int capacity) {
+        Require.that(capacity > 0).orThrow("The capacity has to be positive but was $.", capacity);
+        Require.that(!isPipelining()).orThrow("The encoder may not already be pipelining.");
+        Require.that(sink != null).orThrow("Only an encoder which writes to a channel can pipeline.");
+        Require.that(layers.isEmpty() && !isHashing()).orThrow("The encoder may not be hashing, compressing or encrypting when the pipelining is started.");
+        
+        this.pipelining = capacity;
+        pipelines.push(new PipelineSink(sink, capacity));
+        this.sink = pipelines.peek();
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    /**
+     * Stores the digest with which the encoded bytes are hashed or null if this encoder is not hashing.
+     */
+    private @Nullable MessageDigest digest;
+    
+    /**
+     * Stores the position in the buffer up to which the encoded bytes have already been hashed.
+     */
+    private int hashMark = 0;
+    
+    /**
+     * Stores the pipeline sink which hashes the encoded bytes on a separate thread or null if this encoder is not hashing or not pipelining.
+     */
+    private @Nullable PipelineSink hashing;
+    
+    /**
+     * Hashes the remaining bytes of the given buffer, which happens on a separate thread if this encoder is pipelining.
+     */
+    @Impure
+    private void hash(@NonCaptured @Modified @Nonnull ByteBuffer bytes) {
+        if (hashing == null) {
+            digest.update(bytes);
+        } else {
+            try {
+                hashing.write(bytes);
+            } catch (@Nonnull IOException exception) {
+                // The digest sink does not fail, which means that the pipeline was interrupted.
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            }
+        }
+    }
+    
+    /**
+     * Hashes the encoded bytes in the buffer which have not yet been hashed.
+     */
+    @Impure
+    private void digest() {
+        if (digest != null && buffer.position() > hashMark) {
+            final @Nonnull ByteBuffer region = buffer.duplicate();
+            region.limit(buffer.position());
+            region.position(hashMark);
+            hash(region);
+        }
+        hashMark = buffer.position();
+    }
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        Require.that(!isHashing()).orThrow("The encoder may not already be hashing.");
+        
+        this.digest = digest;
+        this.hashMark = buffer.position();
+        if (isPipelining()) { this.hashing = new PipelineSink(new DigestSink(digest), pipelining); }
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The encoder has to be hashing.");
+        
+        digest();
+        if (hashing != null) {
+            try {
+                hashing.finish();
+            } catch (@Nonnull IOException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            } finally {
+                this.hashing = null;
+            }
+        }
+        final @Nonnull MessageDigest digest = this.digest;
+        this.digest = null;
+        return digest.digest();
+    }
+    
+    /* -------------------------------------------------- Layers -------------------------------------------------- */
+    
+    /**
+     * Stores the layers which currently compress or encrypt the encoded bytes with the most recently started layer first.
+     */
+    private final @Nonnull ArrayDeque<@Nonnull ChunkedSink> layers = new ArrayDeque<>();
+    
+    /**
+     * Returns whether one of the current layers is an instance of the given class.
+     */
+    @Pure
+    private boolean hasLayer(@Nonnull Class<? extends ChunkedSink> type) {
+        for (@Nonnull ChunkedSink layer : layers) {
+            if (type.isInstance(layer)) { return true; }
+        }
+        return false;
+    }
+    
+    /**
+     * Hands the buffered bytes over to the prefix of the next layer and returns it or null if there are none.
+     * This method does not write to the sink so that layers can be started without an I/O exception.
+     */
+    @Impure
+    private @Nullable ByteBuffer takePrefix() {
+        digest();
+        if (sink == null) {
+            this.sink = new BufferSink(buffer);
+            this.buffer = ByteBufferPool.acquire();
+            this.pooled = true;
+            this.hashMark = 0;
+            return null;
+        } else if (buffer.position() > 0) {
+            buffer.flip();
+            final @Nonnull ByteBuffer prefix = ByteBuffer.allocate(buffer.remaining());
+            prefix.put(buffer);
+            prefix.flip();
+            buffer.clear();
+            this.hashMark = 0;
+            return prefix;
+        } else {
+            return null;
+        }
+    }
+    
+    /**
+     * Starts the given layer, which has to be constructed with the {@link #takePrefix() prefix} and the current sink.
+     * If this encoder is pipelining, the layer transforms the bytes on its own thread.
+     */
+    @Impure
+    private void pushLayer(@Nonnull ChunkedSink layer) {
+        layers.push(layer);
+        if (isPipelining()) {
+            pipelines.push(new PipelineSink(layer, pipelining));
+            this.sink = pipelines.peek();
+        } else {
+            this.sink = layer;
+        }
+    }
+    
+    /**
+     * Finishes the most recently started layer, which has to be an instance of the given class.
+     */
+    @Impure
+    private void popLayer(@Nonnull Class<? extends ChunkedSink> type, @Nonnull String message) throws StreamException {
+        Require.that(type.isInstance(layers.peek())).orThrow(message);
+        
+        flush();
+        final @Nonnull ChunkedSink layer = layers.pop();
+        try {
+            if (isPipelining()) { pipelines.pop().finish(); }
+            layer.finish();
+        } catch (@Nonnull IOException exception) {
+            throw wrap(exception);
+        }
+        this.sink = layer.getSink();
+    }
+    
+    /* -------------------------------------------------- Compressing -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isCompressing() {
+        return hasLayer(DeflaterSink.class);
+    }
+    
+    @Impure
+    @Override
+    public void startCompressing(@Nonnull Deflater deflater) {
+        final @Nullable ByteBuffer prefix = takePrefix();
+        pushLayer(new DeflaterSink(deflater, prefix, sink));
+    }
+    
+    @Impure
+    @Override
+    public void stopCompressing() throws StreamException {
+        popLayer(DeflaterSink.class, "The most recently started layer has to be a compression.");
+    }
+    
+    /* -------------------------------------------------- Encrypting -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isEncrypting() {
+        return hasLayer(CipherSink.class) || hasLayer(SegmentedCipherSink.class);
+    }
+    
+    @Impure
+    @Override
+    public void startEncrypting(@Nonnull Cipher cipher) {
+        final @Nullable ByteBuffer prefix = takePrefix();
+        pushLayer(new CipherSink(cipher, prefix, sink));
+    }
+    
+    /**
+     * Starts encrypting the encoded bytes in authenticated segments with the given cipher until the encryption is {@link #stopEncrypting() stopped}.
+     * In contrast to an AEAD cipher given to {@link #startEncrypting(Cipher)}, the decoder can verify and decode the segments one after the other.
+     */
+    @Impure
+    public void startEncrypting(@Nonnull SegmentedCipher cipher) {
+        final @Nullable ByteBuffer prefix = takePrefix();
+        pushLayer(new SegmentedCipherSink(cipher, prefix, sink));
+    }
+    
+    @Impure
+    @Override
+    public void stopEncrypting() throws StreamException {
+        popLayer(layers.peek() instanceof SegmentedCipherSink ? SegmentedCipherSink.class : CipherSink.class, "The most recently started layer has to be an encryption.");
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    private boolean closed = false;
+    
+    /**
+     * Finishes all layers that are still open, flushes the buffer and closes the underlying channel.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        if (closed) { return; }
+        closed = true;
+        try {
+            while (!layers.isEmpty()) { popLayer(ChunkedSink.class, ""); }
+            if (sink != null) { flush(); }
+            else { digest(); }
+            if (isPipelining()) { pipelines.pop().finish(); }
+        } catch (@Nonnull IOException exception) {
+            throw wrap(exception);
+        } finally {
+            for (@Nonnull PipelineSink pipeline : pipelines) { pipeline.abort(); }
+            if (hashing != null) { hashing.abort(); }
+            if (pooled) { ByteBufferPool.release(buffer); }
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (@Nonnull IOException exception) {
+                    throw wrap(exception);
+                }
+            }
+        }
+    }
+    
+}
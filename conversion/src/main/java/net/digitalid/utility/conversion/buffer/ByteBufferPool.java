@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+/**
+ * The byte buffer pool keeps a few direct byte buffers per thread so that encoders and decoders do not have to allocate them again and again.
+ */
+@Utility
+public abstract class ByteBufferPool {
+    
+    /* -------------------------------------------------- Constants -------------------------------------------------- */
+    
+    /**
+     * Stores the capacity of the pooled buffers.
+     */
+    public static final int CAPACITY = 1 << 16;
+    
+    /**
+     * Stores the maximum number of buffers that are kept per thread.
+     */
+    private static final int MAXIMUM = 4;
+    
+    /* -------------------------------------------------- Pool -------------------------------------------------- */
+    
+    private static final @Nonnull ThreadLocal<@Nonnull ArrayDeque<@Nonnull ByteBuffer>> pool = ThreadLocal.withInitial(ArrayDeque::new);
+    
+    /**
+     * Returns a cleared direct buffer with the {@link #CAPACITY capacity} of this pool.
+     * The buffer should be {@link #release(java.nio.ByteBuffer) released} when it is no longer needed.
+     */
+    @Impure
+    public static @Capturable @Nonnull ByteBuffer acquire() {
+        final ByteBuffer buffer = pool.get().pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(CAPACITY);
+    }
+    
+    /**
+     * Returns the given buffer to the pool of the current thread.
+     * Buffers that were not {@link #acquire() acquired} from this pool are ignored.
+     */
+    @Impure
+    public static void release(@Captured @Nonnull ByteBuffer buffer) {
+        if (buffer.isDirect() && buffer.capacity() == CAPACITY && !buffer.isReadOnly()) {
+            final @Nonnull ArrayDeque<@Nonnull ByteBuffer> buffers = pool.get();
+            if (buffers.size() < MAXIMUM) {
+                buffer.clear();
+                buffers.addFirst(buffer);
+            }
+        }
+    }
+    
+}
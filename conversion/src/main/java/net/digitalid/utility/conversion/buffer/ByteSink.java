@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A byte sink consumes the bytes written by a {@link ByteBufferEncoder}.
+ * Sinks are stacked on top of each other in order to compress or encrypt the encoded bytes.
+ */
+@Mutable
+abstract class ByteSink {
+    
+    /* -------------------------------------------------- Writing -------------------------------------------------- */
+    
+    /**
+     * Writes all remaining bytes of the given buffer to this sink.
+     */
+    @Impure
+    abstract void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException;
+    
+    /* -------------------------------------------------- Finishing -------------------------------------------------- */
+    
+    /**
+     * Finishes this sink so that all pending bytes are written to the underlying sink.
+     */
+    @Impure
+    abstract void finish() throws IOException;
+    
+}
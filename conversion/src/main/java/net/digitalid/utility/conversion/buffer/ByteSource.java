@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A byte source provides the bytes read by a {@link ByteBufferDecoder}.
+ * Sources are stacked on top of each other in order to decompress or decrypt the decoded bytes.
+ */
+@Mutable
+abstract class ByteSource {
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    /**
+     * Reads bytes into the remaining space of the given buffer and returns their number or -1 if this source is exhausted.
+     */
+    @Impure
+    abstract int read(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException;
+    
+    /* -------------------------------------------------- Transferring -------------------------------------------------- */
+    
+    /**
+     * Transfers as many bytes as possible from the given source buffer to the given target buffer and returns their number.
+     */
+    @Impure
+    static int transfer(@NonCaptured @Modified @Nonnull ByteBuffer source, @NonCaptured @Modified @Nonnull ByteBuffer target) {
+        final int length = Math.min(source.remaining(), target.remaining());
+        if (length == source.remaining()) {
+            target.put(source);
+        } else {
+            final @Nonnull ByteBuffer slice = source.duplicate();
+            slice.limit(slice.position() + length);
+            target.put(slice);
+            source.position(source.position() + length);
+        }
+        return length;
+    }
+    
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A channel sink writes the bytes to a writable byte channel.
+ */
+@Mutable
+class ChannelSink extends ByteSink {
+    
+    /* -------------------------------------------------- Channel -------------------------------------------------- */
+    
+    private final @Nonnull WritableByteChannel channel;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ChannelSink(@Nonnull WritableByteChannel channel) {
+        this.channel = channel;
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) { channel.write(buffer); }
+    }
+    
+    @Impure
+    @Override
+    void finish() {}
+    
+    /* -------------------------------------------------- Transferring -------------------------------------------------- */
+    
+    /**
+     * Transfers the given number of bytes from the given file starting at the given position directly to the channel of this sink.
+     * Depending on the operating system and the channel, the bytes are transferred without being copied into the memory of the virtual machine.
+     */
+    @Impure
+    void transferFrom(@Nonnull FileChannel file, @NonNegative long position, @NonNegative long count) throws IOException {
+        long transferred = 0;
+        while (transferred < count) {
+            final long result = file.transferTo(position + transferred, count - transferred, channel);
+            if (result == 0 && position + transferred >= file.size()) { throw new EOFException("The file ended " + (count - transferred) + " bytes before the given length."); }
+            transferred += result;
+        }
+    }
+    
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A channel source reads the bytes from a readable byte channel.
+ * Large reads go directly to the channel, whereas small reads like the headers of chunks are served from an internal buffer.
+ */
+@Mutable
+class ChannelSource extends ByteSource {
+    
+    /* -------------------------------------------------- Channel -------------------------------------------------- */
+    
+    private final @Nonnull ReadableByteChannel channel;
+    
+    /* -------------------------------------------------- Buffer -------------------------------------------------- */
+    
+    private static final int SMALL = 64;
+    
+    private final @Nonnull ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ChannelSource(@Nonnull ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+    
+    /* -------------------------------------------------- ByteSource -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    int read(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        if (buffer.hasRemaining()) { return transfer(buffer, target); }
+        if (target.remaining() >= SMALL) { return channel.read(target); }
+        buffer.clear();
+        final int count = channel.read(buffer);
+        buffer.flip();
+        return count < 0 ? count : transfer(buffer, target);
+    }
+    
+    /* -------------------------------------------------- Transferring -------------------------------------------------- */
+    
+    /**
+     * Transfers the given number of bytes from this source directly to the given file starting at the given position.
+     * Depending on the operating system and the channel, the bytes are transferred without being copied into the memory of the virtual machine.
+     */
+    @Impure
+    void transferTo(@Nonnull FileChannel file, @NonNegative long position, @NonNegative long count) throws IOException {
+        long transferred = 0;
+        while (buffer.hasRemaining() && transferred < count) {
+            final @Nonnull ByteBuffer slice = buffer.duplicate();
+            slice.limit(slice.position() + (int) Math.min(slice.remaining(), count - transferred));
+            final int result = file.write(slice, position + transferred);
+            buffer.position(buffer.position() + result);
+            transferred += result;
+        }
+        while (transferred < count) {
+            final long result = file.transferFrom(channel, position + transferred, count - transferred);
+            if (result == 0) { throw new EOFException("The channel ended " + (count - transferred) + " bytes before the announced length."); }
+            transferred += result;
+        }
+    }
+    
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A chunked sink transforms the bytes and writes the result as chunks which are prefixed with their length to the underlying sink.
+ * A chunk of length zero terminates the transformed bytes so that the corresponding {@link ChunkedSource} knows where to stop reading.
+ * The untransformed prefix, which was buffered by the encoder before this sink was started, is written to the underlying sink before the first chunk.
+ */
+@Mutable
+abstract class ChunkedSink extends ByteSink {
+    
+    /* -------------------------------------------------- Sink -------------------------------------------------- */
+    
+    private final @Nonnull ByteSink sink;
+    
+    /**
+     * Returns the sink to which the chunks are written.
+     */
+    @Pure
+    @Nonnull ByteSink getSink() {
+        return sink;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ChunkedSink(@Nullable ByteBuffer prefix, @Nonnull ByteSink sink) {
+        this.prefix = prefix;
+        this.sink = sink;
+    }
+    
+    /* -------------------------------------------------- Prefix -------------------------------------------------- */
+    
+    private @Nullable ByteBuffer prefix;
+    
+    /**
+     * Writes the prefix to the underlying sink if this has not yet been done.
+     */
+    @Impure
+    private void writePrefix() throws IOException {
+        if (prefix != null) {
+            final @Nonnull ByteBuffer prefix = this.prefix;
+            this.prefix = null;
+            sink.write(prefix);
+        }
+    }
+    
+    /* -------------------------------------------------- Chunks -------------------------------------------------- */
+    
+    private final @Nonnull ByteBuffer header = ByteBuffer.allocate(5);
+    
+    /**
+     * Writes the given length as an unsigned variable-length integer to the underlying sink.
+     */
+    @Impure
+    private void writeLength(@NonNegative int length) throws IOException {
+        writePrefix();
+        header.clear();
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            header.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        header.put((byte) value);
+        header.flip();
+        sink.write(header);
+    }
+    
+    /**
+     * Writes the remaining bytes of the given buffer as a chunk to the underlying sink.
+     */
+    @Impure
+    void writeChunk(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        if (buffer.hasRemaining()) {
+            writeLength(buffer.remaining());
+            sink.write(buffer);
+        }
+    }
+    
+    /**
+     * Writes the given bytes as a chunk to the underlying sink.
+     */
+    @Impure
+    void writeChunk(@NonCaptured @Unmodified @Nonnull byte[] bytes, @NonNegative int offset, @NonNegative int length) throws IOException {
+        if (length > 0) { writeChunk(ByteBuffer.wrap(bytes, offset, length)); }
+    }
+    
+    /**
+     * Writes the terminating chunk to the underlying sink.
+     */
+    @Impure
+    void writeTerminator() throws IOException {
+        writeLength(0);
+    }
+    
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A chunked source reads the chunks written by a {@link ChunkedSink} from the underlying source and transforms them back.
+ * It never reads beyond the terminating chunk so that the underlying source can be used again after this source is exhausted.
+ */
+@Mutable
+abstract class ChunkedSource extends ByteSource {
+    
+    /* -------------------------------------------------- Source -------------------------------------------------- */
+    
+    private final @Nonnull ByteSource source;
+    
+    /**
+     * Returns the source from which the chunks are read.
+     */
+    @Pure
+    @Nonnull ByteSource getSource() {
+        return source;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ChunkedSource(@Nonnull ByteSource source) {
+        this.source = source;
+    }
+    
+    /* -------------------------------------------------- Chunks -------------------------------------------------- */
+    
+    private final @Nonnull ByteBuffer single = ByteBuffer.allocate(1);
+    
+    /**
+     * Reads the given buffer completely from the underlying source.
+     */
+    @Impure
+    private void readFully(@Nonnull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer) < 0) { throw new EOFException("The source ended in the middle of a chunk."); }
+        }
+    }
+    
+    /**
+     * Reads an unsigned variable-length integer from the underlying source.
+     */
+    @Impure
+    private int readLength() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            single.clear();
+            readFully(single);
+            final byte value = single.get(0);
+            result |= (value & 0x7F) << shift;
+            if (value >= 0) { return result; }
+        }
+        throw new IOException("The length of a chunk is malformed.");
+    }
+    
+    private @Nonnull ByteBuffer chunk = ByteBuffer.allocate(0);
+    
+    /**
+     * Reads the next chunk from the underlying source and returns it as a heap buffer which is ready to be read or null if the terminating chunk was read.
+     */
+    @Impure
+    @Nullable ByteBuffer readChunk() throws IOException {
+        final int length = readLength();
+        if (length == 0) { return null; }
+        if (length > 4 * ByteBufferPool.CAPACITY) { throw new IOException("The length of a chunk exceeds the maximum."); }
+        if (chunk.capacity() < length) { chunk = ByteBuffer.allocate(Math.max(length, ByteBufferPool.CAPACITY)); }
+        chunk.clear();
+        chunk.limit(length);
+        readFully(chunk);
+        chunk.flip();
+        return chunk;
+    }
+    
+}
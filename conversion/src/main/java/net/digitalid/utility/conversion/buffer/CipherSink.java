@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A cipher sink encrypts the bytes with a cipher.
+ */
+@Mutable
+class CipherSink extends ChunkedSink {
+    
+    /* -------------------------------------------------- Cipher -------------------------------------------------- */
+    
+    private final @Nonnull Cipher cipher;
+    
+    /* -------------------------------------------------- Output -------------------------------------------------- */
+    
+    private @Nonnull ByteBuffer output = ByteBuffer.allocate(0);
+    
+    /**
+     * Returns the cleared output buffer with enough space for the given number of input bytes.
+     */
+    @Impure
+    private @Nonnull ByteBuffer getOutput(@NonNegative int inputLength) {
+        final int outputLength = cipher.getOutputSize(inputLength);
+        if (output.capacity() < outputLength) { output = ByteBuffer.allocate(outputLength); }
+        output.clear();
+        return output;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    CipherSink(@Nonnull Cipher cipher, @Nullable ByteBuffer prefix, @Nonnull ByteSink sink) {
+        super(prefix, sink);
+        
+        this.cipher = cipher;
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        try {
+            while (buffer.hasRemaining()) {
+                final int length = Math.min(buffer.remaining(), ByteBufferPool.CAPACITY);
+                final @Nonnull ByteBuffer input = buffer.duplicate();
+                input.limit(input.position() + length);
+                final @Nonnull ByteBuffer output = getOutput(length);
+                cipher.update(input, output);
+                buffer.position(buffer.position() + length);
+                output.flip();
+                writeChunk(output);
+            }
+        } catch (@Nonnull GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+    
+    @Impure
+    @Override
+    void finish() throws IOException {
+        try {
+            final @Nonnull ByteBuffer output = getOutput(0);
+            cipher.doFinal(ByteBuffer.allocate(0), output);
+            output.flip();
+            writeChunk(output);
+            writeTerminator();
+        } catch (@Nonnull GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+    
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A cipher source decrypts the bytes with a cipher.
+ */
+@Mutable
+class CipherSource extends ChunkedSource {
+    
+    /* -------------------------------------------------- Cipher -------------------------------------------------- */
+    
+    private final @Nonnull Cipher cipher;
+    
+    /* -------------------------------------------------- Output -------------------------------------------------- */
+    
+    private @Nonnull ByteBuffer output = ByteBuffer.allocate(0);
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    CipherSource(@Nonnull Cipher cipher, @Nonnull ByteSource source) {
+        super(source);
+        
+        this.cipher = cipher;
+    }
+    
+    /* -------------------------------------------------- ByteSource -------------------------------------------------- */
+    
+    private boolean finished = false;
+    
+    @Impure
+    @Override
+    int read(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        try {
+            while (!output.hasRemaining()) {
+                if (finished) { return -1; }
+                final @Nullable ByteBuffer chunk = readChunk();
+                final int outputLength = cipher.getOutputSize(chunk == null ? 0 : chunk.remaining());
+                if (output.capacity() < outputLength) { output = ByteBuffer.allocate(outputLength); }
+                output.clear();
+                if (chunk == null) {
+                    cipher.doFinal(ByteBuffer.allocate(0), output);
+                    finished = true;
+                } else {
+                    cipher.update(chunk, output);
+                }
+                output.flip();
+            }
+            return transfer(output, target);
+        } catch (@Nonnull GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+    
+}
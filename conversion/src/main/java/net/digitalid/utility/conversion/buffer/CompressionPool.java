@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A compression pool keeps deflaters and inflaters with the same level and preset dictionary so that their native resources are not allocated for every message.
+ * The pooled instances compress without a zlib wrapper, which allows the dictionary to be set before any input is processed.
+ * The same dictionary has to be used for compressing and decompressing, which is why it should be {@link #trainDictionary(Converter, FiniteIterable, int) trained} once and then be distributed with the application.
+ * 
+ * @see ByteBufferEncoder#startCompressing(Deflater)
+ * @see ByteBufferDecoder#startDecompressing(Inflater)
+ */
+@Mutable
+public class CompressionPool {
+    
+    /* -------------------------------------------------- Constants -------------------------------------------------- */
+    
+    /**
+     * Stores the maximum number of idle deflaters and inflaters that are kept by default.
+     */
+    private static final int MAXIMUM = 16;
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final int level;
+    
+    private final @Nullable byte[] dictionary;
+    
+    private final @Nonnull ArrayBlockingQueue<@Nonnull Deflater> deflaters;
+    
+    private final @Nonnull ArrayBlockingQueue<@Nonnull Inflater> inflaters;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected CompressionPool(int level, @NonCaptured @Unmodified @Nullable byte[] dictionary, @Positive int maximum) {
+        Require.that(level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION).orThrow("The level has to be between -1 and 9 but was $.", level);
+        Require.that(maximum > 0).orThrow("The maximum has to be positive but was $.", maximum);
+        
+        this.level = level;
+        this.dictionary = dictionary == null ? null : dictionary.clone();
+        this.deflaters = new ArrayBlockingQueue<>(maximum);
+        this.inflaters = new ArrayBlockingQueue<>(maximum);
+    }
+    
+    /**
+     * Returns a new compression pool with the given level and without a dictionary.
+     */
+    @Pure
+    public static @Nonnull CompressionPool with(int level) {
+        return new CompressionPool(level, null, MAXIMUM);
+    }
+    
+    /**
+     * Returns a new compression pool with the given level and preset dictionary.
+     */
+    @Pure
+    public static @Nonnull CompressionPool with(int level, @NonCaptured @Unmodified @Nonnull byte[] dictionary) {
+        return new CompressionPool(level, dictionary, MAXIMUM);
+    }
+    
+    /**
+     * Returns a new compression pool with the given level and preset dictionary which keeps at most the given number of idle instances.
+     */
+    @Pure
+    public static @Nonnull CompressionPool with(int level, @NonCaptured @Unmodified @Nullable byte[] dictionary, @Positive int maximum) {
+        return new CompressionPool(level, dictionary, maximum);
+    }
+    
+    /* -------------------------------------------------- Deflaters -------------------------------------------------- */
+    
+    /**
+     * Returns a deflater with the level and dictionary of this pool.
+     * The deflater should be {@link #release(Deflater) released} after the compression has been stopped.
+     */
+    @Impure
+    public @Capturable @Nonnull Deflater acquireDeflater() {
+        @Nullable Deflater deflater = deflaters.poll();
+        if (deflater == null) { deflater = new Deflater(level, true); }
+        if (dictionary != null) { deflater.setDictionary(dictionary); }
+        return deflater;
+    }
+    
+    /**
+     * Resets the given deflater and returns it to this pool or frees its native resources if the pool is full.
+     */
+    @Impure
+    public void release(@Captured @Nonnull Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) { deflater.end(); }
+    }
+    
+    /* -------------------------------------------------- Inflaters -------------------------------------------------- */
+    
+    /**
+     * Returns an inflater with the dictionary of this pool.
+     * The inflater should be {@link #release(Inflater) released} after the decompression has been stopped.
+     */
+    @Impure
+    public @Capturable @Nonnull Inflater acquireInflater() {
+        @Nullable Inflater inflater = inflaters.poll();
+        if (inflater == null) { inflater = new Inflater(true); }
+        if (dictionary != null) { inflater.setDictionary(dictionary); }
+        return inflater;
+    }
+    
+    /**
+     * Resets the given inflater and returns it to this pool or frees its native resources if the pool is full.
+     */
+    @Impure
+    public void release(@Captured @Nonnull Inflater inflater) {
+        inflater.reset();
+        if (!inflaters.offer(inflater)) { inflater.end(); }
+    }
+    
+    /* -------------------------------------------------- Training -------------------------------------------------- */
+    
+    /**
+     * Stores the length of the substrings that are counted when training a dictionary.
+     */
+    private static final int SEGMENT = 8;
+    
+    /**
+     * Returns a preset dictionary of at most the given size for the encodings of the given samples with the given converter.
+     * The dictionary consists of the byte sequences that occur in most samples, with the most common ones at the end,
+     * where they are cheapest to reference. Sequences that occur in only one sample are not included.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @Nonnull byte[] trainDictionary(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> samples, @Positive int maximumSize) {
+        Require.that(maximumSize > 0).orThrow("The maximum size has to be positive but was $.", maximumSize);
+        
+        final @Nonnull Map<ByteBuffer, Integer> counts = new HashMap<>();
+        final @Nonnull Set<ByteBuffer> segments = new HashSet<>();
+        for (@Nonnull TYPE sample : samples) {
+            final @Nonnull ByteBuffer encoding;
+            try {
+                encoding = ByteBufferEncoder.encode(converter, sample);
+            } catch (@Nonnull StreamException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            }
+            segments.clear();
+            for (int i = 0; i + SEGMENT <= encoding.limit(); i++) {
+                final @Nonnull ByteBuffer segment = ByteBuffer.wrap(Arrays.copyOfRange(encoding.array(), i, i + SEGMENT));
+                if (segments.add(segment)) { counts.merge(segment, 1, Integer::sum); }
+            }
+        }
+        
+        final @Nonnull List<Map.Entry<ByteBuffer, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort((a, b) -> b.getValue() - a.getValue());
+        
+        final @Nonnull List<byte[]> selected = new ArrayList<>();
+        final @Nonnull Set<Integer> covered = new HashSet<>();
+        int size = 0;
+        for (@Nonnull Map.Entry<ByteBuffer, Integer> entry : entries) {
+            if (entry.getValue() < 2 || size + SEGMENT > maximumSize) { break; }
+            final @Nonnull ByteBuffer segment = entry.getKey();
+            // A segment whose halves are both covered by previously selected segments is most likely a shifted copy of them.
+            if (!covered.contains(segment.getInt(0)) || !covered.contains(segment.getInt(SEGMENT / 2))) {
+                for (int i = 0; i + 4 <= SEGMENT; i++) { covered.add(segment.getInt(i)); }
+                selected.add(segment.array());
+                size += SEGMENT;
+            }
+        }
+        
+        final @Nonnull byte[] dictionary = new byte[size];
+        int position = 0;
+        for (int i = selected.size() - 1; i >= 0; i--) {
+            System.arraycopy(selected.get(i), 0, dictionary, position, SEGMENT);
+            position += SEGMENT;
+        }
+        return dictionary;
+    }
+    
+}
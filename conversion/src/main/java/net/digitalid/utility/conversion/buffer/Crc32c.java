@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.validation.annotations.type.Utility;
+
+/**
+ * This utility class computes CRC-32C checksums (with the Castagnoli polynomial).
+ * The checksum is computed with the hardware-accelerated {@code java.util.zip.CRC32C} if the runtime provides it and in Java with eight lookup tables otherwise.
+ */
+@Utility
+abstract class Crc32c {
+    
+    /* -------------------------------------------------- Tables -------------------------------------------------- */
+    
+    /**
+     * The reversed Castagnoli polynomial.
+     */
+    private static final int POLYNOMIAL = 0x82F63B78;
+    
+    /**
+     * Stores the lookup tables for processing eight bytes at a time.
+     */
+    private static final @Nonnull int[][] TABLES = new int[8][256];
+    
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int j = 0; j < 8; j++) { crc = (crc >>> 1) ^ ((crc & 1) != 0 ? POLYNOMIAL : 0); }
+            TABLES[0][i] = crc;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int k = 1; k < 8; k++) { TABLES[k][i] = (TABLES[k - 1][i] >>> 8) ^ TABLES[0][TABLES[k - 1][i] & 0xFF]; }
+        }
+    }
+    
+    /* -------------------------------------------------- Runtime -------------------------------------------------- */
+    
+    /**
+     * Stores a handle to the constructor of {@code java.util.zip.CRC32C} or null if the runtime does not provide it.
+     */
+    private static final @Nullable MethodHandle CONSTRUCTOR;
+    
+    /**
+     * Stores a handle to the method which updates a {@code java.util.zip.CRC32C} with the remaining bytes of a buffer.
+     */
+    private static final @Nullable MethodHandle UPDATE;
+    
+    /**
+     * Stores a handle to the method which returns the value of a {@code java.util.zip.CRC32C}.
+     */
+    private static final @Nullable MethodHandle VALUE;
+    
+    static {
+        @Nullable MethodHandle constructor = null;
+        @Nullable MethodHandle update = null;
+        @Nullable MethodHandle value = null;
+        try {
+            final @Nonnull Class<?> type = Class.forName("java.util.zip.CRC32C");
+            final @Nonnull MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            constructor = lookup.findConstructor(type, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+            update = lookup.findVirtual(type, "update", MethodType.methodType(void.class, ByteBuffer.class)).asType(MethodType.methodType(void.class, Object.class, ByteBuffer.class));
+            value = lookup.findVirtual(type, "getValue", MethodType.methodType(long.class)).asType(MethodType.methodType(long.class, Object.class));
+        } catch (@Nonnull ReflectiveOperationException exception) {
+            constructor = null;
+        }
+        CONSTRUCTOR = constructor;
+        UPDATE = update;
+        VALUE = value;
+    }
+    
+    /* -------------------------------------------------- Computation -------------------------------------------------- */
+    
+    /**
+     * Returns the checksum of the remaining bytes of the given buffer without changing its position.
+     */
+    @Pure
+    static int compute(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer) {
+        if (CONSTRUCTOR != null && UPDATE != null && VALUE != null) {
+            try {
+                final @Nonnull Object checksum = CONSTRUCTOR.invokeExact();
+                UPDATE.invokeExact(checksum, buffer.duplicate());
+                return (int) (long) VALUE.invokeExact(checksum);
+            } catch (@Nonnull RuntimeException | Error exception) {
+                throw exception;
+            } catch (@Nonnull Throwable throwable) {
+                throw new RuntimeException("This should never happen because CRC32C does not throw checked exceptions.", throwable);
+            }
+        } else {
+            return computeWithTables(buffer);
+        }
+    }
+    
+    /**
+     * Returns the checksum of the remaining bytes of the given buffer without changing its position and without the help of the runtime.
+     */
+    @Pure
+    static int computeWithTables(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer) {
+        int crc = ~0;
+        int position = buffer.position();
+        final int limit = buffer.limit();
+        for (; position + 8 <= limit; position += 8) {
+            final int low = crc ^ ((buffer.get(position) & 0xFF) | (buffer.get(position + 1) & 0xFF) << 8 | (buffer.get(position + 2) & 0xFF) << 16 | (buffer.get(position + 3) & 0xFF) << 24);
+            final int high = (buffer.get(position + 4) & 0xFF) | (buffer.get(position + 5) & 0xFF) << 8 | (buffer.get(position + 6) & 0xFF) << 16 | (buffer.get(position + 7) & 0xFF) << 24;
+            crc = TABLES[7][low & 0xFF] ^ TABLES[6][(low >>> 8) & 0xFF] ^ TABLES[5][(low >>> 16) & 0xFF] ^ TABLES[4][low >>> 24]
+                ^ TABLES[3][high & 0xFF] ^ TABLES[2][(high >>> 8) & 0xFF] ^ TABLES[1][(high >>> 16) & 0xFF] ^ TABLES[0][high >>> 24];
+        }
+        for (; position < limit; position++) {
+            crc = (crc >>> 8) ^ TABLES[0][(crc ^ buffer.get(position)) & 0xFF];
+        }
+        return ~crc;
+    }
+    
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.functional.exceptions.IterationExceptionBuilder;
+import net.digitalid.utility.functional.failable.FailableProducer;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.functional.iterators.ReadOnlyIterator;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A decoding iterable decodes its elements with the given producer only when they are iterated.
+ * Since the elements are read from a stream, the iterable can be iterated only once.
+ */
+@Mutable
+class DecodingIterable<@Specifiable ELEMENT> implements FiniteIterable<ELEMENT> {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @NonNegative int size;
+    
+    private final @Nonnull FailableProducer<? extends ELEMENT, ?> producer;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    DecodingIterable(@NonNegative int size, @Captured @Nonnull FailableProducer<? extends ELEMENT, ?> producer) {
+        this.size = size;
+        this.producer = producer;
+    }
+    
+    /* -------------------------------------------------- Iterator -------------------------------------------------- */
+    
+    private boolean iterated = false;
+    
+    @Impure
+    @Override
+    public @Capturable @Nonnull ReadOnlyIterator<ELEMENT> iterator() {
+        Require.that(!iterated).orThrow("A decoding iterable can be iterated only once.");
+        
+        iterated = true;
+        return new ReadOnlyIterator<ELEMENT>() {
+            
+            private int remaining = size;
+            
+            @Pure
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+            
+            @Impure
+            @Override
+            public ELEMENT next() {
+                if (remaining == 0) { throw new NoSuchElementException(); }
+                remaining -= 1;
+                try {
+                    return producer.produce();
+                } catch (@Nonnull Exception exception) {
+                    throw IterationExceptionBuilder.withCause(exception).build();
+                }
+            }
+            
+        };
+    }
+    
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @NonNegative int size() {
+        return size;
+    }
+    
+    @Pure
+    @Override
+    public @NonNegative int size(@Positive int limit) {
+        Require.that(limit > 0).orThrow("The limit has to be positive but was $.", limit);
+        
+        return Math.min(size, limit);
+    }
+    
+    @Pure
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+}
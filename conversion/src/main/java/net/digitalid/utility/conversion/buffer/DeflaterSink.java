@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A deflater sink compresses the bytes with a deflater.
+ */
+@Mutable
+class DeflaterSink extends ChunkedSink {
+    
+    /* -------------------------------------------------- Deflater -------------------------------------------------- */
+    
+    private final @Nonnull Deflater deflater;
+    
+    /* -------------------------------------------------- Buffers -------------------------------------------------- */
+    
+    private final @Nonnull byte[] input = new byte[ByteBufferPool.CAPACITY];
+    
+    private final @Nonnull byte[] output = new byte[ByteBufferPool.CAPACITY];
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    DeflaterSink(@Nonnull Deflater deflater, @Nullable ByteBuffer prefix, @Nonnull ByteSink sink) {
+        super(prefix, sink);
+        
+        this.deflater = deflater;
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    @Impure
+    private void deflate() throws IOException {
+        while (!deflater.needsInput()) {
+            writeChunk(output, 0, deflater.deflate(output));
+        }
+    }
+    
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            final int length = Math.min(buffer.remaining(), input.length);
+            if (buffer.hasArray()) {
+                deflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                buffer.position(buffer.position() + length);
+            } else {
+                buffer.get(input, 0, length);
+                deflater.setInput(input, 0, length);
+            }
+            deflate();
+        }
+    }
+    
+    @Impure
+    @Override
+    void finish() throws IOException {
+        deflater.finish();
+        while (!deflater.finished()) {
+            writeChunk(output, 0, deflater.deflate(output));
+        }
+        writeTerminator();
+    }
+    
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A digest sink hashes the bytes with a message digest.
+ * It is used behind a {@link PipelineSink} so that pipelined encoders and decoders hash on a separate thread.
+ */
+@Mutable
+class DigestSink extends ByteSink {
+    
+    /* -------------------------------------------------- Digest -------------------------------------------------- */
+    
+    private final @Nonnull MessageDigest digest;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    DigestSink(@Nonnull MessageDigest digest) {
+        this.digest = digest;
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) {
+        digest.update(buffer);
+    }
+    
+    @Impure
+    @Override
+    void finish() {}
+    
+}
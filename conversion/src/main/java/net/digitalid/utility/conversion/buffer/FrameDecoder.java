@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This decoder reads the frames written by a {@link FrameEncoder} from a buffer, which can be a file that is mapped into memory.
+ * A truncated frame results in a {@link StreamException}, whereas a corrupt frame results in a {@link RecoveryException}.
+ * After a frame with a corrupt header, the decoder can {@link #resynchronize() skip} to the next valid header.
+ * 
+ * @see FrameEncoder
+ */
+@Mutable
+public class FrameDecoder {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    private final @Nonnull ByteBuffer buffer;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected FrameDecoder(@Nonnull Representation representation, @Nonnull ByteBuffer buffer) {
+        this.representation = representation;
+        this.buffer = buffer;
+    }
+    
+    /**
+     * Returns a new frame decoder with the given representation which reads the remaining bytes of the given buffer.
+     * The content of the buffer is not copied and its position is not changed.
+     */
+    @Pure
+    public static @Nonnull FrameDecoder from(@NonCaptured @Nonnull ByteBuffer buffer, @Nonnull Representation representation) {
+        return new FrameDecoder(representation, buffer.duplicate());
+    }
+    
+    /* -------------------------------------------------- Position -------------------------------------------------- */
+    
+    /**
+     * Returns the position in the buffer at which the next frame is expected.
+     */
+    @Pure
+    public @NonNegative int getPosition() {
+        return buffer.position();
+    }
+    
+    /**
+     * Returns whether the buffer has bytes left to decode.
+     */
+    @Pure
+    public boolean hasRemaining() {
+        return buffer.hasRemaining();
+    }
+    
+    /* -------------------------------------------------- Headers -------------------------------------------------- */
+    
+    /**
+     * Returns whether a complete and valid header starts at the given position of the given buffer.
+     */
+    @Pure
+    private static boolean isHeader(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer, @NonNegative int position) {
+        if (position > buffer.limit() - FrameEncoder.HEADER_SIZE || buffer.getInt(position) != FrameEncoder.SYNC) { return false; }
+        final @Nonnull ByteBuffer header = buffer.duplicate();
+        header.limit(position + 12).position(position);
+        return Crc32c.compute(header) == buffer.getInt(position + 12);
+    }
+    
+    /**
+     * Returns the position of the first valid header at or after the given position of the given buffer or -1 if there is none.
+     */
+    @Pure
+    public static int findFrame(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer, @NonNegative int position) {
+        Require.that(position >= 0).orThrow("The position has to be non-negative but was $.", position);
+        
+        for (int i = position; i <= buffer.limit() - FrameEncoder.HEADER_SIZE; i++) {
+            if (isHeader(buffer, i)) { return i; }
+        }
+        return -1;
+    }
+    
+    /**
+     * Splits the remaining bytes of the given buffer at frame boundaries into at most the given number of parts of roughly equal size.
+     * The parts can be decoded independently, for example by different threads, with decoders {@link #from(ByteBuffer, Representation) created} from them.
+     */
+    @Pure
+    public static @Capturable @Nonnull List<@Nonnull ByteBuffer> split(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer, @Positive int parts) {
+        Require.that(parts > 0).orThrow("The number of parts has to be positive but was $.", parts);
+        
+        final @Nonnull List<@Nonnull ByteBuffer> result = new ArrayList<>(parts);
+        int start = buffer.position();
+        for (int i = 1; i < parts && start < buffer.limit(); i++) {
+            final int end = findFrame(buffer, Math.max(start + 1, buffer.position() + (int) ((long) buffer.remaining() * i / parts)));
+            if (end < 0) { break; }
+            final @Nonnull ByteBuffer part = buffer.duplicate();
+            part.limit(end).position(start);
+            result.add(part.slice());
+            start = end;
+        }
+        final @Nonnull ByteBuffer part = buffer.duplicate();
+        part.position(start);
+        result.add(part.slice());
+        return result;
+    }
+    
+    /* -------------------------------------------------- Decoding -------------------------------------------------- */
+    
+    /**
+     * Returns a stream exception which indicates that the frame at the given position is truncated.
+     */
+    @Pure
+    private static @Nonnull StreamException truncated(@NonNegative int position) {
+        return ByteBufferEncoder.wrap(new EOFException(Strings.format("The frame at $ is truncated.", position)));
+    }
+    
+    /**
+     * Verifies the next frame and returns a view of the encoded object in it.
+     * If the header of the frame is corrupt, the position is not changed so that the decoder can {@link #resynchronize() resynchronize}.
+     * If only the content of the frame is corrupt, the frame is skipped before the exception is thrown.
+     * 
+     * @throws StreamException if the buffer ends before the end of the frame.
+     * @throws RecoveryException if the header or the content of the frame is corrupt.
+     */
+    @Impure
+    public @Nonnull ByteBuffer decodeFrame() throws StreamException, RecoveryException {
+        final int position = buffer.position();
+        if (buffer.remaining() < FrameEncoder.HEADER_SIZE) { throw truncated(position); }
+        if (!isHeader(buffer, position)) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The header of the frame at $ is corrupt.", position)).build(); }
+        
+        final int length = buffer.getInt(position + 4);
+        if (length < 0) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The header of the frame at $ is corrupt.", position)).build(); }
+        if (buffer.remaining() - FrameEncoder.HEADER_SIZE < length) { throw truncated(position); }
+        
+        final @Nonnull ByteBuffer content = buffer.duplicate();
+        content.limit(position + FrameEncoder.HEADER_SIZE + length).position(position + FrameEncoder.HEADER_SIZE);
+        buffer.position(content.limit());
+        if (Crc32c.compute(content) != buffer.getInt(position + 8)) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The content of the frame at $ is corrupt.", position)).build(); }
+        return content.slice();
+    }
+    
+    /**
+     * Decodes an object with the given converter and the provided object from the next frame.
+     * 
+     * @throws StreamException if the buffer ends before the end of the frame.
+     * @throws RecoveryException if the frame is corrupt or the object cannot be recovered.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, decodeFrame(), false, null, null);
+        final @Nonnull TYPE object = decoder.decodeObject(converter, provided);
+        decoder.checkFrame(converter);
+        return object;
+    }
+    
+    /**
+     * Skips to the next valid header after the current position or to the end of the buffer if there is none.
+     * 
+     * @return the number of bytes that were skipped.
+     */
+    @Impure
+    public @NonNegative int resynchronize() {
+        final int position = buffer.position();
+        final int next = findFrame(buffer, position + 1);
+        buffer.position(next < 0 ? buffer.limit() : next);
+        return buffer.position() - position;
+    }
+    
+}
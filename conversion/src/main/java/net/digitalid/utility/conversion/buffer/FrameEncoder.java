@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder writes each object into its own frame, which starts with a header of {@value #HEADER_SIZE} bytes:
+ * the {@link #SYNC sync marker}, the length of the encoded object, the CRC-32C checksum of the encoded object and the CRC-32C checksum of the preceding twelve bytes.
+ * The checksums allow the {@link FrameDecoder} to distinguish a truncated stream from a corrupt one without decoding the objects,
+ * and the sync marker allows it to find the next frame after a corrupt region or to split a stream into parts which can be decoded independently.
+ * 
+ * @see FrameDecoder
+ */
+@Mutable
+public class FrameEncoder implements AutoCloseable {
+    
+    /* -------------------------------------------------- Constants -------------------------------------------------- */
+    
+    /**
+     * The marker with which every frame starts.
+     */
+    static final int SYNC = 0x5D1A7C3B;
+    
+    /**
+     * The number of bytes of the header of every frame.
+     */
+    static final int HEADER_SIZE = 16;
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    /**
+     * Stores the buffer in which the frames are collected before they are written to the sink.
+     */
+    private final @Nonnull ByteBuffer buffer = ByteBufferPool.acquire();
+    
+    /**
+     * Stores the buffer into which each frame is encoded before its checksums are computed.
+     */
+    private @Nonnull ByteBuffer frame = ByteBuffer.allocate(256);
+    
+    private final @Nonnull ByteSink sink;
+    
+    /**
+     * Stores the channel which is closed when this encoder is closed.
+     */
+    private final @Nullable Closeable closeable;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected FrameEncoder(@Nonnull Representation representation, @Nonnull ByteSink sink, @Nullable Closeable closeable) {
+        this.representation = representation;
+        this.sink = sink;
+        this.closeable = closeable;
+    }
+    
+    /**
+     * Returns a new frame encoder with the given representation which writes to the given channel.
+     * The channel is closed when the returned encoder is closed.
+     */
+    @Pure
+    public static @Nonnull FrameEncoder to(@Captured @Nonnull WritableByteChannel channel, @Nonnull Representation representation) {
+        return new FrameEncoder(representation, new ChannelSink(channel), channel);
+    }
+    
+    /**
+     * Returns a new frame encoder with the given representation which writes to the given output stream.
+     * The output stream is closed when the returned encoder is closed.
+     */
+    @Pure
+    public static @Nonnull FrameEncoder to(@Captured @Nonnull OutputStream outputStream, @Nonnull Representation representation) {
+        return to(Channels.newChannel(outputStream), representation);
+    }
+    
+    /* -------------------------------------------------- Encoding -------------------------------------------------- */
+    
+    /**
+     * Encodes the given object with the given converter into a new frame.
+     */
+    @Impure
+    public <@Unspecifiable TYPE> void encodeObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        final int length = SizingEncoder.getEncodedSize(converter, object);
+        final int size = Math.addExact(HEADER_SIZE, length);
+        if (frame.capacity() < size) { frame = ByteBuffer.allocate(Math.max(size, frame.capacity() * 2)); }
+        frame.clear().limit(size).position(HEADER_SIZE);
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(frame, representation)) {
+            encoder.encodeObject(converter, object);
+        }
+        
+        frame.position(HEADER_SIZE);
+        frame.putInt(0, SYNC).putInt(4, length).putInt(8, Crc32c.compute(frame));
+        final @Nonnull ByteBuffer header = frame.duplicate();
+        header.limit(12).position(0);
+        frame.putInt(12, Crc32c.compute(header));
+        frame.position(0);
+        write(frame);
+    }
+    
+    /* -------------------------------------------------- Writing -------------------------------------------------- */
+    
+    /**
+     * Writes the remaining bytes of the given frame to the buffer or directly to the sink if it is larger than the buffer.
+     */
+    @Impure
+    private void write(@Nonnull ByteBuffer frame) throws StreamException {
+        if (buffer.remaining() < frame.remaining()) { flush(); }
+        if (buffer.remaining() >= frame.remaining()) {
+            buffer.put(frame);
+        } else {
+            try {
+                sink.write(frame);
+            } catch (@Nonnull IOException exception) {
+                throw ByteBufferEncoder.wrap(exception);
+            }
+        }
+    }
+    
+    /**
+     * Writes the frames in the buffer to the sink.
+     */
+    @Impure
+    public void flush() throws StreamException {
+        buffer.flip();
+        try {
+            sink.write(buffer);
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        } finally {
+            buffer.clear();
+        }
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    private boolean closed = false;
+    
+    /**
+     * Flushes the buffered frames and closes the underlying channel.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        if (closed) { return; }
+        closed = true;
+        try {
+            flush();
+        } finally {
+            ByteBufferPool.release(buffer);
+            if (closeable != null) {
+                try {
+                    closeable.close();
+                } catch (@Nonnull IOException exception) {
+                    throw ByteBufferEncoder.wrap(exception);
+                }
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * An inflater source decompresses the bytes with an inflater.
+ */
+@Mutable
+class InflaterSource extends ChunkedSource {
+    
+    /* -------------------------------------------------- Inflater -------------------------------------------------- */
+    
+    private final @Nonnull Inflater inflater;
+    
+    /* -------------------------------------------------- Buffers -------------------------------------------------- */
+    
+    private final @Nonnull byte[] output = new byte[ByteBufferPool.CAPACITY];
+    
+    /**
+     * Stores the dummy byte which the inflater might need when the deflate stream is not wrapped.
+     */
+    private static final @Nonnull byte[] DUMMY = new byte[1];
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    InflaterSource(@Nonnull Inflater inflater, @Nonnull ByteSource source) {
+        super(source);
+        
+        this.inflater = inflater;
+    }
+    
+    /* -------------------------------------------------- ByteSource -------------------------------------------------- */
+    
+    @Impure
+    private int inflate(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        try {
+            if (target.hasArray()) {
+                final int count = inflater.inflate(target.array(), target.arrayOffset() + target.position(), target.remaining());
+                target.position(target.position() + count);
+                return count;
+            } else {
+                final int count = inflater.inflate(output, 0, Math.min(target.remaining(), output.length));
+                target.put(output, 0, count);
+                return count;
+            }
+        } catch (@Nonnull DataFormatException exception) {
+            throw new IOException(exception);
+        }
+    }
+    
+    private boolean terminated = false;
+    
+    @Impure
+    @Override
+    int read(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        while (true) {
+            final int count = inflate(target);
+            if (count > 0) { return count; }
+            if (inflater.needsDictionary()) { throw new IOException("The inflater needs a preset dictionary."); }
+            if (!inflater.finished() && !inflater.needsInput()) { throw new IOException("The inflater made no progress."); }
+            if (terminated) {
+                if (inflater.finished()) { return -1; }
+                else { throw new EOFException("The compressed bytes ended prematurely."); }
+            }
+            final @Nullable ByteBuffer chunk = readChunk();
+            if (chunk == null) {
+                terminated = true;
+                if (!inflater.finished()) { inflater.setInput(DUMMY); }
+            } else if (inflater.finished()) {
+                throw new IOException("The compressed bytes are followed by unexpected data.");
+            } else {
+                inflater.setInput(chunk.array(), chunk.arrayOffset(), chunk.limit());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This decoder reads the frames written by a {@link NonBlockingEncoder} from a channel in non-blocking mode.
+ * The bytes that are available are collected in a buffer until a frame is complete, and only complete frames are decoded, so that decoding never waits for the channel.
+ * The caller {@link #poll(Converter, Object) polls} for objects whenever the channel becomes readable and stops when no complete frame is left.
+ * 
+ * @see NonBlockingEncoder
+ */
+@Mutable
+public class NonBlockingDecoder implements AutoCloseable {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    private final @Nonnull ReadableByteChannel channel;
+    
+    /**
+     * Stores the maximum size of an encoded object.
+     */
+    private final @Positive int maximumSize;
+    
+    /**
+     * Stores the buffer into which the channel is read.
+     * The bytes between the start and the position of the buffer have been read but not yet decoded.
+     */
+    private @Nonnull ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+    
+    /**
+     * Stores the start of the next frame in the buffer.
+     */
+    private int start = 0;
+    
+    /**
+     * Stores whether the channel has reached the end of the stream.
+     */
+    private boolean ended = false;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected NonBlockingDecoder(@Nonnull Representation representation, @Nonnull ReadableByteChannel channel, @Positive int maximumSize) {
+        this.representation = representation;
+        this.channel = channel;
+        this.maximumSize = maximumSize;
+    }
+    
+    /**
+     * Returns a new non-blocking decoder with the given representation which reads from the given channel and rejects objects whose encoding is larger than the given size.
+     * The channel is closed when the returned decoder is closed.
+     */
+    @Pure
+    public static @Nonnull NonBlockingDecoder from(@Captured @Nonnull ReadableByteChannel channel, @Nonnull Representation representation, @Positive int maximumSize) {
+        Require.that(!(channel instanceof SelectableChannel) || !((SelectableChannel) channel).isBlocking()).orThrow("The channel has to be in non-blocking mode.");
+        Require.that(maximumSize > 0).orThrow("The maximum size has to be positive but was $.", maximumSize);
+        
+        return new NonBlockingDecoder(representation, channel, maximumSize);
+    }
+    
+    /* -------------------------------------------------- Buffer -------------------------------------------------- */
+    
+    /**
+     * Moves the bytes which have not been decoded to the beginning of a buffer with at least the given capacity.
+     */
+    @Impure
+    private void compact(@Positive int capacity) {
+        final @Nonnull ByteBuffer remaining = buffer.duplicate();
+        remaining.limit(buffer.position()).position(start);
+        if (buffer.capacity() < capacity) { buffer = ByteBuffer.allocate(capacity); }
+        else { buffer.clear(); }
+        buffer.put(remaining);
+        start = 0;
+    }
+    
+    /**
+     * Returns the end of the frame at the start of the buffer or -1 if the frame has not been read completely.
+     * If the length of the frame is known, the buffer is prepared to hold the whole frame.
+     */
+    @Impure
+    private int getEnd() throws RecoveryException {
+        int length = 0;
+        for (int i = 0; i < 5; i++) {
+            if (start + i >= buffer.position()) { return -1; }
+            final byte value = buffer.get(start + i);
+            length |= (value & 0x7F) << (7 * i);
+            if (value >= 0) {
+                if (length < 0 || length > maximumSize) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The frame of $ bytes exceeds the maximum size of $ bytes.", length & 0xFFFFFFFFL, maximumSize)).build(); }
+                final int size = i + 1 + length;
+                if (buffer.capacity() - start < size) { compact(size); }
+                return buffer.position() - start >= size ? start + size : -1;
+            }
+        }
+        throw RecoveryExceptionBuilder.withMessage("The size of the frame is not a valid variable-length integer.").build();
+    }
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    /**
+     * Returns whether the channel has reached the end of the stream and all frames have been decoded.
+     */
+    @Pure
+    public boolean isEnded() {
+        return ended && start == buffer.position();
+    }
+    
+    /**
+     * Reads the bytes which are available from the channel without blocking.
+     * Nothing is read if the buffer is full, which is the case when the frames in it have to be {@link #poll(Converter, Object) polled} first.
+     * 
+     * @return the number of bytes that were read or -1 if the channel has reached the end of the stream.
+     */
+    @Impure
+    public int read() throws StreamException {
+        if (ended) { return -1; }
+        if (!buffer.hasRemaining()) {
+            if (start == 0) { return 0; }
+            compact(buffer.capacity());
+        }
+        try {
+            final int count = channel.read(buffer);
+            if (count < 0) { ended = true; }
+            return count;
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+    }
+    
+    /**
+     * Decodes the next object with the given converter and provided object if its frame has been read completely.
+     * If not, the bytes which are available are read from the channel without blocking.
+     * Views into the decoded bytes, such as binary slices, are only valid until the next object is polled.
+     * 
+     * @return the decoded object or null if its frame is not yet complete.
+     * 
+     * @throws StreamException if the channel ended in the middle of a frame.
+     */
+    @Impure
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Capturable @Nullable TYPE poll(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        int end = getEnd();
+        if (end < 0 && read() > 0) { end = getEnd(); }
+        if (end < 0) {
+            if (ended && start < buffer.position()) { throw ByteBufferEncoder.wrap(new EOFException("The channel ended in the middle of a frame.")); }
+            return null;
+        }
+        
+        final @Nonnull ByteBuffer frame = buffer.duplicate();
+        frame.limit(end).position(start);
+        final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, frame, false, null, null);
+        decoder.decodeLength();
+        start = end;
+        if (start == buffer.position()) {
+            buffer.clear();
+            start = 0;
+        }
+        final @Nonnull TYPE object = decoder.decodeObject(converter, provided);
+        decoder.checkFrame(converter);
+        return object;
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        try {
+            channel.close();
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+    }
+    
+}
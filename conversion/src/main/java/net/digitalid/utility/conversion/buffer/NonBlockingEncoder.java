@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder writes objects to a channel in non-blocking mode, such as a {@link java.nio.channels.SocketChannel} that is registered with a {@link java.nio.channels.Selector}.
+ * Each object is encoded into a frame of its own, which consists of the encoded size and the encoding of the object, and queued until the channel accepts it.
+ * Instead of blocking when the peer is slow, the encoder keeps the frames that could not be written yet and rejects new objects once they exceed the given limit.
+ * The caller {@link #flush() continues writing} whenever the channel becomes writable again, for which it should register {@link #getInterestOps() the returned interest}.
+ * A single thread can thus serve many connections.
+ * 
+ * @see NonBlockingDecoder
+ */
+@Mutable
+public class NonBlockingEncoder implements AutoCloseable {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    /**
+     * The maximum number of frames that are written to the channel at once.
+     */
+    private static final int GATHER = 64;
+    
+    private final @Nonnull Representation representation;
+    
+    private final @Nonnull WritableByteChannel channel;
+    
+    /**
+     * Stores the number of pending bytes above which no new objects are accepted.
+     */
+    private final @Positive int limit;
+    
+    /**
+     * Stores the frames which have not been written completely.
+     */
+    private final @Nonnull ArrayDeque<ByteBuffer> frames = new ArrayDeque<>();
+    
+    /**
+     * Stores the number of bytes of the frames which have not been written yet.
+     */
+    private long pending = 0;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected NonBlockingEncoder(@Nonnull Representation representation, @Nonnull WritableByteChannel channel, @Positive int limit) {
+        this.representation = representation;
+        this.channel = channel;
+        this.limit = limit;
+    }
+    
+    /**
+     * Returns a new non-blocking encoder with the given representation which writes to the given channel and accepts new objects as long as fewer than the given number of bytes are pending.
+     * The channel is closed when the returned encoder is closed.
+     */
+    @Pure
+    public static @Nonnull NonBlockingEncoder to(@Captured @Nonnull WritableByteChannel channel, @Nonnull Representation representation, @Positive int limit) {
+        Require.that(!(channel instanceof SelectableChannel) || !((SelectableChannel) channel).isBlocking()).orThrow("The channel has to be in non-blocking mode.");
+        Require.that(limit > 0).orThrow("The limit has to be positive but was $.", limit);
+        
+        return new NonBlockingEncoder(representation, channel, limit);
+    }
+    
+    /* -------------------------------------------------- Backpressure -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes that have been accepted but not yet written to the channel.
+     */
+    @Pure
+    public @NonNegative long getPendingBytes() {
+        return pending;
+    }
+    
+    /**
+     * Returns whether this encoder accepts new objects.
+     */
+    @Pure
+    public boolean isAccepting() {
+        return pending < limit;
+    }
+    
+    /**
+     * Returns {@link SelectionKey#OP_WRITE} if frames are pending and zero otherwise.
+     */
+    @Pure
+    public int getInterestOps() {
+        return pending > 0 ? SelectionKey.OP_WRITE : 0;
+    }
+    
+    /* -------------------------------------------------- Encoding -------------------------------------------------- */
+    
+    /**
+     * Encodes the given object with the given converter into a frame and writes as much of the pending frames as the channel accepts without blocking.
+     * 
+     * @return whether the object was accepted, which is not the case if too many bytes are pending.
+     */
+    @Impure
+    public <@Unspecifiable TYPE> boolean offer(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        if (!isAccepting()) { return false; }
+        
+        final int length = SizingEncoder.getEncodedSize(converter, object);
+        final @Nonnull ByteBuffer frame = ByteBuffer.allocate(Math.addExact(BinaryFormat.sizeOfLength(length), length));
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(frame, representation)) {
+            encoder.encodeLength(length);
+            encoder.encodeObject(converter, object);
+        }
+        frame.flip();
+        frames.add(frame);
+        pending += frame.remaining();
+        flush();
+        return true;
+    }
+    
+    /* -------------------------------------------------- Writing -------------------------------------------------- */
+    
+    /**
+     * Writes as much of the pending frames as the channel accepts without blocking.
+     * 
+     * @return whether all pending frames have been written.
+     */
+    @Impure
+    public boolean flush() throws StreamException {
+        final @Nonnull ByteBuffer[] buffers = new ByteBuffer[Math.min(frames.size(), GATHER)];
+        try {
+            while (!frames.isEmpty()) {
+                final long written;
+                if (channel instanceof GatheringByteChannel && frames.size() > 1) {
+                    final @Nonnull Iterator<ByteBuffer> iterator = frames.iterator();
+                    int count = 0;
+                    while (count < buffers.length && iterator.hasNext()) { buffers[count++] = iterator.next(); }
+                    written = ((GatheringByteChannel) channel).write(buffers, 0, count);
+                } else {
+                    written = channel.write(frames.getFirst());
+                }
+                pending -= written;
+                while (!frames.isEmpty() && !frames.getFirst().hasRemaining()) { frames.removeFirst(); }
+                if (written == 0) { return false; }
+            }
+            return true;
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Closes the channel and discards the frames that have not been written yet.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        frames.clear();
+        pending = 0;
+        try {
+            channel.close();
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+    }
+    
+}
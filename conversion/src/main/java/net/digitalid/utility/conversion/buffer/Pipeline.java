@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A pipeline passes buffers from a producing thread to a consuming thread and returns them for reuse afterwards.
+ * Since at most the given number of buffers are allocated, the producer blocks when the consumer falls behind.
+ * The buffers are not taken from the {@link ByteBufferPool}, whose buffers belong to a single thread.
+ */
+@Mutable
+class Pipeline {
+    
+    /* -------------------------------------------------- End -------------------------------------------------- */
+    
+    /**
+     * Marks the end of the buffers in the pipeline.
+     */
+    static final @Nonnull ByteBuffer END = ByteBuffer.allocate(0);
+    
+    /* -------------------------------------------------- Queues -------------------------------------------------- */
+    
+    private final @Nonnull BlockingQueue<@Nonnull ByteBuffer> full = new LinkedBlockingQueue<>();
+    
+    private final @Nonnull BlockingQueue<@Nonnull ByteBuffer> empty;
+    
+    /* -------------------------------------------------- Capacity -------------------------------------------------- */
+    
+    private final @Positive int capacity;
+    
+    /**
+     * Stores the number of buffers that were allocated so far, which is only accessed by the producer.
+     */
+    private int allocated = 0;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    Pipeline(@Positive int capacity) {
+        this.capacity = capacity;
+        this.empty = new ArrayBlockingQueue<>(capacity);
+    }
+    
+    /* -------------------------------------------------- Producer -------------------------------------------------- */
+    
+    /**
+     * Returns a cleared buffer into which the producer can write, which blocks if all buffers are in use.
+     */
+    @Impure
+    @Nonnull ByteBuffer acquire() throws InterruptedIOException {
+        final ByteBuffer buffer = empty.poll();
+        if (buffer != null) { return buffer; }
+        if (allocated < capacity) {
+            allocated++;
+            return ByteBuffer.allocate(ByteBufferPool.CAPACITY);
+        }
+        try {
+            return empty.take();
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The pipeline was interrupted.");
+        }
+    }
+    
+    /**
+     * Passes the given buffer, which is ready to be read, or the {@link #END} to the consumer.
+     */
+    @Impure
+    void put(@Captured @Nonnull ByteBuffer buffer) {
+        full.add(buffer);
+    }
+    
+    /* -------------------------------------------------- Consumer -------------------------------------------------- */
+    
+    /**
+     * Returns the next buffer that the producer passed, which blocks until one is available.
+     */
+    @Impure
+    @Nonnull ByteBuffer take() throws InterruptedIOException {
+        try {
+            return full.take();
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The pipeline was interrupted.");
+        }
+    }
+    
+    /**
+     * Returns the given buffer to the producer once the consumer no longer needs it.
+     */
+    @Impure
+    void release(@Captured @Nonnull ByteBuffer buffer) {
+        if (buffer != END) {
+            buffer.clear();
+            empty.offer(buffer);
+        }
+    }
+    
+}
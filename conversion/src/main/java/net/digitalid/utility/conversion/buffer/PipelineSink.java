@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A pipeline sink copies the written bytes into a {@link Pipeline} from which a dedicated thread writes them to the underlying sink.
+ * When each layer of an encoder writes through a pipeline sink, the layers compress, encrypt and write the bytes concurrently on separate cores.
+ * The bytes are passed on in full buffers so that small writes like the headers of chunks do not occupy a buffer of their own.
+ * A failure of the underlying sink is reported by the next write or when the sink is finished.
+ */
+@Mutable
+class PipelineSink extends ByteSink {
+    
+    /* -------------------------------------------------- Sink -------------------------------------------------- */
+    
+    private final @Nonnull ByteSink sink;
+    
+    /**
+     * Returns the sink to which the bytes are written on the thread of this pipeline sink.
+     */
+    @Pure
+    @Nonnull ByteSink getSink() {
+        return sink;
+    }
+    
+    /* -------------------------------------------------- Pipeline -------------------------------------------------- */
+    
+    private final @Nonnull Pipeline pipeline;
+    
+    private final @Nonnull Thread thread;
+    
+    private volatile @Nullable Throwable failure;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    PipelineSink(@Nonnull ByteSink sink, @Positive int capacity) {
+        this.sink = sink;
+        this.pipeline = new Pipeline(capacity);
+        this.thread = new Thread(this::run, "PipelineSink");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /* -------------------------------------------------- Thread -------------------------------------------------- */
+    
+    /**
+     * Writes the buffers of the pipeline to the underlying sink until the end is reached.
+     * After a failure, the remaining buffers are discarded so that the writing thread never blocks.
+     */
+    @Impure
+    private void run() {
+        try {
+            for (@Nonnull ByteBuffer buffer = pipeline.take(); buffer != Pipeline.END; buffer = pipeline.take()) {
+                try {
+                    if (failure == null) { sink.write(buffer); }
+                } catch (@Nonnull IOException | RuntimeException | Error exception) {
+                    failure = exception;
+                }
+                pipeline.release(buffer);
+            }
+        } catch (@Nonnull InterruptedIOException exception) {
+            // The pipeline sink was aborted.
+        }
+    }
+    
+    /**
+     * Throws an exception if the underlying sink failed.
+     */
+    @Pure
+    private void check() throws IOException {
+        final @Nullable Throwable failure = this.failure;
+        if (failure != null) { throw new IOException("The pipelined sink failed.", failure); }
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    /**
+     * Stores the buffer which is filled before it is passed on or null if no buffer has been acquired.
+     */
+    private @Nullable ByteBuffer pending;
+    
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        check();
+        while (buffer.hasRemaining()) {
+            if (pending == null) { pending = pipeline.acquire(); }
+            ByteSource.transfer(buffer, pending);
+            if (!pending.hasRemaining()) {
+                pending.flip();
+                pipeline.put(pending);
+                pending = null;
+            }
+        }
+    }
+    
+    /**
+     * Waits until all bytes were written to the underlying sink and stops the thread, which means that this sink can no longer be written to.
+     * The underlying sink is not finished.
+     */
+    @Impure
+    @Override
+    void finish() throws IOException {
+        if (pending != null) {
+            pending.flip();
+            pipeline.put(pending);
+            pending = null;
+        }
+        pipeline.put(Pipeline.END);
+        try {
+            thread.join();
+        } catch (@Nonnull InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The pipeline was interrupted.");
+        }
+        check();
+    }
+    
+    /* -------------------------------------------------- Aborting -------------------------------------------------- */
+    
+    /**
+     * Stops the thread without waiting for the pending bytes, which has no effect if the sink is already finished.
+     */
+    @Impure
+    void abort() {
+        thread.interrupt();
+    }
+    
+}
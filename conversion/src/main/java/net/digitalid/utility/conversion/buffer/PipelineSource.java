@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A pipeline source reads ahead from the underlying source on a dedicated thread and passes the bytes through a {@link Pipeline}.
+ * When each layer of a decoder is read through a pipeline source, the layers read, decrypt and decompress the bytes concurrently on separate cores.
+ * The thread stops as soon as the underlying source is exhausted, which a {@link ChunkedSource} is after its terminating chunk.
+ */
+@Mutable
+class PipelineSource extends ByteSource {
+    
+    /* -------------------------------------------------- Source -------------------------------------------------- */
+    
+    private final @Nonnull ByteSource source;
+    
+    /* -------------------------------------------------- Pipeline -------------------------------------------------- */
+    
+    private final @Nonnull Pipeline pipeline;
+    
+    private final @Nonnull Thread thread;
+    
+    private volatile @Nullable Throwable failure;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    PipelineSource(@Nonnull ByteSource source, @Positive int capacity) {
+        this.source = source;
+        this.pipeline = new Pipeline(capacity);
+        this.thread = new Thread(this::run, "PipelineSource");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /* -------------------------------------------------- Thread -------------------------------------------------- */
+    
+    /**
+     * Reads from the underlying source into the buffers of the pipeline until the source is exhausted or fails.
+     */
+    @Impure
+    private void run() {
+        try {
+            while (true) {
+                final @Nonnull ByteBuffer buffer = pipeline.acquire();
+                if (source.read(buffer) < 0) { break; }
+                buffer.flip();
+                pipeline.put(buffer);
+            }
+        } catch (@Nonnull InterruptedIOException exception) {
+            return; // The pipeline source was aborted.
+        } catch (@Nonnull IOException | RuntimeException | Error exception) {
+            failure = exception;
+        }
+        pipeline.put(Pipeline.END);
+    }
+    
+    /* -------------------------------------------------- ByteSource -------------------------------------------------- */
+    
+    private @Nullable ByteBuffer current;
+    
+    @Impure
+    @Override
+    int read(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        while (current == null || !current.hasRemaining()) {
+            if (current == Pipeline.END) {
+                final @Nullable Throwable failure = this.failure;
+                if (failure != null) { throw new IOException("The pipelined source failed.", failure); }
+                return -1;
+            }
+            if (current != null) { pipeline.release(current); }
+            current = pipeline.take();
+        }
+        return transfer(current, target);
+    }
+    
+    /* -------------------------------------------------- Aborting -------------------------------------------------- */
+    
+    /**
+     * Stops the thread without waiting for the underlying source, which has no effect if the source is already exhausted.
+     */
+    @Impure
+    void abort() {
+        thread.interrupt();
+    }
+    
+}
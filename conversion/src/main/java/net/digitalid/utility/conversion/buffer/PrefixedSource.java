@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A prefixed source returns the bytes of a prefix before it reads from the underlying source.
+ * It is used to hand the bytes which a decoder has already buffered over to a newly started layer.
+ * Without an underlying source, the prefixed source is exhausted after the prefix.
+ */
+@Mutable
+class PrefixedSource extends ByteSource {
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull ByteBuffer prefix;
+    
+    private final @Nullable ByteSource source;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    PrefixedSource(@Captured @Nonnull ByteBuffer prefix, @Nullable ByteSource source) {
+        this.prefix = prefix;
+        this.source = source;
+    }
+    
+    /* -------------------------------------------------- ByteSource -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    int read(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        if (prefix.hasRemaining()) { return transfer(prefix, target); }
+        return source != null ? source.read(target) : -1;
+    }
+    
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.functional.failable.FailableProducer;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A record file stores objects of a single converter in an append-only data file and the end offset of each record in an index file next to it.
+ * The data file starts with the {@link FieldLayout#getFingerprint() fingerprint} of the converter, which is checked when the file is opened again.
+ * Records are read with a {@link ByteBufferDecoder} directly from memory-mapped segments of the files so that any record can be accessed in constant time without copying the file to the heap.
+ * Appended records are buffered until the file is {@link #flush() flushed}, which writes the data before the index so that the index never refers to missing data.
+ * Data after the end of the last indexed record, which is left behind if the process did not flush, is discarded when the file is opened again.
+ * A record file is not thread-safe.
+ */
+@Mutable
+public class RecordFile<@Unspecifiable TYPE, @Specifiable PROVIDED> implements AutoCloseable {
+    
+    /* -------------------------------------------------- Constants -------------------------------------------------- */
+    
+    /**
+     * The number of bits of the size of the segments in which the files are mapped into memory.
+     */
+    private static final int SEGMENT_BITS = 30;
+    
+    /**
+     * The size of the segments in which the files are mapped into memory.
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    
+    /**
+     * The number of bytes of the fingerprint at the beginning of the data file.
+     */
+    private static final int HEADER_SIZE = 8;
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull Converter<TYPE, PROVIDED> converter;
+    
+    private final @Nonnull Representation representation;
+    
+    private final @Nonnull FileChannel data;
+    
+    private final @Nonnull FileChannel index;
+    
+    /**
+     * Stores the number of records, including the ones which have not been flushed yet.
+     */
+    private long count;
+    
+    /**
+     * Stores the number of records which have been flushed.
+     */
+    private long flushedCount;
+    
+    /**
+     * Stores the size of the data, including the records which have not been flushed yet.
+     */
+    private long size;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected RecordFile(@Nonnull Converter<TYPE, PROVIDED> converter, @Nonnull Representation representation, @Nonnull FileChannel data, @Nonnull FileChannel index) throws IOException, RecoveryException {
+        this.converter = converter;
+        this.representation = representation;
+        this.data = data;
+        this.index = index;
+        
+        final long fingerprint = FieldLayout.of(converter, representation).getFingerprint();
+        if (data.size() < HEADER_SIZE) {
+            final @Nonnull ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(0, fingerprint);
+            while (header.hasRemaining()) { data.write(header, header.position()); }
+            data.truncate(HEADER_SIZE);
+            index.truncate(0);
+        } else {
+            final @Nonnull ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) { data.read(header, header.position()); }
+            final long encodedFingerprint = header.getLong(0);
+            if (encodedFingerprint != fingerprint) {
+                throw RecoveryExceptionBuilder.withMessage(Strings.format("The fingerprint $ of the record file does not match the fingerprint $ of the converter for $.", Long.toHexString(encodedFingerprint), Long.toHexString(fingerprint), converter.getTypeName())).build();
+            }
+        }
+        
+        this.count = index.size() / 8;
+        index.truncate(count * 8);
+        this.flushedCount = count;
+        this.size = count == 0 ? HEADER_SIZE : getEnd(count - 1);
+        if (data.size() < size) { throw new IOException("The data file is shorter than its index."); }
+        data.truncate(size);
+        data.position(size);
+    }
+    
+    /**
+     * Opens the record file at the given path with the given converter and representation or creates it if it does not exist yet.
+     * The index is stored in a file with the same name and the additional extension {@code .index}.
+     * 
+     * @throws RecoveryException if the file was created with an incompatible converter.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE, @Specifiable PROVIDED> @Capturable @Nonnull RecordFile<TYPE, PROVIDED> open(@Nonnull Path path, @Nonnull Converter<TYPE, PROVIDED> converter, @Nonnull Representation representation) throws StreamException, RecoveryException {
+        @Nullable FileChannel data = null;
+        @Nullable FileChannel index = null;
+        try {
+            data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(path.resolveSibling(path.getFileName() + ".index"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new RecordFile<>(converter, representation, data, index);
+        } catch (@Nonnull IOException | RecoveryException exception) {
+            try {
+                if (data != null) { data.close(); }
+                if (index != null) { index.close(); }
+            } catch (@Nonnull IOException suppressed) {
+                exception.addSuppressed(suppressed);
+            }
+            if (exception instanceof RecoveryException) { throw (RecoveryException) exception; }
+            else { throw ByteBufferEncoder.wrap((IOException) exception); }
+        }
+    }
+    
+    /* -------------------------------------------------- Mapping -------------------------------------------------- */
+    
+    private @Nonnull MappedByteBuffer[] dataSegments = new MappedByteBuffer[1];
+    
+    private @Nonnull MappedByteBuffer[] indexSegments = new MappedByteBuffer[1];
+    
+    /**
+     * Returns a buffer with the given length of the given channel at the given position.
+     * The buffer is a view into a mapped segment, which is mapped again if the file has grown beyond it.
+     * Regions which span two segments are mapped on their own.
+     */
+    @Impure
+    private static @Nonnull ByteBuffer map(@Nonnull FileChannel channel, @Nonnull MappedByteBuffer[] segments, @NonNegative long position, @NonNegative int length) throws IOException {
+        final int segment = (int) (position >>> SEGMENT_BITS);
+        final int offset = (int) (position & (SEGMENT_SIZE - 1));
+        if (offset + (long) length > SEGMENT_SIZE) { return channel.map(FileChannel.MapMode.READ_ONLY, position, length); }
+        @Nullable MappedByteBuffer mapped = segments[segment];
+        if (mapped == null || mapped.capacity() < offset + length) {
+            final long start = (long) segment << SEGMENT_BITS;
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, channel.size() - start));
+            segments[segment] = mapped;
+        }
+        final @Nonnull ByteBuffer view = mapped.duplicate();
+        view.limit(offset + length).position(offset);
+        return view.slice();
+    }
+    
+    /**
+     * Returns the end offset of the record with the given index in the data file.
+     */
+    @Impure
+    private long getEnd(@NonNegative long record) throws IOException {
+        final long position = record * 8;
+        final int segment = (int) (position >>> SEGMENT_BITS);
+        if (segment >= indexSegments.length) { indexSegments = Arrays.copyOf(indexSegments, segment + 1); }
+        return map(index, indexSegments, position, 8).getLong(0);
+    }
+    
+    /* -------------------------------------------------- Writing -------------------------------------------------- */
+    
+    private @Nullable ByteBufferEncoder encoder;
+    
+    private final @Nonnull ByteBuffer pendingEnds = ByteBuffer.allocate(8192 * 8);
+    
+    /**
+     * Appends the given object to this record file and returns the index of its record.
+     * The record can be read immediately but is only written to the file when this record file is flushed.
+     */
+    @Impure
+    public @NonNegative long append(@NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        if (!pendingEnds.hasRemaining()) { flush(); }
+        if (encoder == null) { encoder = new ByteBufferEncoder(representation, ByteBufferPool.acquire(), true, new ChannelSink(data), null); }
+        encoder.encodeObject(converter, object);
+        size += SizingEncoder.getEncodedSize(converter, object);
+        pendingEnds.putLong(size);
+        return count++;
+    }
+    
+    /**
+     * Writes the appended records and then their end offsets to the files.
+     */
+    @Impure
+    public void flush() throws StreamException {
+        if (flushedCount == count) { return; }
+        if (encoder != null) { encoder.flush(); }
+        pendingEnds.flip();
+        try {
+            long position = flushedCount * 8;
+            while (pendingEnds.hasRemaining()) { position += index.write(pendingEnds, position); }
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        } finally {
+            pendingEnds.clear();
+        }
+        flushedCount = count;
+    }
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    /**
+     * Returns the number of records in this record file.
+     */
+    @Pure
+    public @NonNegative long size() {
+        return count;
+    }
+    
+    /**
+     * Returns the object of the record with the given index, which is recovered with the given provided object.
+     */
+    @Impure
+    public @Capturable @Nonnull TYPE get(@NonNegative long record, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        Require.that(record >= 0 && record < count).orThrow("The index $ has to be between 0 and the number of records $.", record, count);
+        
+        if (record >= flushedCount) { flush(); }
+        final @Nonnull ByteBuffer frame;
+        try {
+            final long start = record == 0 ? HEADER_SIZE : getEnd(record - 1);
+            final long end = getEnd(record);
+            final int segment = (int) (start >>> SEGMENT_BITS);
+            if (segment >= dataSegments.length) { dataSegments = Arrays.copyOf(dataSegments, segment + 1); }
+            frame = map(data, dataSegments, start, Math.toIntExact(end - start));
+        } catch (@Nonnull IOException exception) {
+            throw ByteBufferEncoder.wrap(exception);
+        }
+        final @Nonnull ByteBufferDecoder decoder = new ByteBufferDecoder(representation, frame, false, null, null);
+        final @Nonnull TYPE object = decoder.decodeObject(converter, provided);
+        decoder.checkFrame(converter);
+        return object;
+    }
+    
+    /**
+     * Returns the objects of the records from the given start index to the given end index (exclusive), which are recovered with the given provided object only when they are iterated.
+     * The returned iterable can be iterated only once.
+     */
+    @Impure
+    public @Nonnull FiniteIterable<@Nonnull TYPE> get(@NonNegative long start, @NonNegative long end, @Shared PROVIDED provided) {
+        Require.that(start >= 0 && start <= end && end <= count).orThrow("The range from $ to $ has to be within the number of records $.", start, end, count);
+        Require.that(end - start <= Integer.MAX_VALUE).orThrow("The range from $ to $ is too large to be iterated.", start, end);
+        
+        return new DecodingIterable<>((int) (end - start), new FailableProducer<TYPE, Exception>() {
+            
+            private long next = start;
+            
+            @Impure
+            @Override
+            public @Capturable @Nonnull TYPE produce() throws StreamException, RecoveryException {
+                return get(next++, provided);
+            }
+            
+        });
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Flushes the appended records and closes the files.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        try {
+            flush();
+            if (encoder != null) { encoder.close(); }
+        } finally {
+            try {
+                data.close();
+                index.close();
+            } catch (@Nonnull IOException exception) {
+                throw ByteBufferEncoder.wrap(exception);
+            }
+        }
+    }
+    
+}
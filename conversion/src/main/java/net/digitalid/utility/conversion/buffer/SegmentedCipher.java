@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A segmented cipher encrypts the encoded bytes with AES-GCM in segments of a fixed size, each with its own nonce and authentication tag,
+ * so that the decoder can verify and decode each segment as soon as it has been received instead of buffering the whole ciphertext.
+ * The nonce of a segment consists of a random prefix, which is written before the first segment, the index of the segment and a flag which marks the last segment.
+ * This prevents segments from being reordered, dropped or appended and the encryption from being truncated without detection.
+ * <p>
+ * A segmented cipher reuses its cipher instance and its buffers and can therefore only be used by a single encoder or decoder at a time.
+ * 
+ * @see ByteBufferEncoder#startEncrypting(SegmentedCipher)
+ * @see ByteBufferDecoder#startDecrypting(SegmentedCipher)
+ */
+@Mutable
+public class SegmentedCipher {
+    
+    /* -------------------------------------------------- Constants -------------------------------------------------- */
+    
+    /**
+     * Stores the number of random bytes at the beginning of each nonce.
+     */
+    public static final int PREFIX_LENGTH = 7;
+    
+    /**
+     * Stores the number of bytes of the authentication tag of each segment.
+     */
+    public static final int TAG_LENGTH = 16;
+    
+    private static final @Nonnull SecureRandom random = new SecureRandom();
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull SecretKey key;
+    
+    private final @Nonnull Cipher cipher;
+    
+    private final @Positive int segmentSize;
+    
+    /**
+     * Returns the maximum number of plaintext bytes in a segment.
+     */
+    @Pure
+    public @Positive int getSegmentSize() {
+        return segmentSize;
+    }
+    
+    /* -------------------------------------------------- Buffers -------------------------------------------------- */
+    
+    private final @Nonnull byte[] input;
+    
+    /**
+     * Returns the buffer for the input of a segment, which can hold a segment with its tag.
+     */
+    @Pure
+    @Nonnull byte[] getInput() {
+        return input;
+    }
+    
+    private final @Nonnull byte[] output;
+    
+    /**
+     * Returns the buffer for the output of a segment, which can hold a segment with its tag.
+     */
+    @Pure
+    @Nonnull byte[] getOutput() {
+        return output;
+    }
+    
+    private final @Nonnull byte[] nonce = new byte[12];
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected SegmentedCipher(@Nonnull SecretKey key, @Positive int segmentSize) throws GeneralSecurityException {
+        Require.that(segmentSize > 0 && segmentSize <= 4 * ByteBufferPool.CAPACITY - TAG_LENGTH).orThrow("The segment size has to be positive and fit into a chunk but was $.", segmentSize);
+        
+        this.key = key;
+        this.cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        this.segmentSize = segmentSize;
+        this.input = new byte[segmentSize + TAG_LENGTH];
+        this.output = new byte[segmentSize + TAG_LENGTH];
+    }
+    
+    /**
+     * Returns a new segmented cipher with the given AES key and segment size.
+     * 
+     * @throws GeneralSecurityException if AES-GCM is not available.
+     */
+    @Pure
+    public static @Nonnull SegmentedCipher with(@Nonnull SecretKey key, @Positive int segmentSize) throws GeneralSecurityException {
+        return new SegmentedCipher(key, segmentSize);
+    }
+    
+    /**
+     * Returns a new segmented cipher with the given AES key and segments of the size of the pooled buffers.
+     * 
+     * @throws GeneralSecurityException if AES-GCM is not available.
+     */
+    @Pure
+    public static @Nonnull SegmentedCipher with(@Nonnull SecretKey key) throws GeneralSecurityException {
+        return new SegmentedCipher(key, ByteBufferPool.CAPACITY);
+    }
+    
+    /* -------------------------------------------------- Nonces -------------------------------------------------- */
+    
+    /**
+     * Returns a new random nonce prefix.
+     */
+    @Impure
+    static @Nonnull @Size(PREFIX_LENGTH) byte[] newPrefix() {
+        final @Nonnull byte[] prefix = new byte[PREFIX_LENGTH];
+        random.nextBytes(prefix);
+        return prefix;
+    }
+    
+    /**
+     * Initializes the cipher in the given mode with the nonce that is derived from the given prefix, index and flag.
+     */
+    @Impure
+    private void init(int mode, @NonCaptured @Unmodified @Nonnull @Size(PREFIX_LENGTH) byte[] prefix, int index, boolean last) throws GeneralSecurityException {
+        System.arraycopy(prefix, 0, nonce, 0, PREFIX_LENGTH);
+        ByteBuffer.wrap(nonce, PREFIX_LENGTH, 5).putInt(index).put((byte) (last ? 1 : 0));
+        cipher.init(mode, key, new GCMParameterSpec(8 * TAG_LENGTH, nonce));
+    }
+    
+    /* -------------------------------------------------- Segments -------------------------------------------------- */
+    
+    /**
+     * Encrypts the given number of bytes in the input buffer as the segment with the given index into the output buffer and returns the length of the output.
+     */
+    @Impure
+    @NonNegative int seal(@NonCaptured @Unmodified @Nonnull @Size(PREFIX_LENGTH) byte[] prefix, int index, boolean last, @NonNegative int length) throws GeneralSecurityException {
+        init(Cipher.ENCRYPT_MODE, prefix, index, last);
+        return cipher.doFinal(input, 0, length, output, 0);
+    }
+    
+    /**
+     * Decrypts and verifies the given number of bytes in the input buffer as the segment with the given index into the output buffer and returns the length of the output.
+     */
+    @Impure
+    @NonNegative int open(@NonCaptured @Unmodified @Nonnull @Size(PREFIX_LENGTH) byte[] prefix, int index, boolean last, @NonNegative int length) throws GeneralSecurityException {
+        init(Cipher.DECRYPT_MODE, prefix, index, last);
+        return cipher.doFinal(input, 0, length, output, 0);
+    }
+    
+    /**
+     * Copies the remaining bytes of the given buffer into the input buffer and returns their number.
+     */
+    @Impure
+    @NonNegative int load(@NonCaptured @Modified @Nonnull ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        buffer.get(input, 0, length);
+        return length;
+    }
+    
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A segmented cipher sink encrypts the bytes in authenticated segments with a segmented cipher.
+ * The first chunk contains the nonce prefix and each further chunk an encrypted segment with its tag.
+ */
+@Mutable
+class SegmentedCipherSink extends ChunkedSink {
+    
+    /* -------------------------------------------------- Cipher -------------------------------------------------- */
+    
+    private final @Nonnull SegmentedCipher cipher;
+    
+    private final @Nonnull byte[] prefix = SegmentedCipher.newPrefix();
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    SegmentedCipherSink(@Nonnull SegmentedCipher cipher, @Nullable ByteBuffer prefix, @Nonnull ByteSink sink) {
+        super(prefix, sink);
+        
+        this.cipher = cipher;
+    }
+    
+    /* -------------------------------------------------- Segments -------------------------------------------------- */
+    
+    private int index = 0;
+    
+    private int length = 0;
+    
+    /**
+     * Encrypts the buffered segment and writes it as a chunk.
+     */
+    @Impure
+    private void seal(boolean last) throws IOException {
+        if (index == 0) { writeChunk(prefix, 0, prefix.length); }
+        if (index == Integer.MAX_VALUE) { throw new IOException("The maximum number of segments has been reached."); }
+        try {
+            final int outputLength = cipher.seal(prefix, index++, last, length);
+            writeChunk(cipher.getOutput(), 0, outputLength);
+        } catch (@Nonnull GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+        length = 0;
+    }
+    
+    /* -------------------------------------------------- ByteSink -------------------------------------------------- */
+    
+    /**
+     * Buffers the given bytes and encrypts a segment only once it is known not to be the last one.
+     */
+    @Impure
+    @Override
+    void write(@NonCaptured @Modified @Nonnull ByteBuffer buffer) throws IOException {
+        final int segmentSize = cipher.getSegmentSize();
+        while (buffer.hasRemaining()) {
+            if (length == segmentSize) { seal(false); }
+            final int count = Math.min(buffer.remaining(), segmentSize - length);
+            buffer.get(cipher.getInput(), length, count);
+            length += count;
+        }
+    }
+    
+    @Impure
+    @Override
+    void finish() throws IOException {
+        seal(true);
+        writeTerminator();
+    }
+    
+}
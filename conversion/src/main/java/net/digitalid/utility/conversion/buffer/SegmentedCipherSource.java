@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A segmented cipher source decrypts and verifies the bytes segment by segment with a segmented cipher.
+ * Since the nonce of the last segment differs from the others, each segment is only decrypted once the next chunk has been read.
+ */
+@Mutable
+class SegmentedCipherSource extends ChunkedSource {
+    
+    /* -------------------------------------------------- Cipher -------------------------------------------------- */
+    
+    private final @Nonnull SegmentedCipher cipher;
+    
+    private @Nullable byte[] prefix;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    SegmentedCipherSource(@Nonnull SegmentedCipher cipher, @Nonnull ByteSource source) {
+        super(source);
+        
+        this.cipher = cipher;
+    }
+    
+    /* -------------------------------------------------- Segments -------------------------------------------------- */
+    
+    private int index = 0;
+    
+    /**
+     * Stores the length of the segment in the input buffer of the cipher which has not yet been decrypted.
+     */
+    private int length = 0;
+    
+    private @Nonnull ByteBuffer plaintext = ByteBuffer.allocate(0);
+    
+    private boolean finished = false;
+    
+    /**
+     * Loads the given segment into the input buffer of the cipher.
+     */
+    @Impure
+    private void loadSegment(@Nonnull ByteBuffer segment) throws IOException {
+        if (segment.remaining() > cipher.getInput().length) { throw new IOException("The segment is larger than the segment size of the cipher."); }
+        length = cipher.load(segment);
+    }
+    
+    /**
+     * Decrypts the segment in the input buffer of the cipher and loads the next segment.
+     * The next chunk is read before the decryption in order to know whether the current segment is the last one.
+     * This works without copying because the chunk remains valid until the next chunk is read.
+     */
+    @Impure
+    private void openSegment() throws IOException {
+        if (prefix == null) {
+            final @Nullable ByteBuffer chunk = readChunk();
+            if (chunk == null || chunk.remaining() != SegmentedCipher.PREFIX_LENGTH) { throw new IOException("The nonce prefix of the segmented encryption is missing."); }
+            final @Nonnull byte[] prefix = new byte[SegmentedCipher.PREFIX_LENGTH];
+            chunk.get(prefix);
+            this.prefix = prefix;
+            final @Nullable ByteBuffer segment = readChunk();
+            if (segment == null) { throw new IOException("The segmented encryption contains no segments."); }
+            loadSegment(segment);
+        }
+        if (index == Integer.MAX_VALUE) { throw new IOException("The maximum number of segments has been reached."); }
+        final @Nullable ByteBuffer next = readChunk();
+        try {
+            final int outputLength = cipher.open(prefix, index++, next == null, length);
+            plaintext = ByteBuffer.wrap(cipher.getOutput(), 0, outputLength);
+        } catch (@Nonnull GeneralSecurityException exception) {
+            throw new IOException("A segment of the encryption could not be authenticated.", exception);
+        }
+        if (next == null) { finished = true; }
+        else { loadSegment(next); }
+    }
+    
+    /* -------------------------------------------------- ByteSource -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    int read(@NonCaptured @Modified @Nonnull ByteBuffer target) throws IOException {
+        while (!plaintext.hasRemaining()) {
+            if (finished) { return -1; }
+            openSegment();
+        }
+        return transfer(plaintext, target);
+    }
+    
+}
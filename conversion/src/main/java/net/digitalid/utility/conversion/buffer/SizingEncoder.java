@@ -0,0 +1,411 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder does not write the values anywhere but only sums up the number of bytes they take in the {@link BinaryFormat binary format}.
+ * It is used to compute the size of an encoding in advance for converters which do not {@link Converter#getEncodedSize(java.lang.Object) compute it directly}.
+ * Since the size of compressed or encrypted values cannot be computed without compressing or encrypting them, the {@link #getSize() size}
+ * excludes such layers, which is indicated by {@link #hasLayers()}, and {@link #getEncodedSize(Converter, Object)} encodes such objects instead.
+ */
+@Mutable
+public class SizingEncoder implements Encoder<ConnectionException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return representation;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected SizingEncoder(@Nonnull Representation representation) {
+        this.representation = representation;
+    }
+    
+    /**
+     * Returns a new sizing encoder with the given representation.
+     */
+    @Pure
+    public static @Nonnull SizingEncoder with(@Nonnull Representation representation) {
+        return new SizingEncoder(representation);
+    }
+    
+    /**
+     * Returns the number of bytes which the given object takes when it is encoded with the given converter.
+     * If the converter does not {@link Converter#getEncodedSize(java.lang.Object) compute the size directly}, the conversion is run with a sizing encoder.
+     * If the encoding contains compressed or encrypted sections, the object is encoded into a scratch buffer instead, which uses the deflaters and ciphers
+     * of the converter. Ciphers whose initialization vector may not be reused have to be created anew in each conversion for this reason.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @NonNegative int getEncodedSize(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) {
+        final int size = converter.getEncodedSize(object);
+        if (size >= 0) { return size; }
+        
+        final @Nonnull SizingEncoder encoder = new SizingEncoder(Representation.EXTERNAL);
+        try {
+            converter.convert(object, encoder);
+        } catch (@Nonnull ConnectionException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        if (!encoder.hasLayers()) { return encoder.getSize(); }
+        
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull ByteBufferEncoder scratch = ByteBufferEncoder.to(outputStream, Representation.EXTERNAL)) {
+            scratch.encodeObject(converter, object);
+        } catch (@Nonnull StreamException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        return outputStream.size();
+    }
+    
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    private long size = 0;
+    
+    /**
+     * Returns the number of bytes which the values encoded so far take.
+     */
+    @Pure
+    public @NonNegative int getSize() {
+        Require.that(size <= Integer.MAX_VALUE).orThrow("The encoding is larger than the maximum size of a buffer.");
+        
+        return (int) size;
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) {
+        size += getEncodedSize(converter, object);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeNullableObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nullable TYPE object) {
+        size += 1;
+        if (object != null) { encodeObject(converter, object); }
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeBoolean(boolean value) {
+        size += 1;
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger08(byte value) {
+        size += 1;
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger16(short value) {
+        size += 2;
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger32(int value) {
+        size += BinaryFormat.sizeOfInteger32(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64(long value) {
+        size += BinaryFormat.sizeOfInteger64(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger(@Nonnull BigInteger value) {
+        size += BinaryFormat.sizeOfInteger(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal32(float value) {
+        size += 4;
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64(double value) {
+        size += 8;
+    }
+    
+    @Impure
+    @Override
+    public void encodeString01(char value) {
+        size += 2;
+    }
+    
+    @Impure
+    @Override
+    public void encodeString64(@Nonnull @MaxSize(64) String string) {
+        size += BinaryFormat.sizeOfString(string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString(@Nonnull String string) {
+        size += BinaryFormat.sizeOfString(string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@Nonnull @Size(16) byte[] bytes) {
+        size += 16;
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) {
+        size += 16;
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@Nonnull @Size(32) byte[] bytes) {
+        size += 32;
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) {
+        size += 32;
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@Nonnull byte[] bytes) {
+        size += BinaryFormat.sizeOfBinary(bytes.length);
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) {
+        size += BinaryFormat.sizeOfBinary(bytes.remaining());
+    }
+    
+    /**
+     * Adds the size of the given length of bytes without reading them from the given input stream.
+     */
+    @Impure
+    @Override
+    public void encodeBinaryStream(@Nonnull InputStream inputStream, @NonNegative int length) {
+        size += BinaryFormat.sizeOfBinary(length);
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeInteger32Array(@Nonnull int[] values) {
+        size += BinaryFormat.sizeOfInteger32Array(values);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64Array(@Nonnull long[] values) {
+        size += BinaryFormat.sizeOfInteger64Array(values);
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64Array(@Nonnull double[] values) {
+        size += BinaryFormat.sizeOfDecimal64Array(values);
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        size += BinaryFormat.sizeOfIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        size += BinaryFormat.sizeOfIterableWithNullableElements(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        size += BinaryFormat.sizeOfIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        size += BinaryFormat.sizeOfIterableWithNullableElements(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMap(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> map) {
+        size += BinaryFormat.sizeOfMap(keyConverter, valueConverter, map);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMapWithNullableValues(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nullable KEY, @Nullable VALUE> map) {
+        size += BinaryFormat.sizeOfMapWithNullableValues(keyConverter, valueConverter, map);
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    private @Nullable MessageDigest digest;
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        this.digest = digest;
+    }
+    
+    /**
+     * Stops hashing and returns an empty hash since the values are not written anywhere.
+     */
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The encoder has to be hashing.");
+        
+        this.digest = null;
+        return new byte[0];
+    }
+    
+    /* -------------------------------------------------- Layers -------------------------------------------------- */
+    
+    private boolean layers = false;
+    
+    /**
+     * Returns whether a compression or encryption has been started, whose size is not included in the {@link #getSize() size}.
+     */
+    @Pure
+    public boolean hasLayers() {
+        return layers;
+    }
+    
+    /* -------------------------------------------------- Compressing -------------------------------------------------- */
+    
+    private int compressions = 0;
+    
+    @Pure
+    @Override
+    public boolean isCompressing() {
+        return compressions > 0;
+    }
+    
+    /**
+     * Starts a compression, whose size is not included in the {@link #getSize() size} since the values would have to be compressed for this.
+     */
+    @Impure
+    @Override
+    public void startCompressing(@Nonnull Deflater deflater) {
+        this.layers = true;
+        compressions += 1;
+    }
+    
+    @Impure
+    @Override
+    public void stopCompressing() {
+        Require.that(isCompressing()).orThrow("The encoder has to be compressing.");
+        
+        compressions -= 1;
+    }
+    
+    /* -------------------------------------------------- Encrypting -------------------------------------------------- */
+    
+    private int encryptions = 0;
+    
+    @Pure
+    @Override
+    public boolean isEncrypting() {
+        return encryptions > 0;
+    }
+    
+    /**
+     * Starts an encryption, whose size is not included in the {@link #getSize() size} since the values would have to be encrypted for this.
+     */
+    @Impure
+    @Override
+    public void startEncrypting(@Nonnull Cipher cipher) {
+        this.layers = true;
+        encryptions += 1;
+    }
+    
+    @Impure
+    @Override
+    public void stopEncrypting() {
+        Require.that(isEncrypting()).orThrow("The encoder has to be encrypting.");
+        
+        encryptions -= 1;
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void close() {}
+    
+}
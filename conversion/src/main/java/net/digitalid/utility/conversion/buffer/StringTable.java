@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A string table lets {@link ByteBufferDecoder decoders} return the same instance for short strings that are decoded repeatedly.
+ * The table is looked up with a hash of the encoded bytes so that no string has to be created when the string is already in the table.
+ * The table is direct-mapped: each hash selects a single slot and a new string replaces the string in its slot, which bounds the memory of the table.
+ * A table can either be used by a single decoder or be shared among several decoders on different threads.
+ * In the latter case, concurrent insertions may replace each other, which only affects whether a string is deduplicated.
+ * 
+ * @see ByteBufferDecoder#setStringTable(StringTable)
+ */
+@Mutable
+public class StringTable {
+    
+    /* -------------------------------------------------- Entry -------------------------------------------------- */
+    
+    /**
+     * An entry stores a string together with its encoding and the hash thereof.
+     * Since entries are immutable, they can be read by other threads without synchronization.
+     */
+    @Immutable
+    private static class Entry {
+        
+        private final int hash;
+        
+        private final @Nonnull byte[] bytes;
+        
+        private final @Nonnull String string;
+        
+        private Entry(int hash, @Nonnull byte[] bytes, @Nonnull String string) {
+            this.hash = hash;
+            this.bytes = bytes;
+            this.string = string;
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull Entry[] entries;
+    
+    private final int mask;
+    
+    private final @Positive int maximumLength;
+    
+    /**
+     * Returns the maximum number of encoded bytes of the strings that are stored in this table.
+     */
+    @Pure
+    public @Positive int getMaximumLength() {
+        return maximumLength;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected StringTable(@Positive int capacity, @Positive int maximumLength) {
+        Require.that(capacity > 0 && capacity <= 1 << 30).orThrow("The capacity has to be positive and at most 2^30 but was $.", capacity);
+        Require.that(maximumLength > 0).orThrow("The maximum length has to be positive but was $.", maximumLength);
+        
+        final int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+        this.maximumLength = maximumLength;
+    }
+    
+    /**
+     * Returns a new string table with the given capacity, which is rounded up to the next power of two, for strings of at most the given number of encoded bytes.
+     */
+    @Pure
+    public static @Nonnull StringTable with(@Positive int capacity, @Positive int maximumLength) {
+        return new StringTable(capacity, maximumLength);
+    }
+    
+    /**
+     * Returns a new string table with 256 slots for strings of at most 64 encoded bytes, which is suitable for a single decoder.
+     */
+    @Pure
+    public static @Nonnull StringTable withDefaultCapacity() {
+        return new StringTable(256, 64);
+    }
+    
+    /**
+     * Stores a string table with 4096 slots for strings of at most 64 encoded bytes which can be shared among all decoders.
+     */
+    public static final @Nonnull StringTable SHARED = new StringTable(4096, 64);
+    
+    /* -------------------------------------------------- Lookup -------------------------------------------------- */
+    
+    /**
+     * Returns the FNV-1a hash of the given number of bytes at the given position in the given buffer.
+     */
+    @Pure
+    static int hash(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer, @NonNegative int position, @NonNegative int length) {
+        int hash = 0x811C9DC5;
+        for (int i = position; i < position + length; i++) {
+            hash ^= buffer.get(i) & 0xFF;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+    
+    /**
+     * Returns the string whose encoding equals the given number of bytes at the given position in the given buffer with the given hash or null if there is no such string in this table.
+     */
+    @Pure
+    @Nullable String get(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer, @NonNegative int position, @NonNegative int length, int hash) {
+        final @Nullable Entry entry = entries[hash & mask];
+        if (entry == null || entry.hash != hash || entry.bytes.length != length) { return null; }
+        final @Nonnull byte[] bytes = entry.bytes;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buffer.get(position + i)) { return null; }
+        }
+        return entry.string;
+    }
+    
+    /**
+     * Stores the given string whose encoding is the given number of bytes at the given position in the given buffer with the given hash.
+     */
+    @Impure
+    void put(@NonCaptured @Unmodified @Nonnull ByteBuffer buffer, @NonNegative int position, @NonNegative int length, int hash, @Nonnull String string) {
+        final @Nonnull byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) { bytes[i] = buffer.get(position + i); }
+        entries[hash & mask] = new Entry(hash, bytes, string);
+    }
+    
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.validation.annotations.math.Positive;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This message digest computes the root of a binary hash tree whose leaves are the hashes of consecutive chunks of the input.
+ * The chunks are hashed on a fork-join pool while the input is still being written so that hashing large encodings is not bound to a single core.
+ * A leaf is the hash of the byte 0x00 followed by the chunk, an inner node is the hash of the byte 0x01 followed by the hashes of its two children,
+ * and a node without a sibling is promoted to the next level unchanged. The root therefore differs from the plain hash of the input,
+ * and the decoder has to be given a tree digest with the same algorithm and chunk size in order to verify it.
+ * 
+ * @see ByteBufferEncoder#startHashing(MessageDigest)
+ * @see ByteBufferDecoder#startHashing(MessageDigest)
+ */
+@Mutable
+public class TreeDigest extends MessageDigest {
+    
+    /* -------------------------------------------------- Prefixes -------------------------------------------------- */
+    
+    private static final byte LEAF = 0x00;
+    
+    private static final byte NODE = 0x01;
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull String algorithm;
+    
+    private final @Positive int chunkSize;
+    
+    private final @Nonnull ForkJoinPool pool;
+    
+    private final int digestLength;
+    
+    /**
+     * Stores the maximum number of chunks that are hashed concurrently before the writing thread waits for the oldest one.
+     */
+    private final @Positive int maximumPending;
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected TreeDigest(@Nonnull String algorithm, @Positive int chunkSize, @Nonnull ForkJoinPool pool) throws NoSuchAlgorithmException {
+        super("Tree-" + algorithm);
+        
+        Require.that(chunkSize > 0).orThrow("The chunk size has to be positive but was $.", chunkSize);
+        
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.digestLength = MessageDigest.getInstance(algorithm).getDigestLength();
+        this.maximumPending = 2 * pool.getParallelism();
+        this.chunk = new byte[chunkSize];
+    }
+    
+    /**
+     * Returns a new tree digest with the given algorithm and chunk size whose chunks are hashed on the given pool.
+     * 
+     * @throws NoSuchAlgorithmException if the given algorithm is not available.
+     */
+    @Pure
+    public static @Nonnull TreeDigest with(@Nonnull String algorithm, @Positive int chunkSize, @Nonnull ForkJoinPool pool) throws NoSuchAlgorithmException {
+        return new TreeDigest(algorithm, chunkSize, pool);
+    }
+    
+    /**
+     * Returns a new tree digest with the given algorithm and chunks of one mebibyte which are hashed on the common pool.
+     * 
+     * @throws NoSuchAlgorithmException if the given algorithm is not available.
+     */
+    @Pure
+    public static @Nonnull TreeDigest with(@Nonnull String algorithm) throws NoSuchAlgorithmException {
+        return new TreeDigest(algorithm, 1 << 20, ForkJoinPool.commonPool());
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    /**
+     * Returns a new instance of the underlying digest.
+     */
+    @Pure
+    private @Nonnull MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (@Nonnull NoSuchAlgorithmException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /**
+     * Returns the hash of the given prefix followed by the given parts.
+     */
+    @Pure
+    private @Nonnull byte[] hash(byte prefix, @Nonnull byte[] part, int length, @Nonnull byte... parts) {
+        final @Nonnull MessageDigest digest = newDigest();
+        digest.update(prefix);
+        digest.update(part, 0, length);
+        digest.update(parts);
+        return digest.digest();
+    }
+    
+    /* -------------------------------------------------- Leaves -------------------------------------------------- */
+    
+    /**
+     * A leaf task hashes a chunk and releases it afterwards so that the chunk can be garbage-collected while the task is still referenced.
+     */
+    @Mutable
+    private class Leaf extends RecursiveTask<byte[]> {
+        
+        private @Nullable byte[] data;
+        
+        private final int length;
+        
+        private Leaf(@Nonnull byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+        
+        @Impure
+        @Override
+        protected @Nonnull byte[] compute() {
+            final @Nonnull byte[] hash = hash(LEAF, data, length);
+            data = null;
+            return hash;
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Chunks -------------------------------------------------- */
+    
+    private @Nonnull byte[] chunk;
+    
+    private int chunkPosition = 0;
+    
+    /**
+     * Returns a new chunk into which the input is written after the current chunk has been submitted.
+     */
+    @Pure
+    @Nonnull byte[] newChunk() {
+        return new byte[chunkSize];
+    }
+    
+    /**
+     * Stores the hashes of the chunks that have been hashed in the order of the input.
+     */
+    private final @Nonnull List<byte[]> hashes = new ArrayList<>();
+    
+    /**
+     * Stores the tasks of the chunks that might still be hashed in the order of the input.
+     */
+    private final @Nonnull Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+    
+    /**
+     * Submits the current chunk for hashing and allocates a new one.
+     * If too many chunks are still being hashed, this method waits for the oldest one in order to bound the memory consumption.
+     */
+    @Impure
+    private void submitChunk() {
+        pending.addLast(pool.submit(new Leaf(chunk, chunkPosition)));
+        while (pending.size() > maximumPending) { hashes.add(pending.removeFirst().join()); }
+        chunk = newChunk();
+        chunkPosition = 0;
+    }
+    
+    @Impure
+    @Override
+    protected void engineUpdate(byte input) {
+        if (chunkPosition == chunkSize) { submitChunk(); }
+        chunk[chunkPosition++] = input;
+    }
+    
+    @Impure
+    @Override
+    protected void engineUpdate(@Nonnull byte[] input, int offset, int length) {
+        while (length > 0) {
+            if (chunkPosition == chunkSize) { submitChunk(); }
+            final int count = Math.min(length, chunkSize - chunkPosition);
+            System.arraycopy(input, offset, chunk, chunkPosition, count);
+            chunkPosition += count;
+            offset += count;
+            length -= count;
+        }
+    }
+    
+    @Impure
+    @Override
+    protected void engineUpdate(@NonCaptured @Modified @Nonnull ByteBuffer input) {
+        while (input.hasRemaining()) {
+            if (chunkPosition == chunkSize) { submitChunk(); }
+            final int count = Math.min(input.remaining(), chunkSize - chunkPosition);
+            input.get(chunk, chunkPosition, count);
+            chunkPosition += count;
+        }
+    }
+    
+    /* -------------------------------------------------- Root -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    protected int engineGetDigestLength() {
+        return digestLength;
+    }
+    
+    /**
+     * Submits the last chunk, which is empty only if there was no input at all, combines the hashes of the chunks into the root and resets this digest.
+     */
+    @Impure
+    @Override
+    protected @Nonnull byte[] engineDigest() {
+        if (chunkPosition > 0 || hashes.isEmpty() && pending.isEmpty()) { submitChunk(); }
+        while (!pending.isEmpty()) { hashes.add(pending.removeFirst().join()); }
+        @Nonnull List<byte[]> level = new ArrayList<>(hashes);
+        while (level.size() > 1) {
+            final @Nonnull List<byte[]> nextLevel = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i + 1 < level.size(); i += 2) {
+                final @Nonnull byte[] left = level.get(i);
+                nextLevel.add(hash(NODE, left, left.length, level.get(i + 1)));
+            }
+            if (level.size() % 2 == 1) { nextLevel.add(level.get(level.size() - 1)); }
+            level = nextLevel;
+        }
+        engineReset();
+        return level.get(0);
+    }
+    
+    @Impure
+    @Override
+    protected void engineReset() {
+        for (@Nonnull ForkJoinTask<byte[]> task : pending) { task.cancel(false); }
+        pending.clear();
+        hashes.clear();
+        chunkPosition = 0;
+    }
+    
+}
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.failable.FailableCollector;
+import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.Empty;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This decoder recovers the values which have been recorded by a {@link ValueEncoder} in the same order.
+ * 
+ * @see ValueEncoder
+ */
+@Mutable
+public class ValueDecoder implements Decoder<ConnectionException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return representation;
+    }
+    
+    /* -------------------------------------------------- Queues -------------------------------------------------- */
+    
+    private final @Nonnull long[] numbers;
+    
+    private final int numberCount;
+    
+    private int numberIndex = 0;
+    
+    private final @Nonnull Object[] references;
+    
+    private final int referenceCount;
+    
+    private int referenceIndex = 0;
+    
+    /**
+     * Returns the next primitive value.
+     */
+    @Impure
+    private long nextNumber() {
+        if (numberIndex == numberCount) { throw new IllegalStateException("The converter recovered more values than it converted."); }
+        return numbers[numberIndex++];
+    }
+    
+    /**
+     * Returns the next reference.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private <@Unspecifiable TYPE> @Nonnull TYPE nextReference() {
+        if (referenceIndex == referenceCount) { throw new IllegalStateException("The converter recovered more values than it converted."); }
+        return (TYPE) references[referenceIndex++];
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected ValueDecoder(@Nonnull Representation representation, @Captured @Nonnull long[] numbers, @NonNegative int numberCount, @Captured @Nonnull Object[] references, @NonNegative int referenceCount) {
+        this.representation = representation;
+        this.numbers = numbers;
+        this.numberCount = numberCount;
+        this.references = references;
+        this.referenceCount = referenceCount;
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws RecoveryException {
+        try {
+            return converter.recover(this, provided);
+        } catch (@Nonnull ConnectionException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nullable TYPE decodeNullableObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws RecoveryException {
+        return nextNumber() != 0 ? decodeObject(converter, provided) : null;
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public boolean decodeBoolean() {
+        return nextNumber() != 0;
+    }
+    
+    @Impure
+    @Override
+    public byte decodeInteger08() {
+        return (byte) nextNumber();
+    }
+    
+    @Impure
+    @Override
+    public short decodeInteger16() {
+        return (short) nextNumber();
+    }
+    
+    @Impure
+    @Override
+    public int decodeInteger32() {
+        return (int) nextNumber();
+    }
+    
+    @Impure
+    @Override
+    public long decodeInteger64() {
+        return nextNumber();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull BigInteger decodeInteger() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public float decodeDecimal32() {
+        return Float.intBitsToFloat((int) nextNumber());
+    }
+    
+    @Impure
+    @Override
+    public double decodeDecimal64() {
+        return Double.longBitsToDouble(nextNumber());
+    }
+    
+    @Impure
+    @Override
+    public char decodeString01() {
+        return (char) nextNumber();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @MaxSize(64) String decodeString64() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull String decodeString() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(16) byte[] decodeBinary128() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(32) byte[] decodeBinary256() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] decodeBinary() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull InputStream decodeBinaryStream() {
+        return new ByteArrayInputStream(nextReference());
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public @Nonnull int[] decodeInteger32Array() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull long[] decodeInteger64Array() {
+        return nextReference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull double[] decodeDecimal64Array() {
+        return nextReference();
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        final int size = (int) nextNumber();
+        final @Nonnull COLLECTOR collector = constructor.evaluate(size);
+        for (int i = 0; i < size; i++) { collector.consume(decodeObject(converter, provided)); }
+        return collector.getResult();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        final int size = (int) nextNumber();
+        final @Nonnull COLLECTOR collector = constructor.evaluate(size);
+        for (int i = 0; i < size; i++) { collector.consume(decodeNullableObject(converter, provided)); }
+        return collector.getResult();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        return decodeOrderedIterable(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        return decodeOrderedIterableWithNullableElements(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> decodeMap(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nonnull KEY, @Nonnull VALUE> emptyMap) throws RecoveryException {
+        final int size = (int) nextNumber();
+        for (int i = 0; i < size; i++) {
+            final @Nonnull KEY key = decodeObject(keyConverter, providedForKey);
+            emptyMap.put(key, decodeObject(valueConverter, providedForValue));
+        }
+        return emptyMap;
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nullable KEY, @Nullable VALUE> decodeMapWithNullableValues(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nullable KEY, @Nullable VALUE> emptyMap) throws RecoveryException {
+        final int size = (int) nextNumber();
+        for (int i = 0; i < size; i++) {
+            final @Nullable KEY key = decodeNullableObject(keyConverter, providedForKey);
+            emptyMap.put(key, decodeNullableObject(valueConverter, providedForValue));
+        }
+        return emptyMap;
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    private @Nullable MessageDigest digest;
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        this.digest = digest;
+    }
+    
+    /**
+     * Stops hashing and returns an empty hash since the values are not serialized, which the {@link ValueEncoder} returns as well.
+     */
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The decoder has to be hashing.");
+        
+        this.digest = null;
+        return new byte[0];
+    }
+    
+    /* -------------------------------------------------- Decompressing -------------------------------------------------- */
+    
+    private int decompressions = 0;
+    
+    @Pure
+    @Override
+    public boolean isDecompressing() {
+        return decompressions > 0;
+    }
+    
+    /**
+     * Starts a decompression, which passes the values through unchanged since they are not serialized.
+     */
+    @Impure
+    @Override
+    public void startDecompressing(@Nonnull Inflater inflater) {
+        decompressions += 1;
+    }
+    
+    @Impure
+    @Override
+    public void stopDecompressing() {
+        Require.that(isDecompressing()).orThrow("The decoder has to be decompressing.");
+        
+        decompressions -= 1;
+    }
+    
+    /* -------------------------------------------------- Decrypting -------------------------------------------------- */
+    
+    private int decryptions = 0;
+    
+    @Pure
+    @Override
+    public boolean isDecrypting() {
+        return decryptions > 0;
+    }
+    
+    /**
+     * Starts a decryption, which passes the values through unchanged since they are not serialized.
+     */
+    @Impure
+    @Override
+    public void startDecrypting(@Nonnull Cipher cipher) {
+        decryptions += 1;
+    }
+    
+    @Impure
+    @Override
+    public void stopDecrypting() {
+        Require.that(isDecrypting()).orThrow("The decoder has to be decrypting.");
+        
+        decryptions -= 1;
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void close() {}
+    
+}
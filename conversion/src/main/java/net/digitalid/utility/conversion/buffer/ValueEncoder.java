@@ -0,0 +1,425 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder does not serialize the values but records them in a queue of primitive values and a queue of references,
+ * from which a {@link ValueDecoder} recovers them again. Immutable values like strings are shared, while arrays are copied.
+ * It is used to {@link #copy(Converter, java.lang.Object, java.lang.Object) copy} objects without encoding them to bytes.
+ * Since the values are not serialized, hashing, compressing and encrypting pass the values through unchanged.
+ * 
+ * @see ValueDecoder
+ */
+@Mutable
+public class ValueEncoder implements Encoder<ConnectionException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return representation;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected ValueEncoder(@Nonnull Representation representation) {
+        this.representation = representation;
+    }
+    
+    /**
+     * Returns a new value encoder with the given representation.
+     */
+    @Pure
+    public static @Nonnull ValueEncoder with(@Nonnull Representation representation) {
+        return new ValueEncoder(representation);
+    }
+    
+    /**
+     * Returns a deep copy of the given object, which is converted with the given converter and recovered with the given provided object.
+     * The values are passed directly from the conversion to the recovery instead of being serialized.
+     * Objects of {@link Converter#isPrimitiveConverter() primitive converters} are immutable and therefore returned as they are.
+     */
+    @Pure
+    public static @Capturable <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE copy(@Nonnull Converter<TYPE, PROVIDED> converter, @NonCaptured @Unmodified @Nonnull TYPE object, @Shared PROVIDED provided) {
+        if (converter.isPrimitiveConverter()) { return object; }
+        
+        final @Nonnull ValueEncoder encoder = new ValueEncoder(Representation.INTERNAL);
+        try {
+            converter.convert(object, encoder);
+            return converter.recover(encoder.toDecoder(), provided);
+        } catch (@Nonnull ConnectionException | RecoveryException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /* -------------------------------------------------- Queues -------------------------------------------------- */
+    
+    private @Nonnull long[] numbers = new long[16];
+    
+    private int numberCount = 0;
+    
+    private @Nonnull Object[] references = new Object[8];
+    
+    private int referenceCount = 0;
+    
+    /**
+     * Adds the given primitive value to the queue of numbers.
+     */
+    @Impure
+    private void add(long number) {
+        if (numberCount == numbers.length) { numbers = Arrays.copyOf(numbers, 2 * numberCount); }
+        numbers[numberCount++] = number;
+    }
+    
+    /**
+     * Adds the given reference to the queue of references.
+     */
+    @Impure
+    private void add(@Nonnull Object reference) {
+        if (referenceCount == references.length) { references = Arrays.copyOf(references, 2 * referenceCount); }
+        references[referenceCount++] = reference;
+    }
+    
+    /**
+     * Returns a decoder which recovers the values that have been encoded so far.
+     */
+    @Pure
+    public @Nonnull ValueDecoder toDecoder() {
+        return new ValueDecoder(representation, numbers, numberCount, references, referenceCount);
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) {
+        try {
+            converter.convert(object, this);
+        } catch (@Nonnull ConnectionException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeNullableObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nullable TYPE object) {
+        add(object != null ? 1 : 0);
+        if (object != null) { encodeObject(converter, object); }
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeBoolean(boolean value) {
+        add(value ? 1 : 0);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger08(byte value) {
+        add(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger16(short value) {
+        add(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger32(int value) {
+        add(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64(long value) {
+        add(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger(@Nonnull BigInteger value) {
+        add((Object) value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal32(float value) {
+        add(Float.floatToRawIntBits(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64(double value) {
+        add(Double.doubleToRawLongBits(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeString01(char value) {
+        add(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString64(@Nonnull @MaxSize(64) String string) {
+        add((Object) string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString(@Nonnull String string) {
+        add((Object) string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@Nonnull @Size(16) byte[] bytes) {
+        Require.that(bytes.length == 16).orThrow("The byte array has to have a size of 16 but had a size of $.", bytes.length);
+        
+        add((Object) bytes.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@Nonnull @Size(32) byte[] bytes) {
+        Require.that(bytes.length == 32).orThrow("The byte array has to have a size of 32 but had a size of $.", bytes.length);
+        
+        add((Object) bytes.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@Nonnull byte[] bytes) {
+        add((Object) bytes.clone());
+    }
+    
+    /**
+     * Reads the given length of bytes from the given input stream so that the decoder can provide them as a new input stream.
+     */
+    @Impure
+    @Override
+    public void encodeBinaryStream(@Nonnull InputStream inputStream, @NonNegative int length) {
+        final @Nonnull byte[] bytes = new byte[length];
+        try {
+            int offset = 0;
+            while (offset < length) {
+                final int count = inputStream.read(bytes, offset, length - offset);
+                if (count < 0) { throw new IOException("The input stream ended before the given length."); }
+                offset += count;
+            }
+        } catch (@Nonnull IOException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        add((Object) bytes);
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeInteger32Array(@Nonnull int[] values) {
+        add((Object) values.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64Array(@Nonnull long[] values) {
+        add((Object) values.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64Array(@Nonnull double[] values) {
+        add((Object) values.clone());
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        add(iterable.size());
+        for (@Nonnull TYPE element : iterable) { encodeObject(converter, element); }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        add(iterable.size());
+        for (@Nullable TYPE element : iterable) { encodeNullableObject(converter, element); }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        encodeOrderedIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        encodeOrderedIterableWithNullableElements(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMap(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> map) {
+        add(map.size());
+        for (@Nonnull Map.Entry<@Nonnull KEY, @Nonnull VALUE> entry : map.entrySet()) {
+            encodeObject(keyConverter, entry.getKey());
+            encodeObject(valueConverter, entry.getValue());
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMapWithNullableValues(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nullable KEY, @Nullable VALUE> map) {
+        add(map.size());
+        for (@Nonnull Map.Entry<@Nullable KEY, @Nullable VALUE> entry : map.entrySet()) {
+            encodeNullableObject(keyConverter, entry.getKey());
+            encodeNullableObject(valueConverter, entry.getValue());
+        }
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    private @Nullable MessageDigest digest;
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        this.digest = digest;
+    }
+    
+    /**
+     * Stops hashing and returns an empty hash since the values are not serialized, which the {@link ValueDecoder} returns as well.
+     */
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The encoder has to be hashing.");
+        
+        this.digest = null;
+        return new byte[0];
+    }
+    
+    /* -------------------------------------------------- Compressing -------------------------------------------------- */
+    
+    private int compressions = 0;
+    
+    @Pure
+    @Override
+    public boolean isCompressing() {
+        return compressions > 0;
+    }
+    
+    /**
+     * Starts a compression, which passes the values through unchanged since they are not serialized.
+     */
+    @Impure
+    @Override
+    public void startCompressing(@Nonnull Deflater deflater) {
+        compressions += 1;
+    }
+    
+    @Impure
+    @Override
+    public void stopCompressing() {
+        Require.that(isCompressing()).orThrow("The encoder has to be compressing.");
+        
+        compressions -= 1;
+    }
+    
+    /* -------------------------------------------------- Encrypting -------------------------------------------------- */
+    
+    private int encryptions = 0;
+    
+    @Pure
+    @Override
+    public boolean isEncrypting() {
+        return encryptions > 0;
+    }
+    
+    /**
+     * Starts an encryption, which passes the values through unchanged since they are not serialized.
+     */
+    @Impure
+    @Override
+    public void startEncrypting(@Nonnull Cipher cipher) {
+        encryptions += 1;
+    }
+    
+    @Impure
+    @Override
+    public void stopEncrypting() {
+        Require.that(isEncrypting()).orThrow("The encoder has to be encrypting.");
+        
+        encryptions -= 1;
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void close() {}
+    
+}
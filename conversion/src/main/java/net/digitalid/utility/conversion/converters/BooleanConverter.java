@@ -31,6 +31,7 @@ import net.digitalid.utility.conversion.interfaces.Encoder;
 import net.digitalid.utility.conversion.model.CustomField;
 import net.digitalid.utility.conversion.model.CustomType;
 import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
 import net.digitalid.utility.validation.annotations.size.MaxSize;
 import net.digitalid.utility.validation.annotations.string.CodeIdentifier;
 import net.digitalid.utility.validation.annotations.string.DomainName;
@@ -96,6 +97,14 @@ public class BooleanConverter implements Converter<Boolean, Void> {
         encoder.encodeBoolean(value);
     }
     
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @NonNegative int getEncodedSize(@NonCaptured @Unmodified @Nonnull Boolean value) {
+        return 1;
+    }
+    
     /* -------------------------------------------------- Recover -------------------------------------------------- */
     
     @Pure
@@ -23,6 +23,7 @@ import net.digitalid.utility.annotations.ownership.Capturable;
 import net.digitalid.utility.annotations.ownership.NonCaptured;
 import net.digitalid.utility.annotations.parameter.Modified;
 import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.conversion.buffer.BinaryFormat;
 import net.digitalid.utility.conversion.enumerations.Representation;
 import net.digitalid.utility.conversion.exceptions.ConnectionException;
 import net.digitalid.utility.conversion.interfaces.Converter;
@@ -31,6 +32,7 @@ import net.digitalid.utility.conversion.interfaces.Encoder;
 import net.digitalid.utility.conversion.model.CustomField;
 import net.digitalid.utility.conversion.model.CustomType;
 import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
 import net.digitalid.utility.validation.annotations.size.MaxSize;
 import net.digitalid.utility.validation.annotations.string.CodeIdentifier;
 import net.digitalid.utility.validation.annotations.string.DomainName;
@@ -96,6 +98,14 @@ public class Integer64Converter implements Converter<Long, Void> {
         encoder.encodeInteger64(number);
     }
     
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @NonNegative int getEncodedSize(@NonCaptured @Unmodified @Nonnull Long number) {
+        return BinaryFormat.sizeOfInteger64(number);
+    }
+    
     /* -------------------------------------------------- Recover -------------------------------------------------- */
     
     @Pure
@@ -0,0 +1,517 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.converters;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.CustomAnnotation;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.string.CodeIdentifier;
+import net.digitalid.utility.validation.annotations.string.DomainName;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * This class implements the conversion of types for which no converter was generated.
+ * The converter inspects the non-static and non-transient fields of the type and its superclasses once
+ * and accesses them afterwards only through method handles, which avoids the overhead of reflection on every call.
+ * An object is recovered with the constructor whose parameters match the fields by name and type or, if the names of the parameters are not available,
+ * unambiguously by type. If there is no such constructor, the object is recovered with the constructor without parameters and a setter for each non-final field.
+ * Fields of primitive types, their wrapper types, strings, big integers, byte arrays, primitive arrays, enumerations and other convertible types are supported.
+ * Fields of other reference types are converted with their generated converter or otherwise again with a runtime converter.
+ * <p>
+ * The fields of superclasses precede the fields of subclasses and the fields of each class are ordered by their name
+ * so that the encoding does not depend on the order in which the virtual machine returns the declared fields.
+ * Please note that the names of constructor parameters are only available if the type was compiled with the {@code -parameters} flag,
+ * which is why a constructor whose parameters have the same type can only be used if the names are available.
+ */
+@Immutable
+public class RuntimeConverter<@Unspecifiable TYPE> implements Converter<TYPE, Void> {
+    
+    /* -------------------------------------------------- Type -------------------------------------------------- */
+    
+    private final @Nonnull Class<TYPE> type;
+    
+    @Pure
+    @Override
+    public @Nonnull Class<TYPE> getType() {
+        return type;
+    }
+    
+    /* -------------------------------------------------- Name -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull @CodeIdentifier @MaxSize(63) String getTypeName() {
+        return type.getSimpleName();
+    }
+    
+    /* -------------------------------------------------- Package -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull @DomainName String getTypePackage() {
+        final @Nonnull String name = type.getName();
+        return name.substring(0, Math.max(0, name.lastIndexOf('.')));
+    }
+    
+    /* -------------------------------------------------- Primitive Converter -------------------------------------------------- */
+    
+    /**
+     * Returns whether the type is an enumeration, whose constants are converted as their name.
+     */
+    @Pure
+    @Override
+    public boolean isPrimitiveConverter() {
+        return type.isEnum();
+    }
+    
+    /* -------------------------------------------------- Kinds -------------------------------------------------- */
+    
+    /**
+     * The kinds of fields which are converted differently.
+     */
+    private static enum Kind {
+        
+        BOOLEAN(CustomType.BOOLEAN), INTEGER08(CustomType.INTEGER08), INTEGER16(CustomType.INTEGER16), INTEGER32(CustomType.INTEGER32), INTEGER64(CustomType.INTEGER64),
+        DECIMAL32(CustomType.DECIMAL32), DECIMAL64(CustomType.DECIMAL64), STRING01(CustomType.STRING1), BINARY(CustomType.BINARY),
+        INTEGER32ARRAY(CustomType.INTEGER32ARRAY), INTEGER64ARRAY(CustomType.INTEGER64ARRAY), DECIMAL64ARRAY(CustomType.DECIMAL64ARRAY), OBJECT(null);
+        
+        private final @Nullable CustomType customType;
+        
+        private Kind(@Nullable CustomType customType) {
+            this.customType = customType;
+        }
+        
+        /**
+         * Returns the kind of fields of the given type.
+         */
+        @Pure
+        private static @Nonnull Kind of(@Nonnull Class<?> type) {
+            if (type == boolean.class) { return BOOLEAN; }
+            else if (type == byte.class) { return INTEGER08; }
+            else if (type == short.class) { return INTEGER16; }
+            else if (type == int.class) { return INTEGER32; }
+            else if (type == long.class) { return INTEGER64; }
+            else if (type == float.class) { return DECIMAL32; }
+            else if (type == double.class) { return DECIMAL64; }
+            else if (type == char.class) { return STRING01; }
+            else if (type == byte[].class) { return BINARY; }
+            else if (type == int[].class) { return INTEGER32ARRAY; }
+            else if (type == long[].class) { return INTEGER64ARRAY; }
+            else if (type == double[].class) { return DECIMAL64ARRAY; }
+            else { return OBJECT; }
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Accessors -------------------------------------------------- */
+    
+    /**
+     * An accessor converts and recovers the value of a single field.
+     */
+    @Immutable
+    private static class Accessor {
+        
+        private final @Nonnull Kind kind;
+        
+        /**
+         * Returns the value of the field with the exact primitive type for primitive fields and as an object otherwise.
+         */
+        private final @Nonnull MethodHandle getter;
+        
+        /**
+         * Sets the value of the field from an object or is null if the object is recovered with a constructor.
+         */
+        private final @Nullable MethodHandle setter;
+        
+        private final @Nullable Converter<Object, Object> converter;
+        
+        private Accessor(@Nonnull Kind kind, @Nonnull MethodHandle getter, @Nullable MethodHandle setter, @Nullable Converter<Object, Object> converter) {
+            this.kind = kind;
+            this.getter = getter;
+            this.setter = setter;
+            this.converter = converter;
+        }
+        
+        /**
+         * Returns the given throwable of a getter as an unchecked exception.
+         */
+        @Pure
+        private static @Nonnull RuntimeException toUnchecked(@Nonnull Throwable throwable) {
+            if (throwable instanceof RuntimeException) { return (RuntimeException) throwable; }
+            if (throwable instanceof Error) { throw (Error) throwable; }
+            return new RuntimeException("This should never happen because field getters do not throw checked exceptions.", throwable);
+        }
+        
+        @Pure
+        private boolean getBoolean(@Nonnull Object object) {
+            try { return (boolean) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private byte getInteger08(@Nonnull Object object) {
+            try { return (byte) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private short getInteger16(@Nonnull Object object) {
+            try { return (short) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private int getInteger32(@Nonnull Object object) {
+            try { return (int) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private long getInteger64(@Nonnull Object object) {
+            try { return (long) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private float getDecimal32(@Nonnull Object object) {
+            try { return (float) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private double getDecimal64(@Nonnull Object object) {
+            try { return (double) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private char getString01(@Nonnull Object object) {
+            try { return (char) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        @Pure
+        private @Nullable Object getObject(@Nonnull Object object) {
+            try { return (Object) getter.invokeExact(object); } catch (@Nonnull Throwable throwable) { throw toUnchecked(throwable); }
+        }
+        
+        /**
+         * Encodes the value of the field of the given object with the given encoder.
+         */
+        @Pure
+        private <@Unspecifiable EXCEPTION extends ConnectionException> void encode(@NonCaptured @Unmodified @Nonnull Object object, @NonCaptured @Modified @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            switch (kind) {
+                case BOOLEAN: encoder.encodeBoolean(getBoolean(object)); break;
+                case INTEGER08: encoder.encodeInteger08(getInteger08(object)); break;
+                case INTEGER16: encoder.encodeInteger16(getInteger16(object)); break;
+                case INTEGER32: encoder.encodeInteger32(getInteger32(object)); break;
+                case INTEGER64: encoder.encodeInteger64(getInteger64(object)); break;
+                case DECIMAL32: encoder.encodeDecimal32(getDecimal32(object)); break;
+                case DECIMAL64: encoder.encodeDecimal64(getDecimal64(object)); break;
+                case STRING01: encoder.encodeString01(getString01(object)); break;
+                case BINARY: encoder.encodeBinary((byte[]) getObject(object)); break;
+                case INTEGER32ARRAY: encoder.encodeInteger32Array((int[]) getObject(object)); break;
+                case INTEGER64ARRAY: encoder.encodeInteger64Array((long[]) getObject(object)); break;
+                case DECIMAL64ARRAY: encoder.encodeDecimal64Array((double[]) getObject(object)); break;
+                default: encoder.encodeNullableObject(converter, getObject(object));
+            }
+        }
+        
+        /**
+         * Decodes the value of the field with the given decoder.
+         */
+        @Impure
+        private <@Unspecifiable EXCEPTION extends ConnectionException> @Nullable Object decode(@NonCaptured @Modified @Nonnull Decoder<EXCEPTION> decoder) throws EXCEPTION, RecoveryException {
+            switch (kind) {
+                case BOOLEAN: return decoder.decodeBoolean();
+                case INTEGER08: return decoder.decodeInteger08();
+                case INTEGER16: return decoder.decodeInteger16();
+                case INTEGER32: return decoder.decodeInteger32();
+                case INTEGER64: return decoder.decodeInteger64();
+                case DECIMAL32: return decoder.decodeDecimal32();
+                case DECIMAL64: return decoder.decodeDecimal64();
+                case STRING01: return decoder.decodeString01();
+                case BINARY: return decoder.decodeBinary();
+                case INTEGER32ARRAY: return decoder.decodeInteger32Array();
+                case INTEGER64ARRAY: return decoder.decodeInteger64Array();
+                case DECIMAL64ARRAY: return decoder.decodeDecimal64Array();
+                default: return decoder.decodeNullableObject(converter, null);
+            }
+        }
+        
+    }
+    
+    /* -------------------------------------------------- Layout -------------------------------------------------- */
+    
+    /**
+     * The layout stores the accessors of the fields and how to instantiate the type.
+     */
+    @Immutable
+    private static class Layout {
+        
+        private final @Nonnull ImmutableList<@Nonnull CustomField> fields;
+        
+        private final @Nonnull Accessor[] accessors;
+        
+        /**
+         * Instantiates the type from an array with the values of all fields or from no arguments if the fields are set individually.
+         */
+        private final @Nonnull MethodHandle constructor;
+        
+        /**
+         * Stores for each parameter of the constructor the index of the corresponding field or is null if the fields are set individually.
+         */
+        private final @Nullable int[] indices;
+        
+        private Layout(@Nonnull ImmutableList<@Nonnull CustomField> fields, @Nonnull Accessor[] accessors, @Nonnull MethodHandle constructor, @Nullable int[] indices) {
+            this.fields = fields;
+            this.accessors = accessors;
+            this.constructor = constructor;
+            this.indices = indices;
+        }
+        
+    }
+    
+    private static final @Nonnull ImmutableList<@Nonnull CustomField> ENUMERATION_FIELDS = ImmutableList.withElements(CustomField.with(CustomType.STRING, "value"));
+    
+    private static final @Nonnull ImmutableList<@Nonnull CustomAnnotation> NULLABLE = ImmutableList.withElements(CustomAnnotation.with(Nullable.class));
+    
+    /**
+     * Stores the layout, which is computed lazily so that types can refer to themselves.
+     */
+    private volatile @Nullable Layout layout;
+    
+    /**
+     * Returns the layout of the type, which is computed on the first call.
+     * 
+     * @throws net.digitalid.utility.contracts.exceptions.PreconditionException if the type cannot be converted at runtime.
+     */
+    @Pure
+    @SuppressWarnings("unchecked")
+    private @Nonnull Layout getLayout() {
+        final @Nullable Layout layout = this.layout;
+        if (layout != null) { return layout; }
+        
+        final @Nonnull List<@Nonnull Field> declaredFields = new ArrayList<>();
+        for (@Nullable Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            final @Nonnull List<@Nonnull Field> fieldsOfCurrent = new ArrayList<>();
+            for (@Nonnull Field field : current.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic()) { fieldsOfCurrent.add(field); }
+            }
+            fieldsOfCurrent.sort(Comparator.comparing(Field::getName));
+            declaredFields.addAll(0, fieldsOfCurrent);
+        }
+        
+        @Nullable Constructor<?> constructor = null;
+        @Nullable int[] indices = null;
+        for (@Nonnull Constructor<?> candidate : type.getDeclaredConstructors()) {
+            final @Nullable int[] candidateIndices = getIndices(candidate, declaredFields);
+            if (candidateIndices != null) { constructor = candidate; indices = candidateIndices; }
+        }
+        final boolean spreading = constructor != null;
+        if (!spreading) {
+            try { constructor = type.getDeclaredConstructor(); }
+            catch (@Nonnull NoSuchMethodException exception) { Require.that(false).orThrow("The type $ has neither a constructor which corresponds unambiguously to all its fields nor a constructor without parameters.", type.getName()); }
+        }
+        
+        final @Nonnull MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final @Nonnull CustomField[] fields = new CustomField[declaredFields.size()];
+        final @Nonnull Accessor[] accessors = new Accessor[declaredFields.size()];
+        try {
+            for (int i = 0; i < accessors.length; i++) {
+                final @Nonnull Field field = declaredFields.get(i);
+                final @Nonnull Class<?> fieldType = field.getType();
+                final @Nonnull Kind kind = Kind.of(fieldType);
+                field.setAccessible(true);
+                final @Nonnull MethodHandle getter = lookup.unreflectGetter(field).asType(MethodType.methodType(fieldType.isPrimitive() ? fieldType : Object.class, Object.class));
+                @Nullable MethodHandle setter = null;
+                if (!spreading) {
+                    Require.that(!Modifier.isFinal(field.getModifiers())).orThrow("The final field $ of $ cannot be set without a constructor for all fields.", field.getName(), type.getName());
+                    setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+                }
+                final @Nullable Converter<Object, Object> converter = kind == Kind.OBJECT ? (Converter<Object, Object>) getConverter(fieldType) : null;
+                final @Nonnull CustomType customType = converter != null ? CustomType.TUPLE.of(converter) : kind.customType;
+                fields[i] = converter != null ? CustomField.with(customType, field.getName(), NULLABLE) : CustomField.with(customType, field.getName());
+                accessors[i] = new Accessor(kind, getter, setter, converter);
+            }
+            constructor.setAccessible(true);
+            final @Nonnull MethodHandle handle = spreading ? lookup.unreflectConstructor(constructor).asSpreader(Object[].class, accessors.length).asType(MethodType.methodType(Object.class, Object[].class)) : lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+            final @Nonnull Layout newLayout = new Layout(ImmutableList.withElements(fields), accessors, handle, indices);
+            this.layout = newLayout;
+            return newLayout;
+        } catch (@Nonnull IllegalAccessException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /**
+     * Returns for each parameter of the given constructor the index of the corresponding field or null if the parameters do not correspond to the given fields.
+     * If the names of the parameters are available, a parameter corresponds to the field with the same name and type.
+     * Otherwise, a parameter corresponds to the field with the same type, which has to be the only field of this type so that the mapping is unambiguous.
+     */
+    @Pure
+    private static @Nullable int[] getIndices(@Nonnull Constructor<?> constructor, @Nonnull List<@Nonnull Field> fields) {
+        final @Nonnull Parameter[] parameters = constructor.getParameters();
+        if (parameters.length != fields.size()) { return null; }
+        final @Nonnull int[] indices = new int[parameters.length];
+        final @Nonnull boolean[] used = new boolean[fields.size()];
+        for (int i = 0; i < parameters.length; i++) {
+            final @Nonnull Parameter parameter = parameters[i];
+            final boolean named = parameter.isNamePresent();
+            indices[i] = -1;
+            for (int j = 0; j < fields.size(); j++) {
+                final @Nonnull Field field = fields.get(j);
+                if (field.getType() == parameter.getType() && (!named || field.getName().equals(parameter.getName()))) {
+                    if (indices[i] >= 0) { return null; }
+                    indices[i] = j;
+                }
+            }
+            if (indices[i] < 0 || used[indices[i]]) { return null; }
+            used[indices[i]] = true;
+        }
+        return indices;
+    }
+    
+    /**
+     * Returns the converter for fields of the given reference type.
+     * Generated converters are preferred over runtime converters.
+     */
+    @Pure
+    private static @Nonnull Converter<?, ?> getConverter(@Nonnull Class<?> type) {
+        if (type == Boolean.class) { return BooleanConverter.INSTANCE; }
+        else if (type == Byte.class) { return Integer08Converter.INSTANCE; }
+        else if (type == Short.class) { return Integer16Converter.INSTANCE; }
+        else if (type == Integer.class) { return Integer32Converter.INSTANCE; }
+        else if (type == Long.class) { return Integer64Converter.INSTANCE; }
+        else if (type == Float.class) { return Decimal32Converter.INSTANCE; }
+        else if (type == Double.class) { return Decimal64Converter.INSTANCE; }
+        else if (type == Character.class) { return String01Converter.INSTANCE; }
+        else if (type == BigInteger.class) { return IntegerConverter.INSTANCE; }
+        else if (type == String.class) { return StringConverter.INSTANCE; }
+        Require.that(!type.isArray() && !type.isInterface() && (type.isEnum() || !Modifier.isAbstract(type.getModifiers()))).orThrow("Fields of the type $ cannot be converted at runtime.", type.getName());
+        try {
+            final @Nonnull Class<?> generatedConverter = Class.forName(type.getName() + "Converter", true, type.getClassLoader());
+            final @Nullable Object instance = generatedConverter.getField("INSTANCE").get(null);
+            if (instance instanceof Converter) { return (Converter<?, ?>) instance; }
+        } catch (@Nonnull ClassNotFoundException | NoSuchFieldException | IllegalAccessException exception) {
+            // The type has no accessible generated converter, which is why it is converted with a runtime converter below.
+        }
+        return of(type);
+    }
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull ImmutableList<@Nonnull CustomField> getFields(@Nonnull Representation representation) {
+        return type.isEnum() ? ENUMERATION_FIELDS : getLayout().fields;
+    }
+    
+    /* -------------------------------------------------- Convert -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public <@Unspecifiable EXCEPTION extends ConnectionException> void convert(@NonCaptured @Unmodified @Nonnull TYPE object, @NonCaptured @Modified @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+        if (type.isEnum()) { encoder.encodeString(((Enum<?>) object).name()); return; }
+        for (@Nonnull Accessor accessor : getLayout().accessors) { accessor.encode(object, encoder); }
+    }
+    
+    /* -------------------------------------------------- Recover -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public @Capturable <@Unspecifiable EXCEPTION extends ConnectionException> @Nonnull TYPE recover(@NonCaptured @Modified @Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+        if (type.isEnum()) {
+            final @Nonnull String name = decoder.decodeString();
+            try { return (TYPE) Enum.valueOf((Class) type, name); }
+            catch (@Nonnull IllegalArgumentException exception) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The enumeration $ has no constant $.", type.getName(), name)).withCause(exception).build(); }
+        }
+        final @Nonnull Layout layout = getLayout();
+        final @Nonnull Accessor[] accessors = layout.accessors;
+        final @Nonnull Object[] values = new Object[accessors.length];
+        for (int i = 0; i < accessors.length; i++) { values[i] = accessors[i].decode(decoder); }
+        try {
+            final @Nullable int[] indices = layout.indices;
+            if (indices != null) {
+                final @Nonnull Object[] arguments = new Object[indices.length];
+                for (int i = 0; i < indices.length; i++) { arguments[i] = values[indices[i]]; }
+                return (TYPE) (Object) layout.constructor.invokeExact(arguments);
+            }
+            final @Nonnull Object object = (Object) layout.constructor.invokeExact();
+            for (int i = 0; i < accessors.length; i++) { accessors[i].setter.invokeExact(object, values[i]); }
+            return (TYPE) object;
+        } catch (@Nonnull Error error) {
+            throw error;
+        } catch (@Nonnull Throwable throwable) {
+            throw RecoveryExceptionBuilder.withMessage(Strings.format("Could not instantiate $ with the recovered values.", type.getName())).withCause(throwable).build();
+        }
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected RuntimeConverter(@Nonnull Class<TYPE> type) {
+        this.type = type;
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    private static final @Nonnull ClassValue<RuntimeConverter<?>> converters = new ClassValue<RuntimeConverter<?>>() {
+        
+        @Pure
+        @Override
+        protected @Nonnull RuntimeConverter<?> computeValue(@Nonnull Class<?> type) {
+            return new RuntimeConverter<>(type);
+        }
+        
+    };
+    
+    /**
+     * Returns the runtime converter for the given type, which is cached for the lifetime of the class.
+     */
+    @Pure
+    @SuppressWarnings("unchecked")
+    public static <@Unspecifiable TYPE> @Nonnull RuntimeConverter<TYPE> of(@Nonnull Class<TYPE> type) {
+        return (RuntimeConverter<TYPE>) converters.get(type);
+    }
+    
+}
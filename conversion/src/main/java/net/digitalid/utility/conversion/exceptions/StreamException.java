@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.exceptions;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * A stream exception indicates that the underlying stream or channel of an encoder or decoder failed.
+ */
+@Immutable
+public abstract class StreamException extends ConnectionException {
+    
+    /* -------------------------------------------------- Cause -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public abstract @Nonnull IOException getCause();
+    
+}
@@ -109,6 +109,21 @@ public interface Converter<@Unspecifiable TYPE, @Specifiable PROVIDED> {
     @Pure
     public <@Unspecifiable EXCEPTION extends ConnectionException> void convert(@NonCaptured @Unmodified @Nonnull TYPE object, @NonCaptured @Modified @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION;
     
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    /**
+     * Returns the exact number of bytes which the given object takes in the binary format of the
+     * {@link net.digitalid.utility.conversion.buffer.ByteBufferEncoder} or -1 if this converter does not compute the size directly.
+     * The size is specific to this format, which is described by {@link net.digitalid.utility.conversion.buffer.BinaryFormat},
+     * and says nothing about the length of other encodings like JSON. This is why the built-in converters compute it with the size methods of that class.
+     * Generated converters override this method with a direct computation, while the size of objects of other converters has to be determined
+     * with {@link net.digitalid.utility.conversion.buffer.SizingEncoder#getEncodedSize(Converter, java.lang.Object)}, which runs the conversion instead.
+     */
+    @Pure
+    public default int getEncodedSize(@NonCaptured @Unmodified @Nonnull TYPE object) {
+        return -1;
+    }
+    
     /* -------------------------------------------------- Recover -------------------------------------------------- */
     
     /**
@@ -17,6 +17,7 @@ package net.digitalid.utility.conversion.interfaces;
 
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.Map;
 import java.util.zip.Inflater;
@@ -34,11 +35,16 @@ import net.digitalid.utility.annotations.ownership.Shared;
 import net.digitalid.utility.annotations.parameter.Modified;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
 import net.digitalid.utility.conversion.enumerations.Representation;
 import net.digitalid.utility.conversion.exceptions.ConnectionException;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.functional.exceptions.IterationException;
 import net.digitalid.utility.functional.failable.FailableCollector;
 import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.string.Strings;
 import net.digitalid.utility.validation.annotations.method.Ensures;
 import net.digitalid.utility.validation.annotations.method.Requires;
 import net.digitalid.utility.validation.annotations.size.Empty;
@@ -162,12 +168,80 @@ public interface Decoder<@Unspecifiable EXCEPTION extends ConnectionException> e
     @Impure
     public @Nonnull byte[] decodeBinary() throws EXCEPTION;
     
+    /**
+     * Decodes 16 bytes like {@link #decodeBinary128()} and returns them as a read-only buffer.
+     * Decoders which read from a byte stream may return a view into their internal buffer, which is only valid until the next value is decoded.
+     */
+    @Impure
+    public default @Nonnull ByteBuffer decodeBinary128Slice() throws EXCEPTION {
+        return ByteBuffer.wrap(decodeBinary128()).asReadOnlyBuffer();
+    }
+    
+    /**
+     * Decodes 32 bytes like {@link #decodeBinary256()} and returns them as a read-only buffer.
+     * Decoders which read from a byte stream may return a view into their internal buffer, which is only valid until the next value is decoded.
+     */
+    @Impure
+    public default @Nonnull ByteBuffer decodeBinary256Slice() throws EXCEPTION {
+        return ByteBuffer.wrap(decodeBinary256()).asReadOnlyBuffer();
+    }
+    
+    /**
+     * Decodes a byte array like {@link #decodeBinary()} and returns it as a read-only buffer.
+     * Decoders which read from a byte stream may return a view into their internal buffer, which is only valid until the next value is decoded.
+     */
+    @Impure
+    public default @Nonnull ByteBuffer decodeBinarySlice() throws EXCEPTION {
+        return ByteBuffer.wrap(decodeBinary()).asReadOnlyBuffer();
+    }
+    
     /**
      * Decodes and returns a binary stream.
      */
     @Impure
     public @Nonnull InputStream decodeBinaryStream() throws EXCEPTION;
     
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    /**
+     * Decodes and returns an array of 32-bit integers.
+     * This default implementation decodes the length of the array followed by its elements, while decoders which read from a byte stream should override it in order to copy the elements in bulk.
+     */
+    @Impure
+    public default @Nonnull int[] decodeInteger32Array() throws EXCEPTION, RecoveryException {
+        final int length = decodeInteger32();
+        if (length < 0) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The length $ of an array may not be negative.", length)).build(); }
+        final @Nonnull int[] values = new int[length];
+        for (int i = 0; i < values.length; i++) { values[i] = decodeInteger32(); }
+        return values;
+    }
+    
+    /**
+     * Decodes and returns an array of 64-bit integers.
+     * This default implementation decodes the length of the array followed by its elements, while decoders which read from a byte stream should override it in order to copy the elements in bulk.
+     */
+    @Impure
+    public default @Nonnull long[] decodeInteger64Array() throws EXCEPTION, RecoveryException {
+        final int length = decodeInteger32();
+        if (length < 0) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The length $ of an array may not be negative.", length)).build(); }
+        final @Nonnull long[] values = new long[length];
+        for (int i = 0; i < values.length; i++) { values[i] = decodeInteger64(); }
+        return values;
+    }
+    
+    /**
+     * Decodes and returns an array of 64-bit decimals.
+     * This default implementation decodes the length of the array followed by its elements, while decoders which read from a byte stream should override it in order to copy the elements in bulk.
+     */
+    @Impure
+    public default @Nonnull double[] decodeDecimal64Array() throws EXCEPTION, RecoveryException {
+        final int length = decodeInteger32();
+        if (length < 0) { throw RecoveryExceptionBuilder.withMessage(Strings.format("The length $ of an array may not be negative.", length)).build(); }
+        final @Nonnull double[] values = new double[length];
+        for (int i = 0; i < values.length; i++) { values[i] = decodeDecimal64(); }
+        return values;
+    }
+    
     /* -------------------------------------------------- Collections -------------------------------------------------- */
     
     /**
@@ -208,6 +282,53 @@ public interface Decoder<@Unspecifiable EXCEPTION extends ConnectionException> e
     @TODO(task = "Use also a constructor function instead of the empty map to have a suitable initial capacity.", date = "2017-01-27", author = Author.KASPAR_ETTER)
     public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nullable KEY, @Nullable VALUE> decodeMapWithNullableValues(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nullable KEY, @Nullable VALUE> emptyMap) throws EXCEPTION, RecoveryException;
     
+    /* -------------------------------------------------- Streams -------------------------------------------------- */
+    
+    /**
+     * Decodes non-nullable elements with the given converter and provided object in the given order and returns them as a finite iterable which decodes each element only when it is iterated.
+     * The returned iterable can be iterated only once and has to be iterated completely before any other value is decoded with this decoder.
+     * Decoding and recovery exceptions are thrown as {@link IterationException iteration exceptions} during the iteration.
+     * This default implementation decodes all elements eagerly, while decoders which read from a stream should override it in order to keep only a single element in memory.
+     */
+    @Impure
+    public default <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nonnull TYPE> streamOrderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws EXCEPTION, RecoveryException {
+        final @Nonnull TYPE[] elements = decodeOrderedIterable(converter, provided, ArrayCollector::with);
+        return FiniteIterable.of(elements);
+    }
+    
+    /**
+     * Decodes nullable elements with the given converter and provided object in the given order and returns them as a finite iterable which decodes each element only when it is iterated.
+     * 
+     * @see #streamOrderedIterable(net.digitalid.utility.conversion.interfaces.Converter, java.lang.Object)
+     */
+    @Impure
+    public default <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nullable TYPE> streamOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws EXCEPTION, RecoveryException {
+        final @Nonnull TYPE[] elements = decodeOrderedIterableWithNullableElements(converter, provided, ArrayCollector::with);
+        return FiniteIterable.of(elements);
+    }
+    
+    /**
+     * Decodes non-nullable elements with the given converter and provided object without preserving the order and returns them as a finite iterable which decodes each element only when it is iterated.
+     * 
+     * @see #streamOrderedIterable(net.digitalid.utility.conversion.interfaces.Converter, java.lang.Object)
+     */
+    @Impure
+    public default <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nonnull TYPE> streamUnorderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws EXCEPTION, RecoveryException {
+        final @Nonnull TYPE[] elements = decodeUnorderedIterable(converter, provided, ArrayCollector::with);
+        return FiniteIterable.of(elements);
+    }
+    
+    /**
+     * Decodes nullable elements with the given converter and provided object without preserving the order and returns them as a finite iterable which decodes each element only when it is iterated.
+     * 
+     * @see #streamOrderedIterable(net.digitalid.utility.conversion.interfaces.Converter, java.lang.Object)
+     */
+    @Impure
+    public default <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull FiniteIterable<@Nullable TYPE> streamUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws EXCEPTION, RecoveryException {
+        final @Nonnull TYPE[] elements = decodeUnorderedIterableWithNullableElements(converter, provided, ArrayCollector::with);
+        return FiniteIterable.of(elements);
+    }
+    
     /* -------------------------------------------------- Hashing -------------------------------------------------- */
     
     /**
@@ -265,7 +386,7 @@ public interface Decoder<@Unspecifiable EXCEPTION extends ConnectionException> e
      */
     @Impure
     @Ensures(condition = "isDecrypting()", message = "The decoder has to be decrypting.")
-    public void startDecrypting(@Nonnull Cipher cipher);
+    public void startDecrypting(@Nonnull Cipher cipher) throws EXCEPTION;
     
     /**
      * Stops decrypting.
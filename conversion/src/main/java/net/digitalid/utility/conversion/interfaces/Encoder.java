@@ -17,6 +17,7 @@ package net.digitalid.utility.conversion.interfaces;
 
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.Map;
 import java.util.zip.Deflater;
@@ -155,12 +156,75 @@ public interface Encoder<@Unspecifiable EXCEPTION extends ConnectionException> e
     @Impure
     public void encodeBinary(@Nonnull byte[] bytes) throws EXCEPTION;
     
+    /**
+     * Encodes the remaining bytes of the given buffer like {@link #encodeBinary128(byte[])} without changing its position.
+     */
+    @Impure
+    public default void encodeBinary128(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) throws EXCEPTION {
+        final @Nonnull byte[] array = new byte[bytes.remaining()];
+        bytes.duplicate().get(array);
+        encodeBinary128(array);
+    }
+    
+    /**
+     * Encodes the remaining bytes of the given buffer like {@link #encodeBinary256(byte[])} without changing its position.
+     */
+    @Impure
+    public default void encodeBinary256(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) throws EXCEPTION {
+        final @Nonnull byte[] array = new byte[bytes.remaining()];
+        bytes.duplicate().get(array);
+        encodeBinary256(array);
+    }
+    
+    /**
+     * Encodes the remaining bytes of the given buffer like {@link #encodeBinary(byte[])} without changing its position.
+     * Encoders which write to a byte stream should override this method in order to avoid copying the bytes to an array first.
+     */
+    @Impure
+    public default void encodeBinary(@NonCaptured @Unmodified @Nonnull ByteBuffer bytes) throws EXCEPTION {
+        final @Nonnull byte[] array = new byte[bytes.remaining()];
+        bytes.duplicate().get(array);
+        encodeBinary(array);
+    }
+    
     /**
      * Encodes the bytes from the given input stream for the given length.
      */
     @Impure
     public void encodeBinaryStream(@Nonnull InputStream inputStream, int length) throws EXCEPTION;
     
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    /**
+     * Encodes the given array of 32-bit integers with a fixed width per element and without boxing them.
+     * This default implementation encodes the length of the array followed by its elements, while encoders which write to a byte stream should override it in order to copy the elements in bulk.
+     */
+    @Impure
+    public default void encodeInteger32Array(@Nonnull int[] values) throws EXCEPTION {
+        encodeInteger32(values.length);
+        for (int value : values) { encodeInteger32(value); }
+    }
+    
+    /**
+     * Encodes the given array of 64-bit integers with a fixed width per element and without boxing them.
+     * This default implementation encodes the length of the array followed by its elements, while encoders which write to a byte stream should override it in order to copy the elements in bulk.
+     */
+    @Impure
+    public default void encodeInteger64Array(@Nonnull long[] values) throws EXCEPTION {
+        encodeInteger32(values.length);
+        for (long value : values) { encodeInteger64(value); }
+    }
+    
+    /**
+     * Encodes the given array of 64-bit decimals without boxing them.
+     * This default implementation encodes the length of the array followed by its elements, while encoders which write to a byte stream should override it in order to copy the elements in bulk.
+     */
+    @Impure
+    public default void encodeDecimal64Array(@Nonnull double[] values) throws EXCEPTION {
+        encodeInteger32(values.length);
+        for (double value : values) { encodeDecimal64(value); }
+    }
+    
     /* -------------------------------------------------- Collections -------------------------------------------------- */
     
     /**
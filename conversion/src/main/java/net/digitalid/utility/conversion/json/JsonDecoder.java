@@ -0,0 +1,874 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.exceptions.StreamExceptionBuilder;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.functional.failable.FailableCollector;
+import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.string.Strings;
+import net.digitalid.utility.validation.annotations.size.Empty;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This decoder reads the values as JSON text from a reader without building a document tree.
+ * The text has to be in the format written by the {@link JsonEncoder}, except that whitespace may occur between any two tokens.
+ * Since the values are recovered in the order of the {@link Converter#getFields(Representation) fields}, the members of JSON objects have to appear in this order.
+ * Hashing digests the UTF-8 encoding of the text without the whitespace between tokens, and compressed or encrypted sections are read from Base64 strings.
+ * 
+ * @see JsonEncoder
+ */
+@Mutable
+public class JsonDecoder implements Decoder<StreamException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return Representation.EXTERNAL;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    private @Nonnull Reader reader;
+    
+    protected JsonDecoder(@Captured @Nonnull Reader reader) {
+        this.reader = reader;
+    }
+    
+    /**
+     * Returns a new JSON decoder which reads from the given reader.
+     * The reader is closed when this decoder is closed.
+     */
+    @Pure
+    public static @Nonnull JsonDecoder from(@Captured @Nonnull Reader reader) {
+        return new JsonDecoder(reader);
+    }
+    
+    /**
+     * Returns the object which is recovered with the given converter and provided object from the given JSON text.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decode(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull String text) throws StreamException, RecoveryException {
+        try (@Nonnull JsonDecoder decoder = new JsonDecoder(new StringReader(text))) {
+            final @Nonnull TYPE object = decoder.decodeObject(converter, provided);
+            if (decoder.hasMoreValues()) { throw decoder.error("The text contains more than one value."); }
+            return object;
+        }
+    }
+    
+    /* -------------------------------------------------- Reading -------------------------------------------------- */
+    
+    private @Nonnull char[] chars = new char[8192];
+    
+    private int position = 0;
+    
+    private int limit = 0;
+    
+    /**
+     * Returns a stream exception with the given message.
+     */
+    @Pure
+    private @Nonnull StreamException error(@Nonnull String message, @NonCaptured @Nullable Object... arguments) {
+        return StreamExceptionBuilder.withCause(new IOException(Strings.format(message, arguments))).build();
+    }
+    
+    /**
+     * Reads more characters into the buffer and returns whether there are any.
+     */
+    @Impure
+    private boolean fill() throws StreamException {
+        digest();
+        hashMark = 0;
+        try {
+            final int count = reader.read(chars, 0, chars.length);
+            position = 0;
+            limit = Math.max(count, 0);
+            return count > 0;
+        } catch (@Nonnull IOException exception) {
+            throw StreamExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+    /**
+     * Skips whitespace and returns the next character without consuming it or -1 if the text has ended.
+     */
+    @Impure
+    private int peek() throws StreamException {
+        while (true) {
+            if (position == limit && !fill()) { return -1; }
+            final char c = chars[position];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') { return c; }
+            digest();
+            position += 1;
+            hashMark = position;
+        }
+    }
+    
+    /**
+     * Returns and consumes the next character, which may be whitespace.
+     */
+    @Impure
+    private char read() throws StreamException {
+        if (position == limit && !fill()) { throw error("The text ended prematurely."); }
+        return chars[position++];
+    }
+    
+    /**
+     * Skips whitespace and consumes the given character.
+     */
+    @Impure
+    private void expect(char expected) throws StreamException {
+        final int c = peek();
+        if (c != expected) { throw error("Expected '$' but found $.", expected, c < 0 ? "the end of the text" : "'" + (char) c + "'"); }
+        position += 1;
+    }
+    
+    /**
+     * Returns whether the given character can be part of a number or a literal.
+     */
+    @Pure
+    private static boolean isTokenCharacter(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '-' || c == '+' || c == '.';
+    }
+    
+    private final @Nonnull StringBuilder token = new StringBuilder();
+    
+    /**
+     * Skips whitespace and reads a number or a literal.
+     */
+    @Impure
+    private @Nonnull String readToken() throws StreamException {
+        token.setLength(0);
+        peek();
+        while ((position < limit || fill()) && isTokenCharacter(chars[position])) { token.append(chars[position++]); }
+        if (token.length() == 0) { throw error("Expected a number or a literal."); }
+        return token.toString();
+    }
+    
+    /**
+     * Skips whitespace and reads a JSON string with its escape sequences resolved.
+     */
+    @Impure
+    private @Nonnull String readString() throws StreamException {
+        expect('"');
+        token.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) { throw error("The text ended within a string."); }
+            int end = position;
+            while (end < limit && chars[end] != '"' && chars[end] != '\\') { end++; }
+            token.append(chars, position, end - position);
+            position = end;
+            if (position == limit) { continue; }
+            if (read() == '"') { return token.toString(); }
+            final char escaped = read();
+            switch (escaped) {
+                case '"': case '\\': case '/': token.append(escaped); break;
+                case 'b': token.append('\b'); break;
+                case 'f': token.append('\f'); break;
+                case 'n': token.append('\n'); break;
+                case 'r': token.append('\r'); break;
+                case 't': token.append('\t'); break;
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        final int digit = Character.digit(read(), 16);
+                        if (digit < 0) { throw error("The unicode escape sequence is invalid."); }
+                        value = (value << 4) | digit;
+                    }
+                    token.append((char) value);
+                    break;
+                default: throw error("The escape sequence '\\$' is invalid.", escaped);
+            }
+        }
+    }
+    
+    /**
+     * Returns whether there are more values on the top level, which are separated by whitespace.
+     */
+    @Impure
+    public boolean hasMoreValues() throws StreamException {
+        Require.that(depth == 0).orThrow("This method may only be called between top-level values.");
+        
+        return peek() >= 0;
+    }
+    
+    /* -------------------------------------------------- Nesting -------------------------------------------------- */
+    
+    /**
+     * The current nesting depth, where zero is the top level.
+     */
+    private int depth = 0;
+    
+    /**
+     * Stores for each level the layout of the converter of a JSON object or null for a JSON array or a plain value.
+     */
+    private @Nonnull FieldLayout[] layouts = new FieldLayout[16];
+    
+    /**
+     * Stores for each level the number of values that have been decoded or -1 if the level holds a single plain value.
+     */
+    private @Nonnull int[] counts = new int[16];
+    
+    /**
+     * Enters a new level with the given field layout or null for a JSON array.
+     */
+    @Impure
+    private void enter(@Nullable FieldLayout layout, int count) {
+        depth += 1;
+        if (depth == counts.length) {
+            layouts = Arrays.copyOf(layouts, 2 * depth);
+            counts = Arrays.copyOf(counts, 2 * depth);
+        }
+        layouts[depth] = layout;
+        counts[depth] = count;
+    }
+    
+    /**
+     * Leaves the current level.
+     */
+    @Impure
+    private void leave() {
+        Require.that(layouts[depth] == null || counts[depth] == layouts[depth].getFieldNames().size()).orThrow("The converter decoded only $ of its $ fields.", counts[depth], layouts[depth] == null ? 0 : layouts[depth].getFieldNames().size());
+        
+        layouts[depth] = null;
+        depth -= 1;
+    }
+    
+    /**
+     * Consumes the separator and, within a JSON object, the name of the next field before a value.
+     */
+    @Impure
+    private void beginValue() throws StreamException {
+        final int count = counts[depth];
+        if (count < 0) { return; }
+        final @Nullable FieldLayout layout = layouts[depth];
+        if (layout != null) {
+            final @Nonnull ImmutableList<String> fields = layout.getFieldNames();
+            Require.that(count < fields.size()).orThrow("The converter decoded more values than its $ fields.", fields.size());
+            
+            if (count > 0) { expect(','); }
+            final @Nonnull String name = readString();
+            if (!name.equals(fields.get(count))) { throw error("Expected the field $ but found $.", fields.get(count), name); }
+            expect(':');
+        } else if (count > 0 && depth > 0) {
+            expect(',');
+        }
+        counts[depth] = count + 1;
+    }
+    
+    /**
+     * Returns whether the current JSON array has another element.
+     */
+    @Impure
+    private boolean hasNextElement() throws StreamException {
+        return peek() != ']';
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    /**
+     * Decodes an object with the given converter and provided object after the separator has been consumed.
+     */
+    @Impure
+    private <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeValue(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        if (converter.isPrimitiveConverter()) {
+            enter(null, -1);
+            final @Nonnull TYPE object = converter.recover(this, provided);
+            leave();
+            return object;
+        } else {
+            expect('{');
+            enter(FieldLayout.of(converter, Representation.EXTERNAL), 0);
+            final @Nonnull TYPE object = converter.recover(this, provided);
+            leave();
+            expect('}');
+            return object;
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        beginValue();
+        return decodeValue(converter, provided);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nullable TYPE decodeNullableObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws StreamException, RecoveryException {
+        beginValue();
+        if (peek() == 'n') {
+            final @Nonnull String literal = readToken();
+            if (!literal.equals("null")) { throw error("Expected null but found $.", literal); }
+            return null;
+        }
+        return decodeValue(converter, provided);
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public boolean decodeBoolean() throws StreamException {
+        beginValue();
+        final @Nonnull String literal = readToken();
+        switch (literal) {
+            case "true": return true;
+            case "false": return false;
+            default: throw error("Expected a boolean but found $.", literal);
+        }
+    }
+    
+    @Impure
+    @Override
+    public byte decodeInteger08() throws StreamException {
+        final long value = decodeInteger64();
+        if (value != (byte) value) { throw error("The integer $ does not fit into 8 bits.", value); }
+        return (byte) value;
+    }
+    
+    @Impure
+    @Override
+    public short decodeInteger16() throws StreamException {
+        final long value = decodeInteger64();
+        if (value != (short) value) { throw error("The integer $ does not fit into 16 bits.", value); }
+        return (short) value;
+    }
+    
+    @Impure
+    @Override
+    public int decodeInteger32() throws StreamException {
+        final long value = decodeInteger64();
+        if (value != (int) value) { throw error("The integer $ does not fit into 32 bits.", value); }
+        return (int) value;
+    }
+    
+    @Impure
+    @Override
+    public long decodeInteger64() throws StreamException {
+        beginValue();
+        final @Nonnull String number = readToken();
+        try {
+            return Long.parseLong(number);
+        } catch (@Nonnull NumberFormatException exception) {
+            throw error("Expected a 64-bit integer but found $.", number);
+        }
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull BigInteger decodeInteger() throws StreamException {
+        beginValue();
+        final @Nonnull String number = readToken();
+        try {
+            return new BigInteger(number);
+        } catch (@Nonnull NumberFormatException exception) {
+            throw error("Expected an integer but found $.", number);
+        }
+    }
+    
+    /**
+     * Reads a decimal from a number or, if it is not finite, from a string.
+     */
+    @Impure
+    private @Nonnull String readDecimal() throws StreamException {
+        beginValue();
+        return peek() == '"' ? readString() : readToken();
+    }
+    
+    @Impure
+    @Override
+    public float decodeDecimal32() throws StreamException {
+        final @Nonnull String number = readDecimal();
+        try {
+            return Float.parseFloat(number);
+        } catch (@Nonnull NumberFormatException exception) {
+            throw error("Expected a decimal but found $.", number);
+        }
+    }
+    
+    @Impure
+    @Override
+    public double decodeDecimal64() throws StreamException {
+        final @Nonnull String number = readDecimal();
+        try {
+            return Double.parseDouble(number);
+        } catch (@Nonnull NumberFormatException exception) {
+            throw error("Expected a decimal but found $.", number);
+        }
+    }
+    
+    @Impure
+    @Override
+    public char decodeString01() throws StreamException {
+        final @Nonnull String string = decodeString();
+        if (string.length() != 1) { throw error("Expected a single character but found $.", string); }
+        return string.charAt(0);
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @MaxSize(64) String decodeString64() throws StreamException {
+        final @Nonnull String string = decodeString();
+        if (string.length() > 64) { throw error("The string has more than 64 characters."); }
+        return string;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull String decodeString() throws StreamException {
+        beginValue();
+        return readString();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(16) byte[] decodeBinary128() throws StreamException {
+        final @Nonnull byte[] bytes = decodeBinary();
+        if (bytes.length != 16) { throw error("Expected 16 bytes but found $.", bytes.length); }
+        return bytes;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(32) byte[] decodeBinary256() throws StreamException {
+        final @Nonnull byte[] bytes = decodeBinary();
+        if (bytes.length != 32) { throw error("Expected 32 bytes but found $.", bytes.length); }
+        return bytes;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] decodeBinary() throws StreamException {
+        final @Nonnull String string = decodeString();
+        try {
+            return Base64.getDecoder().decode(string);
+        } catch (@Nonnull IllegalArgumentException exception) {
+            throw error("The string is not valid Base64.");
+        }
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull InputStream decodeBinaryStream() throws StreamException {
+        return new ByteArrayInputStream(decodeBinary());
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public @Nonnull int[] decodeInteger32Array() throws StreamException {
+        beginValue();
+        expect('[');
+        enter(null, 0);
+        @Nonnull int[] values = new int[16];
+        int size = 0;
+        while (hasNextElement()) {
+            if (size == values.length) { values = Arrays.copyOf(values, 2 * size); }
+            values[size++] = decodeInteger32();
+        }
+        leave();
+        expect(']');
+        return Arrays.copyOf(values, size);
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull long[] decodeInteger64Array() throws StreamException {
+        beginValue();
+        expect('[');
+        enter(null, 0);
+        @Nonnull long[] values = new long[16];
+        int size = 0;
+        while (hasNextElement()) {
+            if (size == values.length) { values = Arrays.copyOf(values, 2 * size); }
+            values[size++] = decodeInteger64();
+        }
+        leave();
+        expect(']');
+        return Arrays.copyOf(values, size);
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull double[] decodeDecimal64Array() throws StreamException {
+        beginValue();
+        expect('[');
+        enter(null, 0);
+        @Nonnull double[] values = new double[16];
+        int size = 0;
+        while (hasNextElement()) {
+            if (size == values.length) { values = Arrays.copyOf(values, 2 * size); }
+            values[size++] = decodeDecimal64();
+        }
+        leave();
+        expect(']');
+        return Arrays.copyOf(values, size);
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    /**
+     * Decodes the elements of a JSON array with the given converter and provided object.
+     * Since the number of elements is not known in advance, they are collected in a list before they are passed to the collector.
+     */
+    @Impure
+    private <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor, boolean nullable) throws StreamException, RecoveryException {
+        beginValue();
+        expect('[');
+        enter(null, 0);
+        final @Nonnull List<TYPE> elements = new ArrayList<>();
+        while (hasNextElement()) { elements.add(nullable ? decodeNullableObject(converter, provided) : decodeObject(converter, provided)); }
+        leave();
+        expect(']');
+        final @Nonnull COLLECTOR collector = constructor.evaluate(elements.size());
+        for (TYPE element : elements) { collector.consume(element); }
+        return collector.getResult();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        return decodeIterable(converter, provided, constructor, false);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        return decodeIterable(converter, provided, constructor, true);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        return decodeIterable(converter, provided, constructor, false);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws StreamException, RecoveryException {
+        return decodeIterable(converter, provided, constructor, true);
+    }
+    
+    /**
+     * Decodes the key-value pairs of a JSON array into the given map.
+     */
+    @Impure
+    private <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<KEY, VALUE> decodeMap(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<KEY, VALUE> emptyMap, boolean nullable) throws StreamException, RecoveryException {
+        beginValue();
+        expect('[');
+        enter(null, 0);
+        while (hasNextElement()) {
+            beginValue();
+            expect('[');
+            enter(null, 0);
+            final KEY key = nullable ? decodeNullableObject(keyConverter, providedForKey) : decodeObject(keyConverter, providedForKey);
+            final VALUE value = nullable ? decodeNullableObject(valueConverter, providedForValue) : decodeObject(valueConverter, providedForValue);
+            emptyMap.put(key, value);
+            leave();
+            expect(']');
+        }
+        leave();
+        expect(']');
+        return emptyMap;
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> decodeMap(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nonnull KEY, @Nonnull VALUE> emptyMap) throws StreamException, RecoveryException {
+        return decodeMap(keyConverter, providedForKey, valueConverter, providedForValue, emptyMap, false);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nullable KEY, @Nullable VALUE> decodeMapWithNullableValues(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nullable KEY, @Nullable VALUE> emptyMap) throws StreamException, RecoveryException {
+        return decodeMap(keyConverter, providedForKey, valueConverter, providedForValue, emptyMap, true);
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    private @Nullable MessageDigest digest;
+    
+    /**
+     * Stores the position in the buffered characters up to which the text has been hashed.
+     */
+    private int hashMark = 0;
+    
+    /**
+     * Stores a high surrogate at the end of the buffered characters, which is hashed together with the low surrogate after the buffer has been filled again.
+     */
+    private @Nonnull String surrogate = "";
+    
+    /**
+     * Hashes the UTF-8 encoding of the consumed characters that have not yet been hashed.
+     */
+    @Impure
+    private void digest() {
+        if (digest != null && position > hashMark) {
+            final boolean split = Character.isHighSurrogate(chars[position - 1]);
+            final @Nonnull String string = surrogate + new String(chars, hashMark, position - hashMark - (split ? 1 : 0));
+            surrogate = split ? String.valueOf(chars[position - 1]) : "";
+            digest.update(string.getBytes(StandardCharsets.UTF_8));
+        }
+        hashMark = position;
+    }
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    /**
+     * Starts hashing the UTF-8 encoding of the text that is read from now on without the whitespace between tokens.
+     * The values of compressed or encrypted sections are hashed after they are decompressed or decrypted, while their Base64 strings are not hashed.
+     */
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        Require.that(!isHashing()).orThrow("The decoder may not already be hashing.");
+        
+        this.digest = digest;
+        this.hashMark = position;
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The decoder has to be hashing.");
+        
+        digest();
+        final @Nonnull MessageDigest digest = this.digest;
+        if (!surrogate.isEmpty()) { digest.update(surrogate.getBytes(StandardCharsets.UTF_8)); }
+        this.surrogate = "";
+        this.digest = null;
+        return digest.digest();
+    }
+    
+    /* -------------------------------------------------- Layers -------------------------------------------------- */
+    
+    /**
+     * A layer stores the state of the decoder before a decompression or decryption was started.
+     */
+    private static class Layer {
+        
+        private final @Nonnull Reader reader;
+        
+        private final @Nonnull char[] chars;
+        
+        private final int position;
+        
+        private final int limit;
+        
+        private final int depth;
+        
+        private final boolean decompression;
+        
+        private Layer(@Nonnull Reader reader, @Nonnull char[] chars, int position, int limit, int depth, boolean decompression) {
+            this.reader = reader;
+            this.chars = chars;
+            this.position = position;
+            this.limit = limit;
+            this.depth = depth;
+            this.decompression = decompression;
+        }
+        
+    }
+    
+    private final @Nonnull Deque<@Nonnull Layer> layers = new ArrayDeque<>();
+    
+    /**
+     * Returns whether one of the started layers is a decompression or a decryption, depending on the given argument.
+     */
+    @Pure
+    private boolean hasLayer(boolean decompression) {
+        for (@Nonnull Layer layer : layers) {
+            if (layer.decompression == decompression) { return true; }
+        }
+        return false;
+    }
+    
+    /**
+     * Starts a layer with the given inflater or cipher by reading the next Base64 string and decoding the JSON array of its decompressed or decrypted text.
+     */
+    @Impure
+    private void pushLayer(@Nullable Inflater inflater, @Nullable Cipher cipher) throws StreamException {
+        beginValue();
+        expect('"');
+        position -= 1;
+        digest();
+        final @Nullable MessageDigest digest = this.digest;
+        this.digest = null;
+        final @Nonnull String string = readString();
+        this.digest = digest;
+        final @Nonnull byte[] bytes;
+        try {
+            bytes = Base64.getDecoder().decode(string);
+        } catch (@Nonnull IllegalArgumentException exception) {
+            throw error("The string is not valid Base64.");
+        }
+        final @Nonnull ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (inflater != null) {
+            inflater.setInput(bytes);
+            final @Nonnull byte[] buffer = new byte[4096];
+            try {
+                while (!inflater.finished()) {
+                    final int count = inflater.inflate(buffer);
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) { throw error("The compressed section is incomplete."); }
+                    output.write(buffer, 0, count);
+                }
+            } catch (@Nonnull DataFormatException exception) {
+                throw StreamExceptionBuilder.withCause(new IOException(exception)).build();
+            }
+        } else {
+            try {
+                output.write(cipher.doFinal(bytes));
+            } catch (@Nonnull GeneralSecurityException | IOException exception) {
+                throw StreamExceptionBuilder.withCause(new IOException(exception)).build();
+            }
+        }
+        layers.push(new Layer(reader, chars, position, limit, depth, inflater != null));
+        this.reader = new StringReader(new String(output.toByteArray(), StandardCharsets.UTF_8));
+        this.chars = new char[chars.length];
+        this.position = 0;
+        this.limit = 0;
+        this.hashMark = 0;
+        expect('[');
+        enter(null, 0);
+    }
+    
+    /**
+     * Finishes the most recently started layer, which has to be a decompression or a decryption, depending on the given argument.
+     */
+    @Impure
+    private void popLayer(boolean decompression, @Nonnull String message) throws StreamException {
+        Require.that(!layers.isEmpty() && layers.peek().decompression == decompression).orThrow(message);
+        Require.that(layers.peek().depth + 1 == depth).orThrow("The values which were started in the layer have to be finished.");
+        
+        final int count = counts[depth];
+        leave();
+        expect(']');
+        if (peek() >= 0) { throw error("The compressed or encrypted section contains more than a JSON array."); }
+        digest();
+        final @Nonnull Layer layer = layers.pop();
+        this.reader = layer.reader;
+        this.chars = layer.chars;
+        this.position = layer.position;
+        this.limit = layer.limit;
+        this.hashMark = position;
+        if (counts[depth] >= 0) { counts[depth] += count - 1; }
+    }
+    
+    /* -------------------------------------------------- Decompressing -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isDecompressing() {
+        return hasLayer(true);
+    }
+    
+    @Impure
+    @Override
+    public void startDecompressing(@Nonnull Inflater inflater) throws StreamException {
+        pushLayer(inflater, null);
+    }
+    
+    @Impure
+    @Override
+    public void stopDecompressing() throws StreamException {
+        popLayer(true, "The most recently started layer has to be a decompression.");
+    }
+    
+    /* -------------------------------------------------- Decrypting -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isDecrypting() {
+        return hasLayer(false);
+    }
+    
+    @Impure
+    @Override
+    public void startDecrypting(@Nonnull Cipher cipher) throws StreamException {
+        pushLayer(null, cipher);
+    }
+    
+    @Impure
+    @Override
+    public void stopDecrypting() throws StreamException {
+        popLayer(false, "The most recently started layer has to be a decryption.");
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    /**
+     * Closes the reader from which this decoder was created.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        try {
+            (layers.isEmpty() ? reader : layers.peekLast().reader).close();
+        } catch (@Nonnull IOException exception) {
+            throw StreamExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+}
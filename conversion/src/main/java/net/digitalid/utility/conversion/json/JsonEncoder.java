@@ -0,0 +1,752 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Captured;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.exceptions.StreamExceptionBuilder;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder writes the values as JSON text to an appendable without building a document tree.
+ * Objects of non-primitive converters become JSON objects whose members are named after the {@link Converter#getFields(Representation) fields}
+ * of their converter in the {@link Representation#EXTERNAL external representation}, while objects of primitive converters become plain values.
+ * Iterables and primitive arrays become JSON arrays, maps become arrays of key-value pairs and binaries become Base64 strings.
+ * Values which are encoded on the top level are separated by line breaks so that a sequence of objects can be streamed.
+ * A compressed or encrypted section is written as a Base64 string of the compressed or encrypted JSON array of the values encoded in it,
+ * which takes the place of these values and is named after the first of them within a JSON object.
+ * 
+ * @see JsonDecoder
+ */
+@Mutable
+public class JsonEncoder implements Encoder<StreamException> {
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public @Nonnull Representation getRepresentation() {
+        return Representation.EXTERNAL;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    private final @Nonnull Appendable appendable;
+    
+    protected JsonEncoder(@Captured @Nonnull Appendable appendable) {
+        this.appendable = appendable;
+    }
+    
+    /**
+     * Returns a new JSON encoder which writes to the given appendable.
+     * If the appendable is closeable, it is closed when this encoder is closed.
+     */
+    @Pure
+    public static @Nonnull JsonEncoder to(@Captured @Nonnull Appendable appendable) {
+        return new JsonEncoder(appendable);
+    }
+    
+    /**
+     * Returns the given object encoded with the given converter as JSON text.
+     */
+    @Pure
+    public static <@Unspecifiable TYPE> @Nonnull String encode(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) {
+        final @Nonnull StringBuilder string = new StringBuilder();
+        try (@Nonnull JsonEncoder encoder = new JsonEncoder(string)) {
+            encoder.encodeObject(converter, object);
+        } catch (@Nonnull StreamException exception) {
+            throw UncheckedExceptionBuilder.withCause(exception).build();
+        }
+        return string.toString();
+    }
+    
+    /* -------------------------------------------------- Buffering -------------------------------------------------- */
+    
+    /**
+     * Buffers the text so that the appendable is not called for every character.
+     */
+    private @Nonnull StringBuilder text = new StringBuilder(8192);
+    
+    /**
+     * Writes the buffered text to the appendable and clears the buffer.
+     */
+    @Impure
+    private void flush() throws StreamException {
+        digest();
+        try {
+            appendable.append(text);
+        } catch (@Nonnull IOException exception) {
+            throw StreamExceptionBuilder.withCause(exception).build();
+        } finally {
+            text.setLength(0);
+            hashMark = 0;
+        }
+    }
+    
+    /**
+     * Writes the buffered text to the appendable if it is large enough and not part of a compressed or encrypted section.
+     */
+    @Impure
+    private void flushIfFull() throws StreamException {
+        if (text.length() >= 8192 && layers.isEmpty()) { flush(); }
+    }
+    
+    /* -------------------------------------------------- Nesting -------------------------------------------------- */
+    
+    /**
+     * The current nesting depth, where zero is the top level.
+     */
+    private int depth = 0;
+    
+    /**
+     * Stores for each level the layout of the converter of a JSON object or null for a JSON array or a plain value.
+     */
+    private @Nonnull FieldLayout[] layouts = new FieldLayout[16];
+    
+    /**
+     * Stores for each level the number of values that have been encoded or -1 if the level holds a single plain value.
+     */
+    private @Nonnull int[] counts = new int[16];
+    
+    /**
+     * Enters a new level with the given field layout or null for a JSON array.
+     */
+    @Impure
+    private void enter(@Nullable FieldLayout layout, int count) {
+        depth += 1;
+        if (depth == counts.length) {
+            layouts = Arrays.copyOf(layouts, 2 * depth);
+            counts = Arrays.copyOf(counts, 2 * depth);
+        }
+        layouts[depth] = layout;
+        counts[depth] = count;
+    }
+    
+    /**
+     * Leaves the current level.
+     */
+    @Impure
+    private void leave() {
+        Require.that(layouts[depth] == null || counts[depth] == layouts[depth].getFieldNames().size()).orThrow("The converter encoded only $ of its $ fields.", counts[depth], layouts[depth] == null ? 0 : layouts[depth].getFieldNames().size());
+        
+        layouts[depth] = null;
+        depth -= 1;
+    }
+    
+    /**
+     * Writes the separator and, within a JSON object, the name of the next field before a value.
+     * The line breaks between values on the top level are not hashed so that the decoder can start hashing after having checked for more values.
+     */
+    @Impure
+    private void beginValue() {
+        final int count = counts[depth];
+        if (count < 0) { return; }
+        final @Nullable FieldLayout layout = layouts[depth];
+        if (layout != null) {
+            final @Nonnull ImmutableList<String> fields = layout.getFieldNames();
+            Require.that(count < fields.size()).orThrow("The converter encoded more values than its $ fields.", fields.size());
+            
+            if (count > 0) { text.append(','); }
+            appendString(fields.get(count));
+            text.append(':');
+        } else if (count > 0 && depth > 0) {
+            text.append(',');
+        } else if (count > 0) {
+            digest();
+            text.append('\n');
+            hashMark = text.length();
+        }
+        counts[depth] = count + 1;
+    }
+    
+    /**
+     * Ends a value and flushes the buffered text if it is large enough or the value was on the top level.
+     */
+    @Impure
+    private void endValue() throws StreamException {
+        if (depth == 0) { flush(); }
+        else { flushIfFull(); }
+    }
+    
+    /* -------------------------------------------------- Strings -------------------------------------------------- */
+    
+    private static final @Nonnull char[] HEX = "0123456789abcdef".toCharArray();
+    
+    /**
+     * Appends the given string as a JSON string with the necessary characters escaped.
+     */
+    @Impure
+    private void appendString(@Nonnull CharSequence string) {
+        text.append('"');
+        final int length = string.length();
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            switch (c) {
+                case '"': text.append("\\\""); break;
+                case '\\': text.append("\\\\"); break;
+                case '\n': text.append("\\n"); break;
+                case '\r': text.append("\\r"); break;
+                case '\t': text.append("\\t"); break;
+                case '\b': text.append("\\b"); break;
+                case '\f': text.append("\\f"); break;
+                default:
+                    if (c < 0x20) { text.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]); }
+                    else { text.append(c); }
+            }
+        }
+        text.append('"');
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    /**
+     * Encodes the given object with the given converter after the separator has been written.
+     */
+    @Impure
+    private <@Unspecifiable TYPE> void encodeValue(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        if (converter.isPrimitiveConverter()) {
+            enter(null, -1);
+            converter.convert(object, this);
+            leave();
+        } else {
+            text.append('{');
+            enter(FieldLayout.of(converter, Representation.EXTERNAL), 0);
+            converter.convert(object, this);
+            leave();
+            text.append('}');
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) throws StreamException {
+        beginValue();
+        encodeValue(converter, object);
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeNullableObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nullable TYPE object) throws StreamException {
+        beginValue();
+        if (object == null) { text.append("null"); }
+        else { encodeValue(converter, object); }
+        endValue();
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    /**
+     * Encodes the given literal, which is a valid JSON value.
+     */
+    @Impure
+    private void encodeLiteral(@Nonnull String literal) throws StreamException {
+        beginValue();
+        text.append(literal);
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public void encodeBoolean(boolean value) throws StreamException {
+        encodeLiteral(value ? "true" : "false");
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger08(byte value) throws StreamException {
+        encodeInteger64(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger16(short value) throws StreamException {
+        encodeInteger64(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger32(int value) throws StreamException {
+        encodeInteger64(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64(long value) throws StreamException {
+        beginValue();
+        text.append(value);
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger(@Nonnull BigInteger value) throws StreamException {
+        encodeLiteral(value.toString());
+    }
+    
+    /**
+     * Encodes the given decimal as a number or, if it is not finite, as a string since JSON has no literals for such values.
+     */
+    @Impure
+    @Override
+    public void encodeDecimal32(float value) throws StreamException {
+        if (Float.isFinite(value)) { encodeLiteral(Float.toString(value)); }
+        else { encodeString(Float.toString(value)); }
+    }
+    
+    /**
+     * Encodes the given decimal as a number or, if it is not finite, as a string since JSON has no literals for such values.
+     */
+    @Impure
+    @Override
+    public void encodeDecimal64(double value) throws StreamException {
+        if (Double.isFinite(value)) { encodeLiteral(Double.toString(value)); }
+        else { encodeString(Double.toString(value)); }
+    }
+    
+    @Impure
+    @Override
+    public void encodeString01(char value) throws StreamException {
+        encodeString(String.valueOf(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeString64(@Nonnull @MaxSize(64) String string) throws StreamException {
+        encodeString(string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString(@Nonnull String string) throws StreamException {
+        beginValue();
+        appendString(string);
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@Nonnull @Size(16) byte[] bytes) throws StreamException {
+        Require.that(bytes.length == 16).orThrow("The byte array has to have a size of 16 but had a size of $.", bytes.length);
+        
+        encodeBinary(bytes);
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@Nonnull @Size(32) byte[] bytes) throws StreamException {
+        Require.that(bytes.length == 32).orThrow("The byte array has to have a size of 32 but had a size of $.", bytes.length);
+        
+        encodeBinary(bytes);
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@Nonnull byte[] bytes) throws StreamException {
+        encodeString(Base64.getEncoder().encodeToString(bytes));
+    }
+    
+    /**
+     * Encodes the given length of bytes from the given input stream as a Base64 string, which is written in chunks so that the bytes are never held in memory at once.
+     */
+    @Impure
+    @Override
+    public void encodeBinaryStream(@Nonnull InputStream inputStream, @NonNegative int length) throws StreamException {
+        beginValue();
+        text.append('"');
+        // The chunks are a multiple of three bytes long so that only the last chunk is padded.
+        final @Nonnull byte[] chunk = new byte[3 * 1024];
+        int remaining = length;
+        try {
+            while (remaining > 0) {
+                final int size = Math.min(remaining, chunk.length);
+                int offset = 0;
+                while (offset < size) {
+                    final int count = inputStream.read(chunk, offset, size - offset);
+                    if (count < 0) { throw new IOException("The input stream ended before the given length."); }
+                    offset += count;
+                }
+                text.append(new String(Base64.getEncoder().encode(size == chunk.length ? chunk : Arrays.copyOf(chunk, size)), StandardCharsets.US_ASCII));
+                remaining -= size;
+                flushIfFull();
+            }
+        } catch (@Nonnull IOException exception) {
+            throw StreamExceptionBuilder.withCause(exception).build();
+        }
+        text.append('"');
+        endValue();
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeInteger32Array(@Nonnull int[] values) throws StreamException {
+        beginValue();
+        text.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) { text.append(','); }
+            text.append(values[i]);
+        }
+        text.append(']');
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64Array(@Nonnull long[] values) throws StreamException {
+        beginValue();
+        text.append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) { text.append(','); }
+            text.append(values[i]);
+        }
+        text.append(']');
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64Array(@Nonnull double[] values) throws StreamException {
+        beginValue();
+        text.append('[');
+        enter(null, 0);
+        for (double value : values) { encodeDecimal64(value); }
+        leave();
+        text.append(']');
+        endValue();
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) throws StreamException {
+        beginValue();
+        text.append('[');
+        enter(null, 0);
+        for (@Nonnull TYPE element : iterable) { encodeObject(converter, element); }
+        leave();
+        text.append(']');
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) throws StreamException {
+        beginValue();
+        text.append('[');
+        enter(null, 0);
+        for (@Nullable TYPE element : iterable) { encodeNullableObject(converter, element); }
+        leave();
+        text.append(']');
+        endValue();
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) throws StreamException {
+        encodeOrderedIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) throws StreamException {
+        encodeOrderedIterableWithNullableElements(converter, iterable);
+    }
+    
+    /**
+     * Encodes the given map as an array of key-value pairs since the keys of a JSON object have to be strings.
+     */
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMap(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> map) throws StreamException {
+        beginValue();
+        text.append('[');
+        enter(null, 0);
+        for (@Nonnull Map.Entry<@Nonnull KEY, @Nonnull VALUE> entry : map.entrySet()) {
+            beginValue();
+            text.append('[');
+            enter(null, 0);
+            encodeObject(keyConverter, entry.getKey());
+            encodeObject(valueConverter, entry.getValue());
+            leave();
+            text.append(']');
+        }
+        leave();
+        text.append(']');
+        endValue();
+    }
+    
+    /**
+     * Encodes the given map as an array of key-value pairs since the keys of a JSON object have to be strings.
+     */
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMapWithNullableValues(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nullable KEY, @Nullable VALUE> map) throws StreamException {
+        beginValue();
+        text.append('[');
+        enter(null, 0);
+        for (@Nonnull Map.Entry<@Nullable KEY, @Nullable VALUE> entry : map.entrySet()) {
+            beginValue();
+            text.append('[');
+            enter(null, 0);
+            encodeNullableObject(keyConverter, entry.getKey());
+            encodeNullableObject(valueConverter, entry.getValue());
+            leave();
+            text.append(']');
+        }
+        leave();
+        text.append(']');
+        endValue();
+    }
+    
+    /* -------------------------------------------------- Hashing -------------------------------------------------- */
+    
+    private @Nullable MessageDigest digest;
+    
+    /**
+     * Stores the position in the buffered text up to which the text has been hashed.
+     */
+    private int hashMark = 0;
+    
+    /**
+     * Hashes the UTF-8 encoding of the buffered text that has not yet been hashed.
+     */
+    @Impure
+    private void digest() {
+        if (digest != null && text.length() > hashMark) { digest.update(text.substring(hashMark).getBytes(StandardCharsets.UTF_8)); }
+        hashMark = text.length();
+    }
+    
+    @Pure
+    @Override
+    public boolean isHashing() {
+        return digest != null;
+    }
+    
+    /**
+     * Starts hashing the UTF-8 encoding of the text that is written from now on.
+     * The values of compressed or encrypted sections are hashed before they are compressed or encrypted, while the resulting Base64 strings are not hashed.
+     */
+    @Impure
+    @Override
+    public void startHashing(@Nonnull MessageDigest digest) {
+        Require.that(!isHashing()).orThrow("The encoder may not already be hashing.");
+        
+        this.digest = digest;
+        this.hashMark = text.length();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] stopHashing() {
+        Require.that(isHashing()).orThrow("The encoder has to be hashing.");
+        
+        digest();
+        final @Nonnull MessageDigest digest = this.digest;
+        this.digest = null;
+        return digest.digest();
+    }
+    
+    /* -------------------------------------------------- Layers -------------------------------------------------- */
+    
+    /**
+     * A layer stores the state of the encoder before a compression or encryption was started.
+     */
+    private static class Layer {
+        
+        private final @Nonnull StringBuilder text;
+        
+        private final int depth;
+        
+        private final @Nullable Deflater deflater;
+        
+        private final @Nullable Cipher cipher;
+        
+        private Layer(@Nonnull StringBuilder text, int depth, @Nullable Deflater deflater, @Nullable Cipher cipher) {
+            this.text = text;
+            this.depth = depth;
+            this.deflater = deflater;
+            this.cipher = cipher;
+        }
+        
+    }
+    
+    private final @Nonnull Deque<@Nonnull Layer> layers = new ArrayDeque<>();
+    
+    /**
+     * Returns whether one of the started layers is a compression or an encryption, depending on the given argument.
+     */
+    @Pure
+    private boolean hasLayer(boolean compression) {
+        for (@Nonnull Layer layer : layers) {
+            if ((layer.deflater != null) == compression) { return true; }
+        }
+        return false;
+    }
+    
+    /**
+     * Starts a layer with the given deflater or cipher, whose values are collected in a JSON array of their own.
+     */
+    @Impure
+    private void pushLayer(@Nullable Deflater deflater, @Nullable Cipher cipher) {
+        beginValue();
+        digest();
+        layers.push(new Layer(text, depth, deflater, cipher));
+        this.text = new StringBuilder();
+        this.hashMark = 0;
+        text.append('[');
+        enter(null, 0);
+    }
+    
+    /**
+     * Finishes the most recently started layer, which has to be a compression or an encryption, depending on the given argument.
+     * The values of the layer are compressed or encrypted and written as a Base64 string, which counts as the values of the enclosing level.
+     */
+    @Impure
+    private void popLayer(boolean compression, @Nonnull String message) throws StreamException {
+        Require.that(!layers.isEmpty() && (layers.peek().deflater != null) == compression).orThrow(message);
+        Require.that(layers.peek().depth + 1 == depth).orThrow("The values which were started in the layer have to be finished.");
+        
+        final int count = counts[depth];
+        leave();
+        text.append(']');
+        digest();
+        final @Nonnull Layer layer = layers.pop();
+        final @Nonnull byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        final @Nonnull byte[] result;
+        if (layer.deflater != null) {
+            final @Nonnull Deflater deflater = layer.deflater;
+            deflater.setInput(bytes);
+            deflater.finish();
+            final @Nonnull ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final @Nonnull byte[] buffer = new byte[4096];
+            while (!deflater.finished()) { output.write(buffer, 0, deflater.deflate(buffer)); }
+            result = output.toByteArray();
+        } else {
+            try {
+                result = layer.cipher.doFinal(bytes);
+            } catch (@Nonnull GeneralSecurityException exception) {
+                throw StreamExceptionBuilder.withCause(new IOException(exception)).build();
+            }
+        }
+        this.text = layer.text;
+        appendString(Base64.getEncoder().encodeToString(result));
+        this.hashMark = text.length();
+        if (counts[depth] >= 0) { counts[depth] += count - 1; }
+        endValue();
+    }
+    
+    /* -------------------------------------------------- Compressing -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isCompressing() {
+        return hasLayer(true);
+    }
+    
+    @Impure
+    @Override
+    public void startCompressing(@Nonnull Deflater deflater) {
+        pushLayer(deflater, null);
+    }
+    
+    @Impure
+    @Override
+    public void stopCompressing() throws StreamException {
+        popLayer(true, "The most recently started layer has to be a compression.");
+    }
+    
+    /* -------------------------------------------------- Encrypting -------------------------------------------------- */
+    
+    @Pure
+    @Override
+    public boolean isEncrypting() {
+        return hasLayer(false);
+    }
+    
+    @Impure
+    @Override
+    public void startEncrypting(@Nonnull Cipher cipher) {
+        pushLayer(null, cipher);
+    }
+    
+    @Impure
+    @Override
+    public void stopEncrypting() throws StreamException {
+        popLayer(false, "The most recently started layer has to be an encryption.");
+    }
+    
+    /* -------------------------------------------------- Closing -------------------------------------------------- */
+    
+    private boolean closed = false;
+    
+    /**
+     * Finishes all layers that are still open, flushes the buffered text and closes the appendable if it is closeable or flushes it if it is flushable.
+     */
+    @Impure
+    @Override
+    public void close() throws StreamException {
+        if (closed) { return; }
+        closed = true;
+        while (!layers.isEmpty()) { popLayer(layers.peek().deflater != null, ""); }
+        flush();
+        try {
+            if (appendable instanceof Closeable) { ((Closeable) appendable).close(); }
+            else if (appendable instanceof Flushable) { ((Flushable) appendable).flush(); }
+        } catch (@Nonnull IOException exception) {
+            throw StreamExceptionBuilder.withCause(exception).build();
+        }
+    }
+    
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * A converter cache stores a value for each converter, which is computed with the given function when it is requested for the first time.
+ * The values are attached to the modeled type of their converter with a {@link ClassValue}
+ * so that the cache does not prevent the type, its converter and their class loader from being garbage-collected.
+ */
+@Immutable
+class ConverterCache<@Specifiable VALUE> {
+    
+    /* -------------------------------------------------- Function -------------------------------------------------- */
+    
+    private final @Nonnull UnaryFunction<@Nonnull Converter<?, ?>, @Nonnull VALUE> function;
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    /**
+     * Stores the values of the converters of each type, which are usually only one.
+     */
+    private final @Nonnull ClassValue<ConcurrentHashMap<Converter<?, ?>, VALUE>> values = new ClassValue<ConcurrentHashMap<Converter<?, ?>, VALUE>>() {
+        
+        @Pure
+        @Override
+        protected @Nonnull ConcurrentHashMap<Converter<?, ?>, VALUE> computeValue(@Nonnull Class<?> type) {
+            return new ConcurrentHashMap<>(2);
+        }
+        
+    };
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    ConverterCache(@Nonnull UnaryFunction<@Nonnull Converter<?, ?>, @Nonnull VALUE> function) {
+        this.function = function;
+    }
+    
+    /* -------------------------------------------------- Retrieval -------------------------------------------------- */
+    
+    /**
+     * Returns the value of the given converter, which is computed on the first call.
+     */
+    @Pure
+    @Nonnull VALUE get(@Nonnull Converter<?, ?> converter) {
+        final @Nonnull ConcurrentHashMap<Converter<?, ?>, VALUE> valuesOfType = values.get(converter.getType());
+        final @Nullable VALUE value = valuesOfType.get(converter);
+        if (value != null) { return value; }
+        // The value is computed outside of the map as the converter may be initialized lazily and request further values of this cache.
+        final @Nonnull VALUE newValue = function.evaluate(converter);
+        final @Nullable VALUE previousValue = valuesOfType.putIfAbsent(converter, newValue);
+        return previousValue != null ? previousValue : newValue;
+    }
+    
+}
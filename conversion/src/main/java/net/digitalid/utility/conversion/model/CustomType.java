@@ -259,6 +259,12 @@ public class CustomType {
     
     public static final CustomType BINARY = new CustomType(fieldTypeSignature -> fieldTypeSignature.isAssignable(byte[].class) && !fieldTypeSignature.hasMaxSize(256), "BINARY");
     
+    public static final CustomType INTEGER32ARRAY = new CustomType(fieldTypeSignature -> fieldTypeSignature.isAssignable(int[].class), "INTEGER32ARRAY");
+    
+    public static final CustomType INTEGER64ARRAY = new CustomType(fieldTypeSignature -> fieldTypeSignature.isAssignable(long[].class), "INTEGER64ARRAY");
+    
+    public static final CustomType DECIMAL64ARRAY = new CustomType(fieldTypeSignature -> fieldTypeSignature.isAssignable(double[].class), "DECIMAL64ARRAY");
+    
     public static final CustomType BINARYSTREAM = new CustomType(fieldTypeSignature -> fieldTypeSignature.isAssignable(InputStream.class), "BINARYSTREAM");
     
     public static final IterableType SET = new IterableType(fieldTypeSignature -> ProcessingUtility.isRawSubtype(fieldTypeSignature.getTypeMirror(), Set.class), "SET");
@@ -274,7 +280,7 @@ public class CustomType {
     /**
      * A list of custom types that are statically defined in this class.
      */
-    private static final @Nonnull FiniteIterable<@Nonnull CustomType> customTypes = FiniteIterable.of(BOOLEAN, INTEGER08, INTEGER16, INTEGER32, INTEGER64, INTEGER, DECIMAL32, DECIMAL64, STRING1, STRING64, STRING128, STRING, BINARY128, BINARY256, BINARY, SET, LIST, ARRAY, MAP, TUPLE);
+    private static final @Nonnull FiniteIterable<@Nonnull CustomType> customTypes = FiniteIterable.of(BOOLEAN, INTEGER08, INTEGER16, INTEGER32, INTEGER64, INTEGER, DECIMAL32, DECIMAL64, STRING1, STRING64, STRING128, STRING, BINARY128, BINARY256, BINARY, INTEGER32ARRAY, INTEGER64ARRAY, DECIMAL64ARRAY, SET, LIST, ARRAY, MAP, TUPLE);
     
     /* -------------------------------------------------- Predicate -------------------------------------------------- */
     
@@ -414,7 +420,7 @@ public class CustomType {
             final @Nullable List<TypeMirror> componentTypes = ProcessingUtility.getComponentTypes(representingFieldType);
             Require.that(componentTypes.size() == 2).orThrow("Map type does not have 2 component types.");
             return typeImporter.importStaticallyIfPossible(CustomType.class.getCanonicalName() + "." + customType.getTypeName()) + ".of" + Brackets.inRound(getTypeName(componentTypes.get(0), FiniteIterable.of(), typeImporter) + ", " + getTypeName(componentTypes.get(1), FiniteIterable.of(), typeImporter));
-        } else if (representingFieldType.getKind().isPrimitive() || customType == BINARY || customType == BINARY128 || customType == BINARY256) {
+        } else if (representingFieldType.getKind().isPrimitive() || customType == BINARY || customType == BINARY128 || customType == BINARY256 || customType == INTEGER32ARRAY || customType == INTEGER64ARRAY || customType == DECIMAL64ARRAY) {
             return typeImporter.importStaticallyIfPossible(CustomType.class.getCanonicalName() + "." + customType.getTypeName());
         } else {
             @Nonnull String typeName = customType.getTypeName();
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * A field layout describes the fields of a converter in the given representation with the fields of nested converters flattened.
+ * The layout is computed only once per converter and representation and is then retrieved from a cache.
+ * Its fingerprint allows encoders and decoders to check the compatibility of their schemas with a single comparison.
+ */
+@Immutable
+public class FieldLayout {
+    
+    /* -------------------------------------------------- Converter -------------------------------------------------- */
+    
+    private final @Nonnull Converter<?, ?> converter;
+    
+    /**
+     * Returns the converter whose fields are described by this layout.
+     */
+    @Pure
+    public @Nonnull Converter<?, ?> getConverter() {
+        return converter;
+    }
+    
+    /* -------------------------------------------------- Representation -------------------------------------------------- */
+    
+    private final @Nonnull Representation representation;
+    
+    /**
+     * Returns the representation in which the fields are described.
+     */
+    @Pure
+    public @Nonnull Representation getRepresentation() {
+        return representation;
+    }
+    
+    /* -------------------------------------------------- Fields -------------------------------------------------- */
+    
+    private final @Nonnull @NonNullableElements ImmutableList<CustomField> fields;
+    
+    /**
+     * Returns the fields of the converter with the fields of non-primitive nested converters replaced by their own fields.
+     * The names of the flattened fields are prefixed with the names of the enclosing fields, separated by an underline.
+     * A converter that is nested in itself is not flattened again.
+     */
+    @Pure
+    public @Nonnull @NonNullableElements ImmutableList<CustomField> getFields() {
+        return fields;
+    }
+    
+    private final @Nonnull @NonNullableElements ImmutableList<String> columnNames;
+    
+    /**
+     * Returns the names of the flattened fields.
+     */
+    @Pure
+    public @Nonnull @NonNullableElements ImmutableList<String> getColumnNames() {
+        return columnNames;
+    }
+    
+    private final @Nonnull @NonNullableElements ImmutableList<String> fieldNames;
+    
+    /**
+     * Returns the names of the fields of the converter itself, which are not flattened.
+     */
+    @Pure
+    public @Nonnull @NonNullableElements ImmutableList<String> getFieldNames() {
+        return fieldNames;
+    }
+    
+    /**
+     * Adds the fields of the given converter with the given prefix to the given list of fields.
+     */
+    @Pure
+    private static void addFields(@Nonnull Converter<?, ?> converter, @Nonnull Representation representation, @Nullable String prefix, @NonCaptured @Modified @Nonnull Set<Converter<?, ?>> visiting, @NonCaptured @Modified @Nonnull List<CustomField> fields) {
+        visiting.add(converter);
+        for (@Nonnull CustomField field : converter.getFields(representation)) {
+            final @Nonnull CustomType type = field.getCustomType();
+            final @Nonnull String name = (prefix != null ? prefix + "_" : "") + field.getName();
+            if (type instanceof CustomType.CustomConverterType) {
+                final @Nonnull Converter<?, ?> nestedConverter = ((CustomType.CustomConverterType) type).getConverter();
+                if (!nestedConverter.isPrimitiveConverter() && !visiting.contains(nestedConverter)) {
+                    addFields(nestedConverter, representation, name, visiting, fields);
+                    continue;
+                }
+            }
+            fields.add(name.equals(field.getName()) ? field : CustomField.with(type, name, field.getAnnotations()));
+        }
+        visiting.remove(converter);
+    }
+    
+    /* -------------------------------------------------- Fingerprint -------------------------------------------------- */
+    
+    private final long fingerprint;
+    
+    /**
+     * Returns a 64-bit fingerprint of the converted type and the names and types of its fields, including those of nested converters.
+     * The fingerprint is computed with FNV-1a over a canonical description of the schema and is therefore stable across virtual machines.
+     */
+    @Pure
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * Appends a canonical description of the given converter to the given string builder.
+     */
+    @Pure
+    private static void describe(@Nonnull Converter<?, ?> converter, @Nonnull Representation representation, @NonCaptured @Modified @Nonnull Set<Converter<?, ?>> visiting, @NonCaptured @Modified @Nonnull StringBuilder description) {
+        description.append(converter.getTypePackage()).append('.').append(converter.getTypeName());
+        if (converter.isPrimitiveConverter() || !visiting.add(converter)) { return; }
+        description.append('(');
+        for (@Nonnull CustomField field : converter.getFields(representation)) {
+            description.append(field.getName()).append(':');
+            describe(field.getCustomType(), representation, visiting, description);
+            description.append(';');
+        }
+        description.append(')');
+        visiting.remove(converter);
+    }
+    
+    /**
+     * Appends a canonical description of the given type to the given string builder.
+     */
+    @Pure
+    private static void describe(@Nonnull CustomType type, @Nonnull Representation representation, @NonCaptured @Modified @Nonnull Set<Converter<?, ?>> visiting, @NonCaptured @Modified @Nonnull StringBuilder description) {
+        if (type instanceof CustomType.CustomConverterType) {
+            describe(((CustomType.CustomConverterType) type).getConverter(), representation, visiting, description);
+        } else if (type instanceof CustomType.CompositeType) {
+            description.append(type.getTypeName()).append('<');
+            describe(((CustomType.CompositeType) type).getCompositeType(), representation, visiting, description);
+            description.append('>');
+        } else if (type instanceof CustomType.KeyValueType) {
+            description.append(type.getTypeName()).append('<');
+            describe(((CustomType.KeyValueType) type).getKeyType(), representation, visiting, description);
+            description.append(',');
+            describe(((CustomType.KeyValueType) type).getValueType(), representation, visiting, description);
+            description.append('>');
+        } else {
+            description.append(type.getTypeName());
+        }
+    }
+    
+    /**
+     * Returns the 64-bit FNV-1a hash of the given bytes.
+     */
+    @Pure
+    static long hash(@Nonnull byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected FieldLayout(@Nonnull Converter<?, ?> converter, @Nonnull Representation representation) {
+        this.converter = converter;
+        this.representation = representation;
+        
+        final @Nonnull List<CustomField> fields = new ArrayList<>();
+        addFields(converter, representation, null, new HashSet<>(), fields);
+        this.fields = ImmutableList.withElementsOfCollection(fields);
+        
+        final @Nonnull List<String> columnNames = new ArrayList<>(fields.size());
+        for (@Nonnull CustomField field : fields) { columnNames.add(field.getName()); }
+        this.columnNames = ImmutableList.withElementsOfCollection(columnNames);
+        
+        this.fieldNames = ImmutableList.withElementsOf(converter.getFields(representation).map(CustomField::getName));
+        
+        final @Nonnull StringBuilder description = new StringBuilder();
+        describe(converter, representation, new HashSet<>(), description);
+        this.fingerprint = hash(description.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    private static final @Nonnull ConverterCache<FieldLayout> internalLayouts = new ConverterCache<>(converter -> new FieldLayout(converter, Representation.INTERNAL));
+    
+    private static final @Nonnull ConverterCache<FieldLayout> externalLayouts = new ConverterCache<>(converter -> new FieldLayout(converter, Representation.EXTERNAL));
+    
+    /**
+     * Returns the field layout of the given converter in the given representation, which is computed only once per converter.
+     */
+    @Pure
+    public static @Nonnull FieldLayout of(@Nonnull Converter<?, ?> converter, @Nonnull Representation representation) {
+        return (representation == Representation.INTERNAL ? internalLayouts : externalLayouts).get(converter);
+    }
+    
+}
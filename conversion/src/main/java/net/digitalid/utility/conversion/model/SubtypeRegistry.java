@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.contracts.Require;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Immutable;
+
+/**
+ * A subtype registry resolves the most specific converter in the {@link Converter#getSubtypeConverters() subtype hierarchy} of a converter for the runtime class of an object.
+ * The converters of the hierarchy are numbered in depth-first order, starting with the given converter, so that encoders can write a compact tag instead of the name of the type.
+ * The resolution is cached per class with a {@link ClassValue} and takes therefore constant time after the first object of a class.
+ */
+@Immutable
+public class SubtypeRegistry<@Unspecifiable TYPE, @Specifiable PROVIDED> {
+    
+    /* -------------------------------------------------- Converters -------------------------------------------------- */
+    
+    private final @Nonnull @NonNullableElements ImmutableList<Converter<? extends TYPE, PROVIDED>> converters;
+    
+    /**
+     * Returns the converters of the hierarchy in the order of their tags.
+     */
+    @Pure
+    public @Nonnull @NonNullableElements ImmutableList<Converter<? extends TYPE, PROVIDED>> getConverters() {
+        return converters;
+    }
+    
+    /**
+     * Returns the converter with the given tag.
+     */
+    @Pure
+    public @Nonnull Converter<? extends TYPE, PROVIDED> getConverter(@NonNegative int tag) {
+        Require.that(tag >= 0 && tag < converters.size()).orThrow("The tag $ has to be smaller than the number of converters $.", tag, converters.size());
+        
+        return converters.get(tag);
+    }
+    
+    /**
+     * Adds the given converter and the converters of its subtypes in depth-first order to the given list.
+     */
+    @Pure
+    private static <@Unspecifiable TYPE, @Specifiable PROVIDED> void addConverters(@Nonnull Converter<? extends TYPE, PROVIDED> converter, @NonCaptured @Modified @Nonnull List<Converter<? extends TYPE, PROVIDED>> converters) {
+        if (converters.contains(converter)) { return; }
+        converters.add(converter);
+        final @Nullable ImmutableList<? extends Converter<? extends TYPE, PROVIDED>> subtypeConverters = converter.getSubtypeConverters();
+        if (subtypeConverters != null) {
+            for (@Nonnull Converter<? extends TYPE, PROVIDED> subtypeConverter : subtypeConverters) { addConverters(subtypeConverter, converters); }
+        }
+    }
+    
+    /* -------------------------------------------------- Resolution -------------------------------------------------- */
+    
+    /**
+     * Maps the types of the converters to their tags.
+     */
+    private final @Nonnull Map<Class<?>, Integer> tagsOfTypes = new HashMap<>();
+    
+    /**
+     * Caches the tag of the most specific converter for each class or -1 if no converter of the hierarchy applies.
+     */
+    private final @Nonnull ClassValue<Integer> tags = new ClassValue<Integer>() {
+        
+        @Pure
+        @Override
+        protected @Nonnull Integer computeValue(@Nonnull Class<?> type) {
+            final @Nullable Integer tag = tagsOfTypes.get(type);
+            if (tag != null) { return tag; }
+            int result = -1;
+            final @Nullable Class<?> superclass = type.getSuperclass();
+            if (superclass != null) { result = get(superclass); }
+            for (@Nonnull Class<?> superinterface : type.getInterfaces()) { result = moreSpecific(result, get(superinterface)); }
+            return result;
+        }
+        
+    };
+    
+    /**
+     * Returns the tag of the converter whose type is more specific.
+     */
+    @Pure
+    private int moreSpecific(int tag, int other) {
+        if (tag < 0) { return other; }
+        if (other < 0) { return tag; }
+        return converters.get(tag).getType().isAssignableFrom(converters.get(other).getType()) ? other : tag;
+    }
+    
+    /**
+     * Returns the tag of the most specific converter for the given class.
+     * 
+     * @throws IllegalArgumentException if no converter of the hierarchy applies to the given class.
+     */
+    @Pure
+    public @NonNegative int getTag(@Nonnull Class<?> type) {
+        final int tag = tags.get(type);
+        if (tag < 0) { throw new IllegalArgumentException("No converter in the hierarchy of " + converters.get(0).getTypeName() + " applies to " + type.getName() + "."); }
+        return tag;
+    }
+    
+    /**
+     * Returns the most specific converter for the runtime class of the given object.
+     * 
+     * @throws IllegalArgumentException if no converter of the hierarchy applies to the class of the given object.
+     */
+    @Pure
+    @SuppressWarnings("unchecked")
+    public <@Unspecifiable SUBTYPE extends TYPE> @Nonnull Converter<SUBTYPE, PROVIDED> getConverter(@Nonnull SUBTYPE object) {
+        return (Converter<SUBTYPE, PROVIDED>) converters.get(getTag(object.getClass()));
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected SubtypeRegistry(@Nonnull Converter<TYPE, PROVIDED> converter) {
+        final @Nonnull List<Converter<? extends TYPE, PROVIDED>> converters = new ArrayList<>();
+        addConverters(converter, converters);
+        this.converters = ImmutableList.withElementsOfCollection(converters);
+        for (int i = converters.size() - 1; i >= 0; i--) { tagsOfTypes.put(converters.get(i).getType(), i); }
+    }
+    
+    /* -------------------------------------------------- Cache -------------------------------------------------- */
+    
+    private static final @Nonnull ConverterCache<SubtypeRegistry<?, ?>> registries = new ConverterCache<>(SubtypeRegistry::new);
+    
+    /**
+     * Returns the subtype registry of the given converter, which is computed only once per converter.
+     */
+    @Pure
+    @SuppressWarnings("unchecked")
+    public static <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull SubtypeRegistry<TYPE, PROVIDED> of(@Nonnull Converter<TYPE, PROVIDED> converter) {
+        return (SubtypeRegistry<TYPE, PROVIDED>) registries.get(converter);
+    }
+    
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
+import net.digitalid.utility.conversion.converters.Integer32Converter;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.functional.iterables.InfiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class ByteBufferEncoderTest {
+    
+    @Test
+    public void testValues() throws Exception {
+        final @Nonnull byte[] bytes = encode(Fixtures::encodeValues);
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decodeValues(decoder);
+        }
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(ByteBuffer.wrap(bytes), Representation.EXTERNAL)) {
+            decodeValues(decoder);
+        }
+    }
+    
+    @Test
+    public void testStreaming() throws Exception {
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeOrderedIterable(Integer32Converter.INSTANCE, InfiniteIterable.iterate(0, i -> i + 1).limit(100_000));
+            encoder.encodeString("end");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            final @Nonnull FiniteIterable<@Nonnull Integer> iterable = decoder.streamOrderedIterable(Integer32Converter.INSTANCE, null);
+            assertEquals(100_000, iterable.size());
+            assertEquals(Integer.valueOf(999_000), iterable.filter(i -> i % 100 == 0).map(i -> i * 10).reduce((a, b) -> b));
+            assertEquals("end", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testSlices() throws Exception {
+        final @Nonnull ByteBuffer buffer = ByteBuffer.wrap(encode(encoder -> {
+            encoder.encodeBinary(ByteBuffer.wrap(new byte[] {1, 2, 3}));
+            encoder.encodeBinary128(ByteBuffer.allocate(16));
+        }));
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(buffer, Representation.EXTERNAL)) {
+            final @Nonnull ByteBuffer slice = decoder.decodeBinarySlice();
+            assertTrue(slice.isReadOnly());
+            assertEquals(ByteBuffer.wrap(new byte[] {1, 2, 3}), slice);
+            assertEquals(ByteBuffer.allocate(16), decoder.decodeBinary128Slice());
+        }
+    }
+    
+    @Test
+    public void testBinaryStream() throws Exception {
+        final @Nonnull byte[] content = new byte[1_000];
+        new Random(42).nextBytes(content);
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeBinaryStream(new ByteArrayInputStream(content), content.length);
+            encoder.encodeString("after");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(ByteBuffer.wrap(bytes), Representation.EXTERNAL)) {
+            final @Nonnull InputStream inputStream = decoder.decodeBinaryStream();
+            assertEquals("after", decoder.decodeString());
+            assertEquals(content.length, inputStream.available());
+            assertEquals(content[0] & 0xFF, inputStream.read());
+            final @Nonnull byte[] rest = new byte[content.length];
+            assertEquals(content.length - 1, inputStream.read(rest));
+            assertArrayEquals(Arrays.copyOfRange(content, 1, content.length), Arrays.copyOf(rest, content.length - 1));
+            assertEquals(-1, inputStream.read());
+        }
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(new ByteArrayInputStream(bytes), Representation.EXTERNAL)) {
+            final @Nonnull InputStream inputStream = decoder.decodeBinaryStream();
+            final @Nonnull byte[] decoded = new byte[content.length];
+            assertEquals(content.length, inputStream.read(decoded));
+            assertArrayEquals(content, decoded);
+            assertEquals("after", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testLargeBinaryStream() throws Exception {
+        final @Nonnull byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeBinaryStream(new ByteArrayInputStream(content), content.length);
+            encoder.encodeBinaryStream(new ByteArrayInputStream(content), content.length);
+            encoder.encodeString("after");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(new ByteArrayInputStream(bytes), Representation.EXTERNAL)) {
+            final @Nonnull InputStream inputStream = decoder.decodeBinaryStream();
+            assertEquals(content[0] & 0xFF, inputStream.read());
+            assertEquals(999, inputStream.skip(999));
+            final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final @Nonnull byte[] chunk = new byte[7_000];
+            for (int count = inputStream.read(chunk); count >= 0; count = inputStream.read(chunk)) { outputStream.write(chunk, 0, count); }
+            assertArrayEquals(Arrays.copyOfRange(content, 1_000, content.length), outputStream.toByteArray());
+            
+            final @Nonnull InputStream unread = decoder.decodeBinaryStream();
+            assertEquals(content[0] & 0xFF, unread.read());
+            assertEquals("after", decoder.decodeString());
+            try {
+                unread.read();
+                fail("The binary stream should no longer be valid.");
+            } catch (@Nonnull IOException exception) {
+                assertTrue(exception.getMessage().contains("no longer valid"));
+            }
+        }
+    }
+    
+    @Test
+    public void testFileTransfer() throws Exception {
+        final @Nonnull byte[] content = new byte[300_000];
+        new Random(42).nextBytes(content);
+        final @Nonnull Path source = Files.createTempFile("source", ".bin");
+        final @Nonnull Path encoding = Files.createTempFile("encoding", ".bin");
+        final @Nonnull Path target = Files.createTempFile("target", ".bin");
+        try {
+            Files.write(source, content);
+            try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.to(FileChannel.open(encoding, StandardOpenOption.WRITE), Representation.EXTERNAL); @Nonnull FileInputStream inputStream = new FileInputStream(source.toFile())) {
+                encoder.encodeString("before");
+                encoder.encodeBinaryStream(inputStream, content.length);
+                encoder.encodeString("after");
+            }
+            try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(FileChannel.open(encoding), Representation.EXTERNAL); @Nonnull FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                assertEquals("before", decoder.decodeString());
+                assertEquals(content.length, decoder.decodeBinaryStream(channel, 0));
+                assertEquals("after", decoder.decodeString());
+            }
+            assertArrayEquals(content, Files.readAllBytes(target));
+        } finally {
+            Files.delete(source);
+            Files.delete(encoding);
+            Files.delete(target);
+        }
+    }
+    
+    @Test
+    public void testVarints() throws Exception {
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeInteger32(-1);
+            encoder.encodeInteger64(300);
+        });
+        assertEquals(BinaryFormat.sizeOfInteger32(-1) + BinaryFormat.sizeOfInteger64(300), bytes.length);
+        assertEquals(3, bytes.length);
+    }
+    
+    @Test(expected = StreamException.class)
+    public void testOverflow() throws Exception {
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(ByteBuffer.allocate(4), Representation.EXTERNAL)) {
+            encoder.encodeString("too long");
+        }
+    }
+    
+    @Test
+    public void testBatch() throws Exception {
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeBatch(StringConverter.INSTANCE, InfiniteIterable.iterate(0, i -> i + 1).limit(10_000).map(i -> TEXT + i));
+            encoder.encodeString("end");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            int i = 0;
+            for (@Nonnull String string : decoder.streamBatch(StringConverter.INSTANCE, null)) { assertEquals(TEXT + i++, string); }
+            assertEquals(10_000, i);
+            assertEquals("end", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testBatchFailure() throws Exception {
+        final @Nonnull RecordConverter converter = new RecordConverter() {
+            @Override
+            public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] record, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+                if ((Integer) record[0] == 500) { throw new IllegalStateException("The record cannot be converted."); }
+                super.convert(record, encoder);
+            }
+        };
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.to(new ByteArrayOutputStream(), Representation.EXTERNAL)) {
+            encoder.encodeBatch(converter, InfiniteIterable.iterate(0, i -> i + 1).limit(1_000).map(i -> new Object[] {i, new String[0], TEXT}));
+            fail("The encoding of the batch should have failed.");
+        } catch (@Nonnull StreamException exception) {
+            assertTrue(exception.getCause().getCause() instanceof IllegalStateException);
+        }
+    }
+    
+    @Test
+    public void testPrimitiveArrays() throws Exception {
+        final @Nonnull Random random = new Random(42);
+        final @Nonnull int[] integers = random.ints(100_001).toArray();
+        final @Nonnull long[] longs = random.longs(50_001).toArray();
+        final @Nonnull double[] doubles = random.doubles(50_001).toArray();
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeString01('x');
+            encoder.encodeInteger32Array(integers);
+            encoder.encodeInteger64Array(longs);
+            encoder.encodeDecimal64Array(doubles);
+            encoder.encodeInteger32Array(new int[0]);
+        });
+        assertEquals(2 + BinaryFormat.sizeOfInteger32Array(integers) + BinaryFormat.sizeOfInteger64Array(longs) + BinaryFormat.sizeOfDecimal64Array(doubles) + 1, bytes.length);
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            assertEquals('x', decoder.decodeString01());
+            assertTrue(Arrays.equals(integers, decoder.decodeInteger32Array()));
+            assertTrue(Arrays.equals(longs, decoder.decodeInteger64Array()));
+            assertTrue(Arrays.equals(doubles, decoder.decodeDecimal64Array()));
+            assertEquals(0, decoder.decodeInteger32Array().length);
+        }
+    }
+    
+    @Test
+    public void testLayers() throws Exception {
+        final @Nonnull SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+        final @Nonnull IvParameterSpec iv = new IvParameterSpec(new byte[16]);
+        final @Nonnull Cipher encryption = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        encryption.init(Cipher.ENCRYPT_MODE, key, iv);
+        final @Nonnull byte[][] encoding = encodeLayers(encryption, 1, false);
+        
+        final @Nonnull Cipher decryption = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        decryption.init(Cipher.DECRYPT_MODE, key, iv);
+        decodeLayers(encoding, decryption, 1, false);
+    }
+    
+    /**
+     * Encodes the values the given number of times in layers with the given encryption and returns the encoding and its hash.
+     */
+    private static @Nonnull byte[][] encodeLayers(@Nonnull Cipher encryption, int times, boolean pipelining) throws Exception {
+        final @Nonnull byte[][] hash = new byte[1][];
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            if (pipelining) { encoder.startPipelining(4); }
+            encoder.encodeString("plain");
+            encoder.startHashing(MessageDigest.getInstance("SHA-256"));
+            encoder.startEncrypting(encryption);
+            encoder.startCompressing(new Deflater());
+            for (int i = 0; i < times; i++) { encodeValues(encoder); }
+            encoder.stopCompressing();
+            encoder.stopEncrypting();
+            hash[0] = encoder.stopHashing();
+            encoder.encodeString("plain");
+        });
+        return new byte[][] {bytes, hash[0]};
+    }
+    
+    /**
+     * Decodes the values the given number of times in layers with the given decryption and checks the hash of the given encoding.
+     */
+    private static void decodeLayers(@Nonnull byte[][] encoding, @Nonnull Cipher decryption, int times, boolean pipelining) throws Exception {
+        try (@Nonnull ByteBufferDecoder decoder = decoder(encoding[0])) {
+            if (pipelining) {
+                decoder.startPipelining(4);
+                assertTrue(decoder.isPipelining());
+            }
+            assertEquals("plain", decoder.decodeString());
+            decoder.startHashing(MessageDigest.getInstance("SHA-256"));
+            decoder.startDecrypting(decryption);
+            decoder.startDecompressing(new Inflater());
+            for (int i = 0; i < times; i++) { decodeValues(decoder); }
+            decoder.stopDecompressing();
+            decoder.stopDecrypting();
+            assertArrayEquals(encoding[1], decoder.stopHashing());
+            assertEquals("plain", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testPipelining() throws Exception {
+        final @Nonnull SecretKeySpec key = new SecretKeySpec(new byte[16], "AES");
+        final @Nonnull IvParameterSpec iv = new IvParameterSpec(new byte[16]);
+        final @Nonnull Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, iv);
+        final @Nonnull byte[][] sequential = encodeLayers(cipher, 200, false);
+        cipher.init(Cipher.ENCRYPT_MODE, key, iv);
+        final @Nonnull byte[][] pipelined = encodeLayers(cipher, 200, true);
+        assertArrayEquals(sequential[1], pipelined[1]);
+        
+        cipher.init(Cipher.DECRYPT_MODE, key, iv);
+        decodeLayers(pipelined, cipher, 200, true);
+    }
+    
+    @Test
+    public void testRecord() throws Exception {
+        final @Nonnull RecordConverter converter = new RecordConverter();
+        final @Nonnull Object[] record = {-7, new String[] {"a", null, TEXT}, "label"};
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeRecord(converter, record);
+            encoder.encodeRecord(converter, record);
+            encoder.encodeString("end");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(ByteBuffer.wrap(bytes), Representation.EXTERNAL)) {
+            final @Nonnull Object[] decoded = decoder.decodeRecord(converter, null);
+            assertEquals(-7, decoded[0]);
+            assertArrayEquals((Object[]) record[1], (Object[]) decoded[1]);
+            assertEquals("label", decoded[2]);
+            
+            final @Nonnull Map<@Nonnull CustomField, Object> projection = decoder.decodeProjection(converter, FiniteIterable.of(RecordConverter.LABEL));
+            assertEquals(1, projection.size());
+            assertEquals("label", projection.get(RecordConverter.LABEL));
+            assertEquals("end", decoder.decodeString());
+        }
+    }
+    
+    /**
+     * Converts scores, which map nullable names to nullable points, followed by a label, which are represented as arrays.
+     */
+    private static class ScoresConverter implements Converter<Object[], Void> {
+        
+        private static final @Nonnull CustomField SCORES = CustomField.with(CustomType.MAP.of(CustomType.STRING, CustomType.INTEGER32), "scores");
+        
+        private static final @Nonnull CustomField LABEL = CustomField.with(CustomType.STRING, "label");
+        
+        @Override
+        public @Nonnull Class<Object[]> getType() {
+            return Object[].class;
+        }
+        
+        @Override
+        public @Nonnull String getTypeName() {
+            return "Scores";
+        }
+        
+        @Override
+        public @Nonnull String getTypePackage() {
+            return "net.digitalid.utility.conversion.buffer";
+        }
+        
+        @Override
+        public @Nonnull ImmutableList<CustomField> getFields(@Nonnull Representation representation) {
+            return ImmutableList.withElements(SCORES, LABEL);
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] scores, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            encoder.encodeMapWithNullableValues(StringConverter.INSTANCE, Integer32Converter.INSTANCE, (Map<String, Integer>) scores[0]);
+            encoder.encodeString((String) scores[1]);
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> @Nonnull Object[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+            final @Nonnull Map<String, Integer> map = decoder.decodeMapWithNullableValues(StringConverter.INSTANCE, null, Integer32Converter.INSTANCE, null, new LinkedHashMap<>());
+            return new Object[] {map, decoder.decodeString()};
+        }
+        
+    }
+    
+    @Test
+    public void testProjectionAfterNullableMap() throws Exception {
+        final @Nonnull ScoresConverter converter = new ScoresConverter();
+        final @Nonnull Map<String, Integer> map = new LinkedHashMap<>();
+        map.put(null, 1);
+        map.put("a", null);
+        map.put("b", 2);
+        final @Nonnull Object[] scores = {map, "label"};
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeRecord(converter, scores);
+            encoder.encodeRecord(converter, scores);
+            encoder.encodeColumns(converter, FiniteIterable.of(scores, scores));
+            encoder.encodeString("end");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            assertEquals(Collections.singletonMap(ScoresConverter.LABEL, "label"), decoder.decodeProjection(converter, FiniteIterable.of(ScoresConverter.LABEL)));
+            final @Nonnull Map<@Nonnull CustomField, Object> projection = decoder.decodeProjection(converter, FiniteIterable.of(ScoresConverter.SCORES, ScoresConverter.LABEL));
+            assertEquals(map, projection.get(ScoresConverter.SCORES));
+            assertEquals("label", projection.get(ScoresConverter.LABEL));
+            assertEquals(Arrays.asList(map, map), decoder.decodeColumn(converter, ScoresConverter.SCORES));
+            assertEquals("end", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testDelta() throws Exception {
+        final @Nonnull RecordConverter converter = new RecordConverter();
+        final @Nonnull Object[] oldRecord = {-7, new String[] {"a", null, TEXT}, "label"};
+        final @Nonnull Object[] newRecord = {-7, new String[] {"a", null, TEXT}, "changed"};
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeDelta(converter, oldRecord, newRecord);
+            encoder.encodeDelta(converter, oldRecord, oldRecord);
+            encoder.encodeString("end");
+        });
+        assertTrue(bytes.length < SizingEncoder.getEncodedSize(converter, newRecord));
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            final @Nonnull Object[] decoded = decoder.decodeDelta(converter, null, oldRecord);
+            assertEquals(-7, decoded[0]);
+            assertArrayEquals((Object[]) oldRecord[1], (Object[]) decoded[1]);
+            assertEquals("changed", decoded[2]);
+            assertEquals("label", decoder.decodeDelta(converter, null, oldRecord)[2]);
+            assertEquals("end", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testColumns() throws Exception {
+        final @Nonnull RecordConverter converter = new RecordConverter();
+        final @Nonnull Object[][] records = new Object[1000][];
+        for (int i = 0; i < records.length; i++) { records[i] = new Object[] {i, new String[] {"n" + i % 7}, "label"}; }
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeColumns(converter, FiniteIterable.of(records));
+            encoder.encodeColumns(converter, FiniteIterable.of(records));
+            encoder.encodeString("end");
+        });
+        assertTrue(bytes.length / 2 < records.length * SizingEncoder.getEncodedSize(converter, records[500]));
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            final @Nonnull List<Object[]> decoded = decoder.decodeColumns(converter, null);
+            assertEquals(records.length, decoded.size());
+            for (int i = 0; i < records.length; i++) {
+                assertEquals(i, decoded.get(i)[0]);
+                assertArrayEquals((Object[]) records[i][1], (Object[]) decoded.get(i)[1]);
+                assertEquals("label", decoded.get(i)[2]);
+            }
+            final @Nonnull List<Object> numbers = decoder.decodeColumn(converter, RecordConverter.NUMBER);
+            assertEquals(records.length, numbers.size());
+            assertEquals(999, numbers.get(999));
+            assertEquals("end", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testReferences() throws Exception {
+        final @Nonnull RecordConverter converter = new RecordConverter();
+        final @Nonnull Object[] shared = {-7, new String[] {"a", null, TEXT}, "label"};
+        final @Nonnull Object[][] records = new Object[100][];
+        for (int i = 0; i < records.length; i++) { records[i] = i % 10 == 0 ? new Object[] {i, new String[0], "other"} : shared; }
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.startReferencing(false);
+            encoder.encodeOrderedIterable(converter, FiniteIterable.of(records));
+            encoder.stopReferencing();
+            encoder.encodeObject(converter, shared);
+        });
+        assertTrue(bytes.length < 10 * SizingEncoder.getEncodedSize(converter, shared) + 10 * SizingEncoder.getEncodedSize(converter, records[0]) + 100);
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decoder.startReferencing();
+            final @Nonnull Object[] decoded = decoder.decodeOrderedIterable(converter, null, ArrayCollector::with);
+            decoder.stopReferencing();
+            assertEquals(records.length, decoded.length);
+            assertSame(decoded[1], decoded[99]);
+            assertNotSame(decoded[0], decoded[10]);
+            assertEquals(90, ((Object[]) decoded[90])[0]);
+            assertEquals("label", ((Object[]) decoded[55])[2]);
+            assertEquals(-7, decoder.decodeObject(converter, null)[0]);
+        }
+    }
+    
+}
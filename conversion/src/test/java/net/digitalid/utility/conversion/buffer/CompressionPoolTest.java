@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.functional.iterables.InfiniteIterable;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class CompressionPoolTest {
+    
+    private static @Nonnull byte[] compress(@Nonnull CompressionPool pool, @Nonnull String message) throws Exception {
+        final @Nonnull Deflater deflater = pool.acquireDeflater();
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.startCompressing(deflater);
+            encoder.encodeString(message);
+            encoder.stopCompressing();
+        });
+        pool.release(deflater);
+        return bytes;
+    }
+    
+    private static @Nonnull String decompress(@Nonnull CompressionPool pool, @Nonnull byte[] bytes) throws Exception {
+        final @Nonnull Inflater inflater = pool.acquireInflater();
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(ByteBuffer.wrap(bytes), Representation.EXTERNAL)) {
+            decoder.startDecompressing(inflater);
+            final @Nonnull String message = decoder.decodeString();
+            decoder.stopDecompressing();
+            return message;
+        } finally {
+            pool.release(inflater);
+        }
+    }
+    
+    @Test
+    public void testCompressionPool() throws Exception {
+        final @Nonnull FiniteIterable<@Nonnull String> samples = InfiniteIterable.iterate(0, i -> i + 1).limit(50).map(i -> "{\"user\":\"user" + i + "@example.org\",\"status\":\"active\"}");
+        final @Nonnull byte[] dictionary = CompressionPool.trainDictionary(StringConverter.INSTANCE, samples, 1024);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 1024);
+        
+        final @Nonnull CompressionPool plainPool = CompressionPool.with(Deflater.BEST_COMPRESSION);
+        final @Nonnull CompressionPool primedPool = CompressionPool.with(Deflater.BEST_COMPRESSION, dictionary);
+        final @Nonnull String message = "{\"user\":\"user1234@example.org\",\"status\":\"active\"}";
+        for (int i = 0; i < 3; i++) {
+            final @Nonnull byte[] plain = compress(plainPool, message);
+            final @Nonnull byte[] primed = compress(primedPool, message);
+            assertTrue(primed.length < plain.length);
+            assertEquals(message, decompress(plainPool, plain));
+            assertEquals(message, decompress(primedPool, primed));
+        }
+    }
+    
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Crc32cTest {
+    
+    @Test
+    public void testCrc32c() {
+        final @Nonnull ByteBuffer buffer = ByteBuffer.wrap("123456789".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(0xE3069283, Crc32c.compute(buffer));
+        assertEquals(0xE3069283, Crc32c.computeWithTables(buffer));
+        final @Nonnull byte[] bytes = new byte[1000];
+        new Random(7).nextBytes(bytes);
+        assertEquals(Crc32c.compute(ByteBuffer.wrap(bytes, 3, 990)), Crc32c.computeWithTables(ByteBuffer.wrap(bytes, 3, 990)));
+    }
+    
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Provides the values and the encode-then-decode helpers which are shared by the conversion tests.
+ */
+public class Fixtures {
+    
+    public static final @Nonnull String TEXT = "Hällo Wörld – 😀";
+    
+    private static final @Nonnull SecretKeySpec KEY = new SecretKeySpec(new byte[16], "AES");
+    
+    private static final @Nonnull IvParameterSpec IV = new IvParameterSpec(new byte[16]);
+    
+    /**
+     * Returns a new cipher which is initialized with the given mode and the fixed key of the tests.
+     */
+    public static @Nonnull Cipher getCipher(int mode) {
+        try {
+            final @Nonnull Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(mode, KEY, IV);
+            return cipher;
+        } catch (@Nonnull GeneralSecurityException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+    
+    /**
+     * Encodes a sample of every kind of value with the given encoder.
+     */
+    public static void encodeValues(@Nonnull Encoder<?> encoder) throws Exception {
+        encoder.encodeBoolean(true);
+        encoder.encodeInteger08((byte) -8);
+        encoder.encodeInteger16((short) 1600);
+        encoder.encodeInteger32(-1);
+        encoder.encodeInteger32(Integer.MIN_VALUE);
+        encoder.encodeInteger64(Long.MAX_VALUE);
+        encoder.encodeInteger(BigInteger.valueOf(-123456789));
+        encoder.encodeDecimal32(3.5f);
+        encoder.encodeDecimal64(-2.25);
+        encoder.encodeString01('ß');
+        encoder.encodeString(TEXT);
+        encoder.encodeBinary(new byte[100_000]);
+        encoder.encodeOrderedIterable(StringConverter.INSTANCE, FiniteIterable.of("a", "bc", TEXT));
+        encoder.encodeNullableObject(StringConverter.INSTANCE, null);
+    }
+    
+    /**
+     * Decodes and checks the values of {@link #encodeValues(Encoder)} with the given decoder.
+     */
+    public static void decodeValues(@Nonnull Decoder<?> decoder) throws Exception {
+        assertTrue(decoder.decodeBoolean());
+        assertEquals(-8, decoder.decodeInteger08());
+        assertEquals(1600, decoder.decodeInteger16());
+        assertEquals(-1, decoder.decodeInteger32());
+        assertEquals(Integer.MIN_VALUE, decoder.decodeInteger32());
+        assertEquals(Long.MAX_VALUE, decoder.decodeInteger64());
+        assertEquals(BigInteger.valueOf(-123456789), decoder.decodeInteger());
+        assertEquals(3.5f, decoder.decodeDecimal32(), 0);
+        assertEquals(-2.25, decoder.decodeDecimal64(), 0);
+        assertEquals('ß', decoder.decodeString01());
+        assertEquals(TEXT, decoder.decodeString());
+        assertArrayEquals(new byte[100_000], decoder.decodeBinary());
+        assertArrayEquals(new Object[] {"a", "bc", TEXT}, decoder.decodeOrderedIterable(StringConverter.INSTANCE, null, ArrayCollector::with));
+        assertNull(decoder.decodeNullableObject(StringConverter.INSTANCE, null));
+    }
+    
+    /**
+     * Models an action that encodes values with a byte buffer encoder.
+     */
+    @FunctionalInterface
+    public static interface Encoding {
+        
+        public void encode(@Nonnull ByteBufferEncoder encoder) throws Exception;
+        
+    }
+    
+    /**
+     * Returns the bytes which the given encoding produces in the external representation.
+     */
+    public static @Nonnull byte[] encode(@Nonnull Encoding encoding) throws Exception {
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.to(outputStream, Representation.EXTERNAL)) {
+            encoding.encode(encoder);
+        }
+        return outputStream.toByteArray();
+    }
+    
+    /**
+     * Returns a decoder that reads the given bytes in the external representation as a stream.
+     */
+    public static @Nonnull ByteBufferDecoder decoder(@Nonnull byte[] bytes) {
+        return ByteBufferDecoder.from(new ByteArrayInputStream(bytes), Representation.EXTERNAL);
+    }
+    
+}
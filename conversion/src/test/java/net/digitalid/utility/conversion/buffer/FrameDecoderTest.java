@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class FrameDecoderTest {
+    
+    @Test
+    public void testFrames() throws Exception {
+        final @Nonnull RecordConverter converter = new RecordConverter();
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull FrameEncoder encoder = FrameEncoder.to(outputStream, Representation.EXTERNAL)) {
+            for (int i = 0; i < 100; i++) { encoder.encodeObject(converter, new Object[] {i % 10, new String[] {TEXT}, "label"}); }
+        }
+        final @Nonnull byte[] bytes = outputStream.toByteArray();
+        
+        int count = 0;
+        for (@Nonnull ByteBuffer part : FrameDecoder.split(ByteBuffer.wrap(bytes), 4)) {
+            final @Nonnull FrameDecoder decoder = FrameDecoder.from(part, Representation.EXTERNAL);
+            while (decoder.hasRemaining()) { assertEquals(count++ % 10, decoder.decodeObject(converter, null)[0]); }
+        }
+        assertEquals(100, count);
+        
+        final int frameSize = bytes.length / 100;
+        bytes[frameSize + FrameEncoder.HEADER_SIZE + 1] ^= 1;
+        bytes[3 * frameSize + 5] ^= 1;
+        final @Nonnull FrameDecoder decoder = FrameDecoder.from(ByteBuffer.wrap(bytes, 0, bytes.length - 1), Representation.EXTERNAL);
+        assertEquals(0, decoder.decodeObject(converter, null)[0]);
+        try {
+            decoder.decodeObject(converter, null);
+            fail();
+        } catch (@Nonnull RecoveryException exception) {}
+        assertEquals(2, decoder.decodeObject(converter, null)[0]);
+        try {
+            decoder.decodeObject(converter, null);
+            fail();
+        } catch (@Nonnull RecoveryException exception) {}
+        assertEquals(frameSize, decoder.resynchronize());
+        for (int i = 4; i < 99; i++) { assertEquals(i % 10, decoder.decodeObject(converter, null)[0]); }
+        try {
+            decoder.decodeObject(converter, null);
+            fail();
+        } catch (@Nonnull StreamException exception) {}
+    }
+    
+}
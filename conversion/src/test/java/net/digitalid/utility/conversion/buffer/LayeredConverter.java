@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.getCipher;
+
+/**
+ * Converts records like the record converter but compresses and encrypts the names.
+ */
+class LayeredConverter extends RecordConverter {
+    
+    @Override
+    public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] record, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+        encoder.encodeInteger32((Integer) record[0]);
+        encoder.startEncrypting(getCipher(Cipher.ENCRYPT_MODE));
+        encoder.startCompressing(new Deflater());
+        encoder.encodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, FiniteIterable.of((String[]) record[1]));
+        encoder.stopCompressing();
+        encoder.stopEncrypting();
+        encoder.encodeString((String) record[2]);
+    }
+    
+    @Override
+    public <EXCEPTION extends ConnectionException> @Nonnull Object[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+        final int number = decoder.decodeInteger32();
+        decoder.startDecrypting(getCipher(Cipher.DECRYPT_MODE));
+        decoder.startDecompressing(new Inflater());
+        final @Nonnull Object[] names = decoder.decodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, null, ArrayCollector::with);
+        decoder.stopDecompressing();
+        decoder.stopDecrypting();
+        return new Object[] {number, names, decoder.decodeString()};
+    }
+    
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NonBlockingDecoderTest {
+    
+    @Test
+    public void testNonBlocking() throws Exception {
+        final int count = 20000;
+        final @Nonnull char[] characters = new char[1000];
+        Arrays.fill(characters, 'x');
+        final @Nonnull String payload = new String(characters);
+        try (@Nonnull ServerSocketChannel server = ServerSocketChannel.open(); @Nonnull Selector selector = Selector.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            final @Nonnull SocketChannel client = SocketChannel.open(server.getLocalAddress());
+            final @Nonnull SocketChannel accepted = server.accept();
+            client.configureBlocking(false);
+            accepted.configureBlocking(false);
+            try (@Nonnull NonBlockingEncoder encoder = NonBlockingEncoder.to(client, Representation.EXTERNAL, 1 << 16);
+                 @Nonnull NonBlockingDecoder decoder = NonBlockingDecoder.from(accepted, Representation.EXTERNAL, 1 << 16)) {
+                int offered = 0;
+                while (offered < count && encoder.offer(StringConverter.INSTANCE, offered + payload)) { offered++; }
+                assertTrue(offered < count);
+                
+                final @Nonnull SelectionKey writeKey = client.register(selector, encoder.getInterestOps());
+                accepted.register(selector, SelectionKey.OP_READ);
+                int received = 0;
+                while (received < count) {
+                    selector.select(1000);
+                    selector.selectedKeys().clear();
+                    encoder.flush();
+                    while (offered < count && encoder.offer(StringConverter.INSTANCE, offered + payload)) { offered++; }
+                    writeKey.interestOps(encoder.getInterestOps());
+                    for (@Nullable String string = decoder.poll(StringConverter.INSTANCE, null); string != null; string = decoder.poll(StringConverter.INSTANCE, null)) {
+                        assertEquals(received++ + payload, string);
+                    }
+                }
+                assertEquals(0, encoder.getPendingBytes());
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+
+/**
+ * Converts records of a number, a list of names and a label, which are represented as arrays.
+ */
+class RecordConverter implements Converter<Object[], Void> {
+    
+    static final @Nonnull CustomField NUMBER = CustomField.with(CustomType.INTEGER32, "number");
+    
+    static final @Nonnull CustomField NAMES = CustomField.with(CustomType.LIST.of(CustomType.STRING), "names");
+    
+    static final @Nonnull CustomField LABEL = CustomField.with(CustomType.STRING, "label");
+    
+    @Override
+    public @Nonnull Class<Object[]> getType() {
+        return Object[].class;
+    }
+    
+    @Override
+    public @Nonnull String getTypeName() {
+        return "Record";
+    }
+    
+    @Override
+    public @Nonnull String getTypePackage() {
+        return "net.digitalid.utility.conversion.buffer";
+    }
+    
+    @Override
+    public @Nonnull ImmutableList<CustomField> getFields(@Nonnull Representation representation) {
+        return ImmutableList.withElements(NUMBER, NAMES, LABEL);
+    }
+    
+    @Override
+    public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] record, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+        encoder.encodeInteger32((Integer) record[0]);
+        encoder.encodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, FiniteIterable.of((String[]) record[1]));
+        encoder.encodeString((String) record[2]);
+    }
+    
+    @Override
+    public <EXCEPTION extends ConnectionException> @Nonnull Object[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+        final int number = decoder.decodeInteger32();
+        final @Nonnull Object[] names = decoder.decodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, null, ArrayCollector::with);
+        return new Object[] {number, names, decoder.decodeString()};
+    }
+    
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.enumerations.Representation;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class RecordFileTest {
+    
+    @Test
+    public void testRecordFile() throws Exception {
+        final @Nonnull Path path = Files.createTempFile("records", ".data");
+        final @Nonnull Path indexPath = path.resolveSibling(path.getFileName() + ".index");
+        try {
+            final @Nonnull RecordConverter converter = new RecordConverter();
+            try (@Nonnull RecordFile<Object[], Void> file = RecordFile.open(path, converter, Representation.EXTERNAL)) {
+                for (int i = 0; i < 5000; i++) {
+                    assertEquals(i, file.append(new Object[] {i, new String[] {"n" + i}, i % 3 == 0 ? "" : "l" + i}));
+                }
+                assertEquals(4999, file.get(4999, null)[0]);
+                file.flush();
+                file.append(new Object[] {5000, new String[0], TEXT});
+                assertEquals(TEXT, file.get(5000, null)[2]);
+            }
+            try (@Nonnull RecordFile<Object[], Void> file = RecordFile.open(path, converter, Representation.EXTERNAL)) {
+                assertEquals(5001, file.size());
+                final @Nonnull Random random = new Random(42);
+                for (int i = 0; i < 100; i++) {
+                    final int n = random.nextInt(5000);
+                    final @Nonnull Object[] record = file.get(n, null);
+                    assertEquals(n, record[0]);
+                    assertArrayEquals(new String[] {"n" + n}, (Object[]) record[1]);
+                    assertEquals(n % 3 == 0 ? "" : "l" + n, record[2]);
+                }
+                int expected = 100;
+                for (@Nonnull Object[] record : file.get(100, 200, null)) {
+                    assertEquals(expected++, record[0]);
+                }
+                assertEquals(200, expected);
+            }
+            try (@Nonnull FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3}), channel.size());
+            }
+            try (@Nonnull RecordFile<Object[], Void> file = RecordFile.open(path, converter, Representation.EXTERNAL)) {
+                assertEquals(5001, file.size());
+                file.append(new Object[] {5001, new String[0], ""});
+                assertEquals(5001, file.get(5001, null)[0]);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(indexPath);
+        }
+    }
+    
+}
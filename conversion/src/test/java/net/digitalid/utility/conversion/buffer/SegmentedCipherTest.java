@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import javax.annotation.Nonnull;
+import javax.crypto.spec.SecretKeySpec;
+
+import net.digitalid.utility.conversion.exceptions.StreamException;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class SegmentedCipherTest {
+    
+    @Test
+    public void testSegmentedCipher() throws Exception {
+        final @Nonnull SegmentedCipher cipher = SegmentedCipher.with(new SecretKeySpec(new byte[16], "AES"), 1000);
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.startEncrypting(cipher);
+            encodeValues(encoder);
+            encoder.stopEncrypting();
+            encoder.encodeString("plain");
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decoder.startDecrypting(cipher);
+            decodeValues(decoder);
+            decoder.stopDecrypting();
+            assertEquals("plain", decoder.decodeString());
+        }
+        
+        bytes[50_000] ^= 1;
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decoder.startDecrypting(cipher);
+            decodeValues(decoder);
+            fail("The modified segment should not be authenticated.");
+        } catch (@Nonnull StreamException exception) {}
+    }
+    
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class SizingEncoderTest {
+    
+    @Test
+    public void testEncodedSize() throws Exception {
+        final @Nonnull byte[] bytes = encode(Fixtures::encodeValues);
+        final @Nonnull SizingEncoder sizingEncoder = SizingEncoder.with(Representation.EXTERNAL);
+        encodeValues(sizingEncoder);
+        assertEquals(bytes.length, sizingEncoder.getSize());
+        
+        assertEquals(StringConverter.INSTANCE.getEncodedSize(TEXT), SizingEncoder.getEncodedSize(StringConverter.INSTANCE, TEXT));
+        final @Nonnull ByteBuffer buffer = ByteBufferEncoder.encode(StringConverter.INSTANCE, TEXT);
+        assertEquals(buffer.capacity(), buffer.remaining());
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(buffer, Representation.EXTERNAL)) {
+            assertEquals(TEXT, decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testEncodedSizeOfLayers() throws Exception {
+        final @Nonnull LayeredConverter converter = new LayeredConverter();
+        final @Nonnull String[] names = new String[500];
+        for (int i = 0; i < names.length; i++) { names[i] = TEXT + i % 3; }
+        final @Nonnull Object[] record = {-7, names, "label"};
+        
+        final @Nonnull SizingEncoder sizingEncoder = SizingEncoder.with(Representation.EXTERNAL);
+        converter.convert(record, sizingEncoder);
+        assertTrue(sizingEncoder.hasLayers());
+        assertFalse(sizingEncoder.isCompressing());
+        assertFalse(sizingEncoder.isEncrypting());
+        
+        final @Nonnull byte[] bytes = encode(encoder -> encoder.encodeObject(converter, record));
+        assertEquals(bytes.length, SizingEncoder.getEncodedSize(converter, record));
+        final @Nonnull ByteBuffer buffer = ByteBufferEncoder.encode(converter, record);
+        assertEquals(bytes.length, buffer.remaining());
+        assertEquals(ByteBuffer.wrap(bytes), buffer);
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(buffer, Representation.EXTERNAL)) {
+            assertArrayEquals(names, (Object[]) decoder.decodeObject(converter, null)[1]);
+        }
+    }
+    
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class StringTableTest {
+    
+    @Test
+    public void testStringTable() throws Exception {
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            for (int i = 0; i < 3; i++) { encoder.encodeString(TEXT); }
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decoder.setStringTable(StringTable.withDefaultCapacity());
+            final @Nonnull String string = decoder.decodeString();
+            assertEquals(TEXT, string);
+            assertSame(string, decoder.decodeString());
+            decoder.setStringTable(null);
+            assertNotSame(string, decoder.decodeString());
+        }
+    }
+    
+}
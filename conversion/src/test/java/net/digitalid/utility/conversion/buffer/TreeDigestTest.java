@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class TreeDigestTest {
+    
+    private static @Nonnull byte[] concat(@Nonnull byte[]... arrays) {
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (@Nonnull byte[] array : arrays) { outputStream.write(array, 0, array.length); }
+        return outputStream.toByteArray();
+    }
+    
+    @Test
+    public void testTreeDigest() throws Exception {
+        final @Nonnull TreeDigest treeDigest = TreeDigest.with("SHA-256", 4, ForkJoinPool.commonPool());
+        treeDigest.update("abcdefghij".getBytes(StandardCharsets.US_ASCII));
+        final @Nonnull MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        final @Nonnull byte[] first = digest.digest("\0abcd".getBytes(StandardCharsets.US_ASCII));
+        final @Nonnull byte[] second = digest.digest("\0efgh".getBytes(StandardCharsets.US_ASCII));
+        final @Nonnull byte[] third = digest.digest("\0ij".getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) 1);
+        digest.update(first);
+        digest.update(second);
+        final @Nonnull byte[] node = digest.digest();
+        assertArrayEquals(digest.digest(concat(new byte[] {1}, node, third)), treeDigest.digest());
+    }
+    
+    @Test
+    public void testHashing() throws Exception {
+        final @Nonnull byte[][] encodingHash = new byte[1][];
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.startHashing(TreeDigest.with("SHA-256", 1000, ForkJoinPool.commonPool()));
+            encodeValues(encoder);
+            encodingHash[0] = encoder.stopHashing();
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decoder.startHashing(TreeDigest.with("SHA-256", 1000, ForkJoinPool.commonPool()));
+            decodeValues(decoder);
+            assertArrayEquals(encodingHash[0], decoder.stopHashing());
+        }
+    }
+    
+    @Test
+    public void testChunksAreReleased() throws Exception {
+        final @Nonnull List<WeakReference<byte[]>> chunks = new ArrayList<>();
+        final @Nonnull TreeDigest treeDigest = new TreeDigest("SHA-256", 1024, ForkJoinPool.commonPool()) {
+            @Override
+            @Nonnull byte[] newChunk() {
+                final @Nonnull byte[] chunk = super.newChunk();
+                chunks.add(new WeakReference<>(chunk));
+                return chunk;
+            }
+        };
+        final @Nonnull byte[] input = new byte[1024];
+        final int count = 20 * ForkJoinPool.commonPool().getParallelism() + 20;
+        for (int i = 0; i < count; i++) { treeDigest.update(input); }
+        
+        for (int i = 0; i < 10 && chunks.get(0).get() != null; i++) { System.gc(); Thread.sleep(10); }
+        assertNull(chunks.get(0).get());
+        assertEquals(32, treeDigest.digest().length);
+    }
+    
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.buffer;
+
+import java.security.MessageDigest;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class ValueEncoderTest {
+    
+    @Test
+    public void testCopy() {
+        final @Nonnull RecordConverter converter = new RecordConverter();
+        final @Nonnull Object[] record = {-7, new String[] {"a", null, TEXT}, "label"};
+        final @Nonnull Object[] copy = ValueEncoder.copy(converter, record, null);
+        assertNotSame(record, copy);
+        assertEquals(-7, copy[0]);
+        assertArrayEquals((Object[]) record[1], (Object[]) copy[1]);
+        assertSame(record[2], copy[2]);
+        assertSame(TEXT, ValueEncoder.copy(StringConverter.INSTANCE, TEXT, null));
+    }
+    
+    @Test
+    public void testCopyWithLayers() {
+        final @Nonnull String[] names = {"a", null, TEXT};
+        final @Nonnull Object[] copy = ValueEncoder.copy(new LayeredConverter(), new Object[] {-7, names, "label"}, null);
+        assertArrayEquals(names, (Object[]) copy[1]);
+        assertEquals("label", copy[2]);
+    }
+    
+    @Test
+    public void testHashing() throws Exception {
+        final @Nonnull ValueEncoder encoder = ValueEncoder.with(Representation.EXTERNAL);
+        encoder.startHashing(MessageDigest.getInstance("SHA-256"));
+        assertTrue(encoder.isHashing());
+        encoder.encodeString(TEXT);
+        final @Nonnull byte[] hash = encoder.stopHashing();
+        assertFalse(encoder.isHashing());
+        
+        final @Nonnull ValueDecoder decoder = encoder.toDecoder();
+        decoder.startHashing(MessageDigest.getInstance("SHA-256"));
+        assertEquals(TEXT, decoder.decodeString());
+        assertArrayEquals(hash, decoder.stopHashing());
+    }
+    
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.converters;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.buffer.ValueEncoder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * This test is compiled with the names of parameters so that the runtime converter can match constructor parameters of the same type by name.
+ */
+public class RuntimeConverterNamedParametersTest {
+    
+    /**
+     * Models an immutable type whose constructor declares its parameters in a different order than the fields are ordered by name.
+     */
+    private static class Range {
+        
+        private final int minimum;
+        
+        private final int maximum;
+        
+        private Range(int maximum, int minimum) {
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+        
+    }
+    
+    @Test
+    public void testConstructorWithNames() {
+        assertTrue(Range.class.getDeclaredConstructors()[0].getParameters()[0].isNamePresent());
+        final @Nonnull Range copy = ValueEncoder.copy(RuntimeConverter.of(Range.class), new Range(9, 1), null);
+        assertEquals(1, copy.minimum);
+        assertEquals(9, copy.maximum);
+    }
+    
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.converters;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.contracts.exceptions.PreconditionException;
+import net.digitalid.utility.conversion.buffer.ByteBufferDecoder;
+import net.digitalid.utility.conversion.buffer.ByteBufferEncoder;
+import net.digitalid.utility.conversion.buffer.SizingEncoder;
+import net.digitalid.utility.conversion.buffer.ValueEncoder;
+import net.digitalid.utility.conversion.enumerations.Representation;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class RuntimeConverterTest {
+    
+    /**
+     * Models a value type without a generated converter, which is recovered with the constructor for all its fields.
+     */
+    private static class Shape {
+        
+        private static final int CORNERS = 4;
+        
+        private final int x;
+        
+        private final double y;
+        
+        private final @Nullable String name;
+        
+        private final @Nonnull Representation representation;
+        
+        private final @Nonnull long[] values;
+        
+        private final @Nullable Shape parent;
+        
+        private transient int hash;
+        
+        private Shape(int x, double y, @Nullable String name, @Nonnull Representation representation, @Nonnull long[] values, @Nullable Shape parent) {
+            this.x = x;
+            this.y = y;
+            this.name = name;
+            this.representation = representation;
+            this.values = values;
+            this.parent = parent;
+        }
+        
+    }
+    
+    /**
+     * Models a mutable type without a generated converter, which is recovered with setters.
+     */
+    private static class Bean {
+        
+        private @Nullable Integer number;
+        
+        private char letter;
+        
+        private @Nullable Shape shape;
+        
+    }
+    
+    /**
+     * Models a mutable type with fields of wrapper types, which are converted with the corresponding built-in converters.
+     */
+    private static class Wrappers {
+        
+        private @Nullable Byte integer08;
+        
+        private @Nullable Short integer16;
+        
+        private @Nullable Float decimal32;
+        
+        private @Nullable Double decimal64;
+        
+        private @Nullable Character character;
+        
+    }
+    
+    /**
+     * Models an immutable type whose constructor parameters have the same type, which cannot be mapped to its fields without their names.
+     */
+    private static class Pair {
+        
+        private final int first;
+        
+        private final int second;
+        
+        private Pair(int first, int second) {
+            this.first = first;
+            this.second = second;
+        }
+        
+    }
+    
+    /**
+     * Models a type whose constructor does not correspond to its fields by name, which is therefore recovered with setters.
+     */
+    private static class Renamed {
+        
+        private int second;
+        
+        private int first;
+        
+        private Renamed() {}
+        
+        private Renamed(int first, int other) {
+            this.first = first;
+            this.second = other;
+        }
+        
+    }
+    
+    @Test
+    public void testRuntimeConverter() throws Exception {
+        final @Nonnull RuntimeConverter<Bean> converter = RuntimeConverter.of(Bean.class);
+        assertSame(converter, RuntimeConverter.of(Bean.class));
+        assertEquals(3, converter.getFields(Representation.EXTERNAL).size());
+        assertEquals(6, RuntimeConverter.of(Shape.class).getFields(Representation.EXTERNAL).size());
+        
+        final @Nonnull Bean bean = new Bean();
+        bean.letter = 'q';
+        bean.shape = new Shape(-3, 2.5, TEXT, Representation.INTERNAL, new long[] {1, Long.MIN_VALUE}, new Shape(7, 0, null, Representation.EXTERNAL, new long[0], null));
+        final @Nonnull ByteBuffer buffer = ByteBuffer.allocate(SizingEncoder.getEncodedSize(converter, bean));
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(buffer, Representation.EXTERNAL)) {
+            encoder.encodeObject(converter, bean);
+        }
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(buffer, Representation.EXTERNAL)) {
+            final @Nonnull Bean decoded = decoder.decodeObject(converter, null);
+            assertNull(decoded.number);
+            assertEquals('q', decoded.letter);
+            assertEquals(-3, decoded.shape.x);
+            assertEquals(2.5, decoded.shape.y, 0);
+            assertEquals(TEXT, decoded.shape.name);
+            assertEquals(Representation.INTERNAL, decoded.shape.representation);
+            assertArrayEquals(bean.shape.values, decoded.shape.values);
+            assertEquals(7, decoded.shape.parent.x);
+            assertNull(decoded.shape.parent.name);
+            assertNull(decoded.shape.parent.parent);
+        }
+        
+        bean.number = 42;
+        final @Nonnull Bean copy = ValueEncoder.copy(converter, bean, null);
+        assertNotSame(bean.shape, copy.shape);
+        assertEquals(Integer.valueOf(42), copy.number);
+        assertEquals(Representation.EXTERNAL, copy.shape.parent.representation);
+    }
+    
+    @Test
+    public void testFieldOrder() throws Exception {
+        assertEquals("letter", RuntimeConverter.of(Bean.class).getFields(Representation.EXTERNAL).get(0).getName());
+        assertEquals("first", RuntimeConverter.of(Renamed.class).getFields(Representation.EXTERNAL).get(0).getName());
+        assertEquals("second", RuntimeConverter.of(Renamed.class).getFields(Representation.EXTERNAL).get(1).getName());
+    }
+    
+    @Test
+    public void testRecoveryWithSetters() throws Exception {
+        final @Nonnull Renamed copy = ValueEncoder.copy(RuntimeConverter.of(Renamed.class), new Renamed(1, 2), null);
+        assertEquals(1, copy.first);
+        assertEquals(2, copy.second);
+    }
+    
+    @Test
+    public void testConstructorWithoutNames() throws Exception {
+        assertFalse(Shape.class.getDeclaredConstructors()[0].getParameters()[0].isNamePresent());
+        final @Nonnull Shape shape = new Shape(1, 2, TEXT, Representation.EXTERNAL, new long[] {3}, null);
+        final @Nonnull Shape copy = ValueEncoder.copy(RuntimeConverter.of(Shape.class), shape, null);
+        assertEquals(1, copy.x);
+        assertEquals(2, copy.y, 0);
+        assertEquals(TEXT, copy.name);
+        assertArrayEquals(shape.values, copy.values);
+    }
+    
+    @Test(expected = PreconditionException.class)
+    public void testAmbiguousConstructor() {
+        RuntimeConverter.of(Pair.class).getFields(Representation.EXTERNAL);
+    }
+    
+    @Test
+    public void testWrapperTypes() throws Exception {
+        final @Nonnull RuntimeConverter<Wrappers> converter = RuntimeConverter.of(Wrappers.class);
+        final @Nonnull Wrappers wrappers = new Wrappers();
+        wrappers.integer08 = (byte) -8;
+        wrappers.integer16 = (short) 1_600;
+        wrappers.decimal64 = 6.4;
+        wrappers.character = 'c';
+        final @Nonnull ByteBuffer buffer = ByteBuffer.allocate(SizingEncoder.getEncodedSize(converter, wrappers));
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.into(buffer, Representation.EXTERNAL)) {
+            encoder.encodeObject(converter, wrappers);
+        }
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        try (@Nonnull ByteBufferDecoder decoder = ByteBufferDecoder.from(buffer, Representation.EXTERNAL)) {
+            final @Nonnull Wrappers decoded = decoder.decodeObject(converter, null);
+            assertEquals(Byte.valueOf((byte) -8), decoded.integer08);
+            assertEquals(Short.valueOf((short) 1_600), decoded.integer16);
+            assertNull(decoded.decimal32);
+            assertEquals(Double.valueOf(6.4), decoded.decimal64);
+            assertEquals(Character.valueOf('c'), decoded.character);
+        }
+    }
+    
+}
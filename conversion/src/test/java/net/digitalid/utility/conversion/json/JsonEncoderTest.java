@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import javax.annotation.Nonnull;
+import javax.crypto.Cipher;
+
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
+import net.digitalid.utility.conversion.converters.Integer32Converter;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.exceptions.StreamException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.getCipher;
+import static org.junit.Assert.*;
+
+public class JsonEncoderTest {
+    
+    /**
+     * Converts samples of a label, a list of nullable names, an array of values and a map, which are represented as arrays.
+     */
+    private static class SampleConverter implements Converter<Object[], Void> {
+        
+        @Override
+        public @Nonnull Class<Object[]> getType() {
+            return Object[].class;
+        }
+        
+        @Override
+        public @Nonnull String getTypeName() {
+            return "Sample";
+        }
+        
+        @Override
+        public @Nonnull String getTypePackage() {
+            return "net.digitalid.utility.conversion.json";
+        }
+        
+        @Override
+        public @Nonnull ImmutableList<CustomField> getFields(@Nonnull Representation representation) {
+            return ImmutableList.withElements(CustomField.with(CustomType.STRING, "label"), CustomField.with(CustomType.LIST.of(CustomType.STRING), "names"), CustomField.with(CustomType.DECIMAL64ARRAY, "values"), CustomField.with(CustomType.MAP.of(CustomType.STRING, CustomType.INTEGER32), "counts"));
+        }
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] sample, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            encoder.encodeObject(StringConverter.INSTANCE, (String) sample[0]);
+            encoder.encodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, FiniteIterable.of((String[]) sample[1]));
+            encoder.encodeDecimal64Array((double[]) sample[2]);
+            encoder.encodeMap(StringConverter.INSTANCE, Integer32Converter.INSTANCE, (Map<String, Integer>) sample[3]);
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> @Nonnull Object[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+            final @Nonnull String label = decoder.decodeObject(StringConverter.INSTANCE, null);
+            final @Nonnull Object[] names = decoder.decodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, null, ArrayCollector::with);
+            final @Nonnull double[] values = decoder.decodeDecimal64Array();
+            final @Nonnull Map<String, Integer> counts = decoder.decodeMap(StringConverter.INSTANCE, null, Integer32Converter.INSTANCE, null, new LinkedHashMap<>());
+            return new Object[] {label, names, values, counts};
+        }
+        
+    }
+    
+    private static final @Nonnull SampleConverter CONVERTER = new SampleConverter();
+    
+    private static @Nonnull Object[] sample(@Nonnull String label) {
+        final @Nonnull Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("a", 1);
+        counts.put("b", -2);
+        return new Object[] {label, new String[] {"x", null}, new double[] {1.5, Double.NaN}, counts};
+    }
+    
+    @Test
+    public void testEncode() {
+        assertEquals("{\"label\":\"Hällo \\\"Wörld\\\"\\n\",\"names\":[\"x\",null],\"values\":[1.5,\"NaN\"],\"counts\":[[\"a\",1],[\"b\",-2]]}", JsonEncoder.encode(CONVERTER, sample("Hällo \"Wörld\"\n")));
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception {
+        final @Nonnull StringWriter writer = new StringWriter();
+        try (@Nonnull JsonEncoder encoder = JsonEncoder.to(writer)) {
+            for (int i = 0; i < 1000; i++) { encoder.encodeObject(CONVERTER, sample("sample " + i)); }
+            encoder.encodeInteger32Array(new int[] {1, -2, 3});
+        }
+        try (@Nonnull JsonDecoder decoder = JsonDecoder.from(new StringReader(writer.toString()))) {
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(decoder.hasMoreValues());
+                final @Nonnull Object[] sample = decoder.decodeObject(CONVERTER, null);
+                assertEquals("sample " + i, sample[0]);
+                assertArrayEquals(new Object[] {"x", null}, (Object[]) sample[1]);
+                assertEquals(1.5, ((double[]) sample[2])[0], 0);
+                assertTrue(Double.isNaN(((double[]) sample[2])[1]));
+                assertEquals(sample("")[3], sample[3]);
+            }
+            assertArrayEquals(new int[] {1, -2, 3}, decoder.decodeInteger32Array());
+            assertFalse(decoder.hasMoreValues());
+        }
+    }
+    
+    /**
+     * Converts samples like the sample converter but encrypts the names, values and counts and additionally compresses the names and values.
+     */
+    private static class LayeredConverter extends SampleConverter {
+        
+        @Override
+        @SuppressWarnings("unchecked")
+        public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] sample, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            encoder.encodeObject(StringConverter.INSTANCE, (String) sample[0]);
+            encoder.startEncrypting(getCipher(Cipher.ENCRYPT_MODE));
+            encoder.startCompressing(new Deflater());
+            encoder.encodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, FiniteIterable.of((String[]) sample[1]));
+            encoder.encodeDecimal64Array((double[]) sample[2]);
+            encoder.stopCompressing();
+            encoder.encodeMap(StringConverter.INSTANCE, Integer32Converter.INSTANCE, (Map<String, Integer>) sample[3]);
+            encoder.stopEncrypting();
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> @Nonnull Object[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+            final @Nonnull String label = decoder.decodeObject(StringConverter.INSTANCE, null);
+            decoder.startDecrypting(getCipher(Cipher.DECRYPT_MODE));
+            decoder.startDecompressing(new Inflater());
+            final @Nonnull Object[] names = decoder.decodeOrderedIterableWithNullableElements(StringConverter.INSTANCE, null, ArrayCollector::with);
+            final @Nonnull double[] values = decoder.decodeDecimal64Array();
+            decoder.stopDecompressing();
+            final @Nonnull Map<String, Integer> counts = decoder.decodeMap(StringConverter.INSTANCE, null, Integer32Converter.INSTANCE, null, new LinkedHashMap<>());
+            decoder.stopDecrypting();
+            return new Object[] {label, names, values, counts};
+        }
+        
+    }
+    
+    @Test
+    public void testLayers() throws Exception {
+        final @Nonnull LayeredConverter converter = new LayeredConverter();
+        final @Nonnull String text = JsonEncoder.encode(converter, sample("layered"));
+        assertTrue(text.startsWith("{\"label\":\"layered\",\"names\":\""));
+        assertFalse(text.contains("counts"));
+        final @Nonnull Object[] sample = JsonDecoder.decode(converter, null, text);
+        assertEquals("layered", sample[0]);
+        assertArrayEquals(new Object[] {"x", null}, (Object[]) sample[1]);
+        assertEquals(1.5, ((double[]) sample[2])[0], 0);
+        assertEquals(sample("")[3], sample[3]);
+    }
+    
+    @Test
+    public void testHashing() throws Exception {
+        final @Nonnull LayeredConverter converter = new LayeredConverter();
+        final @Nonnull StringWriter writer = new StringWriter();
+        final @Nonnull byte[] hash;
+        try (@Nonnull JsonEncoder encoder = JsonEncoder.to(writer)) {
+            encoder.encodeString("plain");
+            encoder.startHashing(MessageDigest.getInstance("SHA-256"));
+            for (int i = 0; i < 100; i++) { encoder.encodeObject(i % 2 == 0 ? CONVERTER : converter, sample("sample \uD83D\uDE00 " + i)); }
+            hash = encoder.stopHashing();
+            encoder.encodeString("plain");
+        }
+        try (@Nonnull JsonDecoder decoder = JsonDecoder.from(new StringReader(writer.toString().replace(",", " , ")))) {
+            assertEquals("plain", decoder.decodeString());
+            assertTrue(decoder.hasMoreValues());
+            decoder.startHashing(MessageDigest.getInstance("SHA-256"));
+            for (int i = 0; i < 100; i++) { assertEquals("sample \uD83D\uDE00 " + i, decoder.decodeObject(i % 2 == 0 ? CONVERTER : converter, null)[0]); }
+            assertArrayEquals(hash, decoder.stopHashing());
+            assertEquals("plain", decoder.decodeString());
+        }
+    }
+    
+    @Test
+    public void testBinaryStream() throws Exception {
+        final @Nonnull byte[] bytes = new byte[100_000];
+        new Random(7).nextBytes(bytes);
+        final @Nonnull StringWriter writer = new StringWriter();
+        try (@Nonnull JsonEncoder encoder = JsonEncoder.to(writer)) {
+            encoder.encodeBinaryStream(new ByteArrayInputStream(bytes), bytes.length);
+            encoder.encodeBinary(bytes);
+        }
+        final @Nonnull String[] lines = writer.toString().split("\n");
+        assertEquals(lines[1], lines[0]);
+        try (@Nonnull JsonDecoder decoder = JsonDecoder.from(new StringReader(writer.toString()))) {
+            assertArrayEquals(bytes, decoder.decodeBinary());
+        }
+    }
+    
+    @Test(expected = StreamException.class)
+    public void testFieldOrder() throws Exception {
+        JsonDecoder.decode(CONVERTER, null, "{ \"names\": [], \"label\": \"\", \"values\": [], \"counts\": [] }");
+    }
+    
+}
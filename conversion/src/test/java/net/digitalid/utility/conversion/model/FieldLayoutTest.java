@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.model;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.buffer.ByteBufferDecoder;
+import net.digitalid.utility.conversion.converters.Integer32Converter;
+import net.digitalid.utility.conversion.converters.RuntimeConverter;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class FieldLayoutTest {
+    
+    @Test
+    public void testFingerprint() throws Exception {
+        final @Nonnull FieldLayout layout = FieldLayout.of(StringConverter.INSTANCE, Representation.EXTERNAL);
+        assertSame(layout, FieldLayout.of(StringConverter.INSTANCE, Representation.EXTERNAL));
+        assertEquals(Arrays.asList("string"), layout.getColumnNames());
+        assertNotEquals(layout.getFingerprint(), FieldLayout.of(Integer32Converter.INSTANCE, Representation.EXTERNAL).getFingerprint());
+        
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            encoder.encodeFingerprint(StringConverter.INSTANCE);
+            encoder.encodeFingerprint(StringConverter.INSTANCE);
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            decoder.decodeFingerprint(StringConverter.INSTANCE);
+            try {
+                decoder.decodeFingerprint(Integer32Converter.INSTANCE);
+                fail("The fingerprints should not match.");
+            } catch (@Nonnull RecoveryException exception) {}
+        }
+    }
+    
+    /**
+     * Models a type which is loaded with a separate class loader in order to check that it can be unloaded.
+     */
+    private static class Point {
+        
+        private int x;
+        
+        private int y;
+        
+    }
+    
+    /**
+     * Loads the point with a separate class loader, computes its field layout and returns a weak reference to the class loader.
+     */
+    private static @Nonnull WeakReference<ClassLoader> loadPoint() throws Exception {
+        final @Nonnull URL location = Point.class.getProtectionDomain().getCodeSource().getLocation();
+        try (final @Nonnull URLClassLoader classLoader = new URLClassLoader(new URL[] {location}, null)) {
+            final @Nonnull Class<?> type = classLoader.loadClass(Point.class.getName());
+            assertNotSame(Point.class, type);
+            assertEquals(Arrays.asList("x", "y"), FieldLayout.of(RuntimeConverter.of(type), Representation.EXTERNAL).getColumnNames());
+            return new WeakReference<>(classLoader);
+        }
+    }
+    
+    @Test
+    public void testCacheDoesNotRetainClassLoaders() throws Exception {
+        final @Nonnull WeakReference<ClassLoader> reference = loadPoint();
+        for (int i = 0; i < 10 && reference.get() != null; i++) { System.gc(); Thread.sleep(10); }
+        assertNull(reference.get());
+    }
+    
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.conversion.model;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.conversion.buffer.ByteBufferDecoder;
+import net.digitalid.utility.conversion.converters.Integer32Converter;
+import net.digitalid.utility.conversion.converters.Integer64Converter;
+import net.digitalid.utility.conversion.converters.IntegerConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.immutable.ImmutableList;
+
+import org.junit.Test;
+
+import static net.digitalid.utility.conversion.buffer.Fixtures.*;
+import static org.junit.Assert.*;
+
+public class SubtypeRegistryTest {
+    
+    /**
+     * Converts numbers as decimals unless one of the subtype converters applies.
+     */
+    private static class NumberConverter implements Converter<Number, Void> {
+        
+        private static final @Nonnull CustomField VALUE = CustomField.with(CustomType.DECIMAL64, "value");
+        
+        @Override
+        public @Nonnull Class<Number> getType() {
+            return Number.class;
+        }
+        
+        @Override
+        public @Nonnull String getTypeName() {
+            return "Number";
+        }
+        
+        @Override
+        public @Nonnull String getTypePackage() {
+            return "java.lang";
+        }
+        
+        @Override
+        public @Nonnull ImmutableList<CustomField> getFields(@Nonnull Representation representation) {
+            return ImmutableList.withElements(VALUE);
+        }
+        
+        @Override
+        public @Nonnull ImmutableList<Converter<? extends Number, Void>> getSubtypeConverters() {
+            return ImmutableList.withElements(Integer32Converter.INSTANCE, Integer64Converter.INSTANCE, IntegerConverter.INSTANCE);
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> void convert(@Nonnull Number number, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            encoder.encodeDecimal64(number.doubleValue());
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> @Nonnull Number recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+            return decoder.decodeDecimal64();
+        }
+        
+    }
+    
+    @Test
+    public void testPolymorphism() throws Exception {
+        final @Nonnull NumberConverter converter = new NumberConverter();
+        final @Nonnull SubtypeRegistry<Number, Void> registry = SubtypeRegistry.of(converter);
+        assertSame(registry, SubtypeRegistry.of(converter));
+        assertEquals(4, registry.getConverters().size());
+        assertEquals(0, registry.getTag(Double.class));
+        assertEquals(0, registry.getTag(AtomicInteger.class));
+        assertEquals(1, registry.getTag(Integer.class));
+        assertEquals(3, registry.getTag(BigInteger.class));
+        assertSame(Integer64Converter.INSTANCE, registry.getConverter(7L));
+        
+        final @Nonnull Number[] numbers = {7, -3L, BigInteger.TEN.pow(30), 2.5};
+        final @Nonnull byte[] bytes = encode(encoder -> {
+            for (@Nonnull Number number : numbers) { encoder.encodePolymorphicObject(converter, number); }
+            // A tag below 128 is encoded as a single byte.
+            encoder.encodeInteger08((byte) registry.getConverters().size());
+        });
+        try (@Nonnull ByteBufferDecoder decoder = decoder(bytes)) {
+            for (@Nonnull Number number : numbers) { assertEquals(number, decoder.decodePolymorphicObject(converter, null)); }
+            try {
+                decoder.decodePolymorphicObject(converter, null);
+                fail("The tag should have been rejected.");
+            } catch (@Nonnull RecoveryException exception) {}
+        }
+    }
+    
+}
@@ -233,6 +233,19 @@ public class ConverterGenerator extends JavaFileGenerator {
 //        }
 //    }
     
+    /**
+     * Returns the name of the bulk array operation for an array of the given component type or null if such arrays are encoded element by element.
+     */
+    @Pure
+    private static @Nullable String getPrimitiveArrayName(@Nonnull TypeMirror componentType) {
+        switch (componentType.getKind()) {
+            case INT: return "Integer32Array";
+            case LONG: return "Integer64Array";
+            case DOUBLE: return "Decimal64Array";
+            default: return null;
+        }
+    }
+    
     @Impure
     private void addEncodingStatement(@Nonnull FieldInformation field) {
         final @Nonnull TypeMirror type = field.getType();
@@ -256,6 +269,8 @@ public class ConverterGenerator extends JavaFileGenerator {
             if (componentType != null) {
                 if (componentType.getKind() == TypeKind.BYTE) {
                     addStatement("encoder.encodeBinary(" + access + ")");
+                } else if (type.getKind() == TypeKind.ARRAY && getPrimitiveArrayName(componentType) != null) {
+                    addStatement("encoder.encode" + getPrimitiveArrayName(componentType) + "(" + access + ")");
                 } else {
                     final boolean unordered = ProcessingUtility.isRawSubtype(type, Set.class);
                     final boolean nullable = !field.hasAnnotation(NonNullableElements.class);
@@ -285,6 +300,81 @@ public class ConverterGenerator extends JavaFileGenerator {
         endMethod();
     }
     
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    /**
+     * Returns the number of bytes of the given primitive type or -1 if its size depends on the value.
+     */
+    @Pure
+    private static int getFixedSize(@Nonnull CustomType customType) {
+        switch (customType.getTypeName()) {
+            case "BOOLEAN": case "INTEGER08": return 1;
+            case "INTEGER16": case "STRING01": return 2;
+            case "DECIMAL32": return 4;
+            case "DECIMAL64": return 8;
+            default: return -1;
+        }
+    }
+    
+    /**
+     * Returns a generated expression that computes the number of bytes of the given field or null if the field has a fixed size.
+     */
+    @Impure
+    private @Nullable String getSizeExpression(@Nonnull FieldInformation field) {
+        final @Nonnull TypeMirror type = field.getType();
+        final @Nonnull String access = getObjectVariableName() + "." + field.getAccessCode();
+        final @Nonnull String binaryFormat = importIfPossible("net.digitalid.utility.conversion.buffer.BinaryFormat");
+        
+        if (type.getKind().isPrimitive()) {
+            final @Nonnull CustomType customType = CustomType.of(type, field.getAnnotations());
+            if (getFixedSize(customType) >= 0) { return null; }
+            else { return binaryFormat + ".sizeOf" + Strings.uppercaseFirstCharacter(customType.getTypeName().toLowerCase()) + "(" + access + ")"; }
+        } else if (ProcessingUtility.isRawSubtype(type, Map.class)) {
+            final @Nullable DeclaredType supertype = ProcessingUtility.getSupertype((DeclaredType) type, Map.class);
+            if (supertype == null) { return null; }
+            final boolean nullable = !field.hasAnnotation(NonNullableElements.class);
+            final @Nonnull List<@Nonnull ? extends TypeMirror> typeArguments = supertype.getTypeArguments();
+            return binaryFormat + ".sizeOfMap" + (nullable ? "WithNullableValues" : "") + "(" + importConverterType(typeArguments.get(0), FiniteIterable.of()) + ", " + importConverterType(typeArguments.get(1), FiniteIterable.of()) + ", " + access + ")";
+        } else if (type.getKind() == TypeKind.ARRAY || ProcessingUtility.isRawSubtype(type, Iterable.class)) {
+            final @Nullable TypeMirror componentType = ProcessingUtility.getComponentType(type);
+            if (componentType == null) { return null; }
+            if (componentType.getKind() == TypeKind.BYTE) { return binaryFormat + ".sizeOfBinary(" + access + ")"; }
+            if (type.getKind() == TypeKind.ARRAY && getPrimitiveArrayName(componentType) != null) { return binaryFormat + ".sizeOf" + getPrimitiveArrayName(componentType) + "(" + access + ")"; }
+            final boolean nullable = !field.hasAnnotation(NonNullableElements.class);
+            return binaryFormat + ".sizeOfIterable" + (nullable ? "WithNullableElements" : "") + "(" + importConverterType(componentType, FiniteIterable.of()) + ", " + (ProcessingUtility.isRawSubtype(type, FiniteIterable.class) ? access : importIfPossible(FiniteIterable.class) + ".of(" + access + ")") + ")";
+        } else if (ProcessingUtility.getTypeElement(type).getKind() == ElementKind.ENUM && StaticProcessingEnvironment.getTypeUtils().isAssignable(type, typeInformation.getType())) {
+            return importIfPossible("net.digitalid.utility.conversion.converters.String64Converter") + ".INSTANCE.getEncodedSize(" + access + ")";
+        } else if (field.hasAnnotation(Nullable.class)) {
+            return binaryFormat + ".sizeOfNullableObject(" + importConverterType(type, field.getAnnotations()) + ", " + access + ")";
+        } else {
+            return importIfPossible("net.digitalid.utility.conversion.buffer.SizingEncoder") + ".getEncodedSize(" + importConverterType(type, field.getAnnotations()) + ", " + access + ")";
+        }
+    }
+    
+    /**
+     * Generates the method that computes the encoded size directly from the fields instead of running the conversion with a sizing encoder.
+     * The sizes of fixed-width fields are summed up at generation time.
+     */
+    @Impure
+    private void generateGetEncodedSizeMethod() {
+        int fixedSize = 0;
+        final @Nonnull StringBuilder expression = new StringBuilder();
+        for (@Nonnull FieldInformation field : getFieldsToBeConverted()) {
+            if (field.getType().getKind().isPrimitive()) {
+                fixedSize += Math.max(0, getFixedSize(CustomType.of(field.getType(), field.getAnnotations())));
+            }
+            final @Nullable String sizeExpression = getSizeExpression(field);
+            if (sizeExpression != null) { expression.append(" + ").append(sizeExpression); }
+        }
+        
+        addAnnotation(Pure.class);
+        addAnnotation(Override.class);
+        beginMethod("public int getEncodedSize(@" + importIfPossible(NonCaptured.class) + " @" + importIfPossible(Unmodified.class) + " @" + importIfPossible(Nonnull.class) + " " + typeInformation.getName() + " " + getObjectVariableName() + ")");
+        if (expression.length() == 0) { addStatement("return " + fixedSize); }
+        else { addStatement("return Math.toIntExact(" + fixedSize + "L" + expression + ")"); }
+        endMethod();
+    }
+    
     /* -------------------------------------------------- Recovery -------------------------------------------------- */
     
     /**
@@ -364,6 +454,8 @@ public class ConverterGenerator extends JavaFileGenerator {
             if (componentType != null) {
                 if (componentType.getKind() == TypeKind.BYTE) {
                     addStatement("final @" + importIfPossible(Nonnull.class) + " byte[] " + field.getName() + " = decoder.decodeBinary()");
+                } else if (type.getKind() == TypeKind.ARRAY && getPrimitiveArrayName(componentType) != null) {
+                    addStatement("final @" + importIfPossible(Nonnull.class) + " " + componentType + "[] " + field.getName() + " = decoder.decode" + getPrimitiveArrayName(componentType) + "()");
                 } else {
                     final boolean unordered = ProcessingUtility.isRawSubtype(type, Set.class);
                     final boolean nullable = !field.hasAnnotation(NonNullableElements.class);
@@ -736,6 +828,7 @@ public class ConverterGenerator extends JavaFileGenerator {
         generateFields();
         generateGetFields();
         generateConvertMethod();
+        generateGetEncodedSizeMethod();
         generateRecoverMethod();
     
         final @Nonnull ProcessingEnvironment processingEnvironment = StaticProcessingEnvironment.environment.get();
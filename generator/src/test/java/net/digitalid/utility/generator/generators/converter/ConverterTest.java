@@ -15,6 +15,7 @@
  */
 package net.digitalid.utility.generator.generators.converter;
 
+import java.io.ByteArrayOutputStream;
 import java.util.LinkedList;
 import java.util.Queue;
 
@@ -23,8 +24,11 @@ import javax.annotation.Nonnull;
 import net.digitalid.utility.annotations.method.Pure;
 import net.digitalid.utility.collaboration.annotations.TODO;
 import net.digitalid.utility.collaboration.enumerations.Author;
+import net.digitalid.utility.conversion.buffer.ByteBufferEncoder;
+import net.digitalid.utility.conversion.enumerations.Representation;
 import net.digitalid.utility.conversion.exceptions.RecoveryException;
 import net.digitalid.utility.conversion.exceptions.RecoveryExceptionBuilder;
+import net.digitalid.utility.conversion.interfaces.Converter;
 import net.digitalid.utility.generator.annotations.generators.GenerateConverter;
 import net.digitalid.utility.string.Strings;
 import net.digitalid.utility.testing.UtilityTest;
@@ -37,6 +41,7 @@ import net.digitalid.utility.validation.annotations.value.Valid;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 @Immutable
@@ -114,6 +119,24 @@ class ProvideValue {
     
 }
 
+@Immutable
+@GenerateConverter
+class ArrayFields {
+    
+    public final @Nonnull int[] integers;
+    
+    public final @Nonnull long[] longs;
+    
+    public final @Nonnull double[] decimals;
+    
+    protected ArrayFields(@Nonnull int[] integers, @Nonnull long[] longs, @Nonnull double[] decimals) {
+        this.integers = integers;
+        this.longs = longs;
+        this.decimals = decimals;
+    }
+    
+}
+
 @GenerateConverter
 enum SimpleEnum {
     
@@ -249,6 +272,61 @@ public class ConverterTest extends UtilityTest {
         assertEquals("bla", recoveredObject.text);
     }
     
+    @Test
+    public void testEncodingOfArrays() throws Exception {
+        final @Nonnull ArrayFields arrayFields = new ArrayFields(new int[] {1, -2}, new long[] {Long.MAX_VALUE}, new double[0]);
+        final @Nonnull TestEncoder testEncoder = new TestEncoder();
+        ArrayFieldsConverter.INSTANCE.convert(arrayFields, testEncoder);
+        assertEquals(6, testEncoder.encodedValues.size());
+        assertEquals(Pair.of(2, int.class), testEncoder.encodedValues.get(0));
+        assertEquals(Pair.of(1, int.class), testEncoder.encodedValues.get(1));
+        assertEquals(Pair.of(-2, int.class), testEncoder.encodedValues.get(2));
+        assertEquals(Pair.of(1, int.class), testEncoder.encodedValues.get(3));
+        assertEquals(Pair.of(Long.MAX_VALUE, long.class), testEncoder.encodedValues.get(4));
+        assertEquals(Pair.of(0, int.class), testEncoder.encodedValues.get(5));
+    }
+    
+    @Test
+    public void testDecodingOfArrays() throws Exception {
+        final Queue<@Nonnull Object> testQueue = new LinkedList<>();
+        testQueue.add(2);
+        testQueue.add(1);
+        testQueue.add(-2);
+        testQueue.add(1);
+        testQueue.add(Long.MAX_VALUE);
+        testQueue.add(1);
+        testQueue.add(2.5);
+        final @Nonnull TestDecoder testDecoder = new TestDecoder(testQueue);
+        final @Nonnull ArrayFields recoveredObject = ArrayFieldsConverter.INSTANCE.recover(testDecoder, null);
+        assertArrayEquals(new int[] {1, -2}, recoveredObject.integers);
+        assertArrayEquals(new long[] {Long.MAX_VALUE}, recoveredObject.longs);
+        assertArrayEquals(new double[] {2.5}, recoveredObject.decimals, 0);
+    }
+    
+    /**
+     * Returns the number of bytes which the given object takes when it is actually encoded with the given converter.
+     */
+    private static <TYPE> int getEncodedLength(@Nonnull Converter<TYPE, ?> converter, @Nonnull TYPE object) throws Exception {
+        final @Nonnull ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (@Nonnull ByteBufferEncoder encoder = ByteBufferEncoder.to(outputStream, Representation.EXTERNAL)) {
+            encoder.encodeObject(converter, object);
+        }
+        return outputStream.size();
+    }
+    
+    @Test
+    public void testEncodedSize() throws Exception {
+        final @Nonnull VariousFields variousFields = new VariousFields(true, 500, "bla");
+        assertEquals(getEncodedLength(VariousFieldsConverter.INSTANCE, variousFields), VariousFieldsConverter.INSTANCE.getEncodedSize(variousFields));
+        
+        final @Nonnull ArrayFields arrayFields = new ArrayFields(new int[] {1, -200_000}, new long[] {Long.MAX_VALUE}, new double[] {2.5});
+        assertEquals(getEncodedLength(ArrayFieldsConverter.INSTANCE, arrayFields), ArrayFieldsConverter.INSTANCE.getEncodedSize(arrayFields));
+        
+        final @Nonnull ExternallyProvidedType externallyProvidedType = new ExternallyProvidedType("provided");
+        final @Nonnull ProvideValue provideValue = new ProvideValue(externallyProvidedType, new DependentType("dependent", externallyProvidedType));
+        assertEquals(getEncodedLength(ProvideValueConverter.INSTANCE, provideValue), ProvideValueConverter.INSTANCE.getEncodedSize(provideValue));
+    }
+    
 //    @Test
 //    public void testFieldsOfEnum() {
 //        final @Nonnull TestDeclaration testDeclaration = new TestDeclaration();
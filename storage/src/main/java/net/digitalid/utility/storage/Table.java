@@ -15,7 +15,6 @@
  */
 package net.digitalid.utility.storage;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import javax.annotation.Nonnull;
@@ -32,6 +31,7 @@ import net.digitalid.utility.conversion.enumerations.Representation;
 import net.digitalid.utility.conversion.interfaces.Converter;
 import net.digitalid.utility.conversion.model.CustomField;
 import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.conversion.model.FieldLayout;
 import net.digitalid.utility.immutable.ImmutableList;
 import net.digitalid.utility.storage.enumerations.ForeignKeyAction;
 import net.digitalid.utility.storage.interfaces.Unit;
@@ -94,13 +94,12 @@ public interface Table<@Unspecifiable ENTRY, @Specifiable PROVIDED> extends Stor
     
     /**
      * Returns the columns of the primary key of this table.
+     * The columns are taken from the cached {@link FieldLayout field layout} of this table in the internal representation.
      */
     @Pure
     @TODO(task = "Change the return type to ImmutableList<SQLColumnName> once this artifact can be moved to the database project again due to a more flexible generator mechanism.", date = "2017-04-21", author = Author.KASPAR_ETTER)
     public default @Nonnull @NonNullableElements ImmutableList<String> getColumnNames(@Nonnull Unit unit) {
-        @Nonnull @NonNullableElements List<String> columns = new LinkedList<>();
-        for (@Nonnull CustomField field : getFields(Representation.INTERNAL)) { addColumns(field, null, columns); }
-        return ImmutableList.withElementsOfCollection(columns);
+        return FieldLayout.of(this, Representation.INTERNAL).getColumnNames();
     }
     
     /* -------------------------------------------------- Actions -------------------------------------------------- */
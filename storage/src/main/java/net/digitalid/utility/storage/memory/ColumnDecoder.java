@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.storage.memory;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.conversion.buffer.ValueDecoder;
+import net.digitalid.utility.conversion.buffer.ValueEncoder;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.failable.FailableCollector;
+import net.digitalid.utility.functional.interfaces.UnaryFunction;
+import net.digitalid.utility.validation.annotations.size.Empty;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This decoder rebuilds an entry from the columns of a row in a {@link Partition partition} in the same order as they were split.
+ * 
+ * @see ColumnEncoder
+ */
+@Mutable
+class ColumnDecoder extends ValueDecoder {
+    
+    /* -------------------------------------------------- Cursor -------------------------------------------------- */
+    
+    private final @Nonnull Partition partition;
+    
+    private final int row;
+    
+    private int column = 0;
+    
+    private final @Nonnull Set<Converter<?, ?>> visiting = new HashSet<>();
+    
+    /**
+     * Returns the primitive value in the next column.
+     */
+    @Impure
+    private long number() {
+        if (column == partition.getColumnCount()) { throw new IllegalStateException("The converter recovered more values than its fields."); }
+        return partition.getNumber(column++, row);
+    }
+    
+    /**
+     * Returns the reference in the next column.
+     */
+    @Impure
+    @SuppressWarnings("unchecked")
+    private <@Unspecifiable TYPE> @Nonnull TYPE reference() {
+        if (column == partition.getColumnCount()) { throw new IllegalStateException("The converter recovered more values than its fields."); }
+        final @Nullable Object reference = partition.getReference(column++, row);
+        if (reference == null) { throw new IllegalStateException("The column " + (column - 1) + " contains no reference."); }
+        return (TYPE) reference;
+    }
+    
+    /**
+     * Returns a value decoder for the values which were recorded in the next column.
+     */
+    @Impure
+    private @Nonnull ValueDecoder replay() {
+        return this.<ValueEncoder>reference().toDecoder();
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    private ColumnDecoder(@Nonnull Partition partition, int row) {
+        super(Representation.INTERNAL, new long[0], 0, new Object[0], 0);
+        
+        this.partition = partition;
+        this.row = row;
+    }
+    
+    /**
+     * Rebuilds the entry in the given row of the given partition with the given converter and the given provided value.
+     */
+    @Impure
+    static <@Unspecifiable ENTRY, @Specifiable PROVIDED> @Nonnull ENTRY decode(@Nonnull Partition partition, int row, @Nonnull Converter<ENTRY, PROVIDED> converter, @Shared PROVIDED provided) throws RecoveryException {
+        return new ColumnDecoder(partition, row).decodeObject(converter, provided);
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nonnull TYPE decodeObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws RecoveryException {
+        if (ColumnEncoder.isFlattened(converter, visiting)) {
+            visiting.add(converter);
+            try {
+                return converter.recover(this, provided);
+            } catch (@Nonnull ConnectionException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            } finally {
+                visiting.remove(converter);
+            }
+        } else {
+            return replay().decodeObject(converter, provided);
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED> @Nullable TYPE decodeNullableObject(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided) throws RecoveryException {
+        if (ColumnEncoder.isFlattened(converter, visiting)) {
+            final int count = ColumnEncoder.countColumns(converter, visiting);
+            if (count > 0 && column < partition.getColumnCount() && partition.getReference(column, row) == converter) {
+                column += count;
+                return null;
+            } else {
+                return decodeObject(converter, provided);
+            }
+        } else {
+            return replay().decodeNullableObject(converter, provided);
+        }
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public boolean decodeBoolean() {
+        return number() != 0;
+    }
+    
+    @Impure
+    @Override
+    public byte decodeInteger08() {
+        return (byte) number();
+    }
+    
+    @Impure
+    @Override
+    public short decodeInteger16() {
+        return (short) number();
+    }
+    
+    @Impure
+    @Override
+    public int decodeInteger32() {
+        return (int) number();
+    }
+    
+    @Impure
+    @Override
+    public long decodeInteger64() {
+        return number();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull BigInteger decodeInteger() {
+        return reference();
+    }
+    
+    @Impure
+    @Override
+    public float decodeDecimal32() {
+        return Float.intBitsToFloat((int) number());
+    }
+    
+    @Impure
+    @Override
+    public double decodeDecimal64() {
+        return Double.longBitsToDouble(number());
+    }
+    
+    @Impure
+    @Override
+    public char decodeString01() {
+        return (char) number();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @MaxSize(64) String decodeString64() {
+        return reference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull String decodeString() {
+        return reference();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(16) byte[] decodeBinary128() {
+        return this.<byte[]>reference().clone();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull @Size(32) byte[] decodeBinary256() {
+        return this.<byte[]>reference().clone();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull byte[] decodeBinary() {
+        return this.<byte[]>reference().clone();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull InputStream decodeBinaryStream() {
+        return replay().decodeBinaryStream();
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public @Nonnull int[] decodeInteger32Array() {
+        return this.<int[]>reference().clone();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull long[] decodeInteger64Array() {
+        return this.<long[]>reference().clone();
+    }
+    
+    @Impure
+    @Override
+    public @Nonnull double[] decodeDecimal64Array() {
+        return this.<double[]>reference().clone();
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        return replay().decodeOrderedIterable(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        return replay().decodeOrderedIterableWithNullableElements(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nonnull TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterable(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        return replay().decodeUnorderedIterable(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE, @Specifiable PROVIDED, @Unspecifiable ITERABLE, @Unspecifiable COLLECTOR extends FailableCollector<@Nullable TYPE, @Nonnull ITERABLE, RecoveryException, RecoveryException>> @Nonnull ITERABLE decodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, PROVIDED> converter, @Shared PROVIDED provided, @Nonnull UnaryFunction<@Nonnull Integer, @Nonnull COLLECTOR> constructor) throws RecoveryException {
+        return replay().decodeUnorderedIterableWithNullableElements(converter, provided, constructor);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> decodeMap(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nonnull KEY, @Nonnull VALUE> emptyMap) throws RecoveryException {
+        return replay().decodeMap(keyConverter, providedForKey, valueConverter, providedForValue, emptyMap);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Specifiable PROVIDED_FOR_KEY, @Unspecifiable VALUE, @Specifiable PROVIDED_FOR_VALUE> @Nonnull Map<@Nullable KEY, @Nullable VALUE> decodeMapWithNullableValues(@Nonnull Converter<KEY, PROVIDED_FOR_KEY> keyConverter, @Shared PROVIDED_FOR_KEY providedForKey, @Nonnull Converter<VALUE, PROVIDED_FOR_VALUE> valueConverter, @Shared PROVIDED_FOR_VALUE providedForValue, @NonCaptured @Modified @Nonnull @Empty Map<@Nullable KEY, @Nullable VALUE> emptyMap) throws RecoveryException {
+        return replay().decodeMapWithNullableValues(keyConverter, providedForKey, valueConverter, providedForValue, emptyMap);
+    }
+    
+}
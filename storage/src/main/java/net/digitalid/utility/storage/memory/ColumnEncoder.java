@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.storage.memory;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.parameter.Modified;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.conversion.buffer.ValueEncoder;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.exceptions.UncheckedExceptionBuilder;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.size.MaxSize;
+import net.digitalid.utility.validation.annotations.size.Size;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * This encoder splits an entry into the columns of a row in a {@link Partition partition}.
+ * The columns correspond to the {@link FieldLayout#getFields() flattened fields} of the converter,
+ * which relies on the convention that a converter encodes each of its fields with exactly one call.
+ * Objects of nested converters are flattened into their fields, whereby a missing nullable object is marked
+ * by storing its converter as the reference in its first column. All other values occupy a single column:
+ * Primitive values are stored as numbers, immutable values and copied arrays as references, and collections,
+ * maps and the objects of primitive converters as a {@link ValueEncoder} that recorded them.
+ * 
+ * @see ColumnDecoder
+ */
+@Mutable
+class ColumnEncoder extends ValueEncoder {
+    
+    /* -------------------------------------------------- Layout -------------------------------------------------- */
+    
+    /**
+     * Returns whether the objects of the given converter are flattened into the columns of their fields.
+     * This is the case for non-primitive converters that are not nested in themselves, just as in the {@link FieldLayout field layout}.
+     */
+    @Pure
+    static boolean isFlattened(@Nonnull Converter<?, ?> converter, @NonCaptured @Unmodified @Nonnull Set<Converter<?, ?>> visiting) {
+        return !converter.isPrimitiveConverter() && !visiting.contains(converter);
+    }
+    
+    /**
+     * Returns the number of columns which the objects of the given converter occupy when they are flattened.
+     */
+    @Pure
+    static @NonNegative int countColumns(@Nonnull Converter<?, ?> converter, @NonCaptured @Modified @Nonnull Set<Converter<?, ?>> visiting) {
+        visiting.add(converter);
+        int count = 0;
+        for (@Nonnull CustomField field : converter.getFields(Representation.INTERNAL)) {
+            final @Nonnull CustomType type = field.getCustomType();
+            if (type instanceof CustomType.CustomConverterType && isFlattened(((CustomType.CustomConverterType) type).getConverter(), visiting)) {
+                count += countColumns(((CustomType.CustomConverterType) type).getConverter(), visiting);
+            } else {
+                count++;
+            }
+        }
+        visiting.remove(converter);
+        return count;
+    }
+    
+    /* -------------------------------------------------- Cursor -------------------------------------------------- */
+    
+    private final @Nonnull Partition partition;
+    
+    private final int row;
+    
+    private int column = 0;
+    
+    private final @Nonnull Set<Converter<?, ?>> visiting = new HashSet<>();
+    
+    /**
+     * Stores the given primitive value in the next column.
+     */
+    @Impure
+    private void number(long value) {
+        if (column == partition.getColumnCount()) { throw new IllegalStateException("The converter encoded more values than its fields."); }
+        partition.setNumber(column++, row, value);
+    }
+    
+    /**
+     * Stores the given reference in the next column.
+     */
+    @Impure
+    private void reference(@Nonnull Object reference) {
+        if (column == partition.getColumnCount()) { throw new IllegalStateException("The converter encoded more values than its fields."); }
+        partition.setReference(column++, row, reference);
+    }
+    
+    /**
+     * Returns a new value encoder whose recorded values are stored in the next column.
+     */
+    @Impure
+    private @Nonnull ValueEncoder record() {
+        final @Nonnull ValueEncoder encoder = ValueEncoder.with(Representation.INTERNAL);
+        reference(encoder);
+        return encoder;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    private ColumnEncoder(@Nonnull Partition partition, int row) {
+        super(Representation.INTERNAL);
+        
+        this.partition = partition;
+        this.row = row;
+    }
+    
+    /**
+     * Splits the given entry with the given converter into the given row of the given partition.
+     */
+    @Impure
+    static <@Unspecifiable ENTRY> void encode(@Nonnull Partition partition, int row, @Nonnull Converter<ENTRY, ?> converter, @NonCaptured @Unmodified @Nonnull ENTRY entry) {
+        final @Nonnull ColumnEncoder encoder = new ColumnEncoder(partition, row);
+        encoder.encodeObject(converter, entry);
+        if (encoder.column != partition.getColumnCount()) { throw new IllegalStateException("The converter encoded fewer values than its fields."); }
+    }
+    
+    /* -------------------------------------------------- Objects -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nonnull TYPE object) {
+        if (isFlattened(converter, visiting)) {
+            visiting.add(converter);
+            try {
+                converter.convert(object, this);
+            } catch (@Nonnull ConnectionException exception) {
+                throw UncheckedExceptionBuilder.withCause(exception).build();
+            } finally {
+                visiting.remove(converter);
+            }
+        } else {
+            record().encodeObject(converter, object);
+        }
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeNullableObject(@Nonnull Converter<TYPE, ?> converter, @NonCaptured @Unmodified @Nullable TYPE object) {
+        if (isFlattened(converter, visiting)) {
+            if (object != null) {
+                encodeObject(converter, object);
+            } else {
+                final int count = countColumns(converter, visiting);
+                if (column + count > partition.getColumnCount()) { throw new IllegalStateException("The converter encoded more values than its fields."); }
+                if (count > 0) { partition.setReference(column, row, converter); }
+                column += count;
+            }
+        } else {
+            record().encodeNullableObject(converter, object);
+        }
+    }
+    
+    /* -------------------------------------------------- Values -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeBoolean(boolean value) {
+        number(value ? 1 : 0);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger08(byte value) {
+        number(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger16(short value) {
+        number(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger32(int value) {
+        number(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64(long value) {
+        number(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger(@Nonnull BigInteger value) {
+        reference(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal32(float value) {
+        number(Float.floatToRawIntBits(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64(double value) {
+        number(Double.doubleToRawLongBits(value));
+    }
+    
+    @Impure
+    @Override
+    public void encodeString01(char value) {
+        number(value);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString64(@Nonnull @MaxSize(64) String string) {
+        reference(string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeString(@Nonnull String string) {
+        reference(string);
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary128(@Nonnull @Size(16) byte[] bytes) {
+        reference(bytes.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary256(@Nonnull @Size(32) byte[] bytes) {
+        reference(bytes.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinary(@Nonnull byte[] bytes) {
+        reference(bytes.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeBinaryStream(@Nonnull InputStream inputStream, @NonNegative int length) {
+        record().encodeBinaryStream(inputStream, length);
+    }
+    
+    /* -------------------------------------------------- Arrays -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public void encodeInteger32Array(@Nonnull int[] values) {
+        reference(values.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeInteger64Array(@Nonnull long[] values) {
+        reference(values.clone());
+    }
+    
+    @Impure
+    @Override
+    public void encodeDecimal64Array(@Nonnull double[] values) {
+        reference(values.clone());
+    }
+    
+    /* -------------------------------------------------- Collections -------------------------------------------------- */
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        record().encodeOrderedIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeOrderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        record().encodeOrderedIterableWithNullableElements(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterable(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nonnull TYPE> iterable) {
+        record().encodeUnorderedIterable(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable TYPE> void encodeUnorderedIterableWithNullableElements(@Nonnull Converter<TYPE, ?> converter, @Nonnull FiniteIterable<@Nullable TYPE> iterable) {
+        record().encodeUnorderedIterableWithNullableElements(converter, iterable);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMap(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nonnull KEY, @Nonnull VALUE> map) {
+        record().encodeMap(keyConverter, valueConverter, map);
+    }
+    
+    @Impure
+    @Override
+    public <@Unspecifiable KEY, @Unspecifiable VALUE> void encodeMapWithNullableValues(@Nonnull Converter<KEY, ?> keyConverter, @Nonnull Converter<VALUE, ?> valueConverter, @Nonnull Map<@Nullable KEY, @Nullable VALUE> map) {
+        record().encodeMapWithNullableValues(keyConverter, valueConverter, map);
+    }
+    
+}
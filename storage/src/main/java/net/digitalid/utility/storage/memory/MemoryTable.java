@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.storage.memory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.Nonnull;
+
+import net.digitalid.utility.annotations.generics.Specifiable;
+import net.digitalid.utility.annotations.generics.Unspecifiable;
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.annotations.ownership.Capturable;
+import net.digitalid.utility.annotations.ownership.NonCaptured;
+import net.digitalid.utility.annotations.ownership.Shared;
+import net.digitalid.utility.annotations.parameter.Unmodified;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.model.FieldLayout;
+import net.digitalid.utility.functional.interfaces.Predicate;
+import net.digitalid.utility.functional.interfaces.UnaryOperator;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.storage.Table;
+import net.digitalid.utility.storage.interfaces.Unit;
+import net.digitalid.utility.validation.annotations.elements.NonNullableElements;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A memory table stores the entries of a {@link Table table} in memory, which makes it usable as a fast local store and as a stand-in for a database.
+ * The entries are split by the converter of the table into one array per {@link Table#getColumnNames(Unit) column} and rebuilt from these arrays when they are scanned.
+ * The entries of each {@link Unit unit} are stored in a separate partition, which is guarded by its own read-write lock.
+ * The order in which the entries are scanned is not preserved when entries are deleted.
+ */
+@Mutable
+public class MemoryTable<@Unspecifiable ENTRY, @Specifiable PROVIDED> {
+    
+    /* -------------------------------------------------- Table -------------------------------------------------- */
+    
+    private final @Nonnull Table<ENTRY, PROVIDED> table;
+    
+    /**
+     * Returns the table whose entries are stored in this memory table.
+     */
+    @Pure
+    public @Nonnull Table<ENTRY, PROVIDED> getTable() {
+        return table;
+    }
+    
+    /* -------------------------------------------------- Columns -------------------------------------------------- */
+    
+    private final @Nonnull @NonNullableElements ImmutableList<String> columnNames;
+    
+    /**
+     * Returns the names of the columns in which the entries are stored.
+     */
+    @Pure
+    public @Nonnull @NonNullableElements ImmutableList<String> getColumnNames() {
+        return columnNames;
+    }
+    
+    /* -------------------------------------------------- Partitions -------------------------------------------------- */
+    
+    private final @Nonnull ConcurrentMap<@Nonnull String, @Nonnull Partition> partitions = new ConcurrentHashMap<>();
+    
+    /**
+     * Returns the partition of the given unit, which is created if it does not yet exist.
+     */
+    @Impure
+    private @Nonnull Partition getPartition(@Nonnull Unit unit) {
+        return partitions.computeIfAbsent(table.getSchemaName(unit), name -> new Partition(columnNames.size()));
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    protected MemoryTable(@Nonnull Table<ENTRY, PROVIDED> table) {
+        this.table = table;
+        this.columnNames = FieldLayout.of(table, Representation.INTERNAL).getColumnNames();
+        if (ColumnEncoder.countColumns(table, new HashSet<>()) != columnNames.size()) { throw new IllegalArgumentException("The fields of the table " + table.getName() + " cannot be mapped to columns."); }
+    }
+    
+    /**
+     * Returns a new, empty memory table for the entries of the given table.
+     */
+    @Pure
+    public static <@Unspecifiable ENTRY, @Specifiable PROVIDED> @Capturable @Nonnull MemoryTable<ENTRY, PROVIDED> with(@Nonnull Table<ENTRY, PROVIDED> table) {
+        return new MemoryTable<>(table);
+    }
+    
+    /* -------------------------------------------------- Size -------------------------------------------------- */
+    
+    /**
+     * Returns the number of entries stored on the given unit.
+     */
+    @Pure
+    public @NonNegative int size(@Nonnull Unit unit) {
+        final @Nonnull Partition partition = getPartition(unit);
+        final @Nonnull Lock lock = partition.getLock().readLock();
+        lock.lock();
+        try {
+            return partition.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /* -------------------------------------------------- Insertion -------------------------------------------------- */
+    
+    /**
+     * Inserts the given entry on the given unit.
+     * 
+     * @throws IllegalStateException if the converter of the table does not encode each of its fields with exactly one call.
+     */
+    @Impure
+    public void insert(@Nonnull Unit unit, @NonCaptured @Unmodified @Nonnull ENTRY entry) {
+        final @Nonnull Partition partition = getPartition(unit);
+        final @Nonnull Lock lock = partition.getLock().writeLock();
+        lock.lock();
+        try {
+            insert(partition, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Appends the given entry to the given partition and returns its row.
+     * The row is removed again if the entry cannot be split into its columns.
+     */
+    @Impure
+    private @NonNegative int insert(@Nonnull Partition partition, @NonCaptured @Unmodified @Nonnull ENTRY entry) {
+        final int row = partition.addRow();
+        try {
+            ColumnEncoder.encode(partition, row, table, entry);
+        } catch (@Nonnull RuntimeException exception) {
+            partition.removeRow(row);
+            throw exception;
+        }
+        return row;
+    }
+    
+    /* -------------------------------------------------- Scanning -------------------------------------------------- */
+    
+    /**
+     * Returns the entries stored on the given unit, which are rebuilt with the given provided value.
+     * The returned iterable is a snapshot, which is not affected by later modifications of this memory table.
+     */
+    @Pure
+    public @Capturable @Nonnull FiniteIterable<@Nonnull ENTRY> scan(@Nonnull Unit unit, @Shared PROVIDED provided) throws RecoveryException {
+        return scan(unit, provided, entry -> true);
+    }
+    
+    /**
+     * Returns the entries stored on the given unit that satisfy the given predicate, which are rebuilt with the given provided value.
+     * The returned iterable is a snapshot, which is not affected by later modifications of this memory table.
+     */
+    @Pure
+    public @Capturable @Nonnull FiniteIterable<@Nonnull ENTRY> scan(@Nonnull Unit unit, @Shared PROVIDED provided, @Nonnull Predicate<? super ENTRY> predicate) throws RecoveryException {
+        final @Nonnull Partition partition = getPartition(unit);
+        final @Nonnull Lock lock = partition.getLock().readLock();
+        lock.lock();
+        try {
+            final @Nonnull List<@Nonnull ENTRY> entries = new ArrayList<>(partition.size());
+            for (int row = 0; row < partition.size(); row++) {
+                final @Nonnull ENTRY entry = ColumnDecoder.decode(partition, row, table, provided);
+                if (predicate.evaluate(entry)) { entries.add(entry); }
+            }
+            return FiniteIterable.of(entries);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /* -------------------------------------------------- Modification -------------------------------------------------- */
+    
+    /**
+     * Replaces the entries stored on the given unit that satisfy the given predicate with the result of the given operator and returns their number.
+     * The entries are rebuilt with the given provided value before they are passed to the predicate and the operator.
+     */
+    @Impure
+    public @NonNegative int update(@Nonnull Unit unit, @Shared PROVIDED provided, @Nonnull Predicate<? super ENTRY> predicate, @Nonnull UnaryOperator<ENTRY> operator) throws RecoveryException {
+        final @Nonnull Partition partition = getPartition(unit);
+        final @Nonnull Lock lock = partition.getLock().writeLock();
+        lock.lock();
+        try {
+            int count = 0;
+            for (int row = 0; row < partition.size(); row++) {
+                final @Nonnull ENTRY entry = ColumnDecoder.decode(partition, row, table, provided);
+                if (predicate.evaluate(entry)) {
+                    // The updated entry is split into a new row first so that a failing converter leaves the old row intact.
+                    insert(partition, operator.evaluate(entry));
+                    partition.removeRow(row);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Deletes the entries stored on the given unit that satisfy the given predicate and returns their number.
+     * The entries are rebuilt with the given provided value before they are passed to the predicate.
+     */
+    @Impure
+    public @NonNegative int delete(@Nonnull Unit unit, @Shared PROVIDED provided, @Nonnull Predicate<? super ENTRY> predicate) throws RecoveryException {
+        final @Nonnull Partition partition = getPartition(unit);
+        final @Nonnull Lock lock = partition.getLock().writeLock();
+        lock.lock();
+        try {
+            int count = 0;
+            for (int row = 0; row < partition.size(); ) {
+                if (predicate.evaluate(ColumnDecoder.decode(partition, row, table, provided))) {
+                    partition.removeRow(row);
+                    count++;
+                } else {
+                    row++;
+                }
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Deletes all entries stored on the given unit.
+     */
+    @Impure
+    public void clear(@Nonnull Unit unit) {
+        final @Nonnull Partition partition = getPartition(unit);
+        final @Nonnull Lock lock = partition.getLock().writeLock();
+        lock.lock();
+        try {
+            partition.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.storage.memory;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.annotations.method.Impure;
+import net.digitalid.utility.annotations.method.Pure;
+import net.digitalid.utility.validation.annotations.math.NonNegative;
+import net.digitalid.utility.validation.annotations.type.Mutable;
+
+/**
+ * A partition stores the rows of a table on a single unit in one array per column.
+ * Each column consists of an array for primitive values and an array for references, which are allocated when they are first written.
+ * Rows are removed by moving the last row into their place, which is why the order of the rows is not preserved.
+ * The caller has to hold the {@link #getLock() lock} of the partition while accessing it.
+ */
+@Mutable
+class Partition {
+    
+    /* -------------------------------------------------- Lock -------------------------------------------------- */
+    
+    private final @Nonnull ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    /**
+     * Returns the lock which guards the rows of this partition.
+     */
+    @Pure
+    @Nonnull ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+    
+    /* -------------------------------------------------- Columns -------------------------------------------------- */
+    
+    private final @Nonnull long[][] numbers;
+    
+    private final @Nonnull Object[][] references;
+    
+    /**
+     * Returns the number of columns of this partition.
+     */
+    @Pure
+    @NonNegative int getColumnCount() {
+        return numbers.length;
+    }
+    
+    /* -------------------------------------------------- Rows -------------------------------------------------- */
+    
+    private int capacity = 16;
+    
+    private int size = 0;
+    
+    /**
+     * Returns the number of rows in this partition.
+     */
+    @Pure
+    @NonNegative int size() {
+        return size;
+    }
+    
+    /**
+     * Appends an empty row and returns its index.
+     */
+    @Impure
+    @NonNegative int addRow() {
+        if (size == capacity) {
+            capacity *= 2;
+            for (int column = 0; column < numbers.length; column++) {
+                if (numbers[column] != null) { numbers[column] = Arrays.copyOf(numbers[column], capacity); }
+                if (references[column] != null) { references[column] = Arrays.copyOf(references[column], capacity); }
+            }
+        }
+        return size++;
+    }
+    
+    /**
+     * Removes the row with the given index by moving the last row into its place.
+     */
+    @Impure
+    void removeRow(@NonNegative int row) {
+        final int last = --size;
+        for (int column = 0; column < numbers.length; column++) {
+            if (numbers[column] != null) { numbers[column][row] = numbers[column][last]; }
+            if (references[column] != null) {
+                references[column][row] = references[column][last];
+                references[column][last] = null;
+            }
+        }
+    }
+    
+    /**
+     * Removes all rows from this partition.
+     */
+    @Impure
+    void clear() {
+        for (@Nullable Object[] column : references) {
+            if (column != null) { Arrays.fill(column, 0, size, null); }
+        }
+        size = 0;
+    }
+    
+    /* -------------------------------------------------- Cells -------------------------------------------------- */
+    
+    /**
+     * Returns the primitive value in the given column of the given row.
+     */
+    @Pure
+    long getNumber(@NonNegative int column, @NonNegative int row) {
+        if (numbers[column] == null) { throw new IllegalStateException("The column " + column + " contains no primitive values."); }
+        return numbers[column][row];
+    }
+    
+    /**
+     * Sets the primitive value in the given column of the given row.
+     */
+    @Impure
+    void setNumber(@NonNegative int column, @NonNegative int row, long value) {
+        if (numbers[column] == null) { numbers[column] = new long[capacity]; }
+        numbers[column][row] = value;
+    }
+    
+    /**
+     * Returns the reference in the given column of the given row.
+     */
+    @Pure
+    @Nullable Object getReference(@NonNegative int column, @NonNegative int row) {
+        return references[column] != null ? references[column][row] : null;
+    }
+    
+    /**
+     * Sets the reference in the given column of the given row.
+     */
+    @Impure
+    void setReference(@NonNegative int column, @NonNegative int row, @Nullable Object reference) {
+        if (references[column] == null) { references[column] = new Object[capacity]; }
+        references[column][row] = reference;
+    }
+    
+    /* -------------------------------------------------- Constructors -------------------------------------------------- */
+    
+    Partition(@NonNegative int columnCount) {
+        this.numbers = new long[columnCount][];
+        this.references = new Object[columnCount][];
+    }
+    
+}
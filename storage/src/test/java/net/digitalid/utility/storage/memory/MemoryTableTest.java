@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2017 Synacts GmbH, Switzerland (info@synacts.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.digitalid.utility.storage.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import net.digitalid.utility.conversion.collectors.ArrayCollector;
+import net.digitalid.utility.conversion.converters.StringConverter;
+import net.digitalid.utility.conversion.enumerations.Representation;
+import net.digitalid.utility.conversion.exceptions.ConnectionException;
+import net.digitalid.utility.conversion.exceptions.RecoveryException;
+import net.digitalid.utility.conversion.interfaces.Converter;
+import net.digitalid.utility.conversion.interfaces.Decoder;
+import net.digitalid.utility.conversion.interfaces.Encoder;
+import net.digitalid.utility.conversion.model.CustomAnnotation;
+import net.digitalid.utility.conversion.model.CustomField;
+import net.digitalid.utility.conversion.model.CustomType;
+import net.digitalid.utility.functional.iterables.FiniteIterable;
+import net.digitalid.utility.immutable.ImmutableList;
+import net.digitalid.utility.storage.Module;
+import net.digitalid.utility.storage.TableImplementation;
+import net.digitalid.utility.storage.interfaces.Unit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MemoryTableTest {
+    
+    /**
+     * Converts points, which are represented as arrays of two integers.
+     */
+    private static class PointConverter implements Converter<int[], Void> {
+        
+        private static final @Nonnull PointConverter INSTANCE = new PointConverter();
+        
+        @Override
+        public @Nonnull Class<int[]> getType() {
+            return int[].class;
+        }
+        
+        @Override
+        public @Nonnull String getTypeName() {
+            return "Point";
+        }
+        
+        @Override
+        public @Nonnull String getTypePackage() {
+            return "net.digitalid.utility.storage.memory";
+        }
+        
+        @Override
+        public @Nonnull ImmutableList<CustomField> getFields(@Nonnull Representation representation) {
+            return ImmutableList.withElements(CustomField.with(CustomType.INTEGER32, "x"), CustomField.with(CustomType.INTEGER32, "y"));
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> void convert(@Nonnull int[] point, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            encoder.encodeInteger32(point[0]);
+            encoder.encodeInteger32(point[1]);
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> @Nonnull int[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+            final int x = decoder.decodeInteger32();
+            return new int[] {x, decoder.decodeInteger32()};
+        }
+        
+    }
+    
+    /**
+     * Stores people with a name, a nullable home, a list of tags and a score, which are represented as arrays.
+     * The converter fails after the name if the name is invalid.
+     */
+    private static class PeopleTable extends TableImplementation<Object[], Void> {
+        
+        private static final @Nonnull String INVALID = "invalid";
+        
+        @Override
+        public @Nonnull Class<Object[]> getType() {
+            return Object[].class;
+        }
+        
+        @Override
+        public @Nonnull String getTypeName() {
+            return "People";
+        }
+        
+        @Override
+        public @Nonnull String getTypePackage() {
+            return "net.digitalid.utility.storage.memory";
+        }
+        
+        @Override
+        public @Nullable Module getParentModule() {
+            return null;
+        }
+        
+        @Override
+        public @Nonnull ImmutableList<CustomField> getFields(@Nonnull Representation representation) {
+            return ImmutableList.withElements(CustomField.with(CustomType.STRING, "name"), CustomField.with(CustomType.TUPLE.of(PointConverter.INSTANCE), "home", ImmutableList.withElements(CustomAnnotation.with(Nullable.class))), CustomField.with(CustomType.LIST.of(CustomType.STRING), "tags"), CustomField.with(CustomType.DECIMAL64, "score"));
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> void convert(@Nonnull Object[] person, @Nonnull Encoder<EXCEPTION> encoder) throws EXCEPTION {
+            encoder.encodeString((String) person[0]);
+            if (person[0].equals(INVALID)) { throw new IllegalArgumentException("The person is invalid."); }
+            encoder.encodeNullableObject(PointConverter.INSTANCE, (int[]) person[1]);
+            encoder.encodeOrderedIterable(StringConverter.INSTANCE, FiniteIterable.of((Object[]) person[2]).map(tag -> (String) tag));
+            encoder.encodeDecimal64((Double) person[3]);
+        }
+        
+        @Override
+        public <EXCEPTION extends ConnectionException> @Nonnull Object[] recover(@Nonnull Decoder<EXCEPTION> decoder, Void provided) throws EXCEPTION, RecoveryException {
+            final @Nonnull String name = decoder.decodeString();
+            final @Nullable int[] home = decoder.decodeNullableObject(PointConverter.INSTANCE, null);
+            final @Nonnull Object[] tags = decoder.decodeOrderedIterable(StringConverter.INSTANCE, null, ArrayCollector::with);
+            return new Object[] {name, home, tags, decoder.decodeDecimal64()};
+        }
+        
+    }
+    
+    private static final @Nonnull Unit OTHER = () -> "other";
+    
+    /**
+     * Returns the person with the given number, whose home is null if the number is divisible by three.
+     */
+    private static @Nonnull Object[] person(int number) {
+        return new Object[] {"p" + number, number % 3 == 0 ? null : new int[] {number, -number}, new Object[] {"t" + number, "u"}, number / 2.0};
+    }
+    
+    /**
+     * Returns a new memory table with the given number of people on the default unit and one person on the other unit.
+     */
+    private static @Nonnull MemoryTable<Object[], Void> table(int count) {
+        final @Nonnull MemoryTable<Object[], Void> table = MemoryTable.with(new PeopleTable());
+        for (int i = 0; i < count; i++) { table.insert(Unit.DEFAULT, person(i)); }
+        table.insert(OTHER, person(100));
+        return table;
+    }
+    
+    /**
+     * Returns the names of the people stored on the given unit.
+     */
+    private static @Nonnull Set<String> names(@Nonnull MemoryTable<Object[], Void> table, @Nonnull Unit unit) throws RecoveryException {
+        final @Nonnull Set<String> names = new HashSet<>();
+        for (@Nonnull Object[] person : table.scan(unit, null)) { assertTrue(names.add((String) person[0])); }
+        return names;
+    }
+    
+    /**
+     * Returns the names of the people with the given numbers.
+     */
+    private static @Nonnull Set<String> names(int... numbers) {
+        final @Nonnull Set<String> names = new HashSet<>();
+        for (int number : numbers) { names.add("p" + number); }
+        return names;
+    }
+    
+    /**
+     * Returns the given names as a set.
+     */
+    private static @Nonnull Set<String> names(@Nonnull String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+    
+    @Test
+    public void testColumns() {
+        assertEquals(Arrays.asList("name", "home_x", "home_y", "tags", "score"), new ArrayList<>(MemoryTable.with(new PeopleTable()).getColumnNames()));
+    }
+    
+    @Test
+    public void testInsertAndScan() throws Exception {
+        final @Nonnull MemoryTable<Object[], Void> table = table(40);
+        assertEquals(40, table.size(Unit.DEFAULT));
+        assertEquals(1, table.size(OTHER));
+        
+        final @Nonnull List<Object[]> people = new ArrayList<>();
+        for (@Nonnull Object[] person : table.scan(Unit.DEFAULT, null)) { people.add(person); }
+        for (int i = 0; i < 40; i++) {
+            final @Nonnull Object[] person = people.get(i);
+            assertEquals("p" + i, person[0]);
+            if (i % 3 == 0) { assertNull(person[1]); }
+            else { assertArrayEquals(new int[] {i, -i}, (int[]) person[1]); }
+            assertArrayEquals(new Object[] {"t" + i, "u"}, (Object[]) person[2]);
+            assertEquals(i / 2.0, (Double) person[3], 0);
+        }
+        
+        assertEquals(names(4, 5), names(table.scan(Unit.DEFAULT, null, person -> person[0].equals("p4") || person[0].equals("p5")).map(person -> (String) person[0]).toArray(new String[0])));
+        assertEquals(names(100), names(table, OTHER));
+    }
+    
+    @Test
+    public void testSnapshot() throws Exception {
+        final @Nonnull MemoryTable<Object[], Void> table = table(3);
+        final @Nonnull FiniteIterable<Object[]> snapshot = table.scan(Unit.DEFAULT, null);
+        table.clear(Unit.DEFAULT);
+        assertEquals(3, snapshot.size());
+        assertEquals(0, table.size(Unit.DEFAULT));
+        assertEquals(1, table.size(OTHER));
+    }
+    
+    @Test
+    public void testUpdate() throws Exception {
+        final @Nonnull MemoryTable<Object[], Void> table = table(10);
+        assertEquals(4, table.update(Unit.DEFAULT, null, person -> Integer.parseInt(((String) person[0]).substring(1)) % 3 == 0, person -> new Object[] {person[0] + "!", new int[] {7, 7}, person[2], -1.0}));
+        assertEquals(10, table.size(Unit.DEFAULT));
+        assertEquals(names("p0!", "p1", "p2", "p3!", "p4", "p5", "p6!", "p7", "p8", "p9!"), names(table, Unit.DEFAULT));
+        for (@Nonnull Object[] person : table.scan(Unit.DEFAULT, null, person -> ((String) person[0]).endsWith("!"))) {
+            assertArrayEquals(new int[] {7, 7}, (int[]) person[1]);
+            assertEquals(-1.0, (Double) person[3], 0);
+        }
+        assertEquals(names(100), names(table, OTHER));
+    }
+    
+    @Test
+    public void testDelete() throws Exception {
+        final @Nonnull MemoryTable<Object[], Void> table = table(10);
+        assertEquals(2, table.delete(Unit.DEFAULT, null, person -> person[0].equals("p2") || person[0].equals("p5")));
+        assertEquals(names(0, 1, 3, 4, 6, 7, 8, 9), names(table, Unit.DEFAULT));
+        // The last rows are moved into the places of the deleted rows, which is why the moved rows have to be checked as well.
+        assertEquals(5, table.delete(Unit.DEFAULT, null, person -> person[1] == null || person[0].equals("p8")));
+        assertEquals(names(1, 4, 7), names(table, Unit.DEFAULT));
+        assertEquals(3, table.delete(Unit.DEFAULT, null, person -> true));
+        assertEquals(0, table.size(Unit.DEFAULT));
+        assertEquals(names(100), names(table, OTHER));
+    }
+    
+    @Test
+    public void testClear() throws Exception {
+        final @Nonnull MemoryTable<Object[], Void> table = table(10);
+        table.clear(OTHER);
+        assertEquals(0, table.size(OTHER));
+        assertEquals(10, table.size(Unit.DEFAULT));
+        table.insert(OTHER, person(200));
+        assertEquals(names(200), names(table, OTHER));
+    }
+    
+    @Test
+    public void testFailingConverter() throws Exception {
+        final @Nonnull MemoryTable<Object[], Void> table = table(5);
+        try {
+            table.insert(Unit.DEFAULT, new Object[] {PeopleTable.INVALID, null, new Object[0], 0.0});
+            fail("The insertion of an invalid person has to fail.");
+        } catch (@Nonnull IllegalArgumentException exception) {
+            assertEquals(5, table.size(Unit.DEFAULT));
+        }
+        table.insert(Unit.DEFAULT, person(5));
+        assertEquals(names(0, 1, 2, 3, 4, 5), names(table, Unit.DEFAULT));
+        
+        try {
+            table.update(Unit.DEFAULT, null, person -> person[0].equals("p1"), person -> new Object[] {PeopleTable.INVALID, null, new Object[0], 0.0});
+            fail("The update to an invalid person has to fail.");
+        } catch (@Nonnull IllegalArgumentException exception) {
+            assertEquals(names(0, 1, 2, 3, 4, 5), names(table, Unit.DEFAULT));
+        }
+    }
+    
+}